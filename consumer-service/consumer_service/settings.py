@@ -97,6 +97,8 @@ KAFKA_CONFIG = {
     'inventory_topic': os.getenv('KAFKA_INVENTORY_TOPIC', 'inventory_data'),
     'group_id': os.getenv('KAFKA_GROUP_ID', 'consumer-service-group'),
     'auto_offset_reset': os.getenv('KAFKA_AUTO_OFFSET_RESET', 'earliest'),
+    # read_committed hides records of open or aborted producer transactions
+    'isolation_level': os.getenv('KAFKA_ISOLATION_LEVEL', 'read_committed'),
 }
 
 # Analytics Configuration
@@ -0,0 +1,129 @@
+"""
+Decoder for the compact binary record encoding written by crm-backend
+(dev.chef.crm_backend.serialization.CompactRecordCodec).
+
+Wire format (all integers are unsigned LEB128 varints):
+
+    byte    magic      0xC5
+    byte    schema id  1 = CustomerData v1, 2 = InventoryItem v1, 3 = CustomerData v2,
+                       4 = StockDelta v1
+    fields  in schema order
+
+    string       varint n; n = 0 is null, otherwise n - 1 UTF-8 bytes follow
+    nullable int varint n; n = 0 is null, otherwise zigzag(value) = n - 1
+    json map     encoded as a string holding the map's JSON text (null when absent)
+    string list  varint n; n = 0 is null, otherwise n - 1 strings follow
+
+    CustomerData v1:  id string, name string, email string, additional json map
+    InventoryItem v1: id string, name string, stock nullable int, additional json map
+    CustomerData v2:  v1 fields, then productIds string list
+    StockDelta v1:    id string, oldStock nullable int, newStock nullable int, delta nullable int,
+                      crossing varint (0 none, 1 low, 2 recovered)
+
+Unknown schema ids are rejected rather than guessed.
+"""
+import json
+from typing import Any, Dict, List, Optional, Tuple
+
+MAGIC = 0xC5
+CUSTOMER_V1 = 1
+INVENTORY_V1 = 2
+CUSTOMER_V2 = 3
+STOCK_DELTA_V1 = 4
+
+STOCK_CROSSINGS = ('NONE', 'LOW', 'RECOVERED')
+
+
+class CompactDecodeError(ValueError):
+    """Raised when a payload is not a valid compact record."""
+
+
+def is_compact(data: bytes) -> bool:
+    """Check whether a message value uses the compact encoding."""
+    return data is not None and len(data) >= 2 and data[0] == MAGIC
+
+
+def _varint(data: bytes, pos: int) -> Tuple[int, int]:
+    result = 0
+    shift = 0
+    while True:
+        if pos >= len(data):
+            raise CompactDecodeError("Truncated compact record")
+        b = data[pos]
+        pos += 1
+        result |= (b & 0x7F) << shift
+        if not b & 0x80:
+            return result, pos
+        shift += 7
+        if shift > 63:
+            raise CompactDecodeError("Malformed varint in compact record")
+
+
+def _string(data: bytes, pos: int) -> Tuple[Optional[str], int]:
+    n, pos = _varint(data, pos)
+    if n == 0:
+        return None, pos
+    end = pos + n - 1
+    if end > len(data):
+        raise CompactDecodeError("Truncated compact record")
+    return data[pos:end].decode('utf-8'), end
+
+
+def _nullable_int(data: bytes, pos: int) -> Tuple[Optional[int], int]:
+    n, pos = _varint(data, pos)
+    if n == 0:
+        return None, pos
+    zigzag = n - 1
+    return (zigzag >> 1) ^ -(zigzag & 1), pos
+
+
+def _string_list(data: bytes, pos: int) -> Tuple[Optional[List[Optional[str]]], int]:
+    n, pos = _varint(data, pos)
+    if n == 0:
+        return None, pos
+    if n - 1 > len(data) - pos:
+        raise CompactDecodeError("Truncated compact record")
+    values = []
+    for _ in range(n - 1):
+        value, pos = _string(data, pos)
+        values.append(value)
+    return values, pos
+
+
+def _json_map(data: bytes, pos: int) -> Tuple[Optional[dict], int]:
+    text, pos = _string(data, pos)
+    return (json.loads(text) if text is not None else None), pos
+
+
+def decode(data: bytes) -> Dict[str, Any]:
+    """Decode a compact record into the same dict shape the JSON encoding produces."""
+    if not is_compact(data):
+        raise CompactDecodeError("Not a compact record (missing magic byte)")
+    schema, pos = _varint(data, 1)
+    if schema in (CUSTOMER_V1, CUSTOMER_V2):
+        record_id, pos = _string(data, pos)
+        name, pos = _string(data, pos)
+        email, pos = _string(data, pos)
+        additional, pos = _json_map(data, pos)
+        product_ids = None
+        if schema == CUSTOMER_V2:
+            product_ids, pos = _string_list(data, pos)
+        return {'id': record_id, 'name': name, 'email': email, 'additional': additional,
+                'productIds': product_ids}
+    if schema == INVENTORY_V1:
+        record_id, pos = _string(data, pos)
+        name, pos = _string(data, pos)
+        stock, pos = _nullable_int(data, pos)
+        additional, pos = _json_map(data, pos)
+        return {'id': record_id, 'name': name, 'stock': stock, 'additional': additional}
+    if schema == STOCK_DELTA_V1:
+        record_id, pos = _string(data, pos)
+        old_stock, pos = _nullable_int(data, pos)
+        new_stock, pos = _nullable_int(data, pos)
+        delta, pos = _nullable_int(data, pos)
+        crossing, pos = _varint(data, pos)
+        if crossing >= len(STOCK_CROSSINGS):
+            raise CompactDecodeError(f"Unknown stock crossing {crossing}")
+        return {'id': record_id, 'oldStock': old_stock, 'newStock': new_stock, 'delta': delta,
+                'crossing': STOCK_CROSSINGS[crossing]}
+    raise CompactDecodeError(f"Unknown compact schema id {schema}")
@@ -6,14 +6,24 @@ import json
 import logging
 import signal
 import sys
-from typing import Dict, Any
+from typing import Dict, Any, Optional
 from confluent_kafka import Consumer, KafkaError, KafkaException
 from django.conf import settings
 
+from . import codec
 from .utils import IdempotencyHandler, DataMerger, AnalyticsClient
 
 logger = logging.getLogger(__name__)
 
+# Metadata headers stamped by crm-backend on every record
+FINGERPRINT_HEADER = 'crm_fingerprint'
+METADATA_HEADERS = {
+    'crm_source': 'source',
+    'crm_fetched_at': 'fetched_at',
+    'crm_schema_version': 'schema_version',
+    'crm_cycle_id': 'cycle_id',
+}
+
 
 class KafkaMessageConsumer:
     """Main Kafka consumer for processing customer and inventory data."""
@@ -40,6 +50,7 @@ class KafkaMessageConsumer:
             'bootstrap.servers': self.kafka_config['bootstrap_servers'],
             'group.id': self.kafka_config['group_id'],
             'auto.offset.reset': self.kafka_config['auto_offset_reset'],
+            'isolation.level': self.kafka_config.get('isolation_level', 'read_committed'),
             'enable.auto.commit': False,  # Manual commit for better control
             'session.timeout.ms': 6000,
             'max.poll.interval.ms': 300000,
@@ -99,29 +110,49 @@ class KafkaMessageConsumer:
             # Decode message
             topic = msg.topic()
             key = msg.key().decode('utf-8') if msg.key() else None
-            value = msg.value().decode('utf-8')
             
-            # Log raw data received from Kafka
-            logger.info(f"[KAFKA RAW] Topic: {topic} | Key: {key} | Data: {value}")
+            # Tombstone: the producer reports that this record no longer exists upstream
+            if msg.value() is None:
+                logger.info(f"[KAFKA RAW] Topic: {topic} | Key: {key} | Tombstone")
+                self._process_tombstone(topic, key)
+                self.consumer.commit(message=msg)
+                self.stats['successfully_processed'] += 1
+                return
             
-            logger.debug(f"Received message from topic '{topic}' with key '{key}'")
+            headers = self._read_headers(msg)
             
-            # Parse JSON
+            # The producer's fingerprint identifies the content, so duplicates are skipped
+            # before the value is decoded; older producers send none and are hashed below
+            message_hash = headers.get(FINGERPRINT_HEADER)
+            if message_hash and self._skip_duplicate(msg, message_hash, topic, key):
+                return
+            
+            raw = msg.value()
+            
+            # Parse compact binary or JSON, depending on the producer's per-topic encoding
             try:
-                data = json.loads(value)
-            except json.JSONDecodeError as e:
-                logger.error(f"Failed to parse JSON message: {e}")
+                if codec.is_compact(raw):
+                    data = codec.decode(raw)
+                    value = json.dumps(data)
+                else:
+                    value = raw.decode('utf-8')
+                    data = json.loads(value)
+            except (codec.CompactDecodeError, UnicodeDecodeError, json.JSONDecodeError) as e:
+                logger.error(f"Failed to decode message: {e}")
                 self.stats['errors'] += 1
                 self.consumer.commit(message=msg)
                 return
             
+            # Log raw data received from Kafka
+            logger.info(f"[KAFKA RAW] Topic: {topic} | Key: {key} | Data: {value}")
+            
+            logger.debug(f"Received message from topic '{topic}' with key '{key}'")
+            
             # Check for duplicates
-            message_hash = self.idempotency_handler.generate_message_hash(data)
-            if self.idempotency_handler.is_duplicate(message_hash):
-                logger.info(f"Duplicate message detected (hash: {message_hash[:8]}...), skipping")
-                self.stats['duplicates_skipped'] += 1
-                self.consumer.commit(message=msg)
-                return
+            if not message_hash:
+                message_hash = self.idempotency_handler.generate_message_hash(data)
+                if self._skip_duplicate(msg, message_hash, topic, key):
+                    return
             
             # Process based on topic
             if topic == self.kafka_config['customer_topic']:
@@ -132,10 +163,9 @@ class KafkaMessageConsumer:
                 logger.warning(f"Unknown topic: {topic}")
             
             # Mark as processed
-            self.idempotency_handler.mark_as_processed(
-                message_hash,
-                metadata={'topic': topic, 'key': key}
-            )
+            metadata = {'topic': topic, 'key': key}
+            metadata.update((name, headers[header]) for header, name in METADATA_HEADERS.items() if header in headers)
+            self.idempotency_handler.mark_as_processed(message_hash, metadata=metadata, topic=topic, key=key)
             
             # Commit offset
             self.consumer.commit(message=msg)
@@ -151,6 +181,27 @@ class KafkaMessageConsumer:
             # Still commit to avoid reprocessing problematic messages
             self.consumer.commit(message=msg)
     
+    def _read_headers(self, msg) -> Dict[str, str]:
+        """Decode the message's headers to text; values that are not UTF-8 are dropped."""
+        headers = {}
+        for name, value in msg.headers() or []:
+            if value is None:
+                continue
+            try:
+                headers[name] = value.decode('utf-8')
+            except UnicodeDecodeError:
+                logger.debug(f"Ignoring non-text header '{name}'")
+        return headers
+    
+    def _skip_duplicate(self, msg, message_hash: str, topic: str, key: Optional[str]) -> bool:
+        """Commit and count the message if it was already processed."""
+        if not self.idempotency_handler.is_duplicate(message_hash, topic, key):
+            return False
+        logger.info(f"Duplicate message detected (hash: {message_hash[:8]}...), skipping")
+        self.stats['duplicates_skipped'] += 1
+        self.consumer.commit(message=msg)
+        return True
+    
     def _process_customer_message(self, data: Dict[str, Any]):
         """Process customer data message."""
         logger.debug(f"Processing customer data: {data.get('id')}")
@@ -163,6 +214,18 @@ class KafkaMessageConsumer:
         self.data_merger.add_inventory_data(data)
         self._try_send_merged_data()
     
+    def _process_tombstone(self, topic: str, key: str):
+        """Drop a deleted record from the merge cache and from the processed records."""
+        if key:
+            # a later re-creation with the same content must not be skipped as a duplicate
+            self.idempotency_handler.forget(topic, key)
+        if topic == self.kafka_config['customer_topic']:
+            self.data_merger.remove_customer_data(key)
+        elif topic == self.kafka_config['inventory_topic']:
+            self.data_merger.remove_inventory_data(key)
+        else:
+            logger.warning(f"Unknown topic: {topic}")
+    
     def _try_send_merged_data(self):
         """
         Attempt to merge and send data to Analytics System.
@@ -18,7 +18,12 @@ logger = logging.getLogger(__name__)
 # ============= IDEMPOTENCY =============
 
 class IdempotencyHandler:
-    """Handles message deduplication using Redis."""
+    """
+    Handles message deduplication using Redis.
+    Keyed records remember the last processed fingerprint per topic and key, so a value
+    that changes back, or a record re-created after its tombstone, is processed again.
+    Records without a key are remembered by fingerprint alone.
+    """
     
     def __init__(self):
         redis_config = settings.REDIS_CONFIG
@@ -32,28 +37,53 @@ class IdempotencyHandler:
         self.ttl = redis_config['ttl']
     
     def generate_message_hash(self, message_data: dict) -> str:
-        """Generate unique hash for message."""
+        """
+        Generate unique hash for message.
+        Only used for records without the producer's crm_fingerprint header.
+        """
         message_str = json.dumps(message_data, sort_keys=True)
         return hashlib.sha256(message_str.encode()).hexdigest()
     
-    def is_duplicate(self, message_hash: str) -> bool:
+    def _redis_key(self, message_hash: str, topic: Optional[str], key: Optional[str]) -> str:
+        if topic and key:
+            return f"processed:{topic}:{key}"
+        return f"processed:{message_hash}"
+    
+    def is_duplicate(self, message_hash: str, topic: Optional[str] = None, key: Optional[str] = None) -> bool:
         """Check if message already processed."""
         try:
-            return self.redis_client.exists(f"processed:{message_hash}") == 1
+            stored = self.redis_client.get(self._redis_key(message_hash, topic, key))
         except redis.RedisError as e:
             logger.error(f"Redis error checking duplicate: {e}")
             return False
+        if stored is None:
+            return False
+        if not (topic and key):
+            return True
+        try:
+            return json.loads(stored).get('fingerprint') == message_hash
+        except (ValueError, AttributeError):
+            return False
     
-    def mark_as_processed(self, message_hash: str, metadata: Optional[dict] = None) -> bool:
+    def mark_as_processed(self, message_hash: str, metadata: Optional[dict] = None,
+                          topic: Optional[str] = None, key: Optional[str] = None) -> bool:
         """Mark message as processed with TTL."""
         try:
-            key = f"processed:{message_hash}"
-            value = json.dumps(metadata) if metadata else "processed"
-            self.redis_client.setex(key, self.ttl, value)
+            value = json.dumps({'fingerprint': message_hash, **(metadata or {})})
+            self.redis_client.setex(self._redis_key(message_hash, topic, key), self.ttl, value)
             return True
         except redis.RedisError as e:
             logger.error(f"Redis error marking as processed: {e}")
             return False
+    
+    def forget(self, topic: str, key: str) -> bool:
+        """Forget the processed fingerprint of a deleted record."""
+        try:
+            self.redis_client.delete(self._redis_key('', topic, key))
+            return True
+        except redis.RedisError as e:
+            logger.error(f"Redis error forgetting processed record: {e}")
+            return False
 
 
 # ============= DATA MERGER =============
@@ -77,6 +107,14 @@ class DataMerger:
         if inventory_id:
             self.inventory_cache[inventory_id] = inventory_data
     
+    def remove_customer_data(self, customer_id: str) -> None:
+        """Remove a deleted customer from cache."""
+        self.customer_cache.pop(customer_id, None)
+    
+    def remove_inventory_data(self, inventory_id: str) -> None:
+        """Remove a deleted product from cache."""
+        self.inventory_cache.pop(inventory_id, None)
+    
     def merge_data(self) -> Optional[Dict[str, Any]]:
         """Merge cached data into unified JSON."""
         if not self.customer_cache and not self.inventory_cache:
@@ -1,4 +1,5 @@
-import Fastify, { type FastifyInstance } from 'fastify'
+import { createHash } from 'node:crypto'
+import Fastify, { type FastifyInstance, type FastifyReply, type FastifyRequest } from 'fastify'
 
 interface Customer {
   id: number
@@ -13,7 +14,8 @@ type CustomerInput = Omit<Customer, 'id'>
 const fastify: FastifyInstance = Fastify({ logger: true })
 
 const ALL_PRODUCT_IDS = ['1', '2', '3', '4', '5', '6'] as const
-const INITIAL_CUSTOMERS_COUNT = 10
+// raise for local tests of the partitioned fetch, e.g. CUSTOMERS_COUNT=200000
+const INITIAL_CUSTOMERS_COUNT = Number(process.env.CUSTOMERS_COUNT ?? 10)
 
 const toInt = (value: string) => Number.parseInt(value, 10)
 
@@ -39,9 +41,67 @@ const seedCustomers = (count: number): Customer[] =>
   })
 
 let customers: Customer[] = seedCustomers(INITIAL_CUSTOMERS_COUNT)
+let customersModifiedAt = new Date()
+
+// Optional push notification to crm-backend (POST /webhooks/<source>), so a change is published
+// without waiting for its next poll. Fire and forget: a missed notification is caught by the poll.
+const CHANGE_WEBHOOK_URL = process.env.CHANGE_WEBHOOK_URL
+const CHANGE_WEBHOOK_TOKEN = process.env.CHANGE_WEBHOOK_TOKEN
+
+const notifyChanged = (ids: Array<string | number>) => {
+  if (!CHANGE_WEBHOOK_URL) return
+  fetch(CHANGE_WEBHOOK_URL, {
+    method: 'POST',
+    headers: {
+      'content-type': 'application/json',
+      ...(CHANGE_WEBHOOK_TOKEN ? { authorization: `Bearer ${CHANGE_WEBHOOK_TOKEN}` } : {}),
+    },
+    body: JSON.stringify({ ids: ids.map(String) }),
+    signal: AbortSignal.timeout(2000),
+  }).catch((err: unknown) => fastify.log.warn({ err }, 'change notification failed'))
+}
+
+const etagOf = (payload: string) => `"${createHash('sha1').update(payload).digest('base64url')}"`
+
+// Conditional GET: answers 304 when the client's ETag / Last-Modified validators are still current
+const sendConditional = (request: FastifyRequest, reply: FastifyReply, body: unknown, modifiedAt: Date) => {
+  const payload = JSON.stringify(body)
+  const etag = etagOf(payload)
+  const lastModified = new Date(Math.floor(modifiedAt.getTime() / 1000) * 1000)
+
+  reply.header('etag', etag).header('last-modified', lastModified.toUTCString())
+
+  const ifNoneMatch = request.headers['if-none-match']
+  const ifModifiedSince = request.headers['if-modified-since']
+  const notModified = ifNoneMatch !== undefined
+    ? ifNoneMatch === etag
+    : ifModifiedSince !== undefined && lastModified.getTime() <= Date.parse(ifModifiedSince)
+
+  if (notModified) return reply.code(304).send()
+  return reply.type('application/json').send(payload)
+}
 
-// GET all customers
-fastify.get('/customers', async () => customers)
+interface PageQuery {
+  offset?: string
+  limit?: string
+}
+
+// GET all customers, or one page of them with ?offset=&limit= (ordered by id, as stored)
+fastify.get<{ Querystring: PageQuery }>('/customers', async (request, reply) => {
+  const { offset, limit } = request.query
+  if (offset === undefined && limit === undefined) {
+    return sendConditional(request, reply, customers, customersModifiedAt)
+  }
+
+  const start = offset === undefined ? 0 : toInt(offset)
+  const size = limit === undefined ? customers.length : toInt(limit)
+  if (!Number.isInteger(start) || !Number.isInteger(size) || start < 0 || size < 1) {
+    return reply.code(400).send({ error: 'offset must be >= 0 and limit >= 1' })
+  }
+
+  reply.header('x-total-count', String(customers.length))
+  return sendConditional(request, reply, customers.slice(start, start + size), customersModifiedAt)
+})
 
 // GET single customer
 fastify.get<{ Params: { id: string } }>('/customers/:id', async (request, reply) => {
@@ -61,6 +121,8 @@ fastify.post<{ Body: CustomerInput }>('/customers', async (request, reply) => {
   }
 
   customers.push(newCustomer)
+  customersModifiedAt = new Date()
+  notifyChanged([newCustomer.id])
   return reply.code(201).send(newCustomer)
 })
 
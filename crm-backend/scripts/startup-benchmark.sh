@@ -0,0 +1,59 @@
+#!/bin/bash
+# Startup benchmark: time from process start to the first acknowledged Kafka send.
+#
+# Usage: scripts/startup-benchmark.sh [jvm|aot|cds|native] [runs]
+#
+# Needs Kafka and the upstream APIs running (docker-compose up -d zookeeper kafka crm-api inventory)
+# and the artifact built for the mode:
+#   jvm, aot  ./mvnw -Paot package -DskipTests
+#   cds       ./mvnw -Pcds package -DskipTests
+#   native    ./mvnw -Pnative native:compile -DskipTests
+# Each run starts the service, waits for the "First send acknowledged" log line, which carries
+# the crm.startup.first.ack value, and stops it. Prints every run and the median.
+
+set -e
+
+MODE=${1:-jvm}
+RUNS=${2:-5}
+TIMEOUT_S=${TIMEOUT_S:-120}
+
+cd "$(dirname "$0")/.."
+JAR=target/crm-backend-0.0.1-SNAPSHOT.jar
+
+case "$MODE" in
+	jvm)    CMD=(java -jar "$JAR") ;;
+	aot)    CMD=(java -Dspring.aot.enabled=true -jar "$JAR") ;;
+	cds)    CMD=(java -XX:SharedArchiveFile=target/cds/application.jsa -Dspring.aot.enabled=true
+	             -jar target/cds/crm-backend-0.0.1-SNAPSHOT.jar) ;;
+	native) CMD=(target/crm-backend) ;;
+	*)      echo "Unknown mode: $MODE (jvm|aot|cds|native)" >&2; exit 1 ;;
+esac
+
+LOG=$(mktemp)
+trap 'rm -f "$LOG"' EXIT
+
+results=()
+for run in $(seq 1 "$RUNS"); do
+	: > "$LOG"
+	"${CMD[@]}" > "$LOG" 2>&1 &
+	pid=$!
+	ms=""
+	for _ in $(seq 1 $((TIMEOUT_S * 10))); do
+		ms=$(sed -n 's/.*First send acknowledged \([0-9]*\) ms after process start.*/\1/p' "$LOG")
+		[ -n "$ms" ] && break
+		kill -0 "$pid" 2>/dev/null || break
+		sleep 0.1
+	done
+	kill "$pid" 2>/dev/null || true
+	wait "$pid" 2>/dev/null || true
+	if [ -z "$ms" ]; then
+		echo "Run $run: no Kafka ack within ${TIMEOUT_S}s, last log lines:" >&2
+		tail -20 "$LOG" >&2
+		exit 1
+	fi
+	echo "Run $run: first Kafka ack after $ms ms"
+	results+=("$ms")
+done
+
+median=$(printf '%s\n' "${results[@]}" | sort -n | awk '{ v[NR] = $1 } END { print (NR % 2) ? v[(NR + 1) / 2] : (v[NR / 2] + v[NR / 2 + 1]) / 2 }')
+echo "$MODE: median time to first Kafka ack over $RUNS runs: $median ms"
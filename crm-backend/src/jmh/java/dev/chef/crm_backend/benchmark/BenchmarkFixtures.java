@@ -0,0 +1,90 @@
+package dev.chef.crm_backend.benchmark;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.mock.MockProducerFactory;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.web.client.RestTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import dev.chef.crm_backend.delta.DeltaFilterFactory;
+import dev.chef.crm_backend.delta.RecordFingerprinter;
+import dev.chef.crm_backend.dto.CustomerData;
+import dev.chef.crm_backend.serialization.TopicRoutingSerializer;
+
+/**
+ * Shared test data and in-memory stand-ins for the upstream HTTP API and the Kafka broker.
+ */
+final class BenchmarkFixtures {
+
+	private BenchmarkFixtures() {
+	}
+
+	static List<CustomerData> customers(int count) {
+		List<CustomerData> customers = new ArrayList<>(count);
+		for (int i = 1; i <= count; i++) {
+			customers.add(new CustomerData(String.valueOf(i), "Customer " + i, "customer" + i + "@example.com",
+					i % 10 == 0 ? Map.of("tier", "gold", "productIds", List.of("1", "2")) : null));
+		}
+		return customers;
+	}
+
+	static byte[] customersJson(int count) throws Exception {
+		return new ObjectMapper().writeValueAsBytes(customers(count));
+	}
+
+	/**
+	 * A RestTemplate whose every request is answered with {@code body} from memory.
+	 */
+	static RestTemplate inMemoryRestTemplate(byte[] body) {
+		return new RestTemplate((uri, method) -> {
+			MockClientHttpRequest request = new MockClientHttpRequest(method, uri);
+			MockClientHttpResponse response = new MockClientHttpResponse(body, HttpStatus.OK);
+			response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+			request.setResponse(response);
+			return request;
+		});
+	}
+
+	/**
+	 * A MockProducer that acks every send immediately and runs the real value serializer.
+	 * KafkaTemplate closes its producer after every non-transactional send, so close is a
+	 * no-op here to keep the shared instance usable.
+	 */
+	static MockProducer<String, Object> mockProducer(String compactTopics) {
+		TopicRoutingSerializer valueSerializer = new TopicRoutingSerializer();
+		valueSerializer.configure(Map.of(TopicRoutingSerializer.COMPACT_TOPICS_CONFIG, compactTopics), false);
+		return new MockProducer<>(true, null, new StringSerializer(), valueSerializer) {
+			@Override
+			public void close() {
+			}
+
+			@Override
+			public void close(Duration timeout) {
+			}
+		};
+	}
+
+	/**
+	 * Delta filters backed by the in-memory fingerprint store.
+	 */
+	static DeltaFilterFactory deltaFilterFactory(boolean enabled) {
+		return new DeltaFilterFactory(new RecordFingerprinter(), enabled, false, "memory", Path.of("data", "delta"),
+				100_000, 0);
+	}
+
+	static KafkaTemplate<String, Object> kafkaTemplate(MockProducer<String, Object> producer) {
+		return new KafkaTemplate<>(new MockProducerFactory<>(() -> producer));
+	}
+}
@@ -0,0 +1,68 @@
+package dev.chef.crm_backend.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+import dev.chef.crm_backend.dto.CustomerData;
+import dev.chef.crm_backend.http.HttpValidatorCache;
+import dev.chef.crm_backend.http.UpstreamClient;
+import dev.chef.crm_backend.resilience.UpstreamLimiterRegistry;
+
+/**
+ * Decoding a {@code /customers} payload: streamed element by element through
+ * {@link UpstreamClient} versus materializing the whole {@code List<CustomerData>}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CustomerDecodeBenchmark {
+
+	private static final TypeReference<List<CustomerData>> CUSTOMER_LIST_TYPE = new TypeReference<>() {};
+
+	@Param({ "1000", "100000", "1000000" })
+	public int records;
+
+	private byte[] payload;
+	private UpstreamClient upstreamClient;
+	private final ObjectMapper objectMapper = JsonMapper.builder()
+			.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+			.build();
+
+	@Setup
+	public void setUp() throws Exception {
+		payload = BenchmarkFixtures.customersJson(records);
+		upstreamClient = new UpstreamClient(BenchmarkFixtures.inMemoryRestTemplate(payload), new HttpValidatorCache(),
+				UpstreamLimiterRegistry.NONE);
+	}
+
+	@Benchmark
+	public long streamingDecode(Blackhole blackhole) {
+		return upstreamClient.streamArray("http://crm/customers", CustomerData.class, blackhole::consume).records();
+	}
+
+	@Benchmark
+	public List<CustomerData> bufferedListDecode() throws Exception {
+		return objectMapper.readValue(payload, CUSTOMER_LIST_TYPE);
+	}
+}
@@ -0,0 +1,79 @@
+package dev.chef.crm_backend.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.clients.producer.MockProducer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.chef.crm_backend.http.HttpValidatorCache;
+import dev.chef.crm_backend.http.UpstreamClient;
+import dev.chef.crm_backend.metrics.PipelineMetrics;
+import dev.chef.crm_backend.producer.CrmCustomerProducer;
+import dev.chef.crm_backend.producer.ProducerFixtures;
+import dev.chef.crm_backend.publish.CycleResult;
+import dev.chef.crm_backend.publish.PublisherFixtures;
+import dev.chef.crm_backend.resilience.UpstreamLimiterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * One full {@link CrmCustomerProducer#produce()} cycle: in-memory HTTP response, streaming
+ * decode, delta check, serialization and send to a {@link MockProducer} that acks instantly.
+ * With {@code delta=true} every cycle after the first is unchanged, so it measures the
+ * steady-state cost of a static dataset.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FetchPublishBenchmark {
+
+	@Param({ "1000", "100000" })
+	public int records;
+
+	@Param({ "false", "true" })
+	public boolean delta;
+
+	@Param({ "json", "compact" })
+	public String encoding;
+
+	private MockProducer<String, Object> mockProducer;
+	private CrmCustomerProducer producer;
+
+	@Setup
+	public void setUp() throws Exception {
+		byte[] payload = BenchmarkFixtures.customersJson(records);
+		PipelineMetrics metrics = new PipelineMetrics(new SimpleMeterRegistry());
+		mockProducer = BenchmarkFixtures.mockProducer("compact".equals(encoding) ? "customer_data" : "");
+		producer = ProducerFixtures.customers(
+				new UpstreamClient(BenchmarkFixtures.inMemoryRestTemplate(payload), new HttpValidatorCache(),
+						UpstreamLimiterRegistry.NONE),
+				PublisherFixtures.publisher(BenchmarkFixtures.kafkaTemplate(mockProducer), metrics, 1000),
+				BenchmarkFixtures.deltaFilterFactory(delta), metrics)
+				.baseUrl("http://crm")
+				.build();
+	}
+
+	@TearDown(Level.Invocation)
+	public void clearHistory() {
+		mockProducer.clear();
+	}
+
+	@Benchmark
+	public CycleResult produceCycle() {
+		return producer.produce();
+	}
+}
@@ -0,0 +1,78 @@
+package dev.chef.crm_backend.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.chef.crm_backend.delta.FingerprintStore;
+import dev.chef.crm_backend.delta.InMemoryFingerprintStore;
+import dev.chef.crm_backend.delta.OffHeapFingerprintStore;
+
+/**
+ * One steady-state delta cycle over {@code ids} numeric customer ids, a put per id and a
+ * sweep, heap map versus off-heap table.
+ * <p>
+ * At the end of the trial the live heap after a full GC is printed. It includes the
+ * benchmark's own id strings (about 50 bytes per id), on top of which the off-heap store
+ * should add nothing however large {@code ids} is.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgs = { "-Xmx4g", "-XX:MaxDirectMemorySize=8g" })
+public class FingerprintStoreBenchmark {
+
+	@Param({ "1000000", "10000000" })
+	public int ids;
+
+	@Param({ "memory", "offheap" })
+	public String store;
+
+	private FingerprintStore fingerprints;
+	private String[] idStrings;
+	private long generation;
+
+	@Setup
+	public void setUp() {
+		fingerprints = "offheap".equals(store) ? new OffHeapFingerprintStore() : new InMemoryFingerprintStore();
+		idStrings = new String[ids];
+		for (int i = 0; i < ids; i++) {
+			idStrings[i] = Integer.toString(i);
+		}
+		cycle();
+	}
+
+	@TearDown
+	public void reportHeap() {
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		memory.gc();
+		System.out.printf("%n%s store, %d ids: %d MB live heap%n", store, fingerprints.size(),
+				memory.getHeapMemoryUsage().getUsed() >> 20);
+		fingerprints.clear();
+	}
+
+	@Benchmark
+	public long cycle() {
+		generation++;
+		for (int i = 0; i < ids; i++) {
+			fingerprints.put(idStrings[i], i ^ generation, generation);
+		}
+		fingerprints.sweep(generation, id -> { });
+		return fingerprints.size();
+	}
+}
@@ -0,0 +1,130 @@
+package dev.chef.crm_backend.benchmark;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.clients.producer.MockProducer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import com.sun.net.httpserver.HttpServer;
+
+import dev.chef.crm_backend.http.HttpValidatorCache;
+import dev.chef.crm_backend.http.ReactiveUpstreamClient;
+import dev.chef.crm_backend.http.UpstreamClient;
+import dev.chef.crm_backend.metrics.PipelineMetrics;
+import dev.chef.crm_backend.producer.CrmCustomerProducer;
+import dev.chef.crm_backend.producer.ProducerFixtures;
+import dev.chef.crm_backend.publish.KafkaPublisher;
+import dev.chef.crm_backend.publish.PublisherFixtures;
+import dev.chef.crm_backend.resilience.UpstreamLimiterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * One cycle of {@code sources} customer producers running at once, blocking versus reactive
+ * pipeline, against an in-process HTTP server over loopback and a {@link MockProducer}.
+ * <p>
+ * Cycles are started from virtual threads as the producer lanes do. The blocking pipeline
+ * reads each response on its lane's thread through the JDK client; the reactive one shares a
+ * {@link ReactiveUpstreamClient} with two HTTP threads across all sources.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReactivePipelineBenchmark {
+
+	@Param({ "16", "256" })
+	public int sources;
+
+	@Param({ "1000" })
+	public int records;
+
+	@Param({ "blocking", "reactive" })
+	public String pipeline;
+
+	private HttpServer server;
+	private MockProducer<String, Object> mockProducer;
+	private ExecutorService lanes;
+	private final List<CrmCustomerProducer> producers = new ArrayList<>();
+
+	@Setup
+	public void setUp() throws Exception {
+		byte[] payload = BenchmarkFixtures.customersJson(records);
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+		server.createContext("/customers", exchange -> {
+			exchange.getResponseHeaders().add("Content-Type", "application/json");
+			exchange.sendResponseHeaders(200, payload.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(payload);
+			}
+		});
+		server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+		server.start();
+
+		PipelineMetrics metrics = new PipelineMetrics(new SimpleMeterRegistry());
+		mockProducer = BenchmarkFixtures.mockProducer("");
+		KafkaPublisher publisher = PublisherFixtures.publisher(BenchmarkFixtures.kafkaTemplate(mockProducer), metrics,
+				1000);
+		HttpValidatorCache validatorCache = new HttpValidatorCache();
+		UpstreamClient blockingClient = new UpstreamClient(new RestTemplate(new JdkClientHttpRequestFactory()),
+				validatorCache, UpstreamLimiterRegistry.NONE);
+		ReactiveUpstreamClient reactiveClient = new ReactiveUpstreamClient(validatorCache, 2000, 10000, 2);
+		String baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+		for (int i = 0; i < sources; i++) {
+			ProducerFixtures.CustomerProducerBuilder producer = ProducerFixtures.customers(blockingClient, publisher,
+					BenchmarkFixtures.deltaFilterFactory(false), metrics)
+					.baseUrl(baseUrl);
+			if ("reactive".equals(pipeline)) {
+				producer.reactive(reactiveClient);
+			}
+			producers.add(producer.build());
+		}
+		lanes = Executors.newVirtualThreadPerTaskExecutor();
+	}
+
+	@TearDown(Level.Invocation)
+	public void clearHistory() {
+		mockProducer.clear();
+	}
+
+	@TearDown
+	public void tearDown() {
+		lanes.shutdownNow();
+		server.stop(0);
+	}
+
+	@Benchmark
+	public long cycleAllSources() throws Exception {
+		List<Future<Long>> cycles = new ArrayList<>(sources);
+		for (CrmCustomerProducer producer : producers) {
+			cycles.add(lanes.submit(() -> producer.produce().acked()));
+		}
+		long acked = 0;
+		for (Future<Long> cycle : cycles) {
+			acked += cycle.get();
+		}
+		return acked;
+	}
+}
@@ -0,0 +1,69 @@
+package dev.chef.crm_backend.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.chef.crm_backend.dto.CustomerData;
+import dev.chef.crm_backend.dto.InventoryItem;
+import dev.chef.crm_backend.serialization.TopicRoutingSerializer;
+
+/**
+ * Value encoding cost per record: spring-kafka JSON versus the compact binary codec.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecordEncodingBenchmark {
+
+	private final CustomerData customer = new CustomerData("123456", "Customer 123456", "customer123456@example.com",
+			Map.of("tier", "gold", "region", "east"));
+	private final InventoryItem item = new InventoryItem("7", "Socks", 19);
+	private TopicRoutingSerializer serializer;
+
+	@Setup
+	public void setUp() {
+		serializer = new TopicRoutingSerializer();
+		serializer.configure(Map.of(TopicRoutingSerializer.COMPACT_TOPICS_CONFIG, "compact_customers,compact_inventory"), false);
+	}
+
+	@TearDown
+	public void tearDown() {
+		serializer.close();
+	}
+
+	@Benchmark
+	public byte[] customerJson() {
+		return serializer.serialize("customer_data", new RecordHeaders(), customer);
+	}
+
+	@Benchmark
+	public byte[] customerCompact() {
+		return serializer.serialize("compact_customers", new RecordHeaders(), customer);
+	}
+
+	@Benchmark
+	public byte[] inventoryJson() {
+		return serializer.serialize("inventory_data", new RecordHeaders(), item);
+	}
+
+	@Benchmark
+	public byte[] inventoryCompact() {
+		return serializer.serialize("compact_inventory", new RecordHeaders(), item);
+	}
+}
@@ -0,0 +1,74 @@
+package dev.chef.crm_backend.benchmark;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import dev.chef.crm_backend.delta.RecordFingerprinter;
+import dev.chef.crm_backend.dto.CustomerData;
+
+/**
+ * Per-record work done in {@code produce()} before a send: deriving the Kafka key (with the
+ * random-UUID fallback for id-less records) and computing the delta fingerprint.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecordKeyBenchmark {
+
+	private static final int BATCH = 1000;
+
+	private List<CustomerData> withIds;
+	private List<CustomerData> withoutIds;
+	private final RecordFingerprinter fingerprinter = new RecordFingerprinter();
+
+	@Setup
+	public void setUp() {
+		withIds = BenchmarkFixtures.customers(BATCH);
+		withoutIds = withIds.stream().map(c -> new CustomerData(null, c.name(), c.email(), c.additional())).toList();
+	}
+
+	private static String keyOf(CustomerData c) {
+		return c.id() != null ? c.id() : UUID.randomUUID().toString();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public void keyFromId(Blackhole blackhole) {
+		for (CustomerData c : withIds) {
+			blackhole.consume(keyOf(c));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public void keyFromRandomUuid(Blackhole blackhole) {
+		for (CustomerData c : withoutIds) {
+			blackhole.consume(keyOf(c));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public void fingerprint(Blackhole blackhole) {
+		for (CustomerData c : withIds) {
+			blackhole.consume(fingerprinter.fingerprint(c));
+		}
+	}
+}
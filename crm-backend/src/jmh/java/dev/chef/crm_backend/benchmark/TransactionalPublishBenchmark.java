@@ -0,0 +1,130 @@
+package dev.chef.crm_backend.benchmark;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+
+import dev.chef.crm_backend.dto.CustomerData;
+import dev.chef.crm_backend.metrics.PipelineMetrics;
+import dev.chef.crm_backend.publish.CycleResult;
+import dev.chef.crm_backend.publish.KafkaPublisher;
+import dev.chef.crm_backend.publish.PublishCycle;
+import dev.chef.crm_backend.publish.PublisherFixtures;
+import dev.chef.crm_backend.publish.TransactionalDelivery;
+import dev.chef.crm_backend.serialization.TopicRoutingSerializer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Records per second through one publish cycle, at-least-once versus transactional delivery.
+ * <p>
+ * By default the broker is a {@link MockProducer}, which only shows the client-side cost of
+ * transactions. The real cost is the commit round trips, so for picking a delivery per topic
+ * run it against a broker: {@code -Djmh.args="TransactionalPublish -p bootstrapServers=localhost:9092"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@OperationsPerInvocation(TransactionalPublishBenchmark.RECORDS)
+public class TransactionalPublishBenchmark {
+
+	static final int RECORDS = 10_000;
+	private static final String TOPIC = "customer_data_bench";
+
+	@Param({ "at-least-once", "transactional" })
+	public String delivery;
+
+	/**
+	 * Records per transaction in transactional mode; 0 commits once per cycle.
+	 */
+	@Param({ "0", "1000" })
+	public int recordsPerTransaction;
+
+	@Param({ "" })
+	public String bootstrapServers;
+
+	private final List<CustomerData> customers = BenchmarkFixtures.customers(RECORDS);
+	private MockProducer<String, Object> mockProducer;
+	private ProducerFactory<String, Object> plainFactory;
+	private ProducerFactory<String, Object> transactionalFactory;
+	private KafkaPublisher publisher;
+
+	@Setup
+	public void setUp() {
+		if (bootstrapServers.isEmpty()) {
+			mockProducer = BenchmarkFixtures.mockProducer("");
+			mockProducer.initTransactions();
+			plainFactory = () -> mockProducer;
+			transactionalFactory = () -> mockProducer;
+		} else {
+			plainFactory = brokerFactory(null);
+			transactionalFactory = brokerFactory("bench-tx-");
+		}
+		TransactionalDelivery transactions = "transactional".equals(delivery)
+				? new TransactionalDelivery(transactionalFactory, Set.of(TOPIC), recordsPerTransaction)
+				: TransactionalDelivery.NONE;
+		publisher = PublisherFixtures.transactional(new KafkaTemplate<>(plainFactory), transactions,
+				new PipelineMetrics(new SimpleMeterRegistry()), 1000);
+	}
+
+	@TearDown(Level.Invocation)
+	public void clearHistory() {
+		if (mockProducer != null) {
+			mockProducer.clear();
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		plainFactory.reset();
+		transactionalFactory.reset();
+	}
+
+	@Benchmark
+	public CycleResult publishCycle() {
+		PublishCycle cycle = publisher.openCycle("bench", TOPIC);
+		for (CustomerData customer : customers) {
+			cycle.send(customer.id(), customer);
+		}
+		return cycle.complete();
+	}
+
+	private ProducerFactory<String, Object> brokerFactory(String transactionIdPrefix) {
+		Map<String, Object> config = new HashMap<>();
+		config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+		config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+		config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, TopicRoutingSerializer.class);
+		config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+		config.put(ProducerConfig.ACKS_CONFIG, "all");
+		DefaultKafkaProducerFactory<String, Object> factory = new DefaultKafkaProducerFactory<>(config);
+		if (transactionIdPrefix != null) {
+			factory.setTransactionIdPrefix(transactionIdPrefix);
+		}
+		return factory;
+	}
+}
@@ -2,12 +2,10 @@ package dev.chef.crm_backend;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.retry.annotation.EnableRetry;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableScheduling
-@EnableRetry
 public class CrmBackendApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,61 @@
+package dev.chef.crm_backend.config;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import dev.chef.crm_backend.coordination.FileCoordinator;
+import dev.chef.crm_backend.coordination.SourceOwnership;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Assignment of producer sources to instances.
+ * <p>
+ * By default this instance polls every source. With {@code integration.coordination.enabled=true}
+ * the instances sharing {@code integration.coordination.dir} split the sources between them
+ * and rebalance when one joins or leaves; see {@link FileCoordinator}.
+ */
+@Configuration
+public class CoordinationConfig {
+
+	@Bean
+	@ConditionalOnProperty(name = "integration.coordination.enabled", havingValue = "false", matchIfMissing = true)
+	public SourceOwnership allSources() {
+		return SourceOwnership.ALL;
+	}
+
+	@Bean
+	@ConditionalOnProperty(name = "integration.coordination.enabled", havingValue = "true")
+	public FileCoordinator fileCoordinator(MeterRegistry meterRegistry,
+			@Value("${integration.coordination.dir:data/coordination}") Path directory,
+			@Value("${integration.coordination.node-id:}") String nodeId,
+			@Value("${integration.coordination.heartbeat-interval-ms:2000}") long heartbeatIntervalMs,
+			@Value("${integration.coordination.member-timeout-ms:10000}") long memberTimeoutMs) {
+		FileCoordinator coordinator = new FileCoordinator(directory, nodeId.isBlank() ? defaultNodeId() : nodeId,
+				Duration.ofMillis(heartbeatIntervalMs), Duration.ofMillis(memberTimeoutMs));
+		Gauge.builder("crm.coordination.members", coordinator, c -> c.members().size())
+				.description("Live instances in the coordination group")
+				.register(meterRegistry);
+		return coordinator;
+	}
+
+	/**
+	 * {@code <host>-<pid>}, unique for several JVMs on one host.
+	 */
+	private static String defaultNodeId() {
+		String host;
+		try {
+			host = InetAddress.getLocalHost().getHostName();
+		} catch (UnknownHostException e) {
+			host = "localhost";
+		}
+		return (host + "-" + ProcessHandle.current().pid()).replaceAll("[^A-Za-z0-9._-]", "_");
+	}
+}
@@ -1,31 +1,166 @@
 package dev.chef.crm_backend.config;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerProducerListener;
 import org.springframework.kafka.core.ProducerFactory;
-import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import dev.chef.crm_backend.publish.TransactionalDelivery;
+import dev.chef.crm_backend.serialization.TopicRoutingSerializer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 @Configuration
 public class KafkaProducerConfig {
 
+	private static final Logger log = LoggerFactory.getLogger(KafkaProducerConfig.class);
+
 	@Value("${integration.kafka.bootstrap-servers:localhost:9092}")
 	private String bootstrapServers;
 
+	@Value("${integration.kafka.topics.customer-data:customer_data}")
+	private String customerTopic;
+
+	@Value("${integration.kafka.topics.inventory-data:inventory_data}")
+	private String inventoryTopic;
+
+	@Value("${integration.kafka.serialization.customer-data:json}")
+	private String customerEncoding;
+
+	@Value("${integration.kafka.serialization.inventory-data:json}")
+	private String inventoryEncoding;
+
+	@Value("${integration.kafka.topics.inventory-stock:inventory_stock}")
+	private String stockTopic;
+
+	@Value("${integration.kafka.serialization.inventory-stock:json}")
+	private String stockEncoding;
+
+	@Value("${integration.kafka.topics.customer-inventory:customer_inventory}")
+	private String customerInventoryTopic;
+
+	@Value("${integration.kafka.delivery.customer-data:at-least-once}")
+	private String customerDelivery;
+
+	@Value("${integration.kafka.delivery.inventory-data:at-least-once}")
+	private String inventoryDelivery;
+
+	@Value("${integration.kafka.delivery.customer-inventory:at-least-once}")
+	private String customerInventoryDelivery;
+
+	@Value("${integration.kafka.transactions.id-prefix:crm-backend-tx-}")
+	private String transactionIdPrefix;
+
+	@Value("${integration.kafka.transactions.records-per-transaction:0}")
+	private int recordsPerTransaction;
+
+	@Value("${integration.kafka.producer.batch-size:16384}")
+	private int batchSize;
+
+	@Value("${integration.kafka.producer.linger-ms:5}")
+	private int lingerMs;
+
+	@Value("${integration.kafka.producer.compression-type:none}")
+	private String compressionType;
+
+	private final ObjectProvider<MeterRegistry> meterRegistry;
+
+	public KafkaProducerConfig(ObjectProvider<MeterRegistry> meterRegistry) {
+		this.meterRegistry = meterRegistry;
+	}
+
 	@Bean
 	public ProducerFactory<String, Object> producerFactory() {
+		return newProducerFactory();
+	}
+
+	/**
+	 * Transactional publishing for the topics configured with
+	 * {@code integration.kafka.delivery.<topic>=transactional}. Its producers come from a
+	 * separate factory with a transaction id prefix, so plain sends keep their own producer.
+	 * The prefix must differ between instances sharing a cluster.
+	 */
+	@Bean
+	public TransactionalDelivery transactionalDelivery(
+			@Value("${integration.outbox.enabled:false}") boolean outboxEnabled) {
+		Set<String> topics = transactionalTopics();
+		if (topics.isEmpty()) {
+			return TransactionalDelivery.NONE;
+		}
+		if (outboxEnabled) {
+			log.warn("Transactional delivery for {} is ignored while the outbox is enabled", topics);
+			return TransactionalDelivery.NONE;
+		}
+		DefaultKafkaProducerFactory<String, Object> factory = newProducerFactory();
+		factory.setTransactionIdPrefix(transactionIdPrefix);
+		log.info("Publishing {} in Kafka transactions ({})", topics, recordsPerTransaction > 0
+				? recordsPerTransaction + " records per transaction" : "one transaction per cycle");
+		return new TransactionalDelivery(factory, topics, recordsPerTransaction);
+	}
+
+	private DefaultKafkaProducerFactory<String, Object> newProducerFactory() {
 		Map<String, Object> configProps = new HashMap<>();
 		configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
 		configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-		configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
-		return new DefaultKafkaProducerFactory<>(configProps);
+		configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, TopicRoutingSerializer.class);
+		configProps.put(TopicRoutingSerializer.COMPACT_TOPICS_CONFIG, compactTopics());
+		// idempotence (the client default, made explicit) keeps retried batches from duplicating
+		// records and is required for transactions
+		configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+		configProps.put(ProducerConfig.ACKS_CONFIG, "all");
+		configProps.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+		configProps.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+		configProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
+		DefaultKafkaProducerFactory<String, Object> factory = new DefaultKafkaProducerFactory<>(configProps);
+		// bridges the client's own metrics (batch-size-avg, record-queue-time-avg, buffer-available-bytes, ...)
+		meterRegistry.ifAvailable(registry -> factory.addListener(new MicrometerProducerListener<>(registry)));
+		return factory;
+	}
+
+	private Set<String> transactionalTopics() {
+		Set<String> topics = new LinkedHashSet<>();
+		if ("transactional".equalsIgnoreCase(customerDelivery)) {
+			topics.add(customerTopic);
+		}
+		if ("transactional".equalsIgnoreCase(inventoryDelivery)) {
+			topics.add(inventoryTopic);
+		}
+		if ("transactional".equalsIgnoreCase(customerInventoryDelivery)) {
+			topics.add(customerInventoryTopic);
+		}
+		return topics;
+	}
+
+	/**
+	 * Topics configured with {@code integration.kafka.serialization.<topic>=compact}; all
+	 * others keep the JSON encoding.
+	 */
+	private String compactTopics() {
+		List<String> topics = new ArrayList<>();
+		if ("compact".equalsIgnoreCase(customerEncoding)) {
+			topics.add(customerTopic);
+		}
+		if ("compact".equalsIgnoreCase(inventoryEncoding)) {
+			topics.add(inventoryTopic);
+		}
+		if ("compact".equalsIgnoreCase(stockEncoding)) {
+			topics.add(stockTopic);
+		}
+		return String.join(",", topics);
 	}
 
 	@Bean
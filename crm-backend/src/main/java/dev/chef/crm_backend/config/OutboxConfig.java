@@ -0,0 +1,56 @@
+package dev.chef.crm_backend.config;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.apache.kafka.common.serialization.Serializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+
+import dev.chef.crm_backend.metrics.PipelineMetrics;
+import dev.chef.crm_backend.outbox.MappedOutbox;
+import dev.chef.crm_backend.outbox.OutboxDrainer;
+import dev.chef.crm_backend.outbox.OutboxSender;
+import dev.chef.crm_backend.serialization.TopicRoutingSerializer;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Write-ahead outbox between the producers and Kafka.
+ * <p>
+ * With {@code integration.outbox.enabled=true} a poll cycle completes once its records are
+ * serialized into the local memory-mapped log; {@link OutboxDrainer} then streams the log to
+ * Kafka in large batches, so a broker outage no longer fails or slows down polling.
+ */
+@Configuration
+@ConditionalOnProperty(name = "integration.outbox.enabled", havingValue = "true")
+public class OutboxConfig {
+
+	@Bean(destroyMethod = "close")
+	public MappedOutbox mappedOutbox(
+			@Value("${integration.outbox.dir:data/outbox}") Path directory,
+			@Value("${integration.outbox.segment-bytes:67108864}") int segmentBytes,
+			@Value("${integration.outbox.max-bytes:1073741824}") long maxBytes) {
+		return new MappedOutbox(directory, segmentBytes, maxBytes);
+	}
+
+	@Bean
+	public OutboxSender outboxSender(MappedOutbox mappedOutbox, ProducerFactory<String, Object> producerFactory) {
+		// same encoding the producer would apply, so drained records go out byte-for-byte as written
+		Serializer<Object> serializer = new TopicRoutingSerializer();
+		serializer.configure(producerFactory.getConfigurationProperties(), false);
+		return new OutboxSender(mappedOutbox, serializer);
+	}
+
+	@Bean
+	public OutboxDrainer outboxDrainer(MappedOutbox mappedOutbox, KafkaTemplate<String, Object> kafkaTemplate,
+			MeterRegistry meterRegistry, PipelineMetrics metrics,
+			@Value("${integration.outbox.batch-size:5000}") int batchSize,
+			@Value("${integration.outbox.send-timeout-ms:30000}") long sendTimeoutMs) {
+		return new OutboxDrainer(mappedOutbox, kafkaTemplate, meterRegistry, batchSize, Duration.ofMillis(sendTimeoutMs),
+				metrics::recordAck);
+	}
+}
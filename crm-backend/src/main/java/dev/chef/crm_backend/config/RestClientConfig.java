@@ -1,15 +1,69 @@
 package dev.chef.crm_backend.config;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import dev.chef.crm_backend.http.UpstreamConnectionPool;
+
+/**
+ * HTTP client used for the upstream REST APIs.
+ * <p>
+ * By default this is a pooled Apache HttpClient (HTTP/1.1 keep-alive, gzip/deflate decoding,
+ * pool metrics). With {@code integration.http.http2=true} the JDK client is used instead,
+ * which negotiates HTTP/2 where the upstream supports it but has no pool metrics and no
+ * transparent response decompression.
+ */
 @Configuration
 public class RestClientConfig {
 
+	@Value("${integration.http.connect-timeout-ms:2000}")
+	private long connectTimeoutMs;
+
+	@Value("${integration.http.read-timeout-ms:10000}")
+	private long readTimeoutMs;
+
 	@Bean
-	public RestTemplate restTemplate() {
-		return new RestTemplate();
+	public RestTemplate restTemplate(ClientHttpRequestFactory upstreamRequestFactory) {
+		return new RestTemplate(upstreamRequestFactory);
+	}
+
+	@Bean
+	@ConditionalOnProperty(name = "integration.http.http2", havingValue = "false", matchIfMissing = true)
+	public UpstreamConnectionPool upstreamConnectionPool(
+			@Value("${integration.http.pool.max-total:32}") int maxTotal,
+			@Value("${integration.http.pool.max-per-route:8}") int maxPerRoute,
+			@Value("${integration.http.pool.lease-timeout-ms:2000}") long leaseTimeoutMs,
+			@Value("${integration.http.pool.idle-timeout-ms:60000}") long idleTimeoutMs) {
+		return new UpstreamConnectionPool(maxTotal, maxPerRoute, Duration.ofMillis(connectTimeoutMs),
+				Duration.ofMillis(readTimeoutMs), Duration.ofMillis(leaseTimeoutMs), Duration.ofMillis(idleTimeoutMs));
+	}
+
+	@Bean
+	@ConditionalOnProperty(name = "integration.http.http2", havingValue = "false", matchIfMissing = true)
+	public ClientHttpRequestFactory pooledRequestFactory(UpstreamConnectionPool upstreamConnectionPool) {
+		return new HttpComponentsClientHttpRequestFactory(upstreamConnectionPool.getHttpClient());
 	}
-}
 
+	@Bean
+	@ConditionalOnProperty(name = "integration.http.http2", havingValue = "true")
+	public ClientHttpRequestFactory http2RequestFactory() {
+		HttpClient httpClient = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_2)
+				.connectTimeout(Duration.ofMillis(connectTimeoutMs))
+				.executor(Executors.newVirtualThreadPerTaskExecutor())
+				.build();
+		JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+		requestFactory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+		return requestFactory;
+	}
+}
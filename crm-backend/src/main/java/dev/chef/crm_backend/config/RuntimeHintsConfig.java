@@ -0,0 +1,35 @@
+package dev.chef.crm_backend.config;
+
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+import dev.chef.crm_backend.dto.CustomerData;
+import dev.chef.crm_backend.dto.CustomerWithProducts;
+import dev.chef.crm_backend.dto.InventoryItem;
+import dev.chef.crm_backend.dto.StockDelta;
+import dev.chef.crm_backend.serialization.TopicRoutingSerializer;
+
+/**
+ * Reflection the AOT engine cannot see from the bean definitions, for the native image.
+ * <p>
+ * The DTOs are bound by Jackson from the upstream responses and into the Kafka payloads, and
+ * the value serializer is instantiated by the Kafka client from its class name.
+ */
+@Configuration
+@RegisterReflectionForBinding({ CustomerData.class, CustomerWithProducts.class, InventoryItem.class,
+		StockDelta.class })
+@ImportRuntimeHints(RuntimeHintsConfig.KafkaClientHints.class)
+public class RuntimeHintsConfig {
+
+	static class KafkaClientHints implements RuntimeHintsRegistrar {
+
+		@Override
+		public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+			hints.reflection().registerType(TopicRoutingSerializer.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+		}
+	}
+}
@@ -0,0 +1,207 @@
+package dev.chef.crm_backend.coordination;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+
+import org.springframework.context.SmartLifecycle;
+
+import dev.chef.crm_backend.delta.XxHash64;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link SourceOwnership} shared by the instances that see the same coordination directory
+ * (a local path for several JVMs on one host, or a shared volume).
+ * <p>
+ * Every instance heartbeats by atomically rewriting {@code <node-id>.member} with the
+ * current time; members whose heartbeat is older than {@code memberTimeout} are considered
+ * gone. Each source is assigned by rendezvous hashing over the live members, so a join or
+ * leave only moves the sources the changed member wins or loses.
+ * <p>
+ * A source newly won after a membership change is only claimed once the view has been
+ * stable for two heartbeat intervals, giving the previous owner time to notice and let go;
+ * sources that move away are released immediately. Handover therefore may skip a cycle but
+ * does not poll a source on two instances, as long as the instances' clocks roughly agree.
+ * <p>
+ * An instance whose own heartbeat could not be written for {@code memberTimeout} owns
+ * nothing: the others have dropped it from their views by then and taken its sources over.
+ */
+public class FileCoordinator implements SourceOwnership, SmartLifecycle {
+
+	private static final Logger log = LoggerFactory.getLogger(FileCoordinator.class);
+	private static final String MEMBER_SUFFIX = ".member";
+
+	private final Path directory;
+	private final String nodeId;
+	private final Duration heartbeatInterval;
+	private final Duration memberTimeout;
+	private final LongSupplier clock;
+
+	private volatile View view = new View(List.of(), List.of(), Long.MIN_VALUE);
+	private volatile long heartbeatExpiresAt = Long.MIN_VALUE;
+	private volatile boolean running;
+	private ScheduledExecutorService heartbeats;
+
+	public FileCoordinator(Path directory, String nodeId, Duration heartbeatInterval, Duration memberTimeout) {
+		this(directory, nodeId, heartbeatInterval, memberTimeout, System::currentTimeMillis);
+	}
+
+	FileCoordinator(Path directory, String nodeId, Duration heartbeatInterval, Duration memberTimeout,
+			LongSupplier clock) {
+		if (!nodeId.matches("[A-Za-z0-9._-]+")) {
+			throw new IllegalArgumentException("Node id must be a plain file name: " + nodeId);
+		}
+		this.directory = directory;
+		this.nodeId = nodeId;
+		this.heartbeatInterval = heartbeatInterval;
+		this.memberTimeout = memberTimeout;
+		this.clock = clock;
+	}
+
+	@Override
+	public boolean owns(String source) {
+		View current = view;
+		long now = clock.getAsLong();
+		if (now > heartbeatExpiresAt || !nodeId.equals(owner(current.members(), source))) {
+			return false;
+		}
+		return now - current.changedAt() >= 2 * heartbeatInterval.toMillis()
+				|| nodeId.equals(owner(current.previous(), source));
+	}
+
+	/**
+	 * Live members as of the last heartbeat, sorted by node id.
+	 */
+	public List<String> members() {
+		return view.members();
+	}
+
+	public String getNodeId() {
+		return nodeId;
+	}
+
+	/**
+	 * Writes this node's heartbeat and refreshes the membership view.
+	 */
+	void heartbeat() {
+		long now = clock.getAsLong();
+		try {
+			Files.createDirectories(directory);
+			Path temp = directory.resolve(nodeId + ".tmp");
+			Files.writeString(temp, Long.toString(now), StandardCharsets.US_ASCII);
+			try {
+				Files.move(temp, memberFile(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, memberFile(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			heartbeatExpiresAt = now + memberTimeout.toMillis();
+			List<String> members = liveMembers(now);
+			View current = view;
+			if (!members.equals(current.members())) {
+				view = new View(members, current.members(), now);
+				log.info("Coordination view changed: {} member(s) {}", members.size(), members);
+			}
+		} catch (IOException | UncheckedIOException e) {
+			log.warn("Heartbeat in {} failed: {}", directory, e.getMessage());
+		}
+	}
+
+	private List<String> liveMembers(long now) throws IOException {
+		Set<String> members = new TreeSet<>();
+		members.add(nodeId);
+		try (Stream<Path> files = Files.list(directory)) {
+			for (Path file : (Iterable<Path>) files::iterator) {
+				String name = file.getFileName().toString();
+				if (!name.endsWith(MEMBER_SUFFIX)) {
+					continue;
+				}
+				try {
+					long beat = Long.parseLong(Files.readString(file, StandardCharsets.US_ASCII).trim());
+					if (now - beat <= memberTimeout.toMillis()) {
+						members.add(name.substring(0, name.length() - MEMBER_SUFFIX.length()));
+					}
+				} catch (IOException | NumberFormatException e) {
+					// removed or being replaced concurrently; it shows up again on the next heartbeat
+				}
+			}
+		}
+		return List.copyOf(members);
+	}
+
+	/**
+	 * Rendezvous (highest random weight) hashing: the member with the highest
+	 * {@code hash(member, source)} owns the source.
+	 */
+	static String owner(List<String> members, String source) {
+		String owner = null;
+		long best = 0;
+		for (String member : members) {
+			byte[] key = (member + '\n' + source).getBytes(StandardCharsets.UTF_8);
+			long weight = XxHash64.hash(key);
+			if (owner == null || Long.compareUnsigned(weight, best) > 0) {
+				owner = member;
+				best = weight;
+			}
+		}
+		return owner;
+	}
+
+	@Override
+	public void start() {
+		heartbeat();
+		heartbeats = Executors.newSingleThreadScheduledExecutor(
+				Thread.ofPlatform().name("coordination-heartbeat").daemon().factory());
+		heartbeats.scheduleAtFixedRate(this::heartbeat, heartbeatInterval.toMillis(), heartbeatInterval.toMillis(),
+				TimeUnit.MILLISECONDS);
+		running = true;
+		log.info("Joined coordination group in {} as {}", directory, nodeId);
+	}
+
+	@Override
+	public void stop() {
+		running = false;
+		if (heartbeats != null) {
+			heartbeats.shutdownNow();
+		}
+		// leaving explicitly lets the others take over without waiting for the timeout
+		try {
+			Files.deleteIfExists(memberFile());
+		} catch (IOException e) {
+			log.warn("Could not remove member file {}: {}", memberFile(), e.getMessage());
+		}
+		view = new View(List.of(), List.of(), Long.MIN_VALUE);
+		heartbeatExpiresAt = Long.MIN_VALUE;
+	}
+
+	@Override
+	public boolean isRunning() {
+		return running;
+	}
+
+	@Override
+	public int getPhase() {
+		// joins before the producer scheduler starts and leaves after it stopped
+		return Integer.MAX_VALUE - 1;
+	}
+
+	private Path memberFile() {
+		return directory.resolve(nodeId + MEMBER_SUFFIX);
+	}
+
+	private record View(List<String> members, List<String> previous, long changedAt) {
+	}
+}
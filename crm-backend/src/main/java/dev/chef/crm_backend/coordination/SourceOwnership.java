@@ -0,0 +1,16 @@
+package dev.chef.crm_backend.coordination;
+
+/**
+ * Decides which producer sources this instance polls when several instances run side by side.
+ */
+@FunctionalInterface
+public interface SourceOwnership {
+
+	/** Single-instance deployments own every source. */
+	SourceOwnership ALL = source -> true;
+
+	/**
+	 * Returns {@code true} if this instance should run cycles for {@code source} right now.
+	 */
+	boolean owns(String source);
+}
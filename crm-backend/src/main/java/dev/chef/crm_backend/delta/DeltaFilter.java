@@ -0,0 +1,117 @@
+package dev.chef.crm_backend.delta;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-source change detector used by the producers to publish only new or changed records.
+ * <p>
+ * A poll cycle is bracketed by {@link #beginCycle()} and {@link #endCycle()}; every record
+ * seen in between is checked with {@link #isChanged}. When tombstones are enabled,
+ * {@link #endCycle()} returns the ids that were known before but absent from the cycle.
+ * <p>
+ * A fingerprint is stored when its record is sent, before Kafka acknowledges it. Ids whose
+ * send fails are reported with {@link #sendFailed} and forgotten by {@link #commitCycle()}
+ * once the cycle's sends have settled, so a later cycle publishes them again even if the
+ * publisher's in-memory retry queue is lost to a restart or drops them. Only then is the
+ * store checkpointed, so a checkpoint never covers a send Kafka has not answered.
+ */
+public class DeltaFilter {
+
+	private final RecordFingerprinter fingerprinter;
+	private final FingerprintStore store;
+	private final boolean enabled;
+	private final boolean tombstones;
+	private final AtomicLong generation = new AtomicLong();
+	private final Queue<String> failedSends = new ConcurrentLinkedQueue<>();
+
+	public DeltaFilter(RecordFingerprinter fingerprinter, FingerprintStore store, boolean enabled, boolean tombstones) {
+		this.fingerprinter = fingerprinter;
+		this.store = store;
+		this.enabled = enabled;
+		this.tombstones = tombstones;
+	}
+
+	public void beginCycle() {
+		generation.incrementAndGet();
+	}
+
+	/**
+	 * Returns {@code true} if the record should be published, i.e. delta filtering is
+	 * disabled, it has no id, or its content differs from the last published version.
+	 */
+	public boolean isChanged(String id, Object record) {
+		if (!enabled || id == null) {
+			return true;
+		}
+		return store.put(id, fingerprinter.fingerprint(record), generation.get());
+	}
+
+	/**
+	 * Forgets a record deleted upstream outside of a cycle, so it is published again if it
+	 * comes back.
+	 *
+	 * @return {@code true} if a tombstone should be sent, i.e. tombstones are enabled and the
+	 *         id was known
+	 */
+	public boolean forget(String id) {
+		if (!enabled || id == null) {
+			return false;
+		}
+		return store.remove(id) && tombstones;
+	}
+
+	/**
+	 * Reports that the send of a record published by this filter failed; safe to call from
+	 * the producer's I/O threads.
+	 */
+	public void sendFailed(String id) {
+		if (enabled && id != null) {
+			failedSends.add(id);
+		}
+	}
+
+	/**
+	 * Forgets the fingerprints of the records reported by {@link #sendFailed}, then
+	 * checkpoints the store; called by the single writer once every send of a cycle, polled
+	 * or pushed, has been acknowledged or has failed.
+	 */
+	public void commitCycle() {
+		String id;
+		while ((id = failedSends.poll()) != null) {
+			store.remove(id);
+		}
+		if (enabled) {
+			store.checkpoint();
+		}
+	}
+
+	/**
+	 * Evicts ids that were not seen during the current cycle; the evictions are checkpointed
+	 * with {@link #commitCycle()}.
+	 *
+	 * @return the evicted ids when tombstones are enabled, otherwise an empty list
+	 */
+	public List<String> endCycle() {
+		if (!enabled) {
+			return List.of();
+		}
+		List<String> removed = new ArrayList<>();
+		store.sweep(generation.get(), tombstones ? removed::add : id -> { });
+		return removed;
+	}
+
+	/**
+	 * Forgets every known record, e.g. after another instance published this source.
+	 */
+	public void reset() {
+		store.clear();
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+}
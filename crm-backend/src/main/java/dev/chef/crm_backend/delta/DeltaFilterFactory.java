@@ -0,0 +1,86 @@
+package dev.chef.crm_backend.delta;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the {@link DeltaFilter} used by each producer from the
+ * {@code integration.producers.delta.*} settings.
+ * <p>
+ * With {@code store=mapped} each source keeps its fingerprints in a
+ * {@link MappedFingerprintStore} under {@code store-dir/<source-key>}, so delta detection
+ * carries over across restarts; the default {@code memory} store starts empty every time.
+ * {@code offheap} keeps the fingerprints outside the heap like the index of the mapped store,
+ * for sources with too many ids for a heap map, but also starts empty. Both off-heap stores
+ * are limited to {@code index-budget-mb} of direct memory per source, 0 for no limit.
+ */
+@Component
+public class DeltaFilterFactory implements AutoCloseable {
+
+	private final RecordFingerprinter fingerprinter;
+	private final boolean enabled;
+	private final boolean tombstones;
+	private final String store;
+	private final Path storeDir;
+	private final long compactionMinRecords;
+	private final long indexBudgetBytes;
+	private final List<Closeable> openStores = new CopyOnWriteArrayList<>();
+
+	@Autowired
+	public DeltaFilterFactory(RecordFingerprinter fingerprinter,
+			@Value("${integration.producers.delta.enabled:true}") boolean enabled,
+			@Value("${integration.producers.delta.tombstones:false}") boolean tombstones,
+			@Value("${integration.producers.delta.store:memory}") String store,
+			@Value("${integration.producers.delta.store-dir:data/delta}") Path storeDir,
+			@Value("${integration.producers.delta.compaction-min-records:100000}") long compactionMinRecords,
+			@Value("${integration.producers.delta.index-budget-mb:0}") long indexBudgetMb) {
+		this.fingerprinter = fingerprinter;
+		this.enabled = enabled;
+		this.tombstones = tombstones;
+		this.store = store;
+		this.storeDir = storeDir;
+		this.compactionMinRecords = compactionMinRecords;
+		long minBudgetMb = (OffHeapFingerprintStore.MIN_BUDGET_BYTES + (1 << 20) - 1) >> 20;
+		if (indexBudgetMb > 0 && indexBudgetMb < minBudgetMb) {
+			throw new IllegalArgumentException("integration.producers.delta.index-budget-mb must be 0 (no limit)"
+					+ " or at least " + minBudgetMb + ", was " + indexBudgetMb);
+		}
+		this.indexBudgetBytes = indexBudgetMb > 0 ? indexBudgetMb << 20 : Long.MAX_VALUE;
+	}
+
+	public DeltaFilter create(String sourceKey) {
+		return new DeltaFilter(fingerprinter, createStore(sourceKey), enabled, tombstones);
+	}
+
+	private FingerprintStore createStore(String sourceKey) {
+		if (!enabled) {
+			return new InMemoryFingerprintStore();
+		}
+		return switch (store) {
+			case "memory" -> new InMemoryFingerprintStore();
+			case "offheap" -> new OffHeapFingerprintStore(indexBudgetBytes);
+			case "mapped" -> {
+				MappedFingerprintStore mapped = new MappedFingerprintStore(storeDir.resolve(sourceKey), compactionMinRecords,
+						indexBudgetBytes);
+				openStores.add(mapped);
+				yield mapped;
+			}
+			default -> throw new IllegalArgumentException("Unknown integration.producers.delta.store: " + store);
+		};
+	}
+
+	@Override
+	public void close() throws IOException {
+		for (Closeable openStore : openStores) {
+			openStore.close();
+		}
+		openStores.clear();
+	}
+}
@@ -0,0 +1,46 @@
+package dev.chef.crm_backend.delta;
+
+import java.util.function.Consumer;
+
+/**
+ * Holds the last published fingerprint of every record id of one source.
+ * <p>
+ * Every {@link #put} stamps the entry with the caller's cycle generation; {@link #sweep}
+ * then evicts the ids that were not seen in that generation, which is how disappeared
+ * records are detected.
+ */
+public interface FingerprintStore {
+
+	/**
+	 * Records the fingerprint for {@code id} and stamps it with {@code generation}.
+	 *
+	 * @return {@code true} if the id was unknown or its fingerprint changed
+	 */
+	boolean put(String id, long fingerprint, long generation);
+
+	/**
+	 * Removes every id whose last stamp is older than {@code generation}, handing each to
+	 * {@code removed}.
+	 */
+	void sweep(long generation, Consumer<String> removed);
+
+	/**
+	 * Forgets {@code id}, e.g. after it was deleted upstream between two sweeps.
+	 *
+	 * @return {@code true} if it was present
+	 */
+	boolean remove(String id);
+
+	long size();
+
+	/**
+	 * Forgets every fingerprint, so the next cycle publishes all records again.
+	 */
+	void clear();
+
+	/**
+	 * Called at the end of every completed cycle; durable stores flush and compact here.
+	 */
+	default void checkpoint() {
+	}
+}
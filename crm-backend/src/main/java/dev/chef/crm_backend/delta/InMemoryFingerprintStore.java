@@ -0,0 +1,57 @@
+package dev.chef.crm_backend.delta;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Heap-backed {@link FingerprintStore}; contents are lost on restart.
+ */
+public class InMemoryFingerprintStore implements FingerprintStore {
+
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+	@Override
+	public boolean put(String id, long fingerprint, long generation) {
+		Entry previous = entries.put(id, new Entry(fingerprint, generation));
+		return previous == null || previous.fingerprint() != fingerprint;
+	}
+
+	@Override
+	public void sweep(long generation, Consumer<String> removed) {
+		entries.entrySet().removeIf(e -> {
+			if (e.getValue().generation() < generation) {
+				removed.accept(e.getKey());
+				return true;
+			}
+			return false;
+		});
+	}
+
+	long fingerprint(String id) {
+		Entry entry = entries.get(id);
+		return entry != null ? entry.fingerprint() : OffHeapFingerprintStore.ABSENT;
+	}
+
+	@Override
+	public boolean remove(String id) {
+		return entries.remove(id) != null;
+	}
+
+	void forEach(OffHeapFingerprintStore.EntryVisitor visitor) {
+		entries.forEach((id, entry) -> visitor.visit(id, entry.fingerprint()));
+	}
+
+	@Override
+	public long size() {
+		return entries.size();
+	}
+
+	@Override
+	public void clear() {
+		entries.clear();
+	}
+
+	private record Entry(long fingerprint, long generation) {
+	}
+}
@@ -0,0 +1,358 @@
+package dev.chef.crm_backend.delta;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link FingerprintStore} that survives restarts by appending every change to a
+ * memory-mapped log on local disk.
+ * <p>
+ * The log is a sequence of segment files ({@code segment-<n>.log}) in the store's directory.
+ * Each record is {@code type(1) idLength(2) id fingerprint(8, puts only) crc32c(4)}; replay
+ * stops at the first zeroed or checksum-failing record, so a write torn by a crash only loses
+ * that record. Once a segment reaches {@code segmentBytes} it is forced to disk and appends
+ * continue in the next one; segments are replayed through mappings of at most that size, so
+ * neither the log nor a single segment is bounded by the 2 GB limit of a mapped buffer.
+ * {@link #compact()} writes the live entries to fresh segments, forces them to disk and only
+ * then deletes the older segments; a crash in between leaves both, which replay to the same
+ * state.
+ * <p>
+ * The live entries are indexed in an {@link OffHeapFingerprintStore}, so the heap does not
+ * grow with the number of ids; ids the index has no room for are not logged either.
+ * Generations are not persisted: entries loaded at startup count as not yet seen, so the
+ * first sweep after a restart evicts exactly the ids that disappeared while the service was
+ * down.
+ */
+public class MappedFingerprintStore implements FingerprintStore, Closeable {
+
+	private static final Logger log = LoggerFactory.getLogger(MappedFingerprintStore.class);
+
+	private static final int MAGIC = 0x46505331; // "FPS1"
+	private static final byte PUT = 1;
+	private static final byte DELETE = 2;
+	private static final int MAX_ID_BYTES = 0xFFFF;
+	private static final int MAX_RECORD_BYTES = 1 + 2 + MAX_ID_BYTES + 8 + 4;
+	private static final int INITIAL_CAPACITY = 1 << 20;
+	private static final int DEFAULT_SEGMENT_BYTES = 64 << 20;
+
+	private final Path directory;
+	private final long compactionMinRecords;
+	private final int segmentBytes;
+	private final OffHeapFingerprintStore entries;
+	private final CRC32C crc = new CRC32C();
+
+	private long segmentIndex;
+	private FileChannel channel;
+	private MappedByteBuffer buffer;
+	private long logRecords;
+
+	/**
+	 * Opens the store in {@code directory} with an index without a memory budget.
+	 */
+	public MappedFingerprintStore(Path directory, long compactionMinRecords) {
+		this(directory, compactionMinRecords, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Opens the store in {@code directory}, replaying any existing segments.
+	 *
+	 * @param compactionMinRecords log size below which {@link #checkpoint()} never compacts
+	 * @param maxIndexBytes direct memory budget of the index, see {@link OffHeapFingerprintStore}
+	 */
+	public MappedFingerprintStore(Path directory, long compactionMinRecords, long maxIndexBytes) {
+		this(directory, compactionMinRecords, maxIndexBytes, DEFAULT_SEGMENT_BYTES);
+	}
+
+	/**
+	 * @param segmentBytes size at which a segment is closed and appends move to the next one
+	 */
+	MappedFingerprintStore(Path directory, long compactionMinRecords, long maxIndexBytes, int segmentBytes) {
+		if (segmentBytes < Integer.BYTES + MAX_RECORD_BYTES) {
+			throw new IllegalArgumentException("Fingerprint segments must hold at least "
+					+ (Integer.BYTES + MAX_RECORD_BYTES) + " bytes");
+		}
+		this.directory = directory;
+		this.compactionMinRecords = compactionMinRecords;
+		this.segmentBytes = segmentBytes;
+		this.entries = new OffHeapFingerprintStore(maxIndexBytes);
+		long start = System.nanoTime();
+		try {
+			Files.createDirectories(directory);
+			List<Path> segments = listSegments();
+			long validEnd = -1;
+			for (Path segment : segments) {
+				validEnd = replay(segment);
+			}
+			if (segments.isEmpty()) {
+				openSegment(1, -1);
+			} else if (validEnd > segmentBytes - MAX_RECORD_BYTES) {
+				// full, or written with a larger segment size: keep it as it is
+				openSegment(segmentIndexOf(segments.getLast()) + 1, -1);
+			} else {
+				openSegment(segmentIndexOf(segments.getLast()), (int) validEnd);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot open fingerprint store in " + directory, e);
+		}
+		log.info("Loaded {} fingerprint(s) from {} in {} ms", entries.size(), directory,
+				(System.nanoTime() - start) / 1_000_000);
+	}
+
+	@Override
+	public synchronized boolean put(String id, long fingerprint, long generation) {
+		return switch (entries.update(id, fingerprint, generation)) {
+			case UNCHANGED -> false;
+			case STORED -> {
+				append(PUT, id, fingerprint);
+				yield true;
+			}
+			// not in the index, so not in the log either: it stays changed until there is room
+			case UNTRACKED -> true;
+		};
+	}
+
+	@Override
+	public synchronized void sweep(long generation, Consumer<String> removed) {
+		entries.sweep(generation, id -> {
+			append(DELETE, id, 0);
+			removed.accept(id);
+		});
+	}
+
+	@Override
+	public synchronized boolean remove(String id) {
+		if (!entries.remove(id)) {
+			return false;
+		}
+		append(DELETE, id, 0);
+		return true;
+	}
+
+	@Override
+	public synchronized long size() {
+		return entries.size();
+	}
+
+	/**
+	 * Empties the store; compacting right away leaves a single empty segment on disk.
+	 */
+	@Override
+	public synchronized void clear() {
+		entries.clear();
+		compact();
+	}
+
+	/**
+	 * Flushes the active segment to disk and compacts once the log holds more than twice as
+	 * many records as there are live entries.
+	 */
+	@Override
+	public synchronized void checkpoint() {
+		if (logRecords > compactionMinRecords && logRecords > 2L * entries.size()) {
+			compact();
+		} else {
+			buffer.force();
+		}
+	}
+
+	/**
+	 * Rewrites the live entries into a new segment and deletes the older ones.
+	 */
+	public synchronized void compact() {
+		long previous = segmentIndex;
+		long start = System.nanoTime();
+		try {
+			seal();
+			openSegment(previous + 1, -1);
+			logRecords = 0;
+			entries.forEach((id, fingerprint) -> append(PUT, id, fingerprint));
+			buffer.force();
+			for (Path segment : listSegments()) {
+				if (segmentIndexOf(segment) <= previous) {
+					Files.deleteIfExists(segment);
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Compaction of " + directory + " failed", e);
+		}
+		log.info("Compacted fingerprint store {} to {} entries in {} ms", directory, entries.size(),
+				(System.nanoTime() - start) / 1_000_000);
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		seal();
+	}
+
+	private void append(byte type, String id, long fingerprint) {
+		byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+		if (idBytes.length > MAX_ID_BYTES) {
+			throw new IllegalArgumentException("Record id longer than " + MAX_ID_BYTES + " bytes");
+		}
+		int size = 1 + 2 + idBytes.length + (type == PUT ? 8 : 0) + 4;
+		if (buffer.position() + size > segmentBytes) {
+			roll();
+		}
+		ensureCapacity(size);
+		int start = buffer.position();
+		buffer.put(type).putShort((short) idBytes.length).put(idBytes);
+		if (type == PUT) {
+			buffer.putLong(fingerprint);
+		}
+		buffer.putInt(checksum(buffer, start, buffer.position() - start));
+		logRecords++;
+	}
+
+	private void roll() {
+		try {
+			seal();
+			openSegment(segmentIndex + 1, -1);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot roll fingerprint segment in " + directory, e);
+		}
+	}
+
+	/**
+	 * Forces the active segment to disk and trims it to its records.
+	 */
+	private void seal() throws IOException {
+		buffer.force();
+		channel.truncate(buffer.position());
+		channel.close();
+	}
+
+	private void ensureCapacity(int size) {
+		if (buffer.remaining() >= size) {
+			return;
+		}
+		int position = buffer.position();
+		long capacity = Math.min(segmentBytes, Math.max((long) buffer.capacity() * 2, position + size));
+		try {
+			buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot grow fingerprint segment in " + directory, e);
+		}
+		buffer.position(position);
+	}
+
+	/**
+	 * Applies the records of {@code segment} to the in-memory index, mapping at most
+	 * {@code segmentBytes} of it at a time.
+	 *
+	 * @return the offset just past the last valid record
+	 */
+	private long replay(Path segment) throws IOException {
+		try (FileChannel in = FileChannel.open(segment, StandardOpenOption.READ)) {
+			long size = in.size();
+			if (size < Integer.BYTES) {
+				return -1;
+			}
+			long base = 0;
+			ByteBuffer data = window(in, base);
+			if (data.getInt() != MAGIC) {
+				log.warn("Ignoring {}: not a fingerprint segment", segment);
+				return -1;
+			}
+			while (base + data.position() < size) {
+				int start = data.position();
+				try {
+					byte type = data.get();
+					if (type != PUT && type != DELETE) {
+						data.position(start);
+						break;
+					}
+					byte[] idBytes = new byte[Short.toUnsignedInt(data.getShort())];
+					data.get(idBytes);
+					long fingerprint = type == PUT ? data.getLong() : 0;
+					int end = data.position();
+					if (data.getInt() != checksum(data, start, end - start)) {
+						log.warn("Checksum mismatch in {} at offset {}, discarding the rest of the segment", segment,
+								base + start);
+						data.position(start);
+						break;
+					}
+					String id = new String(idBytes, StandardCharsets.UTF_8);
+					if (type == PUT) {
+						entries.put(id, fingerprint, 0);
+					} else {
+						entries.remove(id);
+					}
+					logRecords++;
+				} catch (BufferUnderflowException e) {
+					if (base + data.limit() < size) {
+						// the record continues past this window: map the next one from its start
+						base += start;
+						data = window(in, base);
+						continue;
+					}
+					log.warn("Truncated record in {} at offset {}, discarding it", segment, base + start);
+					data.position(start);
+					break;
+				}
+			}
+			return base + data.position();
+		}
+	}
+
+	private ByteBuffer window(FileChannel in, long offset) throws IOException {
+		return in.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(segmentBytes, in.size() - offset));
+	}
+
+	/**
+	 * Maps segment {@code index} for appending, continuing after {@code validEnd} if it
+	 * already holds records.
+	 */
+	private void openSegment(long index, int validEnd) throws IOException {
+		segmentIndex = index;
+		channel = FileChannel.open(segmentPath(index), StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		// drop whatever a torn write left behind; the mapping below extends the file with zeros
+		channel.truncate(Math.max(validEnd, 0));
+		long capacity = Math.min(segmentBytes, Math.max(INITIAL_CAPACITY, (long) Math.max(validEnd, 0) * 2));
+		buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+		if (validEnd < Integer.BYTES) {
+			buffer.putInt(MAGIC);
+		} else {
+			buffer.position(validEnd);
+		}
+	}
+
+	private int checksum(ByteBuffer data, int offset, int length) {
+		crc.reset();
+		crc.update(data.slice(offset, length));
+		return (int) crc.getValue();
+	}
+
+	private List<Path> listSegments() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.filter(p -> p.getFileName().toString().matches("segment-\\d+\\.log"))
+					.sorted((a, b) -> Long.compare(segmentIndexOf(a), segmentIndexOf(b)))
+					.toList();
+		}
+	}
+
+	private Path segmentPath(long index) {
+		return directory.resolve("segment-%016d.log".formatted(index));
+	}
+
+	private static long segmentIndexOf(Path segment) {
+		String name = segment.getFileName().toString();
+		return Long.parseLong(name.substring("segment-".length(), name.length() - ".log".length()));
+	}
+}
@@ -0,0 +1,429 @@
+package dev.chef.crm_backend.delta;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link FingerprintStore} whose entries live outside the Java heap, so heap usage stays flat
+ * however many ids a source has.
+ * <p>
+ * Ids that are canonical non-negative decimals of up to 18 digits (what the CRM returns) are
+ * parsed to a {@code long} and kept in open-addressing tables in direct buffers, 24 bytes per
+ * slot: {@code key(8) fingerprint(8) generation(8)}, key 0 marking a free slot. Slots are
+ * probed linearly, tables are kept at most three quarters full and removal uses backward-shift
+ * deletion like {@link dev.chef.crm_backend.stock.StockIndex}. Any other id ({@code "C-17"},
+ * {@code "007"}) goes to a small heap fallback store.
+ * <p>
+ * The key space is split over {@value #SHARDS} shards, each with its own table and
+ * {@link StampedLock}: writers to different shards do not contend and {@link #fingerprint}
+ * reads optimistically without locking. Tables grow by doubling until the next doubling would
+ * exceed the memory budget; from then on unknown ids are no longer tracked and always count
+ * as changed, so they are republished every cycle and never tombstoned. Direct memory is
+ * capped by {@code -XX:MaxDirectMemorySize}, which defaults to the maximum heap size.
+ */
+public class OffHeapFingerprintStore implements FingerprintStore {
+
+	private static final Logger log = LoggerFactory.getLogger(OffHeapFingerprintStore.class);
+
+	/** Returned by {@link #fingerprint} for ids not in the store. */
+	public static final long ABSENT = Long.MIN_VALUE;
+
+	static final int SHARDS = 64;
+	private static final int SHARD_BITS = Integer.numberOfTrailingZeros(SHARDS);
+	private static final int SLOT_BYTES = 24;
+	private static final int MIN_SLOTS = 1 << 10;
+	// largest power of two whose table still fits a single ByteBuffer
+	private static final int MAX_SLOTS = 1 << 26;
+	private static final int MAX_DIGITS = 18;
+	// every shard starts with a table of MIN_SLOTS
+	static final long MIN_BUDGET_BYTES = (long) SHARDS * MIN_SLOTS * SLOT_BYTES;
+
+	private final Shard[] shards = new Shard[SHARDS];
+	private final InMemoryFingerprintStore fallback = new InMemoryFingerprintStore();
+	private final long maxBytes;
+	private final AtomicLong allocatedBytes = new AtomicLong();
+	private final AtomicBoolean budgetExhausted = new AtomicBoolean();
+
+	/**
+	 * Store without a memory budget.
+	 */
+	public OffHeapFingerprintStore() {
+		this(Long.MAX_VALUE);
+	}
+
+	/**
+	 * @param maxBytes direct memory the tables of this store may occupy together
+	 */
+	public OffHeapFingerprintStore(long maxBytes) {
+		if (maxBytes < MIN_BUDGET_BYTES) {
+			throw new IllegalArgumentException("Fingerprint store budget must be at least "
+					+ MIN_BUDGET_BYTES + " bytes");
+		}
+		this.maxBytes = maxBytes;
+		for (int i = 0; i < SHARDS; i++) {
+			shards[i] = new Shard();
+		}
+	}
+
+	@Override
+	public boolean put(String id, long fingerprint, long generation) {
+		return update(id, fingerprint, generation) != Update.UNCHANGED;
+	}
+
+	/**
+	 * Like {@link #put}, but tells an id stored with a new fingerprint apart from one that
+	 * could not be stored because the budget is exhausted.
+	 */
+	Update update(String id, long fingerprint, long generation) {
+		long key = key(id);
+		if (key == 0) {
+			return fallback.put(id, fingerprint, generation) ? Update.STORED : Update.UNCHANGED;
+		}
+		long hash = mix(key);
+		return shards[shardOf(hash)].put(key, hash, fingerprint, generation);
+	}
+
+	/**
+	 * Returns the fingerprint of {@code id}, or {@link #ABSENT}. Safe to call concurrently
+	 * with writers.
+	 */
+	public long fingerprint(String id) {
+		long key = key(id);
+		if (key == 0) {
+			return fallback.fingerprint(id);
+		}
+		long hash = mix(key);
+		return shards[shardOf(hash)].get(key, hash);
+	}
+
+	@Override
+	public boolean remove(String id) {
+		long key = key(id);
+		if (key == 0) {
+			return fallback.remove(id);
+		}
+		long hash = mix(key);
+		return shards[shardOf(hash)].remove(key, hash);
+	}
+
+	/**
+	 * Evicts the stale ids shard by shard; {@code removed} runs under the shard's lock.
+	 */
+	@Override
+	public void sweep(long generation, Consumer<String> removed) {
+		for (Shard shard : shards) {
+			shard.sweep(generation, key -> removed.accept(Long.toString(key - 1)));
+		}
+		fallback.sweep(generation, removed);
+	}
+
+	/**
+	 * Hands every id with its fingerprint to {@code visitor}, one shard at a time under that
+	 * shard's read lock.
+	 */
+	public void forEach(EntryVisitor visitor) {
+		for (Shard shard : shards) {
+			shard.forEach(visitor);
+		}
+		fallback.forEach(visitor);
+	}
+
+	@Override
+	public long size() {
+		long size = fallback.size();
+		for (Shard shard : shards) {
+			size += shard.size();
+		}
+		return size;
+	}
+
+	/**
+	 * Direct memory currently held by the tables.
+	 */
+	public long allocatedBytes() {
+		return allocatedBytes.get();
+	}
+
+	/**
+	 * Empties the store and shrinks every table back to its initial size.
+	 */
+	@Override
+	public void clear() {
+		for (Shard shard : shards) {
+			shard.clear();
+		}
+		fallback.clear();
+		budgetExhausted.set(false);
+	}
+
+	/**
+	 * Maps a canonical decimal id to {@code value + 1}, or returns 0 for ids that must go to
+	 * the fallback store.
+	 */
+	static long key(String id) {
+		int length = id.length();
+		if (length == 0 || length > MAX_DIGITS || (length > 1 && id.charAt(0) == '0')) {
+			return 0;
+		}
+		long value = 0;
+		for (int i = 0; i < length; i++) {
+			int digit = id.charAt(i) - '0';
+			if (digit < 0 || digit > 9) {
+				return 0;
+			}
+			value = value * 10 + digit;
+		}
+		return value + 1;
+	}
+
+	private static int shardOf(long hash) {
+		return (int) (hash >>> (Long.SIZE - SHARD_BITS));
+	}
+
+	private static long mix(long key) {
+		// murmur3 fmix64: sequential ids would otherwise fill neighbouring slots
+		key ^= key >>> 33;
+		key *= 0xFF51AFD7ED558CCDL;
+		key ^= key >>> 33;
+		key *= 0xC4CEB9FE1A85EC53L;
+		return key ^ (key >>> 33);
+	}
+
+	/**
+	 * Outcome of {@link #update}.
+	 */
+	enum Update {
+		/** The id is stored with the same fingerprint. */
+		UNCHANGED,
+		/** The id was new or its fingerprint changed, and it is stored now. */
+		STORED,
+		/** The id is unknown and the budget leaves no room to track it. */
+		UNTRACKED
+	}
+
+	/**
+	 * Receives the entries of {@link #forEach}.
+	 */
+	@FunctionalInterface
+	public interface EntryVisitor {
+
+		void visit(String id, long fingerprint);
+	}
+
+	@FunctionalInterface
+	private interface KeyConsumer {
+
+		void accept(long key);
+	}
+
+	private final class Shard {
+
+		private final StampedLock lock = new StampedLock();
+		private ByteBuffer table;
+		private int mask;
+		private int size;
+
+		private Shard() {
+			allocate(MIN_SLOTS);
+		}
+
+		private Update put(long key, long hash, long fingerprint, long generation) {
+			long stamp = lock.writeLock();
+			try {
+				int slot = slot(key, hash);
+				int offset = slot * SLOT_BYTES;
+				if (table.getLong(offset) == key) {
+					table.putLong(offset + 16, generation);
+					if (table.getLong(offset + 8) == fingerprint) {
+						return Update.UNCHANGED;
+					}
+					table.putLong(offset + 8, fingerprint);
+					return Update.STORED;
+				}
+				if ((size + 1) * 4L > (mask + 1) * 3L) {
+					if (!grow()) {
+						return Update.UNTRACKED;
+					}
+					offset = slot(key, hash) * SLOT_BYTES;
+				}
+				table.putLong(offset, key);
+				table.putLong(offset + 8, fingerprint);
+				table.putLong(offset + 16, generation);
+				size++;
+				return Update.STORED;
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+
+		private long get(long key, long hash) {
+			long stamp = lock.tryOptimisticRead();
+			long fingerprint = find(key, hash);
+			if (lock.validate(stamp)) {
+				return fingerprint;
+			}
+			stamp = lock.readLock();
+			try {
+				return find(key, hash);
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+
+		private long find(long key, long hash) {
+			// an optimistic reader may see a table being resized; bound the probe so it ends
+			ByteBuffer current = table;
+			int currentMask = current.capacity() / SLOT_BYTES - 1;
+			int slot = (int) hash & currentMask;
+			for (int probes = 0; probes <= currentMask; probes++) {
+				long slotKey = current.getLong(slot * SLOT_BYTES);
+				if (slotKey == key) {
+					return current.getLong(slot * SLOT_BYTES + 8);
+				}
+				if (slotKey == 0) {
+					return ABSENT;
+				}
+				slot = (slot + 1) & currentMask;
+			}
+			return ABSENT;
+		}
+
+		private boolean remove(long key, long hash) {
+			long stamp = lock.writeLock();
+			try {
+				int slot = slot(key, hash);
+				if (table.getLong(slot * SLOT_BYTES) != key) {
+					return false;
+				}
+				delete(slot);
+				return true;
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+
+		private void sweep(long generation, KeyConsumer removed) {
+			long stamp = lock.writeLock();
+			try {
+				int slot = 0;
+				while (slot <= mask) {
+					int offset = slot * SLOT_BYTES;
+					long key = table.getLong(offset);
+					if (key != 0 && table.getLong(offset + 16) < generation) {
+						delete(slot);
+						removed.accept(key);
+						// the shift may have moved a not yet visited entry into this slot
+						continue;
+					}
+					slot++;
+				}
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+
+		private void forEach(EntryVisitor visitor) {
+			long stamp = lock.readLock();
+			try {
+				for (int offset = 0; offset < table.capacity(); offset += SLOT_BYTES) {
+					long key = table.getLong(offset);
+					if (key != 0) {
+						visitor.visit(Long.toString(key - 1), table.getLong(offset + 8));
+					}
+				}
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+
+		private int size() {
+			long stamp = lock.readLock();
+			try {
+				return size;
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+
+		private void clear() {
+			long stamp = lock.writeLock();
+			try {
+				allocatedBytes.addAndGet(-table.capacity());
+				allocate(MIN_SLOTS);
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+
+		private int slot(long key, long hash) {
+			int slot = (int) hash & mask;
+			long slotKey;
+			while ((slotKey = table.getLong(slot * SLOT_BYTES)) != 0 && slotKey != key) {
+				slot = (slot + 1) & mask;
+			}
+			return slot;
+		}
+
+		private void delete(int slot) {
+			int hole = slot;
+			int next = (hole + 1) & mask;
+			long key;
+			while ((key = table.getLong(next * SLOT_BYTES)) != 0) {
+				int home = (int) mix(key) & mask;
+				// move the entry back if its home slot is not within (hole, next] cyclically
+				if (((next - home) & mask) >= ((next - hole) & mask)) {
+					table.put(hole * SLOT_BYTES, table, next * SLOT_BYTES, SLOT_BYTES);
+					hole = next;
+				}
+				next = (next + 1) & mask;
+			}
+			table.putLong(hole * SLOT_BYTES, 0);
+			size--;
+		}
+
+		/**
+		 * Doubles the table if the budget allows it.
+		 */
+		private boolean grow() {
+			int slots = mask + 1;
+			long extra = (long) slots * SLOT_BYTES;
+			if (slots >= MAX_SLOTS || allocatedBytes.addAndGet(extra) > maxBytes) {
+				if (slots < MAX_SLOTS) {
+					allocatedBytes.addAndGet(-extra);
+				}
+				if (budgetExhausted.compareAndSet(false, true)) {
+					log.warn("Fingerprint store reached its budget of {} bytes; new ids are published every cycle "
+							+ "until it is cleared or the budget raised", maxBytes);
+				}
+				return false;
+			}
+			ByteBuffer old = table;
+			int oldSize = size;
+			table = ByteBuffer.allocateDirect(slots * 2 * SLOT_BYTES).order(ByteOrder.nativeOrder());
+			mask = slots * 2 - 1;
+			for (int offset = 0; offset < old.capacity(); offset += SLOT_BYTES) {
+				long key = old.getLong(offset);
+				if (key != 0) {
+					int slot = slot(key, mix(key));
+					table.put(slot * SLOT_BYTES, old, offset, SLOT_BYTES);
+				}
+			}
+			size = oldSize;
+			return true;
+		}
+
+		private void allocate(int slots) {
+			table = ByteBuffer.allocateDirect(slots * SLOT_BYTES).order(ByteOrder.nativeOrder());
+			mask = slots - 1;
+			size = 0;
+			allocatedBytes.addAndGet(table.capacity());
+		}
+	}
+}
@@ -0,0 +1,35 @@
+package dev.chef.crm_backend.delta;
+
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+/**
+ * Computes a 64-bit content fingerprint of a record from its canonical JSON bytes
+ * (properties and map entries sorted by name), so logically equal records always
+ * hash the same regardless of field or map ordering.
+ */
+@Component
+public class RecordFingerprinter {
+
+	private final ObjectMapper canonicalMapper = JsonMapper.builder()
+			.enable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+			.enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+			.build();
+
+	public byte[] canonicalBytes(Object record) {
+		try {
+			return canonicalMapper.writeValueAsBytes(record);
+		} catch (JsonProcessingException e) {
+			throw new IllegalArgumentException("Record is not serializable: " + e.getOriginalMessage(), e);
+		}
+	}
+
+	public long fingerprint(Object record) {
+		return XxHash64.hash(canonicalBytes(record));
+	}
+}
@@ -1,5 +1,6 @@
 package dev.chef.crm_backend.dto;
 
+import java.util.List;
 import java.util.Map;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
@@ -12,9 +13,14 @@ public record CustomerData(
 		String id,
 		String name,
 		String email,
-		Map<String, Object> additional
+		Map<String, Object> additional,
+		List<String> productIds
 ) {
 	public CustomerData(String id, String name, String email) {
-		this(id, name, email, null);
+		this(id, name, email, null, null);
+	}
+
+	public CustomerData(String id, String name, String email, Map<String, Object> additional) {
+		this(id, name, email, additional, null);
 	}
 }
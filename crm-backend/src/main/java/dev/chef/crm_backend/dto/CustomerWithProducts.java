@@ -0,0 +1,21 @@
+package dev.chef.crm_backend.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A customer joined with the inventory items it references, published to the merged topic.
+ *
+ * @param products the referenced items currently known to the inventory, in
+ *        {@code productIds} order
+ * @param missingProductIds referenced ids the inventory does not (or no longer) list
+ */
+public record CustomerWithProducts(
+		String id,
+		String name,
+		String email,
+		Map<String, Object> additional,
+		List<InventoryItem> products,
+		List<String> missingProductIds
+) {
+}
@@ -0,0 +1,22 @@
+package dev.chef.crm_backend.dto;
+
+/**
+ * Change of one inventory item's stock, published in stock-delta mode instead of the full
+ * {@link InventoryItem}.
+ *
+ * @param oldStock stock before the change; {@code null} when the item is new
+ * @param newStock stock after the change; {@code null} when the item disappeared
+ * @param delta {@code newStock - oldStock}, counting a missing side as zero
+ * @param crossing whether the change crossed the low-stock threshold
+ */
+public record StockDelta(String id, Integer oldStock, Integer newStock, int delta, Crossing crossing) {
+
+	public enum Crossing {
+		/** The threshold was not crossed. */
+		NONE,
+		/** Stock fell below the threshold (or a new item starts below it). */
+		LOW,
+		/** Stock is back at or above the threshold. */
+		RECOVERED
+	}
+}
@@ -0,0 +1,63 @@
+package dev.chef.crm_backend.http;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Opens connections to every upstream at startup so the first poll does not pay for TCP
+ * setup. Each warm-up request is a {@code HEAD} on the base URL; its status is ignored.
+ */
+@Component
+@ConditionalOnProperty(name = "integration.http.prewarm.enabled", havingValue = "true", matchIfMissing = true)
+public class ConnectionPrewarmer {
+
+	private static final Logger log = LoggerFactory.getLogger(ConnectionPrewarmer.class);
+
+	private final RestTemplate restTemplate;
+	private final List<String> baseUrls;
+	private final int connectionsPerHost;
+
+	public ConnectionPrewarmer(RestTemplate restTemplate,
+			@Value("${integration.crm.base-url}") String crmBaseUrl,
+			@Value("${integration.inventory.base-url}") String inventoryBaseUrl,
+			@Value("${integration.http.prewarm.connections-per-host:2}") int connectionsPerHost) {
+		this.restTemplate = restTemplate;
+		this.baseUrls = List.of(crmBaseUrl, inventoryBaseUrl);
+		this.connectionsPerHost = connectionsPerHost;
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void prewarm() {
+		List<CompletableFuture<Void>> warmups = new ArrayList<>();
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (String baseUrl : baseUrls) {
+				for (int i = 0; i < connectionsPerHost; i++) {
+					warmups.add(CompletableFuture.runAsync(() -> warm(baseUrl), executor));
+				}
+			}
+		}
+		log.info("Pre-warmed {} upstream connection(s) across {} host(s)", warmups.size(), baseUrls.size());
+	}
+
+	private void warm(String baseUrl) {
+		try {
+			restTemplate.execute(baseUrl, HttpMethod.HEAD, null, response -> null);
+		} catch (Exception e) {
+			log.debug("Pre-warming {} failed: {}", baseUrl, e.getMessage());
+		}
+	}
+}
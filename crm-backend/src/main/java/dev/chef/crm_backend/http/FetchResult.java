@@ -0,0 +1,41 @@
+package dev.chef.crm_backend.http;
+
+import java.time.Duration;
+
+/**
+ * Outcome of a streamed upstream fetch.
+ *
+ * @param notModified {@code true} if the upstream answered 304 and no records were read
+ * @param records number of records handed to the sink
+ * @param bytes number of response body bytes read
+ * @param decodeTime time spent decoding records, excluding time spent in the sink
+ * @param totalCount size of the whole collection as announced in {@code X-Total-Count}, or
+ *        {@link #UNKNOWN_TOTAL}
+ */
+public record FetchResult(boolean notModified, long records, long bytes, Duration decodeTime, long totalCount) {
+
+	public static final long UNKNOWN_TOTAL = -1;
+
+	private static final FetchResult NOT_MODIFIED = new FetchResult(true, 0, 0, Duration.ZERO, UNKNOWN_TOTAL);
+	private static final FetchResult EMPTY = new FetchResult(false, 0, 0, Duration.ZERO, UNKNOWN_TOTAL);
+
+	public static FetchResult notModifiedResult() {
+		return NOT_MODIFIED;
+	}
+
+	public static FetchResult empty() {
+		return EMPTY;
+	}
+
+	public static FetchResult of(long records, long bytes) {
+		return new FetchResult(false, records, bytes, Duration.ZERO, UNKNOWN_TOTAL);
+	}
+
+	public static FetchResult of(long records, long bytes, Duration decodeTime) {
+		return new FetchResult(false, records, bytes, decodeTime, UNKNOWN_TOTAL);
+	}
+
+	public FetchResult withTotalCount(long totalCount) {
+		return new FetchResult(notModified, records, bytes, decodeTime, totalCount);
+	}
+}
@@ -0,0 +1,100 @@
+package dev.chef.crm_backend.http;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+/**
+ * Remembers the {@code ETag} / {@code Last-Modified} validators returned for each upstream URL
+ * and turns them into {@code If-None-Match} / {@code If-Modified-Since} headers on the next
+ * request, so an unchanged upstream answers {@code 304 Not Modified} without a body.
+ */
+@Component
+public class HttpValidatorCache {
+
+	private final Map<String, Validators> validators = new ConcurrentHashMap<>();
+	private final LongAdder requests = new LongAdder();
+	private final LongAdder notModified = new LongAdder();
+	private final LongAdder bytesSaved = new LongAdder();
+
+	/**
+	 * Conditional request headers for {@code url}; empty when nothing is cached yet.
+	 */
+	public HttpHeaders conditionalHeaders(String url) {
+		HttpHeaders headers = new HttpHeaders();
+		Validators cached = validators.get(url);
+		if (cached != null) {
+			if (cached.etag() != null) {
+				headers.setIfNoneMatch(cached.etag());
+			}
+			if (cached.lastModified() > 0) {
+				headers.setIfModifiedSince(cached.lastModified());
+			}
+		}
+		return headers;
+	}
+
+	/**
+	 * Records the status of a request sent with {@link #conditionalHeaders(String)}.
+	 *
+	 * @return {@code true} if the upstream answered 304 and the response must not be processed
+	 */
+	public boolean isNotModified(String url, int status) {
+		requests.increment();
+		if (status != HttpStatus.NOT_MODIFIED.value()) {
+			return false;
+		}
+		notModified.increment();
+		Validators cached = validators.get(url);
+		if (cached != null) {
+			bytesSaved.add(cached.bodyBytes());
+		}
+		return true;
+	}
+
+	/**
+	 * Caches the validators of a full response. Only call this once its body has been
+	 * completely processed: a body that fails halfway must be fetched in full again, not
+	 * answered with a 304 on the retry.
+	 *
+	 * @param bodyBytes body bytes the client read, which every 304 for {@code url} then counts
+	 *        as saved; chunked and compressed responses often carry no usable
+	 *        {@code Content-Length}
+	 */
+	public void store(String url, HttpHeaders headers, long bodyBytes) {
+		String etag = headers.getETag();
+		long lastModified = headers.getLastModified();
+		if (etag != null || lastModified > 0) {
+			validators.put(url, new Validators(etag, lastModified, bodyBytes));
+		} else {
+			validators.remove(url);
+		}
+	}
+
+	/**
+	 * Forgets the validators for {@code url} so the next request fetches the full body.
+	 */
+	public void invalidate(String url) {
+		validators.remove(url);
+	}
+
+	public Stats stats() {
+		long total = requests.sum();
+		long hits = notModified.sum();
+		return new Stats(total, hits, total == 0 ? 0.0 : (double) hits / total, bytesSaved.sum());
+	}
+
+	private record Validators(String etag, long lastModified, long bodyBytes) {
+	}
+
+	/**
+	 * Conditional request counters; {@code bytesSaved} is estimated from the body size of the
+	 * last full response.
+	 */
+	public record Stats(long requests, long notModified, double hitRatio, long bytesSaved) {
+	}
+}
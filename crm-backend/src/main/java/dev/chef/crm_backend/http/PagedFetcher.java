@@ -0,0 +1,168 @@
+package dev.chef.crm_backend.http;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import org.springframework.web.client.RestClientException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fetches a large upstream collection as {@code offset}/{@code limit} pages, several at a
+ * time.
+ * <p>
+ * Up to {@code parallelism} virtual threads each claim the next unclaimed page until one
+ * comes back shorter than the page size, which marks the end of the collection; the total
+ * does not need to be known up front, but an {@code X-Total-Count} response header ends the
+ * run at that offset without asking for a trailing empty page. A page longer than the page
+ * size means the upstream ignores {@code limit} and fails the fetch: its pages would overlap. A page is decoded into a buffer and only handed to the
+ * sink once complete, so a failed page is retried on its own (with exponential backoff)
+ * without delivering any of its records twice. Sink calls are serialized, page by page, in
+ * completion order. If a page still fails after {@code maxAttempts} the remaining pages are
+ * abandoned and the failure is thrown.
+ * <p>
+ * Pages are fetched without conditional request headers: a 304 for one page would hide its
+ * records from the cycle and make the delta sweep treat them as deleted.
+ */
+public class PagedFetcher {
+
+	private static final Logger log = LoggerFactory.getLogger(PagedFetcher.class);
+
+	private final UpstreamClient upstreamClient;
+	private final int pageSize;
+	private final int parallelism;
+	private final int maxAttempts;
+	private final Duration retryBackoff;
+	private final Runnable onPageRetry;
+
+	public PagedFetcher(UpstreamClient upstreamClient, int pageSize, int parallelism, int maxAttempts,
+			Duration retryBackoff, Runnable onPageRetry) {
+		if (pageSize < 1 || parallelism < 1 || maxAttempts < 1) {
+			throw new IllegalArgumentException("Page size, parallelism and attempts must be positive");
+		}
+		this.upstreamClient = upstreamClient;
+		this.pageSize = pageSize;
+		this.parallelism = parallelism;
+		this.maxAttempts = maxAttempts;
+		this.retryBackoff = retryBackoff;
+		this.onPageRetry = onPageRetry;
+	}
+
+	/**
+	 * Streams every page of {@code url} into {@code sink}.
+	 *
+	 * @return the combined outcome of all pages
+	 * @throws RestClientException if a page failed on every attempt
+	 */
+	public <T> FetchResult fetch(String url, Class<T> type, Consumer<? super T> sink) {
+		Run<T> run = new Run<>(url, type, sink);
+		try (ExecutorService workers = Executors.newThreadPerTaskExecutor(
+				Thread.ofVirtual().name("page-fetch-", 0).factory())) {
+			for (int i = 0; i < parallelism; i++) {
+				workers.execute(run::work);
+			}
+		}
+		RuntimeException failure = run.failure.get();
+		if (failure != null) {
+			throw failure;
+		}
+		return FetchResult.of(run.records.get(), run.bytes.get(), Duration.ofNanos(run.decodeNanos.get()));
+	}
+
+	private final class Run<T> {
+
+		private final String url;
+		private final Class<T> type;
+		private final Consumer<? super T> sink;
+		private final ReentrantLock sinkLock = new ReentrantLock();
+		private final AtomicLong nextOffset = new AtomicLong();
+		// offset of the first record past the end, once a short page has been seen
+		private final AtomicLong end = new AtomicLong(Long.MAX_VALUE);
+		private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+		private final AtomicLong records = new AtomicLong();
+		private final AtomicLong bytes = new AtomicLong();
+		private final AtomicLong decodeNanos = new AtomicLong();
+
+		private Run(String url, Class<T> type, Consumer<? super T> sink) {
+			this.url = url;
+			this.type = type;
+			this.sink = sink;
+		}
+
+		private void work() {
+			while (failure.get() == null) {
+				long offset = nextOffset.getAndAdd(pageSize);
+				if (offset >= end.get()) {
+					return;
+				}
+				List<T> page = new ArrayList<>(pageSize);
+				try {
+					FetchResult result = fetchPage(offset, page);
+					if (page.size() > pageSize) {
+						throw new RestClientException("Page at offset " + offset + " of " + url + " returned "
+								+ page.size() + " records for a limit of " + pageSize + "; paging is not supported");
+					}
+					if (result.totalCount() != FetchResult.UNKNOWN_TOTAL) {
+						end.accumulateAndGet(result.totalCount(), Math::min);
+					}
+					if (page.size() < pageSize) {
+						end.accumulateAndGet(offset + page.size(), Math::min);
+					}
+					deliver(page);
+				} catch (RuntimeException e) {
+					failure.compareAndSet(null, e);
+					return;
+				}
+			}
+		}
+
+		private FetchResult fetchPage(long offset, List<T> page) {
+			String pageUrl = url + (url.contains("?") ? "&" : "?") + "offset=" + offset + "&limit=" + pageSize;
+			for (int attempt = 1; ; attempt++) {
+				page.clear();
+				try {
+					FetchResult result = upstreamClient.streamArray(pageUrl, type, page::add, false);
+					bytes.addAndGet(result.bytes());
+					decodeNanos.addAndGet(result.decodeTime().toNanos());
+					return result;
+				} catch (RestClientException e) {
+					if (attempt >= maxAttempts || failure.get() != null) {
+						throw e;
+					}
+					Duration backoff = retryBackoff.multipliedBy(1L << Math.min(attempt - 1, 10));
+					log.warn("Page at offset {} of {} failed (attempt {}/{}), retrying in {} ms: {}", offset, url,
+							attempt, maxAttempts, backoff.toMillis(), e.getMessage());
+					onPageRetry.run();
+					sleep(backoff);
+				}
+			}
+		}
+
+		private void deliver(List<T> page) {
+			sinkLock.lock();
+			try {
+				page.forEach(sink);
+				records.addAndGet(page.size());
+			} finally {
+				sinkLock.unlock();
+			}
+		}
+
+		private void sleep(Duration backoff) {
+			try {
+				Thread.sleep(backoff);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RestClientException("Interrupted while waiting to retry a page of " + url, e);
+			}
+		}
+	}
+}
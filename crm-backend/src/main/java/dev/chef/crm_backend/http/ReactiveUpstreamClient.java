@@ -0,0 +1,144 @@
+package dev.chef.crm_backend.http;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.JdkClientHttpConnector;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+import dev.chef.crm_backend.resilience.UpstreamLimiter;
+import dev.chef.crm_backend.resilience.UpstreamLimiterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Non-blocking counterpart of {@link UpstreamClient} for the reactive pipeline.
+ * <p>
+ * The JSON array is decoded into a {@link Flux} element by element as response chunks
+ * arrive. The body is only read as fast as the subscriber requests records, so a slow Kafka
+ * side throttles the upstream read instead of buffering it. All sources share one JDK
+ * {@link HttpClient} on a small fixed pool of {@code integration.reactive.http-threads}
+ * threads, created on first use so the blocking mode never starts it. Requests are
+ * conditional via the shared {@link HttpValidatorCache} and go through the same
+ * {@link UpstreamLimiter} as the blocking client; waiting for a permit happens on the
+ * bounded-elastic scheduler, and the permit is held until the body completes or is cancelled.
+ */
+@Component
+public class ReactiveUpstreamClient {
+
+	@SuppressWarnings("removal")
+	private final Jackson2JsonDecoder decoder = new Jackson2JsonDecoder(JsonMapper.builder()
+			.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+			.build());
+	private final HttpValidatorCache validatorCache;
+	private final UpstreamLimiterRegistry limiters;
+	private final Duration connectTimeout;
+	private final Duration readTimeout;
+	private final int threads;
+
+	private WebClient webClient;
+
+	public ReactiveUpstreamClient(HttpValidatorCache validatorCache, long connectTimeoutMs, long readTimeoutMs,
+			int threads) {
+		this(validatorCache, UpstreamLimiterRegistry.NONE, connectTimeoutMs, readTimeoutMs, threads);
+	}
+
+	@Autowired
+	public ReactiveUpstreamClient(HttpValidatorCache validatorCache, UpstreamLimiterRegistry limiters,
+			@Value("${integration.http.connect-timeout-ms:2000}") long connectTimeoutMs,
+			@Value("${integration.http.read-timeout-ms:10000}") long readTimeoutMs,
+			@Value("${integration.reactive.http-threads:2}") int threads) {
+		this.validatorCache = validatorCache;
+		this.limiters = limiters;
+		this.connectTimeout = Duration.ofMillis(connectTimeoutMs);
+		this.readTimeout = Duration.ofMillis(readTimeoutMs);
+		this.threads = threads;
+	}
+
+	/**
+	 * Streams the JSON array at {@code url} as a conditional request. {@code onComplete}
+	 * receives the fetch outcome right before the returned flux completes; on a 304 the flux
+	 * is empty and the outcome is {@link FetchResult#notModified()}.
+	 */
+	public <T> Flux<T> streamArray(String url, Class<T> type, Consumer<FetchResult> onComplete) {
+		UpstreamLimiter limiter = limiters.forUrl(url);
+		Mono<UpstreamLimiter.Permit> permit = limiter == UpstreamLimiter.UNLIMITED
+				? Mono.fromSupplier(limiter::acquire)
+				: Mono.fromSupplier(limiter::acquire).subscribeOn(Schedulers.boundedElastic());
+		return Flux.usingWhen(permit,
+				p -> webClient().get()
+						.uri(url)
+						.accept(MediaType.APPLICATION_JSON)
+						.headers(headers -> headers.addAll(validatorCache.conditionalHeaders(url)))
+						.exchangeToFlux(response -> {
+							p.onResponse(response.statusCode().value(), response.headers().asHttpHeaders());
+							return read(url, response, type, onComplete);
+						}),
+				p -> Mono.fromRunnable(p::close),
+				(p, error) -> Mono.fromRunnable(p::close),
+				p -> Mono.fromRunnable(p::close));
+	}
+
+	/**
+	 * Forgets the cached validators for {@code url}, so the next fetch returns the full body.
+	 */
+	public void invalidate(String url) {
+		validatorCache.invalidate(url);
+	}
+
+	private <T> Flux<T> read(String url, ClientResponse response, Class<T> type, Consumer<FetchResult> onComplete) {
+		if (response.statusCode().isError()) {
+			return response.<T>createError().flux();
+		}
+		if (validatorCache.isNotModified(url, response.statusCode().value())) {
+			return response.releaseBody()
+					.thenMany(Flux.<T>empty())
+					.doOnComplete(() -> onComplete.accept(FetchResult.notModifiedResult()));
+		}
+		AtomicLong bytes = new AtomicLong();
+		AtomicLong records = new AtomicLong();
+		Flux<DataBuffer> body = response.bodyToFlux(DataBuffer.class)
+				.doOnNext(buffer -> bytes.addAndGet(buffer.readableByteCount()));
+		return decoder.decode(body, ResolvableType.forClass(type), MediaType.APPLICATION_JSON, Map.of())
+				.map(type::cast)
+				.doOnNext(record -> records.incrementAndGet())
+				// validators are only kept once every record was decoded; an error or a cancel
+				// halfway must make the retry fetch the whole body, not get a 304
+				.doOnComplete(() -> {
+					validatorCache.store(url, response.headers().asHttpHeaders(), bytes.get());
+					onComplete.accept(FetchResult.of(records.get(), bytes.get()));
+				})
+				.doOnError(e -> validatorCache.invalidate(url))
+				.doOnCancel(() -> validatorCache.invalidate(url));
+	}
+
+	private synchronized WebClient webClient() {
+		if (webClient == null) {
+			HttpClient httpClient = HttpClient.newBuilder()
+					.connectTimeout(connectTimeout)
+					.executor(Executors.newFixedThreadPool(threads,
+							Thread.ofPlatform().name("reactive-http-", 0).daemon().factory()))
+					.build();
+			JdkClientHttpConnector connector = new JdkClientHttpConnector(httpClient);
+			connector.setReadTimeout(readTimeout);
+			webClient = WebClient.builder().clientConnector(connector).build();
+		}
+		return webClient;
+	}
+}
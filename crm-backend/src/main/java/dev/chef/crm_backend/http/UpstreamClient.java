@@ -0,0 +1,255 @@
+package dev.chef.crm_backend.http;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.client.RestTemplate;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+import dev.chef.crm_backend.resilience.UpstreamLimiter;
+import dev.chef.crm_backend.resilience.UpstreamLimiterRegistry;
+
+/**
+ * Fetches JSON arrays from the upstream REST APIs and decodes them element by element, and
+ * single records by id.
+ * <p>
+ * The response body is read with Jackson's token stream, so each record is handed to the
+ * sink as soon as it is decoded and only one record is held in memory at a time, however
+ * large the array is. Requests are conditional via {@link HttpValidatorCache}.
+ * <p>
+ * Every request first takes a permit from its upstream's {@link UpstreamLimiter}, held until
+ * the body has been read; the response status and time to headers feed the limiter.
+ */
+@Component
+public class UpstreamClient {
+
+	private static final String TOTAL_COUNT = "X-Total-Count";
+
+	private final RestTemplate restTemplate;
+	private final HttpValidatorCache validatorCache;
+	private final UpstreamLimiterRegistry limiters;
+	private final ObjectMapper objectMapper = JsonMapper.builder()
+			.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+			.build();
+
+	UpstreamClient(RestTemplate restTemplate, HttpValidatorCache validatorCache) {
+		this(restTemplate, validatorCache, UpstreamLimiterRegistry.NONE);
+	}
+
+	@Autowired
+	public UpstreamClient(RestTemplate restTemplate, HttpValidatorCache validatorCache,
+			UpstreamLimiterRegistry limiters) {
+		this.restTemplate = restTemplate;
+		this.validatorCache = validatorCache;
+		this.limiters = limiters;
+	}
+
+	/**
+	 * Streams the JSON array at {@code url} into {@code sink}.
+	 *
+	 * @return the fetch outcome; {@link FetchResult#notModified()} if the upstream answered 304
+	 */
+	public <T> FetchResult streamArray(String url, Class<T> type, Consumer<? super T> sink) {
+		return streamArray(url, type, sink, true);
+	}
+
+	/**
+	 * Streams the JSON array at {@code url} into {@code sink}, optionally without
+	 * conditional request headers (e.g. for one page of a partitioned fetch).
+	 */
+	public <T> FetchResult streamArray(String url, Class<T> type, Consumer<? super T> sink, boolean conditional) {
+		try (UpstreamLimiter.Permit permit = limiters.forUrl(url).acquire()) {
+			FetchResult result;
+			try {
+				result = restTemplate.execute(url, HttpMethod.GET,
+						request -> {
+							request.getHeaders().setAccept(List.of(MediaType.APPLICATION_JSON));
+							if (conditional) {
+								request.getHeaders().addAll(validatorCache.conditionalHeaders(url));
+							}
+						},
+						response -> {
+							permit.onResponse(response.getStatusCode().value(), response.getHeaders());
+							return conditional ? read(url, response, type, sink) : decode(url, response, type, sink);
+						});
+			} catch (RestClientResponseException e) {
+				permit.onResponse(e.getStatusCode().value(), e.getResponseHeaders());
+				throw e;
+			}
+			return result != null ? result : FetchResult.empty();
+		}
+	}
+
+	/**
+	 * Fetches the single JSON object at {@code url}, e.g. one record after a change
+	 * notification. The request is not conditional.
+	 *
+	 * @return the decoded object, or empty if the upstream answered 404
+	 */
+	public <T> Optional<T> fetchOne(String url, Class<T> type) {
+		try (UpstreamLimiter.Permit permit = limiters.forUrl(url).acquire()) {
+			try {
+				return Optional.ofNullable(restTemplate.execute(url, HttpMethod.GET,
+						request -> request.getHeaders().setAccept(List.of(MediaType.APPLICATION_JSON)),
+						response -> {
+							permit.onResponse(response.getStatusCode().value(), response.getHeaders());
+							try (InputStream body = response.getBody()) {
+								return objectMapper.readValue(body, type);
+							}
+						}));
+			} catch (RestClientResponseException e) {
+				permit.onResponse(e.getStatusCode().value(), e.getResponseHeaders());
+				if (e.getStatusCode().value() == 404) {
+					return Optional.empty();
+				}
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Fetches the single JSON objects at {@code urls} concurrently, one virtual thread per URL;
+	 * the upstream's limiter bounds how many requests actually run at once.
+	 *
+	 * @return one result per URL, in the same order; empty where the upstream answered 404
+	 * @throws RestClientException the first failure, once every request has finished
+	 */
+	public <T> List<Optional<T>> fetchEach(List<String> urls, Class<T> type) {
+		if (urls.size() == 1) {
+			return List.of(fetchOne(urls.getFirst(), type));
+		}
+		List<Future<Optional<T>>> futures = new ArrayList<>(urls.size());
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (String url : urls) {
+				futures.add(executor.submit(() -> fetchOne(url, type)));
+			}
+		}
+		List<Optional<T>> results = new ArrayList<>(urls.size());
+		for (Future<Optional<T>> future : futures) {
+			switch (future.state()) {
+				case SUCCESS -> results.add(future.resultNow());
+				case FAILED -> throw future.exceptionNow() instanceof RuntimeException e ? e
+						: new RestClientException("Fetching a record failed", future.exceptionNow());
+				default -> throw new RestClientException("Interrupted while fetching records");
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Forgets the cached validators for {@code url}, so the next fetch returns the full body.
+	 */
+	public void invalidate(String url) {
+		validatorCache.invalidate(url);
+	}
+
+	private <T> FetchResult read(String url, ClientHttpResponse response, Class<T> type, Consumer<? super T> sink)
+			throws IOException {
+		if (validatorCache.isNotModified(url, response.getStatusCode().value())) {
+			return FetchResult.notModifiedResult();
+		}
+		FetchResult result;
+		try {
+			result = decode(url, response, type, sink);
+		} catch (IOException | RuntimeException e) {
+			// part of the body may be unpublished: the retry has to fetch it all again
+			validatorCache.invalidate(url);
+			throw e;
+		}
+		validatorCache.store(url, response.getHeaders(), result.bytes());
+		return result;
+	}
+
+	private <T> FetchResult decode(String url, ClientHttpResponse response, Class<T> type, Consumer<? super T> sink)
+			throws IOException {
+		CountingInputStream body = new CountingInputStream(response.getBody());
+		long records = 0;
+		long decodeNanos = 0;
+		try (JsonParser parser = objectMapper.createParser(body)) {
+			JsonToken first = parser.nextToken();
+			if (first == null) {
+				return FetchResult.empty();
+			}
+			if (first != JsonToken.START_ARRAY) {
+				throw new RestClientException("Expected a JSON array from " + url + " but got " + first);
+			}
+			JsonToken token;
+			while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+				if (token == null) {
+					throw new RestClientException("Truncated JSON array from " + url);
+				}
+				if (token == JsonToken.VALUE_NULL) {
+					continue;
+				}
+				long start = System.nanoTime();
+				T record = objectMapper.readValue(parser, type);
+				decodeNanos += System.nanoTime() - start;
+				sink.accept(record);
+				records++;
+			}
+		}
+		return FetchResult.of(records, body.count, Duration.ofNanos(decodeNanos))
+				.withTotalCount(totalCount(response.getHeaders()));
+	}
+
+	private static long totalCount(HttpHeaders headers) {
+		String value = headers.getFirst(TOTAL_COUNT);
+		if (value == null) {
+			return FetchResult.UNKNOWN_TOTAL;
+		}
+		try {
+			return Math.max(Long.parseLong(value.trim()), FetchResult.UNKNOWN_TOTAL);
+		} catch (NumberFormatException e) {
+			return FetchResult.UNKNOWN_TOTAL;
+		}
+	}
+
+	private static final class CountingInputStream extends FilterInputStream {
+
+		private long count;
+
+		CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b >= 0) {
+				count++;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = super.read(b, off, len);
+			if (n > 0) {
+				count += n;
+			}
+			return n;
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package dev.chef.crm_backend.http;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.ManagedHttpClientConnectionFactory;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+
+/**
+ * Persistent, per-route connection pool shared by all upstream REST calls.
+ * <p>
+ * Connections are kept alive between polls and reused, idle connections are evicted, and
+ * gzip/deflate response bodies are decoded transparently by the client. The pool counts
+ * requests and newly opened connections so the reuse rate can be monitored.
+ */
+public class UpstreamConnectionPool implements AutoCloseable {
+
+	private final PoolingHttpClientConnectionManager connectionManager;
+	private final CloseableHttpClient httpClient;
+	private final LongAdder requests = new LongAdder();
+	private final LongAdder connectionsOpened = new LongAdder();
+
+	public UpstreamConnectionPool(int maxTotal, int maxPerRoute, Duration connectTimeout,
+			Duration readTimeout, Duration leaseTimeout, Duration idleTimeout) {
+		this.connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+				.setMaxConnTotal(maxTotal)
+				.setMaxConnPerRoute(maxPerRoute)
+				.setDefaultConnectionConfig(ConnectionConfig.custom()
+						.setConnectTimeout(Timeout.of(connectTimeout))
+						.setSocketTimeout(Timeout.of(readTimeout))
+						.setValidateAfterInactivity(TimeValue.ofSeconds(2))
+						.build())
+				.setConnectionFactory(socket -> {
+					connectionsOpened.increment();
+					return ManagedHttpClientConnectionFactory.INSTANCE.createConnection(socket);
+				})
+				.build();
+		this.httpClient = HttpClients.custom()
+				.setConnectionManager(connectionManager)
+				.setDefaultRequestConfig(RequestConfig.custom()
+						.setConnectionRequestTimeout(Timeout.of(leaseTimeout))
+						.setResponseTimeout(Timeout.of(readTimeout))
+						.build())
+				.addRequestInterceptorFirst((request, entity, context) -> requests.increment())
+				.evictExpiredConnections()
+				.evictIdleConnections(TimeValue.of(idleTimeout))
+				.build();
+	}
+
+	public CloseableHttpClient getHttpClient() {
+		return httpClient;
+	}
+
+	public Stats stats() {
+		PoolStats total = connectionManager.getTotalStats();
+		long requestCount = requests.sum();
+		long opened = connectionsOpened.sum();
+		double reuseRate = requestCount == 0 ? 0.0 : Math.max(0.0, 1.0 - (double) opened / requestCount);
+		return new Stats(total.getLeased(), total.getPending(), total.getAvailable(), total.getMax(),
+				requestCount, opened, reuseRate);
+	}
+
+	@Override
+	public void close() throws IOException {
+		httpClient.close();
+	}
+
+	/**
+	 * Pool counters; {@code reuseRate} is the share of requests served on an already open
+	 * connection.
+	 */
+	public record Stats(int leased, int pending, int available, int max,
+			long requests, long connectionsOpened, double reuseRate) {
+	}
+}
@@ -0,0 +1,95 @@
+package dev.chef.crm_backend.ingest;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+import dev.chef.crm_backend.metrics.PipelineMetrics;
+import dev.chef.crm_backend.publish.KafkaPublisher;
+
+/**
+ * Bulk upload endpoint for backfills: {@code POST /ingest/crm} streams customers into the
+ * customer-data topic and {@code POST /ingest/inventory} inventory items into the
+ * inventory-data topic, as a JSON array or NDJSON body of any size (see {@link BulkIngestor}).
+ * <p>
+ * The request thread reads the body while sending, so a full producer buffer slows the
+ * upload down instead of buffering it. More than {@code max-concurrent-uploads} uploads per
+ * topic, or an upload whose Kafka sends fail, are answered with 429 and a
+ * {@code Retry-After}, and a body that breaks off with 408; the body of every response is an
+ * {@link IngestResult} with the ack counts per batch of {@code batch-size} records. With
+ * {@code integration.ingest.token} set, requests must carry it as
+ * {@code Authorization: Bearer <token>}.
+ */
+@RestController
+@ConditionalOnProperty(name = "integration.ingest.enabled", havingValue = "true")
+public class BulkIngestController {
+
+	private final Map<String, Upstream> ingestors;
+	private final byte[] token;
+	private final long retryAfterSeconds;
+
+	public BulkIngestController(KafkaPublisher publisher, PipelineMetrics metrics,
+			@Value("${integration.kafka.topics.customer-data:customer_data}") String customerTopic,
+			@Value("${integration.kafka.topics.inventory-data:inventory_data}") String inventoryTopic,
+			@Value("${integration.ingest.batch-size:10000}") int batchSize,
+			@Value("${integration.ingest.max-concurrent-uploads:2}") int maxConcurrentUploads,
+			@Value("${integration.ingest.retry-after-ms:5000}") long retryAfterMs,
+			@Value("${integration.ingest.token:}") String token) {
+		this.ingestors = Map.of(
+				"crm", new Upstream(new BulkIngestor(RecordShape.CUSTOMER, "Bulk ingest (customers)", customerTopic,
+						batchSize, publisher, metrics), new Semaphore(maxConcurrentUploads)),
+				"inventory", new Upstream(new BulkIngestor(RecordShape.INVENTORY_ITEM, "Bulk ingest (products)",
+						inventoryTopic, batchSize, publisher, metrics), new Semaphore(maxConcurrentUploads)));
+		this.token = token.isEmpty() ? null : ("Bearer " + token).getBytes(StandardCharsets.UTF_8);
+		this.retryAfterSeconds = Math.max(1, retryAfterMs / 1000);
+	}
+
+	@PostMapping(path = "/ingest/{source}", consumes = { "application/x-ndjson", "application/json" })
+	public ResponseEntity<?> ingest(@PathVariable String source,
+			@RequestHeader(name = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+			InputStream body) {
+		if (token != null && (authorization == null
+				|| !MessageDigest.isEqual(token, authorization.getBytes(StandardCharsets.UTF_8)))) {
+			return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Missing or wrong bearer token"));
+		}
+		Upstream upstream = ingestors.get(source);
+		if (upstream == null) {
+			return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Unknown source " + source));
+		}
+		if (!upstream.uploads().tryAcquire()) {
+			return tooManyRequests().body(Map.of("error", "Too many concurrent uploads for " + source));
+		}
+		IngestResult result;
+		try {
+			result = upstream.ingestor().ingest(body);
+		} finally {
+			upstream.uploads().release();
+		}
+		return switch (result.outcome()) {
+			case COMPLETED -> ResponseEntity.ok(result);
+			case MALFORMED -> ResponseEntity.badRequest().body(result);
+			case INTERRUPTED -> ResponseEntity.status(HttpStatus.REQUEST_TIMEOUT).body(result);
+			case BACKPRESSURE -> tooManyRequests().body(result);
+		};
+	}
+
+	private ResponseEntity.BodyBuilder tooManyRequests() {
+		return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+				.header(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+	}
+
+	private record Upstream(BulkIngestor ingestor, Semaphore uploads) {
+	}
+}
@@ -0,0 +1,166 @@
+package dev.chef.crm_backend.ingest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+import dev.chef.crm_backend.metrics.PipelineMetrics;
+import dev.chef.crm_backend.publish.CycleResult;
+import dev.chef.crm_backend.publish.KafkaPublisher;
+import dev.chef.crm_backend.publish.PublishCycle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Streams a bulk upload of one record type into its Kafka topic.
+ * <p>
+ * The body is either a JSON array or newline-delimited JSON (any sequence of top-level
+ * objects), read token by token so only the record being decoded is held in memory. Each
+ * record is checked against its {@link RecordShape}; rejected ones are counted and the first
+ * {@code MAX_ERRORS} reported, the rest are sent keyed by id in {@link PublishCycle}s of
+ * {@code batchSize} records. Sends block while the publisher's in-flight cap is reached, so
+ * a client uploading faster than Kafka acknowledges is slowed down by TCP flow control.
+ * <p>
+ * Ingested records bypass the producers' delta filters and are not fingerprinted: if a
+ * backfilled value differs from the upstream's, the next poll does not correct it unless the
+ * upstream record changes. Records whose send fails stay on the
+ * ingest source's retry queue and are replayed at the start of the next batch or upload; a
+ * batch with failures ends the upload as {@link IngestResult.Outcome#BACKPRESSURE}, so the
+ * client can pause and resume after the records reported as received.
+ */
+class BulkIngestor {
+
+	static final int MAX_ERRORS = 100;
+
+	private static final Logger log = LoggerFactory.getLogger(BulkIngestor.class);
+
+	private final RecordShape shape;
+	private final String sourceName;
+	private final String topic;
+	private final int batchSize;
+	private final KafkaPublisher publisher;
+	private final PipelineMetrics metrics;
+	private final ObjectMapper objectMapper = JsonMapper.builder()
+			.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+			.build();
+
+	BulkIngestor(RecordShape shape, String sourceName, String topic, int batchSize, KafkaPublisher publisher,
+			PipelineMetrics metrics) {
+		this.shape = shape;
+		this.sourceName = sourceName;
+		this.topic = topic;
+		this.batchSize = batchSize;
+		this.publisher = publisher;
+		this.metrics = metrics;
+	}
+
+	IngestResult ingest(InputStream body) {
+		Upload upload = new Upload();
+		// opened up front so records that failed in an earlier upload are replayed even by an empty one
+		upload.cycle = publisher.openCycle(sourceName, topic);
+		try (JsonParser parser = objectMapper.createParser(body)) {
+			JsonToken token = parser.nextToken();
+			boolean array = token == JsonToken.START_ARRAY;
+			if (array) {
+				token = parser.nextToken();
+			}
+			while (token != null && !(array && token == JsonToken.END_ARRAY)) {
+				JsonNode record = objectMapper.readTree(parser);
+				if (!upload.accept(record)) {
+					return upload.finish(IngestResult.Outcome.BACKPRESSURE, "Kafka sends failed, retry later");
+				}
+				token = parser.nextToken();
+			}
+			if (array && token == null) {
+				return upload.finish(IngestResult.Outcome.MALFORMED, "Truncated JSON array");
+			}
+		} catch (JsonProcessingException e) {
+			return upload.finish(IngestResult.Outcome.MALFORMED,
+					"Malformed JSON after record " + upload.received + ": " + e.getOriginalMessage());
+		} catch (IOException e) {
+			return upload.finish(IngestResult.Outcome.INTERRUPTED,
+					"Upload interrupted after record " + upload.received + ": " + e.getMessage());
+		}
+		return upload.finish(IngestResult.Outcome.COMPLETED, null);
+	}
+
+	/**
+	 * State of one upload; used by the request thread only.
+	 */
+	private final class Upload {
+
+		private final List<IngestResult.Batch> batches = new ArrayList<>();
+		private final List<IngestResult.RecordError> errors = new ArrayList<>();
+		private final StringBuilder error = new StringBuilder();
+		private PublishCycle cycle;
+		private int inBatch;
+		private long received;
+		private long rejected;
+
+		/**
+		 * @return {@code false} if a completed batch had failed sends
+		 */
+		boolean accept(JsonNode record) {
+			received++;
+			error.setLength(0);
+			String id = shape.validate(record, error);
+			Object value = null;
+			if (id != null) {
+				try {
+					value = objectMapper.treeToValue(record, shape.type());
+				} catch (JsonProcessingException | IllegalArgumentException e) {
+					error.append(e.getMessage());
+				}
+			}
+			if (value == null) {
+				rejected++;
+				if (errors.size() < MAX_ERRORS) {
+					errors.add(new IngestResult.RecordError(received, error.toString()));
+				}
+				return true;
+			}
+			if (cycle == null) {
+				cycle = publisher.openCycle(sourceName, topic);
+			}
+			cycle.send(id, value);
+			return ++inBatch < batchSize || completeBatch();
+		}
+
+		private boolean completeBatch() {
+			if (cycle == null) {
+				return true;
+			}
+			CycleResult result = cycle.complete();
+			cycle = null;
+			inBatch = 0;
+			if (result.sent() == 0) {
+				return true;
+			}
+			batches.add(new IngestResult.Batch(batches.size() + 1, received, result.sent(), result.acked(),
+					result.failed()));
+			return result.failed() == 0;
+		}
+
+		IngestResult finish(IngestResult.Outcome outcome, String message) {
+			if (!completeBatch() && outcome == IngestResult.Outcome.COMPLETED) {
+				outcome = IngestResult.Outcome.BACKPRESSURE;
+				message = "Some Kafka sends failed; they are replayed with the next upload, retry later";
+			}
+			long accepted = received - rejected;
+			metrics.recordIngest(sourceName, accepted, rejected);
+			IngestResult result = IngestResult.of(outcome, message, received, rejected, batches, errors);
+			log.info("Bulk ingest into {}: {} of {} record(s) accepted in {} batch(es), {} acked, {} failed ({})",
+					topic, accepted, received, batches.size(), result.acked(), result.failed(), outcome);
+			return result;
+		}
+	}
+}
@@ -0,0 +1,54 @@
+package dev.chef.crm_backend.ingest;
+
+import java.util.List;
+
+/**
+ * Response of a bulk upload: how many records were read and rejected, and the Kafka outcome
+ * of every batch.
+ *
+ * @param outcome how the upload ended
+ * @param message what went wrong, {@code null} if it completed
+ * @param received records read from the body, valid or not; a client resuming an interrupted
+ *        upload skips this many
+ * @param rejected records that failed validation
+ * @param sent records handed to Kafka, including replays of earlier failures
+ * @param acked records acknowledged by Kafka
+ * @param failed records whose send failed, queued for replay with the next batch or upload
+ * @param batches the batches in order
+ * @param errors the first {@value BulkIngestor#MAX_ERRORS} rejected records
+ */
+public record IngestResult(Outcome outcome, String message, long received, long rejected, long sent, long acked,
+		long failed, List<Batch> batches, List<RecordError> errors) {
+
+	public enum Outcome {
+		COMPLETED,
+		/** The body is not a JSON array or object sequence; records before the error were sent. */
+		MALFORMED,
+		/** Reading the body failed, e.g. the client disconnected; records before that were sent. */
+		INTERRUPTED,
+		/** Kafka sends failed; retry after a pause, resuming after {@code received} records. */
+		BACKPRESSURE
+	}
+
+	/**
+	 * @param number 1-based batch number
+	 * @param lastRecord 1-based position in the body of the batch's last record
+	 */
+	public record Batch(int number, long lastRecord, long sent, long acked, long failed) {
+	}
+
+	/**
+	 * @param record 1-based position of the record in the body
+	 */
+	public record RecordError(long record, String error) {
+	}
+
+	static IngestResult of(Outcome outcome, String message, long received, long rejected, List<Batch> batches,
+			List<RecordError> errors) {
+		return new IngestResult(outcome, message, received, rejected,
+				batches.stream().mapToLong(Batch::sent).sum(),
+				batches.stream().mapToLong(Batch::acked).sum(),
+				batches.stream().mapToLong(Batch::failed).sum(),
+				List.copyOf(batches), List.copyOf(errors));
+	}
+}
@@ -0,0 +1,88 @@
+package dev.chef.crm_backend.ingest;
+
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import dev.chef.crm_backend.dto.CustomerData;
+import dev.chef.crm_backend.dto.InventoryItem;
+
+/**
+ * The record types that can be bulk ingested, with the structural checks a record has to
+ * pass before it is decoded and published.
+ */
+enum RecordShape {
+
+	CUSTOMER(CustomerData.class, Map.of("name", Kind.TEXT, "email", Kind.TEXT, "productIds", Kind.ID_ARRAY,
+			"additional", Kind.OBJECT)),
+	INVENTORY_ITEM(InventoryItem.class, Map.of("name", Kind.TEXT, "stock", Kind.COUNT, "additional", Kind.OBJECT));
+
+	private final Class<?> type;
+	private final Map<String, Kind> fields;
+
+	RecordShape(Class<?> type, Map<String, Kind> fields) {
+		this.type = type;
+		this.fields = fields;
+	}
+
+	Class<?> type() {
+		return type;
+	}
+
+	/**
+	 * Checks that {@code record} is an object with an id and that every known field, where
+	 * present and not null, has the right JSON type. Unknown fields are allowed, as for
+	 * fetched records.
+	 *
+	 * @return the id, or {@code null} with the problem written to {@code error}
+	 */
+	String validate(JsonNode record, StringBuilder error) {
+		if (!record.isObject()) {
+			error.append("not a JSON object");
+			return null;
+		}
+		JsonNode id = record.get("id");
+		if (id == null || !(id.isTextual() || id.isIntegralNumber()) || id.asText().isBlank()) {
+			error.append("missing or invalid id");
+			return null;
+		}
+		for (Map.Entry<String, Kind> field : fields.entrySet()) {
+			JsonNode value = record.get(field.getKey());
+			if (value != null && !value.isNull() && !field.getValue().matches(value)) {
+				error.append(field.getKey()).append(" must be ").append(field.getValue().description);
+				return null;
+			}
+		}
+		return id.asText();
+	}
+
+	private enum Kind {
+
+		TEXT("a string"),
+		COUNT("a non-negative integer"),
+		OBJECT("an object"),
+		ID_ARRAY("an array of ids");
+
+		private final String description;
+
+		Kind(String description) {
+			this.description = description;
+		}
+
+		boolean matches(JsonNode value) {
+			return switch (this) {
+				case TEXT -> value.isTextual();
+				case COUNT -> value.isIntegralNumber() && value.canConvertToInt() && value.intValue() >= 0;
+				case OBJECT -> value.isObject();
+				case ID_ARRAY -> {
+					for (JsonNode element : value) {
+						if (!element.isTextual() && !element.isIntegralNumber()) {
+							yield false;
+						}
+					}
+					yield value.isArray();
+				}
+			};
+		}
+	}
+}
@@ -0,0 +1,249 @@
+package dev.chef.crm_backend.join;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import dev.chef.crm_backend.dto.CustomerData;
+import dev.chef.crm_backend.dto.CustomerWithProducts;
+import dev.chef.crm_backend.dto.InventoryItem;
+import dev.chef.crm_backend.publish.CycleResult;
+import dev.chef.crm_backend.publish.KafkaPublisher;
+import dev.chef.crm_backend.publish.PublishCycle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Incremental join of customers with the inventory items they reference, published as
+ * {@link CustomerWithProducts} records keyed by customer id.
+ * <p>
+ * Both producers feed every fetched record through a {@link JoinInput}. The join keeps the
+ * current customers and inventory in memory plus a productId&rarr;customer ids reverse index,
+ * and at the end of each cycle re-emits only the customers whose own record changed or who
+ * reference an item that changed, appeared or disappeared. Customers that disappear are
+ * tombstoned.
+ * <p>
+ * Nothing is emitted until both sides have completed a cycle, so startup does not publish
+ * customers without their products first. Both sources must therefore be polled by the same
+ * instance; when sources are sharded across instances the join stays idle on instances
+ * that own only one of them.
+ */
+@Component
+@ConditionalOnProperty(name = "integration.join.enabled", havingValue = "true")
+public class CustomerInventoryJoin {
+
+	private static final Logger log = LoggerFactory.getLogger(CustomerInventoryJoin.class);
+	private static final String SOURCE = "Customer-inventory join";
+
+	private final KafkaPublisher publisher;
+	private final String topic;
+
+	private final Map<String, Entry<CustomerData>> customers = new HashMap<>();
+	private final Map<String, Entry<InventoryItem>> inventory = new HashMap<>();
+	private final Map<String, Set<String>> customersByProduct = new HashMap<>();
+	private final Set<String> dirty = new HashSet<>();
+	private final Set<String> removed = new HashSet<>();
+	private final Object emitLock = new Object();
+	private long customerGeneration;
+	private long inventoryGeneration;
+	private boolean customersReady;
+	private boolean inventoryReady;
+
+	public CustomerInventoryJoin(KafkaPublisher publisher,
+			@Value("${integration.kafka.topics.customer-inventory:customer_inventory}") String topic) {
+		this.publisher = publisher;
+		this.topic = topic;
+	}
+
+	public JoinInput<CustomerData> customers() {
+		return new JoinInput<>() {
+			@Override
+			public void beginCycle() {
+				synchronized (CustomerInventoryJoin.this) {
+					customerGeneration++;
+				}
+			}
+
+			@Override
+			public void accept(CustomerData customer) {
+				acceptCustomer(customer);
+			}
+
+			@Override
+			public void endCycle() {
+				endCustomerCycle();
+				emit();
+			}
+		};
+	}
+
+	public JoinInput<InventoryItem> inventory() {
+		return new JoinInput<>() {
+			@Override
+			public void beginCycle() {
+				synchronized (CustomerInventoryJoin.this) {
+					inventoryGeneration++;
+				}
+			}
+
+			@Override
+			public void accept(InventoryItem item) {
+				acceptItem(item);
+			}
+
+			@Override
+			public void endCycle() {
+				endInventoryCycle();
+				emit();
+			}
+		};
+	}
+
+	private synchronized void acceptCustomer(CustomerData customer) {
+		if (customer.id() == null) {
+			return;
+		}
+		Entry<CustomerData> previous = customers.get(customer.id());
+		if (previous != null) {
+			previous.generation = customerGeneration;
+			if (previous.value.equals(customer)) {
+				return;
+			}
+			unindex(previous.value);
+			previous.value = customer;
+		} else {
+			customers.put(customer.id(), new Entry<>(customer, customerGeneration));
+		}
+		index(customer);
+		dirty.add(customer.id());
+		removed.remove(customer.id());
+	}
+
+	private synchronized void acceptItem(InventoryItem item) {
+		if (item.id() == null) {
+			return;
+		}
+		Entry<InventoryItem> previous = inventory.get(item.id());
+		if (previous != null) {
+			previous.generation = inventoryGeneration;
+			if (previous.value.equals(item)) {
+				return;
+			}
+			previous.value = item;
+		} else {
+			inventory.put(item.id(), new Entry<>(item, inventoryGeneration));
+		}
+		dirty.addAll(customersByProduct.getOrDefault(item.id(), Set.of()));
+	}
+
+	private synchronized void endCustomerCycle() {
+		Iterator<Map.Entry<String, Entry<CustomerData>>> it = customers.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<String, Entry<CustomerData>> e = it.next();
+			if (e.getValue().generation < customerGeneration) {
+				it.remove();
+				unindex(e.getValue().value);
+				dirty.remove(e.getKey());
+				removed.add(e.getKey());
+			}
+		}
+		customersReady = true;
+	}
+
+	private synchronized void endInventoryCycle() {
+		Iterator<Map.Entry<String, Entry<InventoryItem>>> it = inventory.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<String, Entry<InventoryItem>> e = it.next();
+			if (e.getValue().generation < inventoryGeneration) {
+				it.remove();
+				dirty.addAll(customersByProduct.getOrDefault(e.getKey(), Set.of()));
+			}
+		}
+		inventoryReady = true;
+	}
+
+	/**
+	 * Publishes the pending changes. The snapshot is taken and sent under one lock so two
+	 * producers finishing at once cannot publish versions of a customer out of order, while
+	 * the producers can keep feeding records during the send.
+	 */
+	private void emit() {
+		synchronized (emitLock) {
+			Map<String, CustomerWithProducts> merged = new LinkedHashMap<>();
+			List<String> tombstones;
+			synchronized (this) {
+				if (!customersReady || !inventoryReady || (dirty.isEmpty() && removed.isEmpty())) {
+					return;
+				}
+				for (String id : dirty) {
+					merged.put(id, merge(customers.get(id).value));
+				}
+				tombstones = new ArrayList<>(removed);
+				dirty.clear();
+				removed.clear();
+			}
+			PublishCycle cycle = publisher.openCycle(SOURCE, topic);
+			merged.forEach(cycle::send);
+			tombstones.forEach(id -> cycle.send(id, null));
+			CycleResult outcome = cycle.complete();
+			log.info("Published {} merged customer(s) and {} tombstone(s) to topic {} ({} acked, {} failed)",
+					merged.size(), tombstones.size(), topic, outcome.acked(), outcome.failed());
+		}
+	}
+
+	private CustomerWithProducts merge(CustomerData customer) {
+		List<InventoryItem> products = new ArrayList<>();
+		List<String> missing = new ArrayList<>();
+		if (customer.productIds() != null) {
+			for (String productId : customer.productIds()) {
+				Entry<InventoryItem> item = inventory.get(productId);
+				if (item != null) {
+					products.add(item.value);
+				} else {
+					missing.add(productId);
+				}
+			}
+		}
+		return new CustomerWithProducts(customer.id(), customer.name(), customer.email(), customer.additional(),
+				products, missing);
+	}
+
+	private void index(CustomerData customer) {
+		if (customer.productIds() != null) {
+			for (String productId : customer.productIds()) {
+				customersByProduct.computeIfAbsent(productId, k -> new HashSet<>()).add(customer.id());
+			}
+		}
+	}
+
+	private void unindex(CustomerData customer) {
+		if (customer.productIds() != null) {
+			for (String productId : customer.productIds()) {
+				Set<String> ids = customersByProduct.get(productId);
+				if (ids != null && ids.remove(customer.id()) && ids.isEmpty()) {
+					customersByProduct.remove(productId);
+				}
+			}
+		}
+	}
+
+	private static final class Entry<T> {
+
+		private T value;
+		private long generation;
+
+		private Entry(T value, long generation) {
+			this.value = value;
+			this.generation = generation;
+		}
+	}
+}
@@ -0,0 +1,36 @@
+package dev.chef.crm_backend.join;
+
+/**
+ * One side of a join, fed by a producer with every record it fetches in a poll cycle.
+ */
+public interface JoinInput<T> {
+
+	void beginCycle();
+
+	void accept(T record);
+
+	/**
+	 * Called after a complete fetch; records not seen since {@link #beginCycle()} are dropped.
+	 * Not called for failed, empty or not-modified fetches.
+	 */
+	void endCycle();
+
+	/**
+	 * Input for producers running without a join.
+	 */
+	static <T> JoinInput<T> none() {
+		return new JoinInput<>() {
+			@Override
+			public void beginCycle() {
+			}
+
+			@Override
+			public void accept(T record) {
+			}
+
+			@Override
+			public void endCycle() {
+			}
+		};
+	}
+}
@@ -0,0 +1,272 @@
+package dev.chef.crm_backend.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+import org.springframework.stereotype.Component;
+
+import dev.chef.crm_backend.http.FetchResult;
+import dev.chef.crm_backend.publish.CycleResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+
+/**
+ * Meters of the fetch &rarr; publish pipeline, all tagged with the producer's
+ * {@code source} name.
+ * <p>
+ * Timers publish a percentile histogram so latency quantiles can be aggregated across
+ * instances in Prometheus.
+ */
+@Component
+public class PipelineMetrics {
+
+	public static final String SOURCE_TAG = "source";
+
+	private static final Logger log = LoggerFactory.getLogger(PipelineMetrics.class);
+
+	private final MeterRegistry registry;
+	private final AtomicBoolean acked = new AtomicBoolean();
+	private volatile Duration firstAck;
+
+	public PipelineMetrics(MeterRegistry registry) {
+		this.registry = registry;
+	}
+
+	/**
+	 * Times an upstream fetch and records its outcome, response size and decode time.
+	 * A fetch that throws is recorded with {@code outcome=error} and the exception rethrown.
+	 */
+	public FetchResult recordFetch(String source, Supplier<FetchResult> fetch) {
+		long start = System.nanoTime();
+		FetchResult result;
+		try {
+			result = fetch.get();
+		} catch (RuntimeException e) {
+			timer("crm.fetch", "Upstream fetch latency, including sink time", source, "error")
+					.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+			throw e;
+		}
+		recordFetched(source, result, System.nanoTime() - start);
+		return result;
+	}
+
+	/**
+	 * Like {@link #recordFetch(String, Supplier)} for a streamed fetch: times {@code fetch}
+	 * from subscription until it completes, fails or is cancelled, and then records the
+	 * outcome that {@code result} reports. Whatever the subscriber does after the last
+	 * record, such as waiting for Kafka acknowledgements, is left out.
+	 */
+	public <T> Flux<T> recordFetch(String source, Flux<T> fetch, Supplier<FetchResult> result) {
+		return Flux.defer(() -> {
+			long start = System.nanoTime();
+			Runnable failed = () -> timer("crm.fetch", "Upstream fetch latency, including sink time", source, "error")
+					.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+			return fetch
+					.doOnComplete(() -> recordFetched(source, result.get(), System.nanoTime() - start))
+					.doOnError(e -> failed.run())
+					.doOnCancel(failed);
+		});
+	}
+
+	private void recordFetched(String source, FetchResult result, long elapsedNanos) {
+		String outcome = result.notModified() ? "not_modified" : "modified";
+		timer("crm.fetch", "Upstream fetch latency, including sink time", source, outcome)
+				.record(elapsedNanos, TimeUnit.NANOSECONDS);
+		if (!result.notModified()) {
+			DistributionSummary.builder("crm.fetch.response.bytes")
+					.description("Upstream response body size")
+					.baseUnit("bytes")
+					.tag(SOURCE_TAG, source)
+					.register(registry)
+					.record(result.bytes());
+			Timer.builder("crm.fetch.decode")
+					.description("Time spent decoding upstream records")
+					.tag(SOURCE_TAG, source)
+					.register(registry)
+					.record(result.decodeTime());
+		}
+	}
+
+	/**
+	 * Records one producer cycle; {@code result} is {@code null} if the cycle failed.
+	 */
+	public void recordCycle(String source, Duration elapsed, CycleResult result) {
+		timer("crm.cycle", "Duration of a full producer cycle", source, result != null ? "success" : "failure")
+				.record(elapsed);
+		if (result != null) {
+			summary("crm.cycle.records.published", "Records sent to Kafka per cycle", source).record(result.sent());
+		}
+	}
+
+	/**
+	 * Records how many records a cycle received from the upstream.
+	 */
+	public void recordFetchedRecords(String source, long records) {
+		summary("crm.cycle.records.fetched", "Records decoded from the upstream per cycle", source).record(records);
+	}
+
+	/**
+	 * Records how late a cycle started relative to its scheduled tick.
+	 */
+	public void recordSchedulerLag(String source, Duration lag) {
+		Timer.builder("crm.scheduler.lag")
+				.description("Delay between a scheduled tick and the start of its cycle")
+				.tag(SOURCE_TAG, source)
+				.publishPercentileHistogram()
+				.register(registry)
+				.record(lag);
+	}
+
+	public void recordOverrun(String source) {
+		counter("crm.scheduler.overruns", "Ticks that fired while the previous cycle was still running", source)
+				.increment();
+	}
+
+	public void recordRetry(String source) {
+		counter("crm.fetch.retries", "Failed cycles rescheduled as a retry", source).increment();
+	}
+
+	public void recordPageRetry(String source) {
+		counter("crm.fetch.page.retries", "Pages of a partitioned fetch retried after a failure", source).increment();
+	}
+
+	public void recordRetryRejected(String source) {
+		counter("crm.fetch.retries.rejected", "Retries skipped because the shared retry budget was exhausted", source)
+				.increment();
+	}
+
+	/**
+	 * Records one batch of change notifications applied between polls; {@code result} is
+	 * {@code null} if it failed.
+	 */
+	public void recordPushBatch(String source, Duration elapsed, int notified, CycleResult result) {
+		timer("crm.push.batch", "Duration of applying a batch of change notifications", source,
+				result != null ? "success" : "failure").record(elapsed);
+		summary("crm.push.batch.notified", "Ids and records per batch of change notifications", source)
+				.record(notified);
+	}
+
+	public void recordPushDropped(String source, int notified) {
+		counter("crm.push.dropped", "Change notifications not applied, left to the next poll", source)
+				.increment(notified);
+	}
+
+	/**
+	 * Records the outcome of one bulk upload.
+	 */
+	public void recordIngest(String source, long accepted, long rejected) {
+		Counter.builder("crm.ingest.records")
+				.description("Records read from bulk uploads")
+				.tag(SOURCE_TAG, source)
+				.tag("outcome", "accepted")
+				.register(registry)
+				.increment(accepted);
+		Counter.builder("crm.ingest.records")
+				.description("Records read from bulk uploads")
+				.tag(SOURCE_TAG, source)
+				.tag("outcome", "rejected")
+				.register(registry)
+				.increment(rejected);
+	}
+
+	public void recordShortCircuit(String source) {
+		counter("crm.circuit.short.circuited", "Cycles skipped because the source's circuit breaker was open", source)
+				.increment();
+	}
+
+	/**
+	 * Timer for the latency between handing a record to Kafka and its acknowledgement.
+	 */
+	public Timer ackTimer(String source) {
+		return Timer.builder("crm.kafka.ack")
+				.description("Latency from send to broker acknowledgement")
+				.tag(SOURCE_TAG, source)
+				.publishPercentileHistogram()
+				.register(registry);
+	}
+
+	/**
+	 * Called on every acknowledged send; the first one of the process records
+	 * {@code crm.startup.first.ack}, the time from process start to the first publish, which
+	 * the AOT, CDS and native builds are measured by.
+	 */
+	public void recordAck() {
+		if (acked.get() || !acked.compareAndSet(false, true)) {
+			return;
+		}
+		Instant start = ProcessHandle.current().info().startInstant()
+				.orElseGet(() -> Instant.ofEpochMilli(ManagementFactory.getRuntimeMXBean().getStartTime()));
+		firstAck = Duration.between(start, Instant.now());
+		TimeGauge.builder("crm.startup.first.ack", this, TimeUnit.MILLISECONDS, m -> m.firstAck.toMillis())
+				.description("Time from process start to the first acknowledged send")
+				.register(registry);
+		log.info("First send acknowledged {} ms after process start", firstAck.toMillis());
+	}
+
+	public Counter sendFailures(String source) {
+		return counter("crm.kafka.send.failed", "Sends that failed and were queued for the next cycle", source);
+	}
+
+	public Counter retryDropped(String source) {
+		return counter("crm.kafka.retry.dropped", "Failed records dropped from a full retry queue, left to the next poll",
+				source);
+	}
+
+	/**
+	 * Registers a gauge sampled from {@code state} on every scrape; the state object is
+	 * only weakly referenced by the registry.
+	 */
+	public <T> void gauge(String name, String description, String source, T state, ToDoubleFunction<T> value) {
+		Gauge.builder(name, state, value)
+				.description(description)
+				.tag(SOURCE_TAG, source)
+				.register(registry);
+	}
+
+	/**
+	 * Registers a gauge reporting a duration sampled from {@code state}, in the registry's
+	 * base time unit.
+	 */
+	public <T> void timeGauge(String name, String description, String source, T state, Function<T, Duration> value) {
+		TimeGauge.builder(name, state, TimeUnit.MILLISECONDS, s -> value.apply(s).toMillis())
+				.description(description)
+				.tag(SOURCE_TAG, source)
+				.register(registry);
+	}
+
+	private Timer timer(String name, String description, String source, String outcome) {
+		return Timer.builder(name)
+				.description(description)
+				.tag(SOURCE_TAG, source)
+				.tag("outcome", outcome)
+				.publishPercentileHistogram()
+				.register(registry);
+	}
+
+	private DistributionSummary summary(String name, String description, String source) {
+		return DistributionSummary.builder(name)
+				.description(description)
+				.tag(SOURCE_TAG, source)
+				.register(registry);
+	}
+
+	private Counter counter(String name, String description, String source) {
+		return Counter.builder(name)
+				.description(description)
+				.tag(SOURCE_TAG, source)
+				.register(registry);
+	}
+}
@@ -0,0 +1,58 @@
+package dev.chef.crm_backend.metrics;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import dev.chef.crm_backend.http.HttpValidatorCache;
+import dev.chef.crm_backend.http.UpstreamConnectionPool;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Meters for the conditional-request cache and, when the pooled client is active, gauges for
+ * the upstream connection pool.
+ */
+@Component
+public class UpstreamHttpMetrics implements MeterBinder {
+
+	private final HttpValidatorCache validatorCache;
+	private final ObjectProvider<UpstreamConnectionPool> connectionPool;
+
+	public UpstreamHttpMetrics(HttpValidatorCache validatorCache, ObjectProvider<UpstreamConnectionPool> connectionPool) {
+		this.validatorCache = validatorCache;
+		this.connectionPool = connectionPool;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("crm.http.conditional.hit.ratio", validatorCache, c -> c.stats().hitRatio())
+				.description("Share of upstream requests answered 304 Not Modified")
+				.register(registry);
+		FunctionCounter.builder("crm.http.conditional.requests", validatorCache, c -> c.stats().requests())
+				.description("Upstream requests sent with the conditional-request cache")
+				.register(registry);
+		FunctionCounter.builder("crm.http.conditional.not.modified", validatorCache, c -> c.stats().notModified())
+				.description("Upstream requests answered 304 Not Modified")
+				.register(registry);
+		FunctionCounter.builder("crm.http.conditional.bytes.saved", validatorCache, c -> c.stats().bytesSaved())
+				.description("Response bytes not transferred thanks to 304 responses")
+				.baseUnit("bytes")
+				.register(registry);
+		connectionPool.ifAvailable(pool -> {
+			Gauge.builder("crm.http.pool.leased", pool, p -> p.stats().leased())
+					.description("Upstream connections currently in use")
+					.register(registry);
+			Gauge.builder("crm.http.pool.pending", pool, p -> p.stats().pending())
+					.description("Requests waiting for an upstream connection")
+					.register(registry);
+			Gauge.builder("crm.http.pool.available", pool, p -> p.stats().available())
+					.description("Idle upstream connections kept alive")
+					.register(registry);
+			Gauge.builder("crm.http.pool.reuse.rate", pool, p -> p.stats().reuseRate())
+					.description("Share of upstream requests served on an already open connection")
+					.register(registry);
+		});
+	}
+}
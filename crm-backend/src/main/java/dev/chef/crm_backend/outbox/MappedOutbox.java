@@ -0,0 +1,486 @@
+package dev.chef.crm_backend.outbox;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only, memory-mapped write-ahead log of serialized Kafka records.
+ * <p>
+ * Records are appended to fixed-size segment files named after the offset of their first
+ * record ({@code outbox-<offset>.log}). Each record is
+ * {@code length(4) crc32c(4) offset(8) topic key value headers}; recovery stops at the first
+ * zero length or checksum mismatch, so a write torn by a crash loses only that record.
+ * <p>
+ * The drainer reads batches from a cursor and {@link #acknowledge acknowledges} them once
+ * Kafka has; the acknowledged position is kept in a two-slot, checksummed watermark file so
+ * a crash while updating it falls back to the previous watermark. Segments that lie entirely
+ * below the watermark are deleted. After a restart delivery resumes at the watermark, so
+ * records acknowledged by Kafka but not yet by the outbox are sent again (at-least-once).
+ */
+public class MappedOutbox implements Closeable {
+
+	private static final Logger log = LoggerFactory.getLogger(MappedOutbox.class);
+
+	private static final int MAGIC = 0x4F425831; // "OBX1"
+	private static final int SEGMENT_HEADER = Integer.BYTES;
+	private static final int RECORD_HEADER = 2 * Integer.BYTES;
+
+	private final Path directory;
+	private final int segmentBytes;
+	private final long maxBytes;
+	private final TreeMap<Long, Segment> segments = new TreeMap<>();
+	private final Watermark watermark;
+	private final CRC32C crc = new CRC32C();
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition appended = lock.newCondition();
+
+	private Segment active;
+	private long nextOffset;
+	private Position readPosition;
+
+	/**
+	 * Opens the outbox in {@code directory}, recovering its segments and watermark.
+	 *
+	 * @param segmentBytes size of each segment file
+	 * @param maxBytes total size of unacknowledged segments beyond which appends are rejected
+	 */
+	public MappedOutbox(Path directory, int segmentBytes, long maxBytes) {
+		this.directory = directory;
+		this.segmentBytes = segmentBytes;
+		this.maxBytes = maxBytes;
+		try {
+			Files.createDirectories(directory);
+			this.watermark = new Watermark(directory.resolve("watermark"));
+			recover();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot open outbox in " + directory, e);
+		}
+		log.info("Opened outbox {} with {} unacknowledged record(s) in {} segment(s)", directory, backlog(),
+				segments.size());
+	}
+
+	/**
+	 * Appends a serialized record; a {@code null} value is a tombstone.
+	 *
+	 * @return the record's offset
+	 * @throws IllegalStateException if the unacknowledged backlog would exceed {@code maxBytes}
+	 */
+	public long append(String topic, String key, byte[] value, Map<String, byte[]> headers) {
+		lock.lock();
+		try {
+			long offset = nextOffset;
+			ByteBuffer body = encode(offset, topic, key, value, headers);
+			int size = RECORD_HEADER + body.remaining();
+			if (SEGMENT_HEADER + size > segmentBytes) {
+				throw new IllegalArgumentException("Record of " + size + " bytes exceeds the outbox segment size");
+			}
+			if (diskBytes() + size > maxBytes) {
+				throw new IllegalStateException("Outbox backlog exceeds " + maxBytes + " bytes");
+			}
+			if (active.end + size > segmentBytes) {
+				roll();
+			}
+			int position = active.end;
+			MappedByteBuffer buffer = active.buffer;
+			buffer.putInt(position + Integer.BYTES, checksum(body));
+			buffer.put(position + RECORD_HEADER, body, 0, body.remaining());
+			// the length goes last: a record becomes visible to recovery only once complete
+			buffer.putInt(position, body.remaining());
+			active.end = position + size;
+			nextOffset = offset + 1;
+			appended.signalAll();
+			return offset;
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot roll outbox segment in " + directory, e);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Reads up to {@code maxRecords} records after the last batch handed out.
+	 */
+	public Batch readBatch(int maxRecords) {
+		lock.lock();
+		try {
+			List<OutboxRecord> records = new ArrayList<>();
+			Position position = readPosition;
+			while (records.size() < maxRecords) {
+				Segment segment = segments.get(position.segment());
+				if (position.offset() >= segment.end) {
+					Long next = segments.higherKey(position.segment());
+					if (next == null) {
+						break;
+					}
+					position = new Position(next, SEGMENT_HEADER);
+					continue;
+				}
+				int length = segment.buffer.getInt(position.offset());
+				records.add(decode(segment.buffer.slice(position.offset() + RECORD_HEADER, length)));
+				position = new Position(position.segment(), position.offset() + RECORD_HEADER + length);
+			}
+			readPosition = position;
+			long endOffset = records.isEmpty() ? -1 : records.getLast().offset() + 1;
+			return new Batch(records, position, endOffset);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Moves the acknowledged watermark past {@code batch} and deletes fully drained segments.
+	 */
+	public void acknowledge(Batch batch) {
+		if (batch.records().isEmpty()) {
+			return;
+		}
+		lock.lock();
+		try {
+			watermark.write(batch.endOffset(), batch.end());
+			for (Segment segment : List.copyOf(segments.headMap(batch.end().segment()).values())) {
+				segments.remove(segment.base);
+				Files.deleteIfExists(segment.path);
+			}
+		} catch (IOException e) {
+			log.warn("Could not delete drained outbox segment: {}", e.getMessage());
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Resets the read cursor to the watermark so unacknowledged records are read again.
+	 */
+	public void rewind() {
+		lock.lock();
+		try {
+			readPosition = watermark.position();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Waits up to {@code timeout} for a record to be appended after the read cursor.
+	 */
+	public void awaitRecords(Duration timeout) throws InterruptedException {
+		lock.lock();
+		try {
+			if (readPosition.equals(new Position(active.base, active.end))) {
+				appended.await(timeout.toNanos(), TimeUnit.NANOSECONDS);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Forces appended records to disk.
+	 */
+	public void force() {
+		lock.lock();
+		try {
+			active.buffer.force();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Number of appended records not yet acknowledged.
+	 */
+	public long backlog() {
+		lock.lock();
+		try {
+			return nextOffset - watermark.offset();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Bytes held by segments that still contain unacknowledged records.
+	 */
+	public long diskBytes() {
+		lock.lock();
+		try {
+			return segments.values().stream().mapToLong(s -> s.end).sum();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		lock.lock();
+		try {
+			seal(active);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void recover() throws IOException {
+		List<Path> files;
+		try (Stream<Path> listing = Files.list(directory)) {
+			files = listing.filter(p -> p.getFileName().toString().matches("outbox-\\d+\\.log")).toList();
+		}
+		for (Path file : files) {
+			long base = baseOf(file);
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+				MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+				if (channel.size() < SEGMENT_HEADER || buffer.getInt(0) != MAGIC) {
+					log.warn("Ignoring {}: not an outbox segment", file);
+					continue;
+				}
+				segments.put(base, new Segment(base, file, buffer, (int) channel.size()));
+			}
+		}
+		if (segments.isEmpty()) {
+			long base = Math.max(0, watermark.offset());
+			active = createSegment(base);
+			nextOffset = base;
+		} else {
+			Segment last = segments.lastEntry().getValue();
+			ScanResult scan = scan(last);
+			active = openForAppend(last.base, scan.end());
+			nextOffset = scan.nextOffset();
+		}
+		Position start = watermark.position();
+		if (start == null || !segments.containsKey(start.segment()) || watermark.offset() > nextOffset) {
+			Segment first = segments.firstEntry().getValue();
+			start = new Position(first.base, SEGMENT_HEADER);
+			watermark.write(first.base, start);
+		}
+		for (Segment segment : List.copyOf(segments.headMap(start.segment()).values())) {
+			segments.remove(segment.base);
+			Files.deleteIfExists(segment.path);
+		}
+		readPosition = start;
+	}
+
+	private ScanResult scan(Segment segment) {
+		int position = SEGMENT_HEADER;
+		long next = segment.base;
+		while (position + RECORD_HEADER <= segment.end) {
+			int length = segment.buffer.getInt(position);
+			if (length <= 0 || position + RECORD_HEADER + length > segment.end) {
+				break;
+			}
+			ByteBuffer body = segment.buffer.slice(position + RECORD_HEADER, length);
+			if (segment.buffer.getInt(position + Integer.BYTES) != checksum(body)) {
+				log.warn("Checksum mismatch in {} at {}, discarding the rest of the segment", segment.path, position);
+				break;
+			}
+			next = body.getLong(0) + 1;
+			position += RECORD_HEADER + length;
+		}
+		return new ScanResult(position, next);
+	}
+
+	private void roll() throws IOException {
+		seal(active);
+		active = createSegment(nextOffset);
+	}
+
+	private void seal(Segment segment) throws IOException {
+		segment.buffer.force();
+		try (FileChannel channel = FileChannel.open(segment.path, StandardOpenOption.WRITE)) {
+			channel.truncate(segment.end);
+		}
+	}
+
+	private Segment createSegment(long base) throws IOException {
+		Segment segment = openForAppend(base, 0);
+		segment.buffer.putInt(0, MAGIC);
+		segment.end = SEGMENT_HEADER;
+		return segment;
+	}
+
+	private Segment openForAppend(long base, int end) throws IOException {
+		Path path = directory.resolve("outbox-%020d.log".formatted(base));
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE)) {
+			// drop anything a torn write left behind before mapping the full segment
+			channel.truncate(end);
+			Segment segment = new Segment(base, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes), end);
+			segments.put(base, segment);
+			return segment;
+		}
+	}
+
+	private static ByteBuffer encode(long offset, String topic, String key, byte[] value, Map<String, byte[]> headers) {
+		byte[] topicBytes = topic.getBytes(StandardCharsets.UTF_8);
+		byte[] keyBytes = key != null ? key.getBytes(StandardCharsets.UTF_8) : null;
+		int size = Long.BYTES + Short.BYTES + topicBytes.length + Integer.BYTES + (keyBytes != null ? keyBytes.length : 0)
+				+ Integer.BYTES + (value != null ? value.length : 0) + Short.BYTES;
+		List<byte[]> headerNames = new ArrayList<>(headers.size());
+		for (Map.Entry<String, byte[]> header : headers.entrySet()) {
+			byte[] name = header.getKey().getBytes(StandardCharsets.UTF_8);
+			headerNames.add(name);
+			size += Short.BYTES + name.length + Integer.BYTES + header.getValue().length;
+		}
+		ByteBuffer body = ByteBuffer.allocate(size);
+		body.putLong(offset).putShort((short) topicBytes.length).put(topicBytes);
+		putBytes(body, keyBytes);
+		putBytes(body, value);
+		body.putShort((short) headers.size());
+		int i = 0;
+		for (byte[] headerValue : headers.values()) {
+			byte[] name = headerNames.get(i++);
+			body.putShort((short) name.length).put(name);
+			putBytes(body, headerValue);
+		}
+		return body.flip();
+	}
+
+	private static OutboxRecord decode(ByteBuffer body) {
+		long offset = body.getLong();
+		byte[] topic = new byte[body.getShort()];
+		body.get(topic);
+		byte[] key = getBytes(body);
+		byte[] value = getBytes(body);
+		int headerCount = body.getShort();
+		Map<String, byte[]> headers = new LinkedHashMap<>();
+		for (int i = 0; i < headerCount; i++) {
+			byte[] name = new byte[body.getShort()];
+			body.get(name);
+			headers.put(new String(name, StandardCharsets.UTF_8), getBytes(body));
+		}
+		return new OutboxRecord(offset, new String(topic, StandardCharsets.UTF_8),
+				key != null ? new String(key, StandardCharsets.UTF_8) : null, value, headers);
+	}
+
+	private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+		if (bytes == null) {
+			buffer.putInt(-1);
+		} else {
+			buffer.putInt(bytes.length).put(bytes);
+		}
+	}
+
+	private static byte[] getBytes(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return bytes;
+	}
+
+	private int checksum(ByteBuffer body) {
+		crc.reset();
+		crc.update(body.duplicate());
+		return (int) crc.getValue();
+	}
+
+	private static long baseOf(Path segment) {
+		String name = segment.getFileName().toString();
+		return Long.parseLong(name.substring("outbox-".length(), name.length() - ".log".length()));
+	}
+
+	/**
+	 * Location of a record in the log: segment base offset and byte position within it.
+	 */
+	public record Position(long segment, int offset) {
+	}
+
+	/**
+	 * Records handed to the drainer, with the position just past the last one.
+	 */
+	public record Batch(List<OutboxRecord> records, Position end, long endOffset) {
+	}
+
+	private record ScanResult(int end, long nextOffset) {
+	}
+
+	private static final class Segment {
+
+		private final long base;
+		private final Path path;
+		private final MappedByteBuffer buffer;
+		private int end;
+
+		private Segment(long base, Path path, MappedByteBuffer buffer, int end) {
+			this.base = base;
+			this.path = path;
+			this.buffer = buffer;
+			this.end = end;
+		}
+	}
+
+	/**
+	 * Acknowledged position, written alternately to two checksummed slots; the valid slot with
+	 * the highest sequence number wins on load.
+	 */
+	private final class Watermark {
+
+		private static final int SLOT = 32;
+
+		private final MappedByteBuffer buffer;
+		private long sequence;
+		private long offset;
+		private Position position;
+
+		private Watermark(Path file) throws IOException {
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+					StandardOpenOption.WRITE)) {
+				this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, 2 * SLOT);
+			}
+			for (int slot = 0; slot < 2; slot++) {
+				int base = slot * SLOT;
+				long seq = buffer.getLong(base);
+				if (seq > sequence && buffer.getInt(base + 28) == checksum(buffer.slice(base, 28))) {
+					sequence = seq;
+					offset = buffer.getLong(base + 8);
+					position = new Position(buffer.getLong(base + 16), buffer.getInt(base + 24));
+				}
+			}
+		}
+
+		long offset() {
+			return offset;
+		}
+
+		Position position() {
+			return position;
+		}
+
+		void write(long newOffset, Position newPosition) {
+			long seq = sequence + 1;
+			int base = (int) (seq % 2) * SLOT;
+			buffer.putLong(base, seq)
+					.putLong(base + 8, newOffset)
+					.putLong(base + 16, newPosition.segment())
+					.putInt(base + 24, newPosition.offset())
+					.putInt(base + 28, checksum(buffer.slice(base, 28)));
+			buffer.force(base, SLOT);
+			sequence = seq;
+			offset = newOffset;
+			position = newPosition;
+		}
+	}
+}
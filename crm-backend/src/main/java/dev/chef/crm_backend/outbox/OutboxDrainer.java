@@ -0,0 +1,165 @@
+package dev.chef.crm_backend.outbox;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Background thread streaming the {@link MappedOutbox} to Kafka in batches.
+ * <p>
+ * Each batch is sent in outbox order and the watermark only advances once every record of
+ * the batch is acknowledged. If any send fails the cursor is rewound to the watermark and
+ * the batch is retried after an exponential backoff, so records reach each partition in the
+ * order they were written, at least once. It starts before and stops after the producer
+ * scheduler so no cycle writes to a closed outbox. {@code onAck} runs after every
+ * acknowledged batch, since in outbox mode a cycle's own sends are settled by the append.
+ */
+public class OutboxDrainer implements SmartLifecycle {
+
+	private static final Logger log = LoggerFactory.getLogger(OutboxDrainer.class);
+	private static final Duration IDLE_WAIT = Duration.ofMillis(500);
+	private static final Duration MAX_BACKOFF = Duration.ofSeconds(30);
+
+	private final MappedOutbox outbox;
+	private final KafkaTemplate<String, Object> kafkaTemplate;
+	private final int batchSize;
+	private final Duration sendTimeout;
+	private final DistributionSummary batchSizes;
+	private final Counter failures;
+	private final Runnable onAck;
+
+	private volatile boolean running;
+	private Thread thread;
+
+	public OutboxDrainer(MappedOutbox outbox, KafkaTemplate<String, Object> kafkaTemplate, MeterRegistry registry,
+			int batchSize, Duration sendTimeout) {
+		this(outbox, kafkaTemplate, registry, batchSize, sendTimeout, () -> { });
+	}
+
+	public OutboxDrainer(MappedOutbox outbox, KafkaTemplate<String, Object> kafkaTemplate, MeterRegistry registry,
+			int batchSize, Duration sendTimeout, Runnable onAck) {
+		this.outbox = outbox;
+		this.onAck = onAck;
+		this.kafkaTemplate = kafkaTemplate;
+		this.batchSize = batchSize;
+		this.sendTimeout = sendTimeout;
+		this.batchSizes = DistributionSummary.builder("crm.outbox.drain.batch")
+				.description("Records per batch drained from the outbox to Kafka")
+				.register(registry);
+		this.failures = Counter.builder("crm.outbox.drain.failures")
+				.description("Outbox batches that failed and were rewound for another attempt")
+				.register(registry);
+		Gauge.builder("crm.outbox.backlog", outbox, MappedOutbox::backlog)
+				.description("Records written to the outbox but not yet acknowledged by Kafka")
+				.register(registry);
+		Gauge.builder("crm.outbox.disk.bytes", outbox, MappedOutbox::diskBytes)
+				.description("Bytes held by outbox segments with unacknowledged records")
+				.baseUnit("bytes")
+				.register(registry);
+	}
+
+	@Override
+	public void start() {
+		running = true;
+		thread = Thread.ofPlatform().name("outbox-drainer").daemon().start(this::drain);
+	}
+
+	@Override
+	public void stop() {
+		running = false;
+		if (thread != null) {
+			thread.interrupt();
+			try {
+				thread.join(sendTimeout.toMillis());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	@Override
+	public boolean isRunning() {
+		return running;
+	}
+
+	@Override
+	public int getPhase() {
+		return Integer.MAX_VALUE - 1;
+	}
+
+	private void drain() {
+		Duration backoff = Duration.ZERO;
+		while (running) {
+			try {
+				if (!backoff.isZero()) {
+					Thread.sleep(backoff);
+				}
+				MappedOutbox.Batch batch = outbox.readBatch(batchSize);
+				if (batch.records().isEmpty()) {
+					outbox.awaitRecords(IDLE_WAIT);
+					continue;
+				}
+				if (send(batch.records())) {
+					outbox.acknowledge(batch);
+					batchSizes.record(batch.records().size());
+					onAck.run();
+					backoff = Duration.ZERO;
+				} else {
+					outbox.rewind();
+					failures.increment();
+					backoff = backoff.isZero() ? Duration.ofMillis(200) : min(backoff.multipliedBy(2), MAX_BACKOFF);
+					log.warn("Outbox batch of {} record(s) not acknowledged, retrying in {} ms ({} in backlog)",
+							batch.records().size(), backoff.toMillis(), outbox.backlog());
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (RuntimeException e) {
+				log.error("Outbox drainer failed: {}", e.getMessage(), e);
+				outbox.rewind();
+				backoff = MAX_BACKOFF;
+			}
+		}
+	}
+
+	private boolean send(List<OutboxRecord> records) throws InterruptedException {
+		List<CompletableFuture<?>> futures = new ArrayList<>(records.size());
+		for (OutboxRecord record : records) {
+			RecordHeaders headers = new RecordHeaders();
+			for (Map.Entry<String, byte[]> header : record.headers().entrySet()) {
+				headers.add(header.getKey(), header.getValue());
+			}
+			futures.add(kafkaTemplate.send(
+					new ProducerRecord<>(record.topic(), null, record.key(), record.value(), headers)));
+		}
+		try {
+			CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+					.get(sendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+			return true;
+		} catch (InterruptedException e) {
+			throw e;
+		} catch (Exception e) {
+			log.debug("Outbox batch send failed: {}", e.getMessage());
+			return false;
+		}
+	}
+
+	private static Duration min(Duration a, Duration b) {
+		return a.compareTo(b) <= 0 ? a : b;
+	}
+}
@@ -0,0 +1,13 @@
+package dev.chef.crm_backend.outbox;
+
+import java.util.Map;
+
+/**
+ * A serialized record read back from the {@link MappedOutbox}.
+ *
+ * @param offset position of the record in the outbox, increasing in append order
+ * @param value serialized value, {@code null} for a tombstone
+ * @param headers headers set by the value serializer, e.g. the compact encoding marker
+ */
+public record OutboxRecord(long offset, String topic, String key, byte[] value, Map<String, byte[]> headers) {
+}
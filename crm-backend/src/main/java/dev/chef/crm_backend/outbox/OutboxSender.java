@@ -0,0 +1,46 @@
+package dev.chef.crm_backend.outbox;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.Serializer;
+
+import dev.chef.crm_backend.publish.RecordMetadata;
+import dev.chef.crm_backend.publish.RecordSender;
+
+/**
+ * {@link RecordSender} that serializes each record with the producer's value serializer and
+ * appends it to the {@link MappedOutbox} with its {@link RecordMetadata} headers; a send is
+ * complete once the record is in the log.
+ */
+public class OutboxSender implements RecordSender {
+
+	private final MappedOutbox outbox;
+	private final Serializer<Object> valueSerializer;
+
+	public OutboxSender(MappedOutbox outbox, Serializer<Object> valueSerializer) {
+		this.outbox = outbox;
+		this.valueSerializer = valueSerializer;
+	}
+
+	@Override
+	public CompletableFuture<?> send(String topic, String key, Object value, RecordMetadata metadata) {
+		Headers headers = metadata != null ? metadata.toHeaders() : new RecordHeaders();
+		byte[] bytes = valueSerializer.serialize(topic, headers, value);
+		Map<String, byte[]> headerMap = new LinkedHashMap<>();
+		for (Header header : headers) {
+			headerMap.put(header.key(), header.value());
+		}
+		outbox.append(topic, key, bytes, headerMap);
+		return CompletableFuture.completedFuture(null);
+	}
+
+	@Override
+	public void flush() {
+		outbox.force();
+	}
+}
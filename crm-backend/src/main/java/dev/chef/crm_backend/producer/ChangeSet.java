@@ -0,0 +1,48 @@
+package dev.chef.crm_backend.producer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records an upstream announced as changed, applied between polls by
+ * {@link ExternalDataProducer#applyChanges}: ids whose current version has to be fetched, and
+ * full records to publish as they are. An id appears in at most one of the two.
+ */
+public record ChangeSet(Collection<String> ids, Collection<JsonNode> records) {
+
+	private static final Logger log = LoggerFactory.getLogger(ChangeSet.class);
+
+	private static final ObjectMapper MAPPER = JsonMapper.builder()
+			.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+			.build();
+
+	public int size() {
+		return ids.size() + records.size();
+	}
+
+	/**
+	 * Decodes the pushed records as {@code type}, skipping (and logging) those that do not
+	 * match it.
+	 */
+	public <T> List<T> records(Class<T> type) {
+		List<T> decoded = new ArrayList<>(records.size());
+		for (JsonNode record : records) {
+			try {
+				decoded.add(MAPPER.treeToValue(record, type));
+			} catch (IllegalArgumentException | JsonProcessingException e) {
+				log.warn("Skipping pushed record {} that is not a valid {}: {}", record.path("id"),
+						type.getSimpleName(), e.getMessage());
+			}
+		}
+		return decoded;
+	}
+}
@@ -1,30 +1,52 @@
 package dev.chef.crm_backend.producer;
 
-import java.util.Collections;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.ParameterizedTypeReference;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.retry.annotation.Backoff;
-import org.springframework.retry.annotation.Recover;
-import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
 
+import dev.chef.crm_backend.delta.DeltaFilter;
+import dev.chef.crm_backend.delta.DeltaFilterFactory;
 import dev.chef.crm_backend.dto.CustomerData;
+import dev.chef.crm_backend.http.FetchResult;
+import dev.chef.crm_backend.http.PagedFetcher;
+import dev.chef.crm_backend.http.ReactiveUpstreamClient;
+import dev.chef.crm_backend.http.UpstreamClient;
+import dev.chef.crm_backend.join.CustomerInventoryJoin;
+import dev.chef.crm_backend.join.JoinInput;
+import dev.chef.crm_backend.metrics.PipelineMetrics;
+import dev.chef.crm_backend.publish.CycleResult;
+import dev.chef.crm_backend.publish.KafkaPublisher;
+import dev.chef.crm_backend.publish.PublishCycle;
+import dev.chef.crm_backend.publish.RecordSink;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
 
 @Component
 public class CrmCustomerProducer implements ExternalDataProducer {
 
 	private static final Logger log = LoggerFactory.getLogger(CrmCustomerProducer.class);
-	private static final ParameterizedTypeReference<List<CustomerData>> CUSTOMER_LIST_TYPE =
-			new ParameterizedTypeReference<>() {};
 
-	private final RestTemplate restTemplate;
-	private final KafkaTemplate<String, Object> kafkaTemplate;
+	private final UpstreamClient upstreamClient;
+	private final KafkaPublisher publisher;
+	private final DeltaFilter deltaFilter;
+	private final PipelineMetrics metrics;
+	private final JoinInput<CustomerData> joinInput;
+	private final ReactiveUpstreamClient reactiveClient;
+	// polls and pushed changes share the delta filter and join, which expect a single writer
+	private final ReentrantLock cycleLock = new ReentrantLock();
+	private final AtomicBoolean retryDropped = new AtomicBoolean();
 
 	@Value("${integration.crm.base-url}")
 	private String crmBaseUrl;
@@ -32,9 +54,54 @@ public class CrmCustomerProducer implements ExternalDataProducer {
 	@Value("${integration.kafka.topics.customer-data:customer_data}")
 	private String topic;
 
-	public CrmCustomerProducer(RestTemplate restTemplate, KafkaTemplate<String, Object> kafkaTemplate) {
-		this.restTemplate = restTemplate;
-		this.kafkaTemplate = kafkaTemplate;
+	@Value("${integration.crm.fetch.mode:single}")
+	private String fetchMode;
+
+	@Value("${integration.crm.fetch.page-size:5000}")
+	private int pageSize;
+
+	@Value("${integration.crm.fetch.parallelism:4}")
+	private int parallelism;
+
+	@Value("${integration.crm.fetch.page-max-attempts:3}")
+	private int pageMaxAttempts;
+
+	@Value("${integration.crm.fetch.page-retry-backoff-ms:200}")
+	private long pageRetryBackoffMs;
+
+	@Value("${integration.crm.pipeline:${integration.producers.pipeline:blocking}}")
+	private String pipeline;
+
+	CrmCustomerProducer(UpstreamClient upstreamClient, KafkaPublisher publisher,
+			DeltaFilterFactory deltaFilterFactory, PipelineMetrics metrics) {
+		this(upstreamClient, publisher, deltaFilterFactory, metrics, JoinInput.none(), null);
+	}
+
+	@Autowired
+	public CrmCustomerProducer(UpstreamClient upstreamClient, KafkaPublisher publisher,
+			DeltaFilterFactory deltaFilterFactory, PipelineMetrics metrics, ObjectProvider<CustomerInventoryJoin> join,
+			ReactiveUpstreamClient reactiveClient) {
+		this(upstreamClient, publisher, deltaFilterFactory, metrics,
+				Optional.ofNullable(join.getIfAvailable()).map(CustomerInventoryJoin::customers).orElseGet(JoinInput::none),
+				reactiveClient);
+	}
+
+	CrmCustomerProducer(UpstreamClient upstreamClient, KafkaPublisher publisher,
+			DeltaFilterFactory deltaFilterFactory, PipelineMetrics metrics, JoinInput<CustomerData> joinInput,
+			ReactiveUpstreamClient reactiveClient) {
+		this.upstreamClient = upstreamClient;
+		this.publisher = publisher;
+		this.deltaFilter = deltaFilterFactory.create(getSourceKey());
+		// a failed send must not leave a fingerprint saying the record was published
+		publisher.onSendFailure(getSourceName(), (failedTopic, key) -> {
+			if (failedTopic.equals(topic)) {
+				deltaFilter.sendFailed(key);
+			}
+		});
+		publisher.onRetryDropped(getSourceName(), () -> retryDropped.set(true));
+		this.metrics = metrics;
+		this.joinInput = joinInput;
+		this.reactiveClient = reactiveClient;
 	}
 
 	@Override
@@ -43,34 +110,202 @@ public class CrmCustomerProducer implements ExternalDataProducer {
 	}
 
 	@Override
-	public void produce() {
-		List<CustomerData> customers = fetchCustomers();
-		if (customers == null || customers.isEmpty()) {
+	public String getSourceKey() {
+		return "crm";
+	}
+
+	@Override
+	public void resetIncrementalState() {
+		cycleLock.lock();
+		try {
+			deltaFilter.reset();
+			upstreamClient.invalidate(customersUrl());
+		} finally {
+			cycleLock.unlock();
+		}
+	}
+
+	/**
+	 * Runs one cycle. With {@code integration.crm.pipeline=reactive} the customers are
+	 * streamed through {@link ReactiveUpstreamClient} into {@link PublishCycle#publish} and
+	 * the lane's virtual thread only waits for the outcome; the fetch mode does not apply.
+	 */
+	@Override
+	public CycleResult produce() {
+		cycleLock.lock();
+		try {
+			return poll();
+		} finally {
+			afterCycle();
+			cycleLock.unlock();
+		}
+	}
+
+	/**
+	 * Publishes pushed customers as they are and fetches {@code /customers/{id}} for the
+	 * announced ids, all through the delta filter. A customer the CRM no longer has (404) is
+	 * forgotten and tombstoned if tombstones are enabled. The join only picks the changes up
+	 * with the next poll.
+	 */
+	@Override
+	public CycleResult applyChanges(ChangeSet changes) {
+		cycleLock.lock();
+		try {
+			List<String> ids = List.copyOf(changes.ids());
+			List<Optional<CustomerData>> fetched = upstreamClient.fetchEach(
+					ids.stream().map(this::customerUrl).toList(), CustomerData.class);
+			PublishCycle cycle = publisher.openCycle(getSourceName(), topic);
+			AtomicInteger changed = new AtomicInteger();
+			int tombstones = 0;
+			changes.records(CustomerData.class).forEach(c -> accept(c, cycle, changed));
+			for (int i = 0; i < ids.size(); i++) {
+				Optional<CustomerData> customer = fetched.get(i);
+				if (customer.isPresent()) {
+					accept(customer.get(), cycle, changed);
+				} else if (deltaFilter.forget(ids.get(i))) {
+					cycle.send(topic, ids.get(i), null);
+					tombstones++;
+				}
+			}
+			CycleResult outcome = cycle.complete();
+			log.info("Published {} new or changed of {} notified customer(s) and {} tombstone(s) to topic {} ({} acked, {} failed)",
+					changed.get(), changes.size(), tombstones, topic, outcome.acked(), outcome.failed());
+			return outcome;
+		} finally {
+			afterCycle();
+			cycleLock.unlock();
+		}
+	}
+
+	/**
+	 * Runs once the cycle has settled, so the delta filter only checkpoints fingerprints of
+	 * sends Kafka has answered. If the retry queue dropped records, the cached validators go
+	 * too: those records are only published again if the next poll decodes
+	 * them, which a 304 would prevent. This runs after the cycle's response stored its
+	 * validators, which a drop during the fetch would precede.
+	 */
+	private void afterCycle() {
+		deltaFilter.commitCycle();
+		if (retryDropped.getAndSet(false)) {
+			upstreamClient.invalidate(customersUrl());
+		}
+	}
+
+	private CycleResult poll() {
+		deltaFilter.beginCycle();
+		joinInput.beginCycle();
+		if ("reactive".equalsIgnoreCase(pipeline)) {
+			return produceReactive();
+		}
+		PublishCycle cycle = publisher.openCycle(getSourceName(), topic);
+		AtomicInteger changed = new AtomicInteger();
+		FetchResult result;
+		try {
+			result = metrics.recordFetch(getSourceName(), () -> fetchCustomers(c -> accept(c, cycle, changed)));
+		} catch (RuntimeException e) {
+			// settle what was already sent, without committing a partial snapshot, so failed
+			// sends are queued before the lane retries
+			cycle.abort();
+			throw e;
+		}
+		int tombstones = endCycle(result, cycle);
+		return logged(result, changed.get(), tombstones, cycle.complete());
+	}
+
+	private CycleResult produceReactive() {
+		if (reactiveClient == null) {
+			throw new IllegalStateException("Reactive pipeline requested but no ReactiveUpstreamClient is configured");
+		}
+		PublishCycle cycle = publisher.openCycle(getSourceName(), topic);
+		AtomicInteger changed = new AtomicInteger();
+		AtomicInteger tombstones = new AtomicInteger();
+		AtomicReference<FetchResult> fetched = new AtomicReference<>(FetchResult.empty());
+		// only the upstream flux is timed as the fetch; the wait for acks belongs to the cycle
+		Flux<PublishCycle.PendingRecord> records = metrics.recordFetch(getSourceName(),
+						reactiveClient.streamArray(customersUrl(), CustomerData.class, fetched::set), fetched::get)
+				.concatMapIterable(c -> {
+					List<PublishCycle.PendingRecord> out = new ArrayList<>(1);
+					accept(c, RecordSink.into(out), changed);
+					return out;
+				})
+				.concatWith(Flux.defer(() -> {
+					List<PublishCycle.PendingRecord> out = new ArrayList<>();
+					tombstones.set(endCycle(fetched.get(), RecordSink.into(out)));
+					return Flux.fromIterable(out);
+				}));
+		CycleResult outcome = cycle.publish(records).block();
+		return logged(fetched.get(), changed.get(), tombstones.get(), outcome);
+	}
+
+	private void accept(CustomerData customer, RecordSink sink, AtomicInteger changed) {
+		joinInput.accept(customer);
+		if (deltaFilter.isChanged(customer.id(), customer)) {
+			sink.send(topic, customer.id() != null ? customer.id() : java.util.UUID.randomUUID().toString(), customer);
+			changed.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Ends the delta and join cycles after a fetch and tombstones the customers that
+	 * disappeared. A 304 or an empty (or failed) fetch skips the sweep, so it can never
+	 * tombstone everything.
+	 *
+	 * @return the number of tombstones sent
+	 */
+	private int endCycle(FetchResult result, RecordSink sink) {
+		if (result.notModified()) {
+			log.debug("Customers unchanged at CRM since last poll (304), skipping publish");
+			return 0;
+		}
+		metrics.recordFetchedRecords(getSourceName(), result.records());
+		if (result.records() == 0) {
 			log.debug("No customers to publish from CRM");
-			return;
+			return 0;
 		}
-		for (CustomerData c : customers) {
-			String key = c.id() != null ? c.id() : java.util.UUID.randomUUID().toString();
-			kafkaTemplate.send(topic, key, c);
+		List<String> removed = deltaFilter.endCycle();
+		joinInput.endCycle();
+		for (String id : removed) {
+			sink.send(topic, id, null);
 		}
-		log.info("Published {} customer(s) to topic {}", customers.size(), topic);
+		return removed.size();
 	}
 
-	@Retryable(
-			retryFor = { Exception.class },
-			maxAttempts = 4,
-			backoff = @Backoff(delay = 1000, multiplier = 2)
-	)
-	public List<CustomerData> fetchCustomers() {
-		String url = crmBaseUrl + "/customers";
+	private CycleResult logged(FetchResult result, int changed, int tombstones, CycleResult outcome) {
+		if (!result.notModified() && result.records() > 0) {
+			log.info("Published {} new or changed of {} customer(s) and {} tombstone(s) to topic {} ({} acked, {} failed, p99 ack {} ms)",
+					changed, result.records(), tombstones, topic,
+					outcome.acked(), outcome.failed(), outcome.p99AckLatency().toMillis());
+		}
+		return outcome;
+	}
+
+	/**
+	 * Streams all customers into {@code sink} as they are decoded, sending the cached
+	 * validators as a conditional request. With {@code integration.crm.fetch.mode=partitioned}
+	 * the list is fetched as concurrent {@code offset}/{@code limit} pages instead (see
+	 * {@link PagedFetcher}), delivered to the sink page by page from several threads in turn.
+	 *
+	 * @return the fetch outcome; {@link FetchResult#notModified()} if the upstream answered 304
+	 * @throws org.springframework.web.client.RestClientException if the upstream is unreachable
+	 *         or answers with an error; the producer lane retries the cycle
+	 */
+	public FetchResult fetchCustomers(Consumer<CustomerData> sink) {
+		String url = customersUrl();
+		if ("partitioned".equalsIgnoreCase(fetchMode)) {
+			log.debug("Fetching customers from {} in pages of {}, {} at a time", url, pageSize, parallelism);
+			return new PagedFetcher(upstreamClient, pageSize, parallelism, pageMaxAttempts,
+					Duration.ofMillis(pageRetryBackoffMs), () -> metrics.recordPageRetry(getSourceName()))
+					.fetch(url, CustomerData.class, sink);
+		}
 		log.debug("Fetching customers from {}", url);
-		List<CustomerData> body = restTemplate.exchange(url, org.springframework.http.HttpMethod.GET, null, CUSTOMER_LIST_TYPE).getBody();
-		return body != null ? body : Collections.emptyList();
+		return upstreamClient.streamArray(url, CustomerData.class, sink);
+	}
+
+	private String customersUrl() {
+		return crmBaseUrl + "/customers";
 	}
 
-	@Recover
-	public List<CustomerData> fetchCustomersRecover(Exception e) {
-		log.error("Failed to fetch customers from CRM after retries: {}", e.getMessage());
-		return Collections.emptyList();
+	private String customerUrl(String id) {
+		return customersUrl() + "/" + id;
 	}
 }
@@ -1,11 +1,42 @@
 package dev.chef.crm_backend.producer;
 
+import dev.chef.crm_backend.publish.CycleResult;
+
 /**
+ * A source of records that is polled by {@link ProducerScheduler} and published to Kafka.
+ * Change notifications pushed by the source are fed in between polls through
+ * {@link #applyChanges}.
  */
 public interface ExternalDataProducer {
 
 	String getSourceName();
 
-	void produce();
-}
+	/**
+	 * Short, property-friendly key for this source (e.g. {@code crm}), used to look up
+	 * per-source settings such as {@code integration.crm.poll-interval-ms}.
+	 */
+	String getSourceKey();
+
+	/**
+	 * Runs one poll cycle: fetch, filter and publish.
+	 *
+	 * @return the aggregated send outcome of the cycle
+	 */
+	CycleResult produce();
 
+	/**
+	 * Publishes the records of a batch of change notifications right away instead of waiting
+	 * for the next poll. Never runs concurrently with {@link #produce()}.
+	 *
+	 * @return the send outcome of the batch
+	 * @throws org.springframework.web.client.RestClientException if a changed record cannot be fetched
+	 */
+	CycleResult applyChanges(ChangeSet changes);
+
+	/**
+	 * Drops state carried between cycles (delta fingerprints, HTTP validators). Called when
+	 * this instance takes the source over from another one, whose publishes it has not seen.
+	 */
+	default void resetIncrementalState() {
+	}
+}
@@ -1,30 +1,52 @@
 package dev.chef.crm_backend.producer;
 
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.ParameterizedTypeReference;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.retry.annotation.Backoff;
-import org.springframework.retry.annotation.Recover;
-import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
 
+import dev.chef.crm_backend.delta.DeltaFilter;
+import dev.chef.crm_backend.delta.DeltaFilterFactory;
 import dev.chef.crm_backend.dto.InventoryItem;
+import dev.chef.crm_backend.dto.StockDelta;
+import dev.chef.crm_backend.http.FetchResult;
+import dev.chef.crm_backend.http.ReactiveUpstreamClient;
+import dev.chef.crm_backend.http.UpstreamClient;
+import dev.chef.crm_backend.join.CustomerInventoryJoin;
+import dev.chef.crm_backend.join.JoinInput;
+import dev.chef.crm_backend.metrics.PipelineMetrics;
+import dev.chef.crm_backend.publish.CycleResult;
+import dev.chef.crm_backend.publish.KafkaPublisher;
+import dev.chef.crm_backend.publish.PublishCycle;
+import dev.chef.crm_backend.publish.RecordSink;
+import dev.chef.crm_backend.stock.StockTracker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
 
 @Component
 public class InventoryProducer implements ExternalDataProducer {
 
 	private static final Logger log = LoggerFactory.getLogger(InventoryProducer.class);
-	private static final ParameterizedTypeReference<List<InventoryItem>> INVENTORY_LIST_TYPE =
-			new ParameterizedTypeReference<>() {};
 
-	private final RestTemplate restTemplate;
-	private final KafkaTemplate<String, Object> kafkaTemplate;
+	private final UpstreamClient upstreamClient;
+	private final KafkaPublisher publisher;
+	private final DeltaFilter deltaFilter;
+	private final PipelineMetrics metrics;
+	private final JoinInput<InventoryItem> joinInput;
+	private final ReactiveUpstreamClient reactiveClient;
+	// polls and pushed changes share the delta filter, stock tracker and join, which expect a single writer
+	private final ReentrantLock cycleLock = new ReentrantLock();
+	private final AtomicBoolean retryDropped = new AtomicBoolean();
 
 	@Value("${integration.inventory.base-url}")
 	private String inventoryBaseUrl;
@@ -32,9 +54,53 @@ public class InventoryProducer implements ExternalDataProducer {
 	@Value("${integration.kafka.topics.inventory-data:inventory_data}")
 	private String topic;
 
-	public InventoryProducer(RestTemplate restTemplate, KafkaTemplate<String, Object> kafkaTemplate) {
-		this.restTemplate = restTemplate;
-		this.kafkaTemplate = kafkaTemplate;
+	@Value("${integration.kafka.topics.inventory-stock:inventory_stock}")
+	private String stockTopic;
+
+	@Value("${integration.inventory.publish-mode:snapshot}")
+	private String publishMode;
+
+	@Value("${integration.inventory.stock-delta.low-stock-threshold:5}")
+	private int lowStockThreshold;
+
+	@Value("${integration.inventory.pipeline:${integration.producers.pipeline:blocking}}")
+	private String pipeline;
+
+	private StockTracker stockTracker;
+
+	InventoryProducer(UpstreamClient upstreamClient, KafkaPublisher publisher,
+			DeltaFilterFactory deltaFilterFactory, PipelineMetrics metrics) {
+		this(upstreamClient, publisher, deltaFilterFactory, metrics, JoinInput.none(), null);
+	}
+
+	@Autowired
+	public InventoryProducer(UpstreamClient upstreamClient, KafkaPublisher publisher,
+			DeltaFilterFactory deltaFilterFactory, PipelineMetrics metrics, ObjectProvider<CustomerInventoryJoin> join,
+			ReactiveUpstreamClient reactiveClient) {
+		this(upstreamClient, publisher, deltaFilterFactory, metrics,
+				Optional.ofNullable(join.getIfAvailable()).map(CustomerInventoryJoin::inventory).orElseGet(JoinInput::none),
+				reactiveClient);
+	}
+
+	InventoryProducer(UpstreamClient upstreamClient, KafkaPublisher publisher,
+			DeltaFilterFactory deltaFilterFactory, PipelineMetrics metrics, JoinInput<InventoryItem> joinInput,
+			ReactiveUpstreamClient reactiveClient) {
+		this.upstreamClient = upstreamClient;
+		this.publisher = publisher;
+		this.deltaFilter = deltaFilterFactory.create(getSourceKey());
+		// a failed send must not leave a fingerprint saying the record was published
+		publisher.onSendFailure(getSourceName(), (failedTopic, key) -> {
+			if (failedTopic.equals(topic)) {
+				deltaFilter.sendFailed(key);
+			}
+		});
+		// the stock tracker has moved on when a stock event fails, so the event itself must be
+		// replayed; coalescing two deltas of one item would drop one from downstream sums
+		publisher.retryEveryRecord(getSourceName(), retryTopic -> retryTopic.equals(stockTopic));
+		publisher.onRetryDropped(getSourceName(), () -> retryDropped.set(true));
+		this.metrics = metrics;
+		this.joinInput = joinInput;
+		this.reactiveClient = reactiveClient;
 	}
 
 	@Override
@@ -43,34 +109,232 @@ public class InventoryProducer implements ExternalDataProducer {
 	}
 
 	@Override
-	public void produce() {
-		List<InventoryItem> items = fetchProducts();
-		if (items == null || items.isEmpty()) {
+	public String getSourceKey() {
+		return "inventory";
+	}
+
+	@Override
+	public void resetIncrementalState() {
+		cycleLock.lock();
+		try {
+			deltaFilter.reset();
+			if (stockTracker != null) {
+				stockTracker.clear();
+			}
+			upstreamClient.invalidate(productsUrl());
+		} finally {
+			cycleLock.unlock();
+		}
+	}
+
+	/**
+	 * Runs one cycle. In {@code stock-delta} publish mode stock changes go out as
+	 * {@link StockDelta} events on the stock topic, and the full item is only republished
+	 * when something other than its stock changed. With
+	 * {@code integration.inventory.pipeline=reactive} the products are streamed through
+	 * {@link ReactiveUpstreamClient} into {@link PublishCycle#publish}.
+	 */
+	@Override
+	public CycleResult produce() {
+		cycleLock.lock();
+		try {
+			return poll();
+		} finally {
+			afterCycle();
+			cycleLock.unlock();
+		}
+	}
+
+	/**
+	 * Publishes pushed products as they are and fetches {@code /products/{id}} for the
+	 * announced ids, all through the delta filter and, in {@code stock-delta} mode, the stock
+	 * tracker. A product the Inventory no longer has (404) is forgotten and tombstoned if
+	 * tombstones are enabled; its removal stock event and the join follow with the next poll.
+	 */
+	@Override
+	public CycleResult applyChanges(ChangeSet changes) {
+		cycleLock.lock();
+		try {
+			StockTracker stocks = "stock-delta".equalsIgnoreCase(publishMode) ? stockTracker() : null;
+			List<String> ids = List.copyOf(changes.ids());
+			List<Optional<InventoryItem>> fetched = upstreamClient.fetchEach(
+					ids.stream().map(this::productUrl).toList(), InventoryItem.class);
+			PublishCycle cycle = publisher.openCycle(getSourceName(), topic);
+			Counts counts = new Counts();
+			changes.records(InventoryItem.class).forEach(item -> accept(item, stocks, cycle, counts));
+			for (int i = 0; i < ids.size(); i++) {
+				Optional<InventoryItem> item = fetched.get(i);
+				if (item.isPresent()) {
+					accept(item.get(), stocks, cycle, counts);
+				} else if (deltaFilter.forget(ids.get(i))) {
+					cycle.send(topic, ids.get(i), null);
+					counts.tombstones.incrementAndGet();
+				}
+			}
+			CycleResult outcome = cycle.complete();
+			log.info("Published {} new or changed of {} notified inventory item(s), {} tombstone(s) and {} stock change(s) ({} acked, {} failed)",
+					counts.changed.get(), changes.size(), counts.tombstones.get(), counts.stockEvents.get(),
+					outcome.acked(), outcome.failed());
+			return outcome;
+		} finally {
+			afterCycle();
+			cycleLock.unlock();
+		}
+	}
+
+	/**
+	 * Runs once the cycle has settled, so the delta filter only checkpoints fingerprints of
+	 * sends Kafka has answered. If the retry queue dropped records, the cached validators go
+	 * too: those records are only published again if the next poll decodes
+	 * them, which a 304 would prevent. This runs after the cycle's response stored its
+	 * validators, which a drop during the fetch would precede.
+	 */
+	private void afterCycle() {
+		deltaFilter.commitCycle();
+		if (retryDropped.getAndSet(false)) {
+			upstreamClient.invalidate(productsUrl());
+		}
+	}
+
+	private CycleResult poll() {
+		StockTracker stocks = "stock-delta".equalsIgnoreCase(publishMode) ? stockTracker() : null;
+		deltaFilter.beginCycle();
+		joinInput.beginCycle();
+		if (stocks != null) {
+			stocks.beginCycle();
+		}
+		Counts counts = new Counts();
+		if ("reactive".equalsIgnoreCase(pipeline)) {
+			return produceReactive(stocks, counts);
+		}
+		PublishCycle cycle = publisher.openCycle(getSourceName(), topic);
+		FetchResult result;
+		try {
+			result = metrics.recordFetch(getSourceName(),
+					() -> fetchProducts(item -> accept(item, stocks, cycle, counts)));
+		} catch (RuntimeException e) {
+			// settle what was already sent, without committing a partial snapshot, so failed
+			// sends are queued before the lane retries
+			cycle.abort();
+			throw e;
+		}
+		endCycle(result, stocks, cycle, counts);
+		return logged(result, stocks, counts, cycle.complete());
+	}
+
+	private CycleResult produceReactive(StockTracker stocks, Counts counts) {
+		if (reactiveClient == null) {
+			throw new IllegalStateException("Reactive pipeline requested but no ReactiveUpstreamClient is configured");
+		}
+		PublishCycle cycle = publisher.openCycle(getSourceName(), topic);
+		AtomicReference<FetchResult> fetched = new AtomicReference<>(FetchResult.empty());
+		// only the upstream flux is timed as the fetch; the wait for acks belongs to the cycle
+		Flux<PublishCycle.PendingRecord> records = metrics.recordFetch(getSourceName(),
+						reactiveClient.streamArray(productsUrl(), InventoryItem.class, fetched::set), fetched::get)
+				.concatMapIterable(item -> {
+					List<PublishCycle.PendingRecord> out = new ArrayList<>(2);
+					accept(item, stocks, RecordSink.into(out), counts);
+					return out;
+				})
+				.concatWith(Flux.defer(() -> {
+					List<PublishCycle.PendingRecord> out = new ArrayList<>();
+					endCycle(fetched.get(), stocks, RecordSink.into(out), counts);
+					return Flux.fromIterable(out);
+				}));
+		CycleResult outcome = cycle.publish(records).block();
+		return logged(fetched.get(), stocks, counts, outcome);
+	}
+
+	private void accept(InventoryItem item, StockTracker stocks, RecordSink sink, Counts counts) {
+		joinInput.accept(item);
+		Object content = item;
+		if (stocks != null) {
+			stocks.accept(item, event -> sendStockEvent(event, sink, counts));
+			content = new InventoryItem(item.id(), item.name(), null, item.additional());
+		}
+		if (deltaFilter.isChanged(item.id(), content)) {
+			sink.send(topic, item.id() != null ? item.id() : java.util.UUID.randomUUID().toString(), item);
+			counts.changed.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Ends the delta, join and stock cycles after a fetch and tombstones the items that
+	 * disappeared. A 304 or an empty (or failed) fetch skips the sweep, so it can never
+	 * tombstone everything.
+	 */
+	private void endCycle(FetchResult result, StockTracker stocks, RecordSink sink, Counts counts) {
+		if (result.notModified()) {
+			log.debug("Products unchanged at Inventory since last poll (304), skipping publish");
+			return;
+		}
+		metrics.recordFetchedRecords(getSourceName(), result.records());
+		if (result.records() == 0) {
 			log.debug("No inventory items to publish");
 			return;
 		}
-		for (InventoryItem item : items) {
-			String key = item.id() != null ? item.id() : java.util.UUID.randomUUID().toString();
-			kafkaTemplate.send(topic, key, item);
+		List<String> removed = deltaFilter.endCycle();
+		joinInput.endCycle();
+		if (stocks != null) {
+			stocks.endCycle(event -> sendStockEvent(event, sink, counts));
+		}
+		for (String id : removed) {
+			sink.send(topic, id, null);
 		}
-		log.info("Published {} inventory item(s) to topic {}", items.size(), topic);
+		counts.tombstones.set(removed.size());
 	}
 
-	@Retryable(
-			retryFor = { Exception.class },
-			maxAttempts = 4,
-			backoff = @Backoff(delay = 1000, multiplier = 2)
-	)
-	public List<InventoryItem> fetchProducts() {
-		String url = inventoryBaseUrl + "/products";
+	private void sendStockEvent(StockDelta event, RecordSink sink, Counts counts) {
+		sink.send(stockTopic, event.id(), event);
+		counts.stockEvents.incrementAndGet();
+	}
+
+	private CycleResult logged(FetchResult result, StockTracker stocks, Counts counts, CycleResult outcome) {
+		if (result.notModified() || result.records() == 0) {
+			return outcome;
+		}
+		log.info("Published {} new or changed of {} inventory item(s) and {} tombstone(s) to topic {} ({} acked, {} failed, p99 ack {} ms)",
+				counts.changed.get(), result.records(), counts.tombstones.get(), topic,
+				outcome.acked(), outcome.failed(), outcome.p99AckLatency().toMillis());
+		if (stocks != null) {
+			log.info("Published {} stock change(s) to topic {}", counts.stockEvents.get(), stockTopic);
+		}
+		return outcome;
+	}
+
+	private StockTracker stockTracker() {
+		if (stockTracker == null) {
+			stockTracker = new StockTracker(lowStockThreshold);
+		}
+		return stockTracker;
+	}
+
+	/**
+	 * Streams all products into {@code sink} as they are decoded, sending the cached
+	 * validators as a conditional request.
+	 *
+	 * @return the fetch outcome; {@link FetchResult#notModified()} if the upstream answered 304
+	 * @throws org.springframework.web.client.RestClientException if the upstream is unreachable
+	 *         or answers with an error; the producer lane retries the cycle
+	 */
+	public FetchResult fetchProducts(Consumer<InventoryItem> sink) {
+		String url = productsUrl();
 		log.debug("Fetching products from {}", url);
-		List<InventoryItem> body = restTemplate.exchange(url, org.springframework.http.HttpMethod.GET, null, INVENTORY_LIST_TYPE).getBody();
-		return body != null ? body : Collections.emptyList();
+		return upstreamClient.streamArray(url, InventoryItem.class, sink);
+	}
+
+	private String productsUrl() {
+		return inventoryBaseUrl + "/products";
 	}
 
-	@Recover
-	public List<InventoryItem> fetchProductsRecover(Exception e) {
-		log.error("Failed to fetch products from Inventory after retries: {}", e.getMessage());
-		return Collections.emptyList();
+	private String productUrl(String id) {
+		return productsUrl() + "/" + id;
+	}
+
+	private static final class Counts {
+
+		private final AtomicInteger changed = new AtomicInteger();
+		private final AtomicInteger tombstones = new AtomicInteger();
+		private final AtomicInteger stockEvents = new AtomicInteger();
 	}
 }
@@ -0,0 +1,67 @@
+package dev.chef.crm_backend.producer;
+
+import java.time.Duration;
+
+import dev.chef.crm_backend.publish.CycleResult;
+
+/**
+ * Delay between two polls of one producer lane.
+ * <p>
+ * A fixed interval never changes. An adaptive interval drops to its floor as soon as a cycle's
+ * fetch finds changes and multiplies by {@code backoffMultiplier} (up to its ceiling) after
+ * every cycle that found nothing new, so a quiet upstream is polled less and less often
+ * while a burst is followed at the floor rate. Replayed failures are not changes, and a cycle
+ * with failed sends backs off as well, so a Kafka outage is not hammered at the floor rate.
+ * Failed and skipped cycles leave it unchanged.
+ */
+final class PollInterval {
+
+	private final boolean adaptive;
+	private final long floorNanos;
+	private final long ceilingNanos;
+	private final double backoffMultiplier;
+	private volatile long currentNanos;
+
+	private PollInterval(boolean adaptive, Duration initial, Duration floor, Duration ceiling, double backoffMultiplier) {
+		this.adaptive = adaptive;
+		this.floorNanos = floor.toNanos();
+		this.ceilingNanos = ceiling.toNanos();
+		this.backoffMultiplier = backoffMultiplier;
+		this.currentNanos = Math.clamp(initial.toNanos(), floorNanos, ceilingNanos);
+	}
+
+	static PollInterval fixed(Duration interval) {
+		return new PollInterval(false, interval, interval, interval, 1.0);
+	}
+
+	static PollInterval adaptive(Duration initial, Duration floor, Duration ceiling, double backoffMultiplier) {
+		if (floor.compareTo(ceiling) > 0) {
+			throw new IllegalArgumentException("Adaptive poll interval floor " + floor + " exceeds ceiling " + ceiling);
+		}
+		return new PollInterval(true, initial, floor, ceiling, backoffMultiplier);
+	}
+
+	boolean isAdaptive() {
+		return adaptive;
+	}
+
+	Duration current() {
+		return Duration.ofNanos(currentNanos);
+	}
+
+	/**
+	 * Adapts the interval to a completed cycle's outcome.
+	 *
+	 * @return the interval to use from now on
+	 */
+	Duration onCycle(CycleResult result) {
+		if (adaptive) {
+			if (result.hasChanges() && result.failed() == 0) {
+				currentNanos = floorNanos;
+			} else {
+				currentNanos = (long) Math.min(ceilingNanos, currentNanos * backoffMultiplier);
+			}
+		}
+		return current();
+	}
+}
@@ -0,0 +1,314 @@
+package dev.chef.crm_backend.producer;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import dev.chef.crm_backend.coordination.SourceOwnership;
+import dev.chef.crm_backend.metrics.PipelineMetrics;
+import dev.chef.crm_backend.publish.CycleResult;
+import dev.chef.crm_backend.resilience.CircuitBreaker;
+import dev.chef.crm_backend.resilience.RetryPolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Independent schedule and execution lane for a single {@link ExternalDataProducer}.
+ * <p>
+ * Ticks are fired by a shared ticker thread, but each cycle runs on the lane's worker
+ * executor so a slow source never delays the others. A tick that fires while the previous
+ * cycle is still running is counted as an overrun and coalesced into a single follow-up
+ * cycle, instead of queueing one cycle per missed tick.
+ * <p>
+ * A failed cycle is not retried in place: the lane schedules a one-off retry tick after the
+ * {@link RetryPolicy} backoff, so no thread sleeps while waiting. Cycles are skipped without
+ * calling the producer while the source's {@link CircuitBreaker} is open.
+ * <p>
+ * With an adaptive {@link PollInterval} each completed cycle adjusts the delay; when it
+ * shrinks, the already scheduled tick is pulled forward so a burst is picked up right away.
+ * <p>
+ * Ticks keep firing on every instance, but a cycle only runs where {@link SourceOwnership}
+ * assigns the source. On taking a source over, the producer's incremental state is reset
+ * since another instance may have published in the meantime.
+ */
+class ProducerLane {
+
+	private static final Logger log = LoggerFactory.getLogger(ProducerLane.class);
+
+	private final ExternalDataProducer producer;
+	private final PollInterval interval;
+	private final ScheduledExecutorService ticker;
+	private final ExecutorService workers;
+	private final PipelineMetrics metrics;
+	private final CircuitBreaker circuitBreaker;
+	private final RetryPolicy retryPolicy;
+	private final SourceOwnership ownership;
+
+	private final AtomicBoolean inFlight = new AtomicBoolean();
+	private final AtomicBoolean rerunRequested = new AtomicBoolean();
+	private final AtomicLong cycles = new AtomicLong();
+	private final AtomicLong overruns = new AtomicLong();
+	private final AtomicLong failures = new AtomicLong();
+	private final AtomicLong shortCircuits = new AtomicLong();
+	private volatile long lastCycleNanos;
+	private volatile long maxCycleNanos;
+	private volatile CycleResult lastResult = CycleResult.NONE;
+	private volatile long nextDueNanos;
+	private ScheduledFuture<?> nextTick;
+	private long tickGeneration;
+	private volatile long rerunDueNanos;
+	private volatile int failedAttempts;
+	private volatile ScheduledFuture<?> pendingRetry;
+	private volatile boolean stopped;
+	// a single instance owns its sources from the start; under coordination the first owned
+	// cycle is a takeover, as another instance may have polled the source while this one was down
+	private volatile boolean owned;
+
+	ProducerLane(ExternalDataProducer producer, PollInterval interval, ScheduledExecutorService ticker,
+			ExecutorService workers, PipelineMetrics metrics, CircuitBreaker circuitBreaker, RetryPolicy retryPolicy,
+			SourceOwnership ownership) {
+		this.producer = producer;
+		this.interval = interval;
+		this.ticker = ticker;
+		this.workers = workers;
+		this.metrics = metrics;
+		this.circuitBreaker = circuitBreaker;
+		this.retryPolicy = retryPolicy;
+		this.ownership = ownership;
+		this.owned = ownership == SourceOwnership.ALL;
+	}
+
+	void start() {
+		stopped = false;
+		schedule(Duration.ZERO);
+	}
+
+	void stop() {
+		stopped = true;
+	}
+
+	ExternalDataProducer getProducer() {
+		return producer;
+	}
+
+	PollInterval getInterval() {
+		return interval;
+	}
+
+	/**
+	 * Point-in-time view of this lane's cycle statistics.
+	 */
+	LaneStats stats() {
+		return new LaneStats(producer.getSourceName(), interval.current(), cycles.get(), overruns.get(), failures.get(),
+				shortCircuits.get(), Duration.ofNanos(lastCycleNanos), Duration.ofNanos(maxCycleNanos), inFlight.get(),
+				circuitBreaker.state(), lastResult, owned);
+	}
+
+	private synchronized void schedule(Duration delay) {
+		if (stopped) {
+			return;
+		}
+		try {
+			long generation = ++tickGeneration;
+			nextDueNanos = System.nanoTime() + delay.toNanos();
+			nextTick = ticker.schedule(() -> tick(generation), delay.toNanos(), TimeUnit.NANOSECONDS);
+		} catch (RejectedExecutionException e) {
+			log.debug("Ticker rejected next tick for {}, scheduler is shutting down", producer.getSourceName());
+		}
+	}
+
+	/**
+	 * Moves the pending tick forward if {@code interval} after the tick that started the
+	 * last cycle ({@code lastDue}) is earlier than what is scheduled.
+	 */
+	private synchronized void rescheduleIfSooner(long lastDue, Duration interval) {
+		long due = lastDue + interval.toNanos();
+		if (stopped || nextTick == null || due >= nextDueNanos) {
+			return;
+		}
+		nextTick.cancel(false);
+		schedule(Duration.ofNanos(Math.max(0, due - System.nanoTime())));
+	}
+
+	private void tick(long generation) {
+		long due;
+		synchronized (this) {
+			// a tick superseded by rescheduleIfSooner may still fire if it was already running
+			if (generation != tickGeneration) {
+				return;
+			}
+			due = nextDueNanos;
+			schedule(interval.current());
+		}
+		if (!inFlight.compareAndSet(false, true)) {
+			overruns.incrementAndGet();
+			metrics.recordOverrun(producer.getSourceName());
+			if (!rerunRequested.get()) {
+				rerunDueNanos = due;
+			}
+			if (!rerunRequested.getAndSet(true)) {
+				log.warn("Producer {} overran its {} ms interval, coalescing missed ticks",
+						producer.getSourceName(), interval.current().toMillis());
+			}
+			return;
+		}
+		dispatch(due);
+	}
+
+	private void retryTick(long due) {
+		pendingRetry = null;
+		// a cycle already running (a regular tick got there first) makes this retry redundant
+		if (!stopped && inFlight.compareAndSet(false, true)) {
+			dispatch(due);
+		}
+	}
+
+	private void dispatch(long due) {
+		try {
+			workers.execute(() -> runCycles(due));
+		} catch (RejectedExecutionException e) {
+			inFlight.set(false);
+			log.debug("Worker executor rejected cycle for {}, scheduler is shutting down", producer.getSourceName());
+		}
+	}
+
+	private void runCycles(long due) {
+		try {
+			runCycle(due);
+			// a coalesced rerun reports its lag against the first tick it absorbed
+			while (!stopped && rerunRequested.getAndSet(false)) {
+				runCycle(rerunDueNanos);
+			}
+		} finally {
+			inFlight.set(false);
+		}
+	}
+
+	private void runCycle(long due) {
+		long start = System.nanoTime();
+		metrics.recordSchedulerLag(producer.getSourceName(), Duration.ofNanos(Math.max(0, start - due)));
+		ScheduledFuture<?> retry = pendingRetry;
+		if (retry != null) {
+			retry.cancel(false);
+			pendingRetry = null;
+		}
+		if (!checkOwnership()) {
+			return;
+		}
+		if (!circuitBreaker.tryAcquire()) {
+			shortCircuits.incrementAndGet();
+			metrics.recordShortCircuit(producer.getSourceName());
+			log.debug("Circuit for {} is open, skipping cycle", producer.getSourceName());
+			return;
+		}
+		retryPolicy.onAttempt();
+		CycleResult result = null;
+		try {
+			log.debug("Running producer: {}", producer.getSourceName());
+			result = producer.produce();
+			lastResult = result;
+			circuitBreaker.onSuccess();
+			failedAttempts = 0;
+			if (interval.isAdaptive()) {
+				rescheduleIfSooner(due, interval.onCycle(result));
+			}
+		} catch (Exception e) {
+			failures.incrementAndGet();
+			circuitBreaker.onFailure();
+			onFailure(e);
+		} finally {
+			long elapsed = System.nanoTime() - start;
+			lastCycleNanos = elapsed;
+			if (elapsed > maxCycleNanos) {
+				maxCycleNanos = elapsed;
+			}
+			cycles.incrementAndGet();
+			metrics.recordCycle(producer.getSourceName(), Duration.ofNanos(elapsed), result);
+			log.debug("Producer {} cycle took {} ms", producer.getSourceName(), TimeUnit.NANOSECONDS.toMillis(elapsed));
+		}
+	}
+
+	/**
+	 * Returns whether this instance runs the source, resetting the producer on takeover.
+	 */
+	private boolean checkOwnership() {
+		String source = producer.getSourceName();
+		if (!ownership.owns(source)) {
+			if (owned) {
+				owned = false;
+				log.info("Source {} is now assigned to another instance, pausing its cycles", source);
+			}
+			return false;
+		}
+		if (!owned) {
+			log.info("Taking over source {}, resetting its incremental state", source);
+			producer.resetIncrementalState();
+			owned = true;
+		}
+		return true;
+	}
+
+	private void onFailure(Exception e) {
+		String source = producer.getSourceName();
+		int attempt = ++failedAttempts;
+		if (circuitBreaker.state() == CircuitBreaker.State.OPEN) {
+			failedAttempts = 0;
+			log.error("Producer {} failed, circuit opened after repeated failures: {}", source, e.getMessage(), e);
+			return;
+		}
+		if (attempt >= retryPolicy.maxAttempts()) {
+			failedAttempts = 0;
+			log.error("Producer {} failed after {} attempt(s), waiting for next poll: {}", source, attempt,
+					e.getMessage(), e);
+			return;
+		}
+		if (!retryPolicy.tryAcquireRetry()) {
+			failedAttempts = 0;
+			metrics.recordRetryRejected(source);
+			log.error("Producer {} failed and the retry budget is exhausted, waiting for next poll: {}", source,
+					e.getMessage(), e);
+			return;
+		}
+		Duration backoff = retryPolicy.backoff(attempt);
+		log.warn("Producer {} failed (attempt {}/{}), retrying in {} ms: {}", source, attempt,
+				retryPolicy.maxAttempts(), backoff.toMillis(), e.getMessage());
+		metrics.recordRetry(source);
+		scheduleRetry(backoff);
+	}
+
+	private void scheduleRetry(Duration backoff) {
+		if (stopped) {
+			return;
+		}
+		long due = System.nanoTime() + backoff.toNanos();
+		try {
+			pendingRetry = ticker.schedule(() -> retryTick(due), backoff.toNanos(), TimeUnit.NANOSECONDS);
+		} catch (RejectedExecutionException e) {
+			log.debug("Ticker rejected retry for {}, scheduler is shutting down", producer.getSourceName());
+		}
+	}
+
+	/**
+	 * Cycle statistics for a single producer lane.
+	 */
+	record LaneStats(
+			String sourceName,
+			Duration interval,
+			long cycles,
+			long overruns,
+			long failures,
+			long shortCircuits,
+			Duration lastCycleTime,
+			Duration maxCycleTime,
+			boolean running,
+			CircuitBreaker.State circuitState,
+			CycleResult lastResult,
+			boolean owned
+	) {
+	}
+}
@@ -1,39 +1,138 @@
 package dev.chef.crm_backend.producer;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
 
+import dev.chef.crm_backend.coordination.SourceOwnership;
+import dev.chef.crm_backend.metrics.PipelineMetrics;
+import dev.chef.crm_backend.resilience.CircuitBreakerRegistry;
+import dev.chef.crm_backend.resilience.RetryPolicy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Runs all registered {@link ExternalDataProducer} beans on a schedule.
+ * Runs all registered {@link ExternalDataProducer} beans, each on its own schedule.
+ * <p>
+ * A single ticker thread fires the schedules and every cycle runs on a virtual thread, so a
+ * stalled upstream only delays its own source. The poll interval defaults to
+ * {@code integration.producers.poll-interval-ms} and can be overridden per source with
+ * {@code integration.<source-key>.poll-interval-ms}. With push ingestion enabled the default
+ * is {@code integration.push.reconciliation-interval-ms} instead.
+ * <p>
+ * With {@code poll-mode=adaptive} (globally under {@code integration.producers.} or per
+ * source) the interval starts there and then moves between
+ * {@code adaptive.min-interval-ms} and {@code adaptive.max-interval-ms} depending on whether
+ * cycles find changes; see {@link PollInterval}. Failed cycles are retried by the lane
+ * under the shared {@link RetryPolicy}, and each source has its own circuit breaker.
+ * <p>
+ * When several instances run, {@link SourceOwnership} decides which of them polls each source.
  */
 @Component
 @ConditionalOnProperty(name = "integration.producers.enabled", havingValue = "true", matchIfMissing = true)
-public class ProducerScheduler {
+public class ProducerScheduler implements SmartLifecycle {
 
 	private static final Logger log = LoggerFactory.getLogger(ProducerScheduler.class);
 
-	private final List<ExternalDataProducer> producers;
+	private final List<ProducerLane> lanes;
+	private final ScheduledExecutorService ticker;
+	private final ExecutorService workers;
+	private volatile boolean running;
 
-	public ProducerScheduler(List<ExternalDataProducer> producers) {
-		this.producers = producers;
+	public ProducerScheduler(List<ExternalDataProducer> producers, Environment environment, PipelineMetrics metrics,
+			CircuitBreakerRegistry circuitBreakers, RetryPolicy retryPolicy, SourceOwnership ownership,
+			@Value("${integration.producers.poll-interval-ms:10000}") long defaultIntervalMs) {
+		ScheduledThreadPoolExecutor tickerPool = new ScheduledThreadPoolExecutor(1,
+				Thread.ofPlatform().name("producer-ticker").daemon().factory());
+		tickerPool.setRemoveOnCancelPolicy(true);
+		this.ticker = tickerPool;
+		this.workers = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("producer-", 0).factory());
+		this.lanes = producers.stream()
+				.map(p -> {
+					PollInterval interval = intervalFor(p, environment, defaultIntervalMs);
+					metrics.timeGauge("crm.scheduler.interval", "Current delay between two polls of the source",
+							p.getSourceName(), interval, PollInterval::current);
+					metrics.gauge("crm.coordination.owned", "Whether this instance polls the source (1) or not (0)",
+							p.getSourceName(), ownership, o -> o.owns(p.getSourceName()) ? 1 : 0);
+					return new ProducerLane(p, interval, ticker, workers, metrics,
+							circuitBreakers.forSource(p.getSourceName()), retryPolicy, ownership);
+				})
+				.toList();
 		log.info("Producer scheduler registered {} producer(s)", producers.size());
 	}
 
-	@Scheduled(fixedDelayString = "${integration.producers.poll-interval-ms:10000}")
-	public void runProducers() {
-		for (ExternalDataProducer producer : producers) {
-			try {
-				log.debug("Running producer: {}", producer.getSourceName());
-				producer.produce();
-			} catch (Exception e) {
-				log.error("Producer {} failed: {}", producer.getSourceName(), e.getMessage(), e);
+	private static PollInterval intervalFor(ExternalDataProducer producer, Environment environment,
+			long defaultIntervalMs) {
+		String key = producer.getSourceKey();
+		String property = "integration." + key + ".poll-interval-ms";
+		// with push ingestion the notifications carry the updates and polls only reconcile what they missed
+		long fallbackMs = environment.getProperty("integration.push.enabled", Boolean.class, false)
+				? environment.getProperty("integration.push.reconciliation-interval-ms", Long.class, defaultIntervalMs)
+				: defaultIntervalMs;
+		Duration interval = Duration.ofMillis(environment.getProperty(property, Long.class, fallbackMs));
+		if (!"adaptive".equalsIgnoreCase(sourceProperty(environment, key, "poll-mode", String.class, "fixed"))) {
+			return PollInterval.fixed(interval);
+		}
+		Duration floor = Duration.ofMillis(sourceProperty(environment, key, "adaptive.min-interval-ms", Long.class, 1000L));
+		Duration ceiling = Duration.ofMillis(sourceProperty(environment, key, "adaptive.max-interval-ms", Long.class, 300000L));
+		double multiplier = sourceProperty(environment, key, "adaptive.backoff-multiplier", Double.class, 2.0);
+		return PollInterval.adaptive(interval, floor, ceiling, multiplier);
+	}
+
+	/**
+	 * {@code integration.<source-key>.<name>}, falling back to {@code integration.producers.<name>}.
+	 */
+	private static <T> T sourceProperty(Environment environment, String sourceKey, String name, Class<T> type,
+			T defaultValue) {
+		T global = environment.getProperty("integration.producers." + name, type, defaultValue);
+		return environment.getProperty("integration." + sourceKey + "." + name, type, global);
+	}
+
+	@Override
+	public void start() {
+		for (ProducerLane lane : lanes) {
+			log.info("Scheduling producer {} every {} ms ({} interval)", lane.getProducer().getSourceName(),
+					lane.getInterval().current().toMillis(), lane.getInterval().isAdaptive() ? "adaptive" : "fixed");
+			lane.start();
+		}
+		running = true;
+	}
+
+	@Override
+	public void stop() {
+		running = false;
+		lanes.forEach(ProducerLane::stop);
+		ticker.shutdownNow();
+		workers.shutdown();
+		try {
+			if (!workers.awaitTermination(5, TimeUnit.SECONDS)) {
+				workers.shutdownNow();
 			}
+		} catch (InterruptedException e) {
+			workers.shutdownNow();
+			Thread.currentThread().interrupt();
 		}
 	}
+
+	@Override
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * Current cycle statistics for every producer lane.
+	 */
+	List<ProducerLane.LaneStats> getLaneStats() {
+		return lanes.stream().map(ProducerLane::stats).toList();
+	}
 }
@@ -0,0 +1,25 @@
+package dev.chef.crm_backend.publish;
+
+import java.time.Duration;
+
+/**
+ * Aggregated outcome of one poll cycle's Kafka sends.
+ *
+ * @param sent records handed to Kafka, including tombstones and replayed failures
+ * @param changed records of this cycle's own fetch (new and changed records, tombstones and
+ *        their derived events), i.e. {@code sent} without the replayed failures
+ * @param acked records acknowledged by the broker
+ * @param failed records whose send failed; these are re-queued for the next cycle
+ * @param p99AckLatency 99th percentile of send-to-ack latency
+ */
+public record CycleResult(long sent, long changed, long acked, long failed, Duration p99AckLatency) {
+
+	public static final CycleResult NONE = new CycleResult(0, 0, 0, 0, Duration.ZERO);
+
+	/**
+	 * Whether the fetch found anything to publish; replaying earlier failures does not count.
+	 */
+	public boolean hasChanges() {
+		return changed > 0;
+	}
+}
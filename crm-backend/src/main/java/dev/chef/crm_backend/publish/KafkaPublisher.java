@@ -0,0 +1,165 @@
+package dev.chef.crm_backend.publish;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import dev.chef.crm_backend.delta.RecordFingerprinter;
+import dev.chef.crm_backend.metrics.PipelineMetrics;
+import dev.chef.crm_backend.outbox.OutboxSender;
+
+/**
+ * Entry point of the asynchronous send pipeline: opens a {@link PublishCycle} per producer
+ * poll and keeps each source's queue of failed records between cycles.
+ * <p>
+ * When the write-ahead outbox is enabled, cycles append to it instead of sending to Kafka
+ * directly and the outbox drainer takes care of delivery, and of the first-ack metric. Cycles of the topics in
+ * {@link TransactionalDelivery} (never set together with the outbox) are written in Kafka transactions; their in-flight cap is
+ * lifted, since records are only settled on commit, and the producer's {@code buffer.memory}
+ * bounds them instead.
+ * <p>
+ * Each source's failed records wait in a {@link RetryQueue} of at most
+ * {@code integration.producers.retry-queue.max-records}, one per topic and key unless the
+ * topic was registered with {@link #retryEveryRecord}; a source
+ * learns about records dropped beyond that through {@link #onRetryDropped}.
+ * <p>
+ * With {@code integration.kafka.metadata-headers} on (the default), every record carries its
+ * {@link RecordMetadata} as headers. The convenience constructors leave them off.
+ */
+@Component
+public class KafkaPublisher {
+
+	private static final int DEFAULT_MAX_RETRY_RECORDS = 100_000;
+
+	private final RecordSender sender;
+	private final TransactionalDelivery transactions;
+	private final RecordFingerprinter fingerprinter;
+	private final PipelineMetrics metrics;
+	private final int maxInFlight;
+	private final int maxRetryRecords;
+	private final Runnable onAck;
+	private final Map<String, RetryQueue> retryQueues = new ConcurrentHashMap<>();
+	private final Map<String, BiConsumer<String, String>> failureListeners = new ConcurrentHashMap<>();
+	private final Map<String, Runnable> dropListeners = new ConcurrentHashMap<>();
+	private final Map<String, Predicate<String>> eventTopics = new ConcurrentHashMap<>();
+
+	KafkaPublisher(KafkaTemplate<String, Object> kafkaTemplate, PipelineMetrics metrics, int maxInFlight) {
+		this(kafkaTemplate, TransactionalDelivery.NONE, metrics, maxInFlight);
+	}
+
+	KafkaPublisher(KafkaTemplate<String, Object> kafkaTemplate, PipelineMetrics metrics, int maxInFlight,
+			int maxRetryRecords) {
+		this(direct(kafkaTemplate), TransactionalDelivery.NONE, null, metrics, maxInFlight, maxRetryRecords);
+	}
+
+	KafkaPublisher(KafkaTemplate<String, Object> kafkaTemplate, TransactionalDelivery transactions,
+			PipelineMetrics metrics, int maxInFlight) {
+		this(direct(kafkaTemplate), transactions, null, metrics, maxInFlight, DEFAULT_MAX_RETRY_RECORDS);
+	}
+
+	/**
+	 * Publisher that stamps every record with its {@link RecordMetadata} headers.
+	 */
+	KafkaPublisher(KafkaTemplate<String, Object> kafkaTemplate, RecordFingerprinter fingerprinter,
+			PipelineMetrics metrics, int maxInFlight) {
+		this(direct(kafkaTemplate), TransactionalDelivery.NONE, fingerprinter, metrics, maxInFlight,
+				DEFAULT_MAX_RETRY_RECORDS);
+	}
+
+	@Autowired
+	public KafkaPublisher(KafkaTemplate<String, Object> kafkaTemplate, ObjectProvider<OutboxSender> outboxSender,
+			ObjectProvider<TransactionalDelivery> transactions, RecordFingerprinter fingerprinter,
+			PipelineMetrics metrics,
+			@Value("${integration.producers.max-in-flight:1000}") int maxInFlight,
+			@Value("${integration.kafka.metadata-headers:true}") boolean metadataHeaders,
+			@Value("${integration.producers.retry-queue.max-records:100000}") int maxRetryRecords) {
+		this(directOrOutbox(kafkaTemplate, outboxSender.getIfAvailable()),
+				transactions.getIfAvailable(() -> TransactionalDelivery.NONE),
+				metadataHeaders ? fingerprinter : null, metrics, maxInFlight, maxRetryRecords);
+	}
+
+	private KafkaPublisher(RecordSender sender, TransactionalDelivery transactions, RecordFingerprinter fingerprinter,
+			PipelineMetrics metrics, int maxInFlight, int maxRetryRecords) {
+		this.sender = sender;
+		// an outbox append is not a Kafka acknowledgement; the drainer reports those
+		this.onAck = sender instanceof OutboxSender ? () -> { } : metrics::recordAck;
+		this.transactions = transactions;
+		this.fingerprinter = fingerprinter;
+		this.metrics = metrics;
+		this.maxInFlight = maxInFlight;
+		this.maxRetryRecords = maxRetryRecords;
+	}
+
+	private static RecordSender directOrOutbox(KafkaTemplate<String, Object> kafkaTemplate, OutboxSender outboxSender) {
+		return outboxSender != null ? outboxSender : direct(kafkaTemplate);
+	}
+
+	private static RecordSender direct(KafkaTemplate<String, Object> kafkaTemplate) {
+		return (topic, key, value, metadata) -> metadata != null
+				? kafkaTemplate.send(new ProducerRecord<>(topic, null, key, value, metadata.toHeaders()))
+				: kafkaTemplate.send(topic, key, value);
+	}
+
+	/**
+	 * Starts a cycle for {@code source}, first replaying records that failed previously.
+	 */
+	public PublishCycle openCycle(String source, String topic) {
+		RetryQueue retryQueue = retryQueues.computeIfAbsent(source, this::newRetryQueue);
+		RecordStamper stamper = fingerprinter != null ? new RecordStamper(fingerprinter, source) : null;
+		BiConsumer<String, String> onSendFailure = failureListeners.getOrDefault(source, (t, key) -> { });
+		PublishCycle cycle = transactions.covers(topic)
+				? new PublishCycle(transactions.openSender(), topic, retryQueue, Integer.MAX_VALUE,
+						metrics.ackTimer(source), metrics.sendFailures(source), metrics::recordAck, onSendFailure, stamper)
+				: new PublishCycle(sender, topic, retryQueue, maxInFlight,
+						metrics.ackTimer(source), metrics.sendFailures(source), onAck, onSendFailure, stamper);
+		cycle.replayFailed();
+		return cycle;
+	}
+
+	/**
+	 * Registers a callback for every failed send of {@code source}, with the record's topic and
+	 * key; it runs on the producer's I/O thread.
+	 */
+	public void onSendFailure(String source, BiConsumer<String, String> listener) {
+		failureListeners.put(source, listener);
+	}
+
+	/**
+	 * Registers a callback for every record the retry queue of {@code source} drops; it runs
+	 * on the producer's I/O thread.
+	 */
+	public void onRetryDropped(String source, Runnable listener) {
+		dropListeners.put(source, listener);
+	}
+
+	/**
+	 * Marks the topics of {@code source} that carry events rather than state, e.g. stock
+	 * deltas: their failed records are all replayed, in order, instead of only the latest per
+	 * key.
+	 */
+	public void retryEveryRecord(String source, Predicate<String> topics) {
+		eventTopics.put(source, topics);
+	}
+
+	public int pendingRetries(String source) {
+		RetryQueue queue = retryQueues.get(source);
+		return queue != null ? queue.size() : 0;
+	}
+
+	private RetryQueue newRetryQueue(String source) {
+		RetryQueue queue = new RetryQueue(maxRetryRecords, metrics.retryDropped(source),
+				() -> dropListeners.getOrDefault(source, () -> { }).run(),
+				topic -> eventTopics.getOrDefault(source, t -> false).test(topic));
+		metrics.gauge("crm.kafka.retry.pending", "Failed records waiting to be replayed next cycle",
+				source, queue, RetryQueue::size);
+		return queue;
+	}
+}
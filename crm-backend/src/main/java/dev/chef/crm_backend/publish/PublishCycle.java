@@ -0,0 +1,237 @@
+package dev.chef.crm_backend.publish;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The Kafka sends of one producer's poll cycle.
+ * <p>
+ * At most {@code maxInFlight} records are unacknowledged at any time; {@link #send} blocks
+ * the caller (the fetch side) until a permit frees up. {@link #complete()} waits for every
+ * outstanding acknowledgement and returns the aggregated {@link CycleResult}; a cycle whose
+ * fetch failed ends with {@link #abort()} instead, which does not commit an open transaction.
+ * Records that fail are put on the source's retry queue and replayed at the start of its next
+ * cycle.
+ * <p>
+ * Unless the publisher has metadata headers disabled, every record is stamped with its
+ * {@link RecordMetadata} when it is first handed to a cycle; replays keep the original stamp.
+ * <p>
+ * {@link #publish(Flux)} is the non-blocking alternative to {@code send}/{@code complete}
+ * for the reactive pipeline: the cap is applied as demand instead of blocking a thread.
+ */
+public class PublishCycle implements RecordSink {
+
+	private static final Logger log = LoggerFactory.getLogger(PublishCycle.class);
+	private static final int LATENCY_SAMPLES = 4096;
+
+	private final RecordSender sender;
+	private final String topic;
+	private final RetryQueue retryQueue;
+	private final Semaphore inFlight;
+	private final int maxInFlight;
+	private final Timer ackTimer;
+	private final Counter sendFailures;
+	private final Runnable onAck;
+	private final BiConsumer<String, String> onSendFailure;
+	private final RecordStamper stamper;
+
+	private final AtomicLong sent = new AtomicLong();
+	private final AtomicLong replayed = new AtomicLong();
+	private final AtomicLong acked = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	private final long[] latencySamples = new long[LATENCY_SAMPLES];
+	private long latencyCount;
+
+	PublishCycle(RecordSender sender, String topic, RetryQueue retryQueue,
+			int maxInFlight, Timer ackTimer, Counter sendFailures, Runnable onAck,
+			BiConsumer<String, String> onSendFailure, RecordStamper stamper) {
+		this.sender = sender;
+		this.topic = topic;
+		this.retryQueue = retryQueue;
+		this.maxInFlight = maxInFlight;
+		this.ackTimer = ackTimer;
+		this.sendFailures = sendFailures;
+		this.onAck = onAck;
+		this.onSendFailure = onSendFailure;
+		this.stamper = stamper;
+		this.inFlight = new Semaphore(maxInFlight);
+	}
+
+	/**
+	 * Replays the records that failed in earlier cycles before anything new is sent.
+	 */
+	void replayFailed() {
+		List<PendingRecord> records = retryQueue.drain();
+		replayed.addAndGet(records.size());
+		records.forEach(this::send);
+		if (!records.isEmpty()) {
+			log.info("Replayed {} previously failed record(s) to {}", records.size(), topic);
+		}
+	}
+
+	/**
+	 * Sends a record to this cycle's topic, blocking while the in-flight cap is reached.
+	 * A {@code null} value is sent as a tombstone.
+	 */
+	public void send(String key, Object value) {
+		send(topic, key, value);
+	}
+
+	/**
+	 * Sends a record to {@code targetTopic} as part of this cycle, e.g. a derived event
+	 * stream next to the cycle's main topic.
+	 */
+	@Override
+	public void send(String targetTopic, String key, Object value) {
+		send(new PendingRecord(targetTopic, key, value));
+	}
+
+	private void send(PendingRecord record) {
+		inFlight.acquireUninterruptibly();
+		dispatch(record).thenRun(inFlight::release);
+	}
+
+	/**
+	 * Sends every record of {@code records} and emits the cycle result once all of them are
+	 * settled. At most {@code maxInFlight} records are unacknowledged: upstream is only asked
+	 * for more as acknowledgements come in. When {@code records} completes, the sender is
+	 * flushed (a transaction committed) before waiting for the outstanding sends; when it
+	 * fails, the sender is aborted instead and the error propagated only after what was
+	 * already sent has settled.
+	 */
+	public Mono<CycleResult> publish(Flux<PendingRecord> records) {
+		Mono<PendingRecord> flush = Mono.<PendingRecord>fromRunnable(sender::flush)
+				.subscribeOn(Schedulers.boundedElastic());
+		Mono<PendingRecord> abort = Mono.<PendingRecord>fromRunnable(sender::abort)
+				.subscribeOn(Schedulers.boundedElastic());
+		return records.concatWith(flush)
+				.onErrorResume(e -> abort.then(Mono.error(e)))
+				.flatMapDelayError(r -> Mono.fromCompletionStage(() -> dispatch(r)),
+						maxInFlight, 32)
+				.then(Mono.fromCallable(this::result));
+	}
+
+	/**
+	 * Hands a record to the sender; the returned future completes, never exceptionally, once
+	 * the record is acknowledged or re-queued.
+	 */
+	private CompletableFuture<Void> dispatch(PendingRecord pending) {
+		PendingRecord record = pending.metadata() == null && stamper != null
+				? pending.withMetadata(stamper.stamp(pending.value()))
+				: pending;
+		sent.incrementAndGet();
+		long start = System.nanoTime();
+		CompletableFuture<?> future;
+		try {
+			future = sender.send(record.topic(), record.key(), record.value(), record.metadata());
+		} catch (RuntimeException e) {
+			onFailure(record, e);
+			return CompletableFuture.completedFuture(null);
+		}
+		return future.handle((result, error) -> {
+			if (error != null) {
+				onFailure(record, error);
+			} else {
+				acked.incrementAndGet();
+				long latency = System.nanoTime() - start;
+				ackTimer.record(latency, TimeUnit.NANOSECONDS);
+				recordLatency(latency);
+				onAck.run();
+			}
+			return null;
+		});
+	}
+
+	private void onFailure(PendingRecord record, Throwable error) {
+		failed.incrementAndGet();
+		sendFailures.increment();
+		retryQueue.add(record);
+		onSendFailure.accept(record.topic(), record.key());
+		log.debug("Send of {} to {} failed, re-queued for next cycle: {}", record.key(), record.topic(),
+				error.getMessage());
+	}
+
+	private synchronized void recordLatency(long nanos) {
+		// reservoir sampling keeps the p99 estimate bounded in memory for any cycle size
+		long n = latencyCount++;
+		if (n < LATENCY_SAMPLES) {
+			latencySamples[(int) n] = nanos;
+		} else {
+			long slot = ThreadLocalRandom.current().nextLong(n + 1);
+			if (slot < LATENCY_SAMPLES) {
+				latencySamples[(int) slot] = nanos;
+			}
+		}
+	}
+
+	/**
+	 * Waits for every outstanding send of this cycle and returns the aggregated result.
+	 */
+	public CycleResult complete() {
+		sender.flush();
+		return settle();
+	}
+
+	/**
+	 * Ends a cycle whose fetch failed: aborts an open transaction, whose records then fail and
+	 * are re-queued, and waits for every other outstanding send.
+	 */
+	public CycleResult abort() {
+		sender.abort();
+		return settle();
+	}
+
+	private CycleResult settle() {
+		inFlight.acquireUninterruptibly(maxInFlight);
+		inFlight.release(maxInFlight);
+		return result();
+	}
+
+	private CycleResult result() {
+		long total = sent.get();
+		return new CycleResult(total, total - replayed.get(), acked.get(), failed.get(), p99());
+	}
+
+	private synchronized Duration p99() {
+		int n = (int) Math.min(latencyCount, LATENCY_SAMPLES);
+		if (n == 0) {
+			return Duration.ZERO;
+		}
+		long[] sorted = Arrays.copyOf(latencySamples, n);
+		Arrays.sort(sorted);
+		int index = (int) Math.ceil(0.99 * n) - 1;
+		return Duration.ofNanos(sorted[Math.max(0, index)]);
+	}
+
+	/**
+	 * A record to send, or one waiting to be replayed; a {@code null} value is a tombstone.
+	 *
+	 * @param metadata the record's stamp, {@code null} until it is first dispatched
+	 */
+	public record PendingRecord(String topic, String key, Object value, RecordMetadata metadata) {
+
+		public PendingRecord(String topic, String key, Object value) {
+			this(topic, key, value, null);
+		}
+
+		PendingRecord withMetadata(RecordMetadata metadata) {
+			return new PendingRecord(topic, key, value, metadata);
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package dev.chef.crm_backend.publish;
+
+import java.nio.charset.StandardCharsets;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+
+/**
+ * Provenance of a published record, sent as Kafka headers so consumers can deduplicate and
+ * check freshness without decoding the value. It is stamped once, when a record is first
+ * handed to a {@link PublishCycle}, and travels with the record through retries and the
+ * outbox unchanged.
+ * <p>
+ * All header values are UTF-8 text.
+ *
+ * @param fingerprint 16 hex digits of the XXH64 hash of the record's canonical JSON (see
+ *        {@code RecordFingerprinter}), {@code null} for a tombstone
+ * @param source name of the producer that published the record
+ * @param fetchedAt when the publishing cycle started fetching, in epoch milliseconds
+ * @param schemaVersion logical schema of the value, e.g. {@code CustomerData/2}; {@code null}
+ *        for a tombstone or a type without a versioned schema
+ * @param cycleId id of the publishing cycle, shared by all records of one poll or push batch
+ */
+public record RecordMetadata(String fingerprint, String source, long fetchedAt, String schemaVersion,
+		String cycleId) {
+
+	public static final String FINGERPRINT_HEADER = "crm_fingerprint";
+	public static final String SOURCE_HEADER = "crm_source";
+	public static final String FETCHED_AT_HEADER = "crm_fetched_at";
+	public static final String SCHEMA_VERSION_HEADER = "crm_schema_version";
+	public static final String CYCLE_ID_HEADER = "crm_cycle_id";
+
+	/**
+	 * Returns a new, mutable header set; the value serializer may add its own headers to it.
+	 */
+	public Headers toHeaders() {
+		RecordHeaders headers = new RecordHeaders();
+		add(headers, FINGERPRINT_HEADER, fingerprint);
+		add(headers, SOURCE_HEADER, source);
+		add(headers, FETCHED_AT_HEADER, Long.toString(fetchedAt));
+		add(headers, SCHEMA_VERSION_HEADER, schemaVersion);
+		add(headers, CYCLE_ID_HEADER, cycleId);
+		return headers;
+	}
+
+	private static void add(Headers headers, String name, String value) {
+		if (value != null) {
+			headers.add(name, value.getBytes(StandardCharsets.UTF_8));
+		}
+	}
+}
@@ -0,0 +1,33 @@
+package dev.chef.crm_backend.publish;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Where a {@link PublishCycle} hands its records: straight to Kafka, to the local outbox, or
+ * into a Kafka transaction.
+ */
+@FunctionalInterface
+public interface RecordSender {
+
+	/**
+	 * Sends one record; the future completes once the record is safely accepted.
+	 *
+	 * @param metadata sent as the record's headers, {@code null} to send none
+	 */
+	CompletableFuture<?> send(String topic, String key, Object value, RecordMetadata metadata);
+
+	/**
+	 * Called when a cycle completes, after its last send and before waiting for the futures;
+	 * the outbox forces its log to disk, a {@link TransactionalSender} commits.
+	 */
+	default void flush() {
+	}
+
+	/**
+	 * Called instead of {@link #flush()} when a cycle's fetch failed; a
+	 * {@link TransactionalSender} aborts its open transaction, so a partial snapshot never
+	 * becomes visible.
+	 */
+	default void abort() {
+	}
+}
@@ -0,0 +1,23 @@
+package dev.chef.crm_backend.publish;
+
+import java.util.Collection;
+
+/**
+ * Where a producer puts the records it derives from one upstream record: straight into a
+ * {@link PublishCycle}, or into the batch a reactive pipeline stage emits.
+ */
+@FunctionalInterface
+public interface RecordSink {
+
+	/**
+	 * Accepts a record for {@code topic}; a {@code null} value is a tombstone.
+	 */
+	void send(String topic, String key, Object value);
+
+	/**
+	 * A sink that collects the records into {@code records}.
+	 */
+	static RecordSink into(Collection<? super PublishCycle.PendingRecord> records) {
+		return (topic, key, value) -> records.add(new PublishCycle.PendingRecord(topic, key, value));
+	}
+}
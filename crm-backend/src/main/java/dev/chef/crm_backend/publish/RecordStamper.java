@@ -0,0 +1,48 @@
+package dev.chef.crm_backend.publish;
+
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.UUID;
+
+import dev.chef.crm_backend.delta.RecordFingerprinter;
+import dev.chef.crm_backend.dto.CustomerData;
+import dev.chef.crm_backend.dto.CustomerWithProducts;
+import dev.chef.crm_backend.dto.InventoryItem;
+import dev.chef.crm_backend.dto.StockDelta;
+
+/**
+ * Stamps the records of one {@link PublishCycle} with their {@link RecordMetadata}. The cycle
+ * id and fetch time are fixed when the cycle opens, right before its fetch.
+ */
+final class RecordStamper {
+
+	private static final HexFormat HEX = HexFormat.of();
+
+	/**
+	 * Schema versions of the published types; bumped together with the compact codec's schema
+	 * ids when a type gains or loses fields.
+	 */
+	private static final Map<Class<?>, String> SCHEMA_VERSIONS = Map.of(
+			CustomerData.class, "CustomerData/2",
+			InventoryItem.class, "InventoryItem/1",
+			StockDelta.class, "StockDelta/1",
+			CustomerWithProducts.class, "CustomerWithProducts/1");
+
+	private final RecordFingerprinter fingerprinter;
+	private final String source;
+	private final long fetchedAt = System.currentTimeMillis();
+	private final String cycleId = UUID.randomUUID().toString();
+
+	RecordStamper(RecordFingerprinter fingerprinter, String source) {
+		this.fingerprinter = fingerprinter;
+		this.source = source;
+	}
+
+	RecordMetadata stamp(Object value) {
+		if (value == null) {
+			return new RecordMetadata(null, source, fetchedAt, null, cycleId);
+		}
+		String fingerprint = HEX.toHexDigits(fingerprinter.fingerprint(value));
+		return new RecordMetadata(fingerprint, source, fetchedAt, SCHEMA_VERSIONS.get(value.getClass()), cycleId);
+	}
+}
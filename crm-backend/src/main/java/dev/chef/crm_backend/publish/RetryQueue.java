@@ -0,0 +1,74 @@
+package dev.chef.crm_backend.publish;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import io.micrometer.core.instrument.Counter;
+
+/**
+ * Failed records of one source waiting to be replayed with its next cycle.
+ * <p>
+ * Records are coalesced by topic and key, so a key that keeps failing during an outage is
+ * replayed once, with its latest value. Records of event topics, whose values each carry a
+ * change rather than the latest state, are all kept in order instead. Beyond {@code maxRecords} the oldest records are
+ * dropped, counted and reported to {@code onDrop}. The producers' delta filters have
+ * forgotten them already (see {@code DeltaFilter#sendFailed}) and the producers drop their
+ * cached validators on a drop, so the next poll fetches everything instead of getting a 304
+ * and publishes them again. Dropped tombstones and stock events are not rebuilt by a fetch
+ * and are lost.
+ */
+final class RetryQueue {
+
+	private final int maxRecords;
+	private final Counter dropped;
+	private final Runnable onDrop;
+	private final Predicate<String> eventTopics;
+	private final Map<Object, PublishCycle.PendingRecord> records = new LinkedHashMap<>();
+
+	RetryQueue(int maxRecords, Counter dropped, Runnable onDrop) {
+		this(maxRecords, dropped, onDrop, topic -> false);
+	}
+
+	RetryQueue(int maxRecords, Counter dropped, Runnable onDrop, Predicate<String> eventTopics) {
+		this.maxRecords = maxRecords;
+		this.dropped = dropped;
+		this.onDrop = onDrop;
+		this.eventTopics = eventTopics;
+	}
+
+	synchronized void add(PublishCycle.PendingRecord record) {
+		// records without a key or of an event topic are not coalesced and each keep a slot of their own
+		Object id = record.key() != null && !eventTopics.test(record.topic())
+				? new TopicKey(record.topic(), record.key())
+				: new Object();
+		records.remove(id);
+		records.put(id, record);
+		if (records.size() > maxRecords) {
+			Iterator<PublishCycle.PendingRecord> oldest = records.values().iterator();
+			oldest.next();
+			oldest.remove();
+			dropped.increment();
+			onDrop.run();
+		}
+	}
+
+	/**
+	 * Removes and returns every queued record, oldest first.
+	 */
+	synchronized List<PublishCycle.PendingRecord> drain() {
+		List<PublishCycle.PendingRecord> drained = new ArrayList<>(records.values());
+		records.clear();
+		return drained;
+	}
+
+	synchronized int size() {
+		return records.size();
+	}
+
+	private record TopicKey(String topic, String key) {
+	}
+}
@@ -0,0 +1,38 @@
+package dev.chef.crm_backend.publish;
+
+import java.util.Set;
+
+import org.springframework.kafka.core.ProducerFactory;
+
+/**
+ * Topics whose poll cycles are published in Kafka transactions, and how.
+ *
+ * @param producerFactory factory of transactional producers
+ * @param topics main topics of the cycles to publish transactionally
+ * @param recordsPerTransaction records per transaction; 0 for one transaction per cycle
+ */
+public record TransactionalDelivery(ProducerFactory<String, Object> producerFactory, Set<String> topics,
+		int recordsPerTransaction) {
+
+	public static final TransactionalDelivery NONE = new TransactionalDelivery(null, Set.of(), 0);
+
+	public boolean covers(String topic) {
+		return topics.contains(topic);
+	}
+
+	/**
+	 * Sender for a single cycle; senders hold the cycle's open transaction and are not shared.
+	 */
+	public RecordSender openSender() {
+		return new TransactionalSender(producerFactory, recordsPerTransaction);
+	}
+
+	/**
+	 * Closes the cached transactional producers.
+	 */
+	public void close() {
+		if (producerFactory != null) {
+			producerFactory.reset();
+		}
+	}
+}
@@ -0,0 +1,127 @@
+package dev.chef.crm_backend.publish;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.kafka.core.ProducerFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link RecordSender} of one cycle that writes its records inside Kafka transactions.
+ * <p>
+ * A transaction is opened on the first send and committed on {@link #flush()}, or as soon
+ * as it holds {@code recordsPerTransaction} records when that is positive; {@link #abort()}
+ * discards it instead. Every send
+ * returns the future of its transaction: it completes on commit and fails if the commit
+ * fails, in which case the transaction is aborted and the cycle re-queues all its records.
+ * Consumers reading {@code read_committed} therefore never see part of a transaction.
+ * <p>
+ * Send errors are not reported per record; the producer fails the commit instead.
+ */
+public class TransactionalSender implements RecordSender {
+
+	private static final Logger log = LoggerFactory.getLogger(TransactionalSender.class);
+
+	private final ProducerFactory<String, Object> producerFactory;
+	private final int recordsPerTransaction;
+
+	private Producer<String, Object> producer;
+	private CompletableFuture<Void> committed;
+	private int records;
+
+	/**
+	 * @param producerFactory a factory configured with a transaction id prefix
+	 * @param recordsPerTransaction records after which a transaction is committed; 0 keeps one
+	 *        transaction for the whole cycle
+	 */
+	public TransactionalSender(ProducerFactory<String, Object> producerFactory, int recordsPerTransaction) {
+		this.producerFactory = producerFactory;
+		this.recordsPerTransaction = recordsPerTransaction;
+	}
+
+	@Override
+	public synchronized CompletableFuture<?> send(String topic, String key, Object value, RecordMetadata metadata) {
+		if (producer == null) {
+			begin();
+		}
+		CompletableFuture<Void> transaction = committed;
+		producer.send(new ProducerRecord<>(topic, null, key, value, metadata != null ? metadata.toHeaders() : null));
+		if (++records == recordsPerTransaction) {
+			commit();
+		}
+		return transaction;
+	}
+
+	/**
+	 * Commits the open transaction, if any.
+	 */
+	@Override
+	public synchronized void flush() {
+		if (producer != null) {
+			commit();
+		}
+	}
+
+	/**
+	 * Aborts the open transaction, if any, failing the futures of its records.
+	 */
+	@Override
+	public synchronized void abort() {
+		if (producer == null) {
+			return;
+		}
+		Producer<String, Object> current = producer;
+		CompletableFuture<Void> transaction = committed;
+		producer = null;
+		committed = null;
+		log.info("Aborting a transaction with {} record(s) of a failed cycle", records);
+		try {
+			abort(current);
+			transaction.completeExceptionally(new IllegalStateException("Transaction aborted, the cycle failed"));
+		} finally {
+			current.close();
+		}
+	}
+
+	private void begin() {
+		Producer<String, Object> created = producerFactory.createProducer();
+		try {
+			created.beginTransaction();
+		} catch (RuntimeException e) {
+			created.close();
+			throw e;
+		}
+		producer = created;
+		committed = new CompletableFuture<>();
+		records = 0;
+	}
+
+	private void commit() {
+		Producer<String, Object> current = producer;
+		CompletableFuture<Void> transaction = committed;
+		producer = null;
+		committed = null;
+		try {
+			current.commitTransaction();
+			transaction.complete(null);
+		} catch (RuntimeException e) {
+			log.warn("Commit of a transaction with {} record(s) failed, aborting it: {}", records, e.getMessage());
+			abort(current);
+			transaction.completeExceptionally(e);
+		} finally {
+			// returns the producer to the factory's cache, or discards it after a fatal error
+			current.close();
+		}
+	}
+
+	private static void abort(Producer<String, Object> producer) {
+		try {
+			producer.abortTransaction();
+		} catch (RuntimeException e) {
+			log.debug("Abort failed, the producer is discarded: {}", e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,199 @@
+package dev.chef.crm_backend.push;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import dev.chef.crm_backend.coordination.SourceOwnership;
+import dev.chef.crm_backend.metrics.PipelineMetrics;
+import dev.chef.crm_backend.producer.ChangeSet;
+import dev.chef.crm_backend.producer.ExternalDataProducer;
+import dev.chef.crm_backend.publish.CycleResult;
+import dev.chef.crm_backend.resilience.CircuitBreaker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects the change notifications of one source and applies them to its producer in
+ * micro-batches.
+ * <p>
+ * A batch opens with the first notification after the previous batch was taken and closes
+ * after {@code window} or once it holds {@code maxBatchSize} ids, so a burst of notifications
+ * costs one publish cycle instead of one per record. Notifications for the same id collapse
+ * into the latest: a pushed record replaces a pending fetch of its id, and an id-only
+ * notification replaces an earlier pushed record, which may already be outdated.
+ * <p>
+ * Batches are applied one at a time on the batcher's virtual thread, and notifications that
+ * arrive meanwhile wait for the next batch, up to {@code maxPending} ids. A batch is dropped
+ * where this instance does not own the source or the source's circuit is open, and a failed
+ * batch is not retried: the regular poll reconciles whatever a dropped batch missed.
+ */
+class ChangeBatcher {
+
+	private static final Logger log = LoggerFactory.getLogger(ChangeBatcher.class);
+
+	private final ExternalDataProducer producer;
+	private final Duration window;
+	private final int maxBatchSize;
+	private final int maxPending;
+	private final SourceOwnership ownership;
+	private final CircuitBreaker circuitBreaker;
+	private final PipelineMetrics metrics;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition offered = lock.newCondition();
+	// id -> pushed record, or null to fetch the id
+	private final Map<String, JsonNode> pending = new LinkedHashMap<>();
+	private volatile boolean stopped;
+	private Thread worker;
+
+	ChangeBatcher(ExternalDataProducer producer, Duration window, int maxBatchSize, int maxPending,
+			SourceOwnership ownership, CircuitBreaker circuitBreaker, PipelineMetrics metrics) {
+		this.producer = producer;
+		this.window = window;
+		this.maxBatchSize = maxBatchSize;
+		this.maxPending = maxPending;
+		this.ownership = ownership;
+		this.circuitBreaker = circuitBreaker;
+		this.metrics = metrics;
+	}
+
+	void start() {
+		stopped = false;
+		worker = Thread.ofVirtual().name("push-" + producer.getSourceKey()).start(this::run);
+	}
+
+	void stop() {
+		stopped = true;
+		if (worker != null) {
+			worker.interrupt();
+		}
+	}
+
+	ExternalDataProducer getProducer() {
+		return producer;
+	}
+
+	int maxPending() {
+		return maxPending;
+	}
+
+	Duration window() {
+		return window;
+	}
+
+	/**
+	 * Queues one notification.
+	 *
+	 * @param records pushed records by id
+	 * @return {@code false}, queueing nothing, if it would exceed {@code maxPending} ids
+	 */
+	boolean offer(List<String> ids, Map<String, JsonNode> records) {
+		lock.lock();
+		try {
+			if (pending.size() + ids.size() + records.size() > maxPending) {
+				return false;
+			}
+			for (String id : ids) {
+				pending.put(id, null);
+			}
+			pending.putAll(records);
+			offered.signalAll();
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	int pending() {
+		lock.lock();
+		try {
+			return pending.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Waits for the next batch: until a notification arrives, then until the window has
+	 * passed or {@code maxBatchSize} ids are pending.
+	 */
+	ChangeSet take() throws InterruptedException {
+		lock.lock();
+		try {
+			while (pending.isEmpty()) {
+				offered.await();
+			}
+			long deadline = System.nanoTime() + window.toNanos();
+			long remaining;
+			while (pending.size() < maxBatchSize && (remaining = deadline - System.nanoTime()) > 0) {
+				offered.awaitNanos(remaining);
+			}
+			List<String> ids = new ArrayList<>();
+			List<JsonNode> records = new ArrayList<>();
+			Iterator<Map.Entry<String, JsonNode>> it = pending.entrySet().iterator();
+			while (it.hasNext() && ids.size() + records.size() < maxBatchSize) {
+				Map.Entry<String, JsonNode> entry = it.next();
+				if (entry.getValue() != null) {
+					records.add(entry.getValue());
+				} else {
+					ids.add(entry.getKey());
+				}
+				it.remove();
+			}
+			return new ChangeSet(ids, records);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	void apply(ChangeSet batch) {
+		String source = producer.getSourceName();
+		if (!ownership.owns(source)) {
+			log.debug("Dropping {} change notification(s) for {}, the source is assigned to another instance",
+					batch.size(), source);
+			metrics.recordPushDropped(source, batch.size());
+			return;
+		}
+		if (circuitBreaker.state() == CircuitBreaker.State.OPEN) {
+			log.debug("Circuit for {} is open, dropping {} change notification(s)", source, batch.size());
+			metrics.recordPushDropped(source, batch.size());
+			return;
+		}
+		long start = System.nanoTime();
+		CycleResult result = null;
+		try {
+			result = producer.applyChanges(batch);
+		} catch (RuntimeException e) {
+			log.warn("Applying {} change notification(s) for {} failed, leaving them to the next poll: {}",
+					batch.size(), source, e.getMessage());
+			metrics.recordPushDropped(source, batch.size());
+		} finally {
+			metrics.recordPushBatch(source, Duration.ofNanos(System.nanoTime() - start), batch.size(), result);
+		}
+	}
+
+	private void run() {
+		while (!stopped) {
+			ChangeSet batch;
+			try {
+				batch = take();
+			} catch (InterruptedException e) {
+				break;
+			}
+			apply(batch);
+		}
+		int dropped = pending();
+		if (dropped > 0) {
+			log.info("Stopped with {} change notification(s) for {} pending, leaving them to the next poll",
+					dropped, producer.getSourceName());
+		}
+	}
+}
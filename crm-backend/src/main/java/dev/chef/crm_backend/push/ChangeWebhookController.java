@@ -0,0 +1,115 @@
+package dev.chef.crm_backend.push;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+/**
+ * Webhook the upstreams call when records change, so they are published without waiting for
+ * the next poll.
+ * <p>
+ * {@code POST /webhooks/{source-key}} (e.g. {@code /webhooks/crm}) takes
+ * {@code {"ids": [...], "records": [...]}}: ids are fetched from the upstream by id, records
+ * (objects with an {@code id}) are published as they are. Ids are limited to
+ * {@code [A-Za-z0-9._~-]} and must not consist of dots only ({@code .}, {@code ..} would be
+ * dot-segments), as they become part of the fetch URL. The notification is queued
+ * for the source's {@link ChangeBatcher} and answered with 202 before it is applied; 503 with
+ * a {@code Retry-After} means the batcher is full. With {@code integration.push.token} set,
+ * requests must carry it as {@code Authorization: Bearer <token>}.
+ * <p>
+ * The body is parsed with the same Jackson as the upstream responses rather than the MVC
+ * message converters, so pushed and fetched records decode alike.
+ */
+@RestController
+@ConditionalOnProperty(name = "integration.push.enabled", havingValue = "true")
+public class ChangeWebhookController {
+
+	private static final Pattern ID = Pattern.compile("(?!\\.+$)[A-Za-z0-9._~-]{1,128}");
+
+	private final PushIngestion ingestion;
+	private final byte[] token;
+	private final ObjectMapper objectMapper = JsonMapper.builder().build();
+
+	public ChangeWebhookController(PushIngestion ingestion, @Value("${integration.push.token:}") String token) {
+		this.ingestion = ingestion;
+		this.token = token.isEmpty() ? null : ("Bearer " + token).getBytes(StandardCharsets.UTF_8);
+	}
+
+	@PostMapping(path = "/webhooks/{source}", consumes = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<Map<String, Object>> notifyChanges(@PathVariable String source,
+			@RequestHeader(name = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+			@RequestBody byte[] body) {
+		if (token != null && (authorization == null
+				|| !MessageDigest.isEqual(token, authorization.getBytes(StandardCharsets.UTF_8)))) {
+			return error(HttpStatus.UNAUTHORIZED, "Missing or wrong bearer token");
+		}
+		ChangeBatcher batcher = ingestion.batcher(source);
+		if (batcher == null) {
+			return error(HttpStatus.NOT_FOUND, "Unknown source " + source);
+		}
+		JsonNode root;
+		try {
+			root = objectMapper.readTree(body);
+		} catch (IOException e) {
+			return error(HttpStatus.BAD_REQUEST, "Body is not valid JSON");
+		}
+		if (root == null || !root.isObject() || root.has("ids") && !root.get("ids").isArray()
+				|| root.has("records") && !root.get("records").isArray()) {
+			return error(HttpStatus.BAD_REQUEST, "Expected an object with an ids and/or a records array");
+		}
+		List<String> ids = new ArrayList<>();
+		for (JsonNode id : elements(root, "ids")) {
+			if (!id.isValueNode() || !ID.matcher(id.asText()).matches()) {
+				return error(HttpStatus.BAD_REQUEST, "Invalid id " + id);
+			}
+			ids.add(id.asText());
+		}
+		Map<String, JsonNode> records = new LinkedHashMap<>();
+		for (JsonNode record : elements(root, "records")) {
+			JsonNode id = record.path("id");
+			if (!record.isObject() || !id.isValueNode() || !ID.matcher(id.asText()).matches()) {
+				return error(HttpStatus.BAD_REQUEST, "Record without a valid id");
+			}
+			records.put(id.asText(), record);
+		}
+		int notified = ids.size() + records.size();
+		if (notified > batcher.maxPending()) {
+			return error(HttpStatus.CONTENT_TOO_LARGE, "More than " + batcher.maxPending() + " ids in one notification");
+		}
+		if (!batcher.offer(ids, records)) {
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+					.header(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, batcher.window().toSeconds())))
+					.body(Map.of("error", "Too many pending change notifications for " + source));
+		}
+		return ResponseEntity.accepted().body(Map.of("accepted", notified));
+	}
+
+	private static Iterable<JsonNode> elements(JsonNode root, String field) {
+		return root.has(field) ? root.get(field) : List.of();
+	}
+
+	private static ResponseEntity<Map<String, Object>> error(HttpStatus status, String message) {
+		return ResponseEntity.status(status).body(Map.of("error", message));
+	}
+}
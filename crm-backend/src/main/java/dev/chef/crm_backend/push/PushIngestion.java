@@ -0,0 +1,94 @@
+package dev.chef.crm_backend.push;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import dev.chef.crm_backend.coordination.SourceOwnership;
+import dev.chef.crm_backend.metrics.PipelineMetrics;
+import dev.chef.crm_backend.producer.ExternalDataProducer;
+import dev.chef.crm_backend.resilience.CircuitBreakerRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Applies upstream change notifications between polls, with one {@link ChangeBatcher} per
+ * producer.
+ * <p>
+ * The batching settings are {@code integration.push.batch-window-ms},
+ * {@code max-batch-size} and {@code max-pending}, each overridable per source with
+ * {@code integration.<source-key>.push.*}. While push ingestion is enabled the producers
+ * poll every {@code integration.push.reconciliation-interval-ms} unless a source sets its own
+ * {@code poll-interval-ms}, as the polls only have to catch what notifications missed.
+ */
+@Component
+@ConditionalOnProperty(name = "integration.push.enabled", havingValue = "true")
+public class PushIngestion implements SmartLifecycle {
+
+	private static final Logger log = LoggerFactory.getLogger(PushIngestion.class);
+
+	private final Map<String, ChangeBatcher> batchers;
+	private volatile boolean running;
+
+	public PushIngestion(List<ExternalDataProducer> producers, Environment environment, SourceOwnership ownership,
+			CircuitBreakerRegistry circuitBreakers, PipelineMetrics metrics) {
+		this.batchers = producers.stream()
+				.map(p -> {
+					String key = p.getSourceKey();
+					ChangeBatcher batcher = new ChangeBatcher(p,
+							Duration.ofMillis(sourceProperty(environment, key, "batch-window-ms", Long.class, 200L)),
+							sourceProperty(environment, key, "max-batch-size", Integer.class, 500),
+							sourceProperty(environment, key, "max-pending", Integer.class, 10000),
+							ownership, circuitBreakers.forSource(p.getSourceName()), metrics);
+					metrics.gauge("crm.push.pending", "Change notifications waiting for the next batch",
+							p.getSourceName(), batcher, ChangeBatcher::pending);
+					return batcher;
+				})
+				.collect(Collectors.toUnmodifiableMap(b -> b.getProducer().getSourceKey(), Function.identity()));
+	}
+
+	/**
+	 * The batcher of the source with {@code sourceKey}, or {@code null} if there is none.
+	 */
+	ChangeBatcher batcher(String sourceKey) {
+		return batchers.get(sourceKey);
+	}
+
+	/**
+	 * {@code integration.<source-key>.push.<name>}, falling back to {@code integration.push.<name>}.
+	 */
+	private static <T> T sourceProperty(Environment environment, String sourceKey, String name, Class<T> type,
+			T defaultValue) {
+		T global = environment.getProperty("integration.push." + name, type, defaultValue);
+		return environment.getProperty("integration." + sourceKey + ".push." + name, type, global);
+	}
+
+	@Override
+	public void start() {
+		batchers.values().forEach(batcher -> {
+			log.info("Accepting change notifications for {} at /webhooks/{}, batched every {} ms",
+					batcher.getProducer().getSourceName(), batcher.getProducer().getSourceKey(),
+					batcher.window().toMillis());
+			batcher.start();
+		});
+		running = true;
+	}
+
+	@Override
+	public void stop() {
+		running = false;
+		batchers.values().forEach(ChangeBatcher::stop);
+	}
+
+	@Override
+	public boolean isRunning() {
+		return running;
+	}
+}
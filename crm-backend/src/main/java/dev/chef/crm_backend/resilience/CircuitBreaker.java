@@ -0,0 +1,77 @@
+package dev.chef.crm_backend.resilience;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Consecutive-failure circuit breaker guarding one upstream source.
+ * <p>
+ * After {@code failureThreshold} failures in a row the circuit opens and
+ * {@link #tryAcquire()} rejects calls for {@code openDuration}. The first call after that
+ * is let through as a probe (half-open): success closes the circuit, failure opens it again.
+ * Other calls are rejected until the probe has settled, so a recovering upstream is not hit
+ * by several callers at once.
+ */
+public class CircuitBreaker {
+
+	public enum State {
+		CLOSED, HALF_OPEN, OPEN
+	}
+
+	private final int failureThreshold;
+	private final long openNanos;
+	private final LongSupplier nanoClock;
+
+	private State state = State.CLOSED;
+	private int consecutiveFailures;
+	private long openedAt;
+	private boolean probing;
+
+	public CircuitBreaker(int failureThreshold, Duration openDuration) {
+		this(failureThreshold, openDuration, System::nanoTime);
+	}
+
+	CircuitBreaker(int failureThreshold, Duration openDuration, LongSupplier nanoClock) {
+		this.failureThreshold = failureThreshold;
+		this.openNanos = openDuration.toNanos();
+		this.nanoClock = nanoClock;
+	}
+
+	/**
+	 * Whether a call may go to the upstream now; moves an expired open circuit to half-open.
+	 */
+	public synchronized boolean tryAcquire() {
+		if (state == State.OPEN) {
+			if (nanoClock.getAsLong() - openedAt < openNanos) {
+				return false;
+			}
+			state = State.HALF_OPEN;
+		}
+		if (state == State.HALF_OPEN) {
+			if (probing) {
+				return false;
+			}
+			probing = true;
+		}
+		return true;
+	}
+
+	public synchronized void onSuccess() {
+		consecutiveFailures = 0;
+		state = State.CLOSED;
+		probing = false;
+	}
+
+	public synchronized void onFailure() {
+		consecutiveFailures++;
+		if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+			state = State.OPEN;
+			openedAt = nanoClock.getAsLong();
+		}
+		probing = false;
+	}
+
+	public synchronized State state() {
+		return state;
+	}
+}
@@ -0,0 +1,40 @@
+package dev.chef.crm_backend.resilience;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import dev.chef.crm_backend.metrics.PipelineMetrics;
+
+/**
+ * One {@link CircuitBreaker} per source, each exposed as a {@code crm.circuit.state} gauge
+ * (0 = closed, 1 = half-open, 2 = open).
+ */
+@Component
+public class CircuitBreakerRegistry {
+
+	private final PipelineMetrics metrics;
+	private final int failureThreshold;
+	private final Duration openDuration;
+	private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+	public CircuitBreakerRegistry(PipelineMetrics metrics,
+			@Value("${integration.producers.circuit-breaker.failure-threshold:5}") int failureThreshold,
+			@Value("${integration.producers.circuit-breaker.open-duration-ms:60000}") long openDurationMs) {
+		this.metrics = metrics;
+		this.failureThreshold = failureThreshold;
+		this.openDuration = Duration.ofMillis(openDurationMs);
+	}
+
+	public CircuitBreaker forSource(String source) {
+		return breakers.computeIfAbsent(source, s -> {
+			CircuitBreaker breaker = new CircuitBreaker(failureThreshold, openDuration);
+			metrics.gauge("crm.circuit.state", "Upstream circuit breaker state (0 closed, 1 half-open, 2 open)",
+					s, breaker, b -> b.state().ordinal());
+			return breaker;
+		});
+	}
+}
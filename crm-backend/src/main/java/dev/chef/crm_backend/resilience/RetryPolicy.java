@@ -0,0 +1,98 @@
+package dev.chef.crm_backend.resilience;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Backoff and retry budget for failed producer cycles.
+ * <p>
+ * Retries are not run in place: the failing cycle ends and the lane schedules a new attempt
+ * after {@link #backoff(int)}, an exponential delay with equal jitter so sources that failed
+ * together do not retry in lockstep. Every attempt deposits {@code budgetRatio} tokens into a
+ * budget shared by all sources and every retry withdraws one, which caps retries at that
+ * share of the overall load (plus a burst of {@code budgetMaxTokens}) when an upstream
+ * outage makes everything fail at once.
+ */
+@Component
+public class RetryPolicy implements MeterBinder {
+
+	private final int maxAttempts;
+	private final long initialBackoffMs;
+	private final double multiplier;
+	private final long maxBackoffMs;
+	private final double budgetRatio;
+	private final double budgetMaxTokens;
+	private double budgetTokens;
+
+	public RetryPolicy(
+			@Value("${integration.producers.retry.max-attempts:4}") int maxAttempts,
+			@Value("${integration.producers.retry.initial-backoff-ms:1000}") long initialBackoffMs,
+			@Value("${integration.producers.retry.multiplier:2.0}") double multiplier,
+			@Value("${integration.producers.retry.max-backoff-ms:30000}") long maxBackoffMs,
+			@Value("${integration.producers.retry.budget-ratio:0.2}") double budgetRatio,
+			@Value("${integration.producers.retry.budget-max-tokens:10}") double budgetMaxTokens) {
+		this.maxAttempts = maxAttempts;
+		this.initialBackoffMs = initialBackoffMs;
+		this.multiplier = multiplier;
+		this.maxBackoffMs = maxBackoffMs;
+		this.budgetRatio = budgetRatio;
+		this.budgetMaxTokens = budgetMaxTokens;
+		this.budgetTokens = budgetMaxTokens;
+	}
+
+	/**
+	 * Total attempts per poll, including the first one.
+	 */
+	public int maxAttempts() {
+		return maxAttempts;
+	}
+
+	/**
+	 * Delay before retry number {@code retry} (1-based): half the capped exponential delay
+	 * plus a random share of the other half.
+	 */
+	public Duration backoff(int retry) {
+		double exponential = initialBackoffMs * Math.pow(multiplier, retry - 1);
+		long cap = (long) Math.min(maxBackoffMs, exponential);
+		long half = cap / 2;
+		return Duration.ofMillis(half + ThreadLocalRandom.current().nextLong(cap - half + 1));
+	}
+
+	/**
+	 * Credits the budget for one attempt sent to an upstream.
+	 */
+	public synchronized void onAttempt() {
+		budgetTokens = Math.min(budgetMaxTokens, budgetTokens + budgetRatio);
+	}
+
+	/**
+	 * Takes one retry from the budget.
+	 *
+	 * @return {@code false} if the budget is exhausted and the retry must be skipped
+	 */
+	public synchronized boolean tryAcquireRetry() {
+		if (budgetTokens < 1.0) {
+			return false;
+		}
+		budgetTokens -= 1.0;
+		return true;
+	}
+
+	public synchronized double budgetTokens() {
+		return budgetTokens;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("crm.retry.budget.tokens", this, RetryPolicy::budgetTokens)
+				.description("Retries currently available in the shared retry budget")
+				.register(registry);
+	}
+}
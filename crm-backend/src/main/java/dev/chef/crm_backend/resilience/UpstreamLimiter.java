@@ -0,0 +1,328 @@
+package dev.chef.crm_backend.resilience;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.client.RestClientException;
+
+/**
+ * Admission control for the requests to one upstream API: a token bucket capping the
+ * request rate, combined with a concurrency limit that adapts to the upstream's latency.
+ * <p>
+ * The concurrency limit follows AIMD. While responses arrive within {@code latencyTolerance}
+ * times the baseline latency (the lowest seen over the last {@code baselineWindow}) and the
+ * limit is at least half used, each response raises it by one. A slower response, a 5xx or a
+ * failed request multiplies it by {@code backoffRatio}, at most once per round trip: only
+ * requests started after the last decrease can trigger the next one. Latency is measured up
+ * to the response headers, so it reflects how busy the upstream is rather than how fast the
+ * body is consumed.
+ * <p>
+ * A 429 or 503 also pauses the upstream until its {@code Retry-After} (seconds or HTTP date,
+ * {@code defaultRetryAfter} without one). Callers wait for a token, a free slot and the end of
+ * a pause for at most {@code maxWait}, then fail like an unreachable upstream.
+ */
+public class UpstreamLimiter {
+
+	/** Limiter that admits every request at once. */
+	public static final UpstreamLimiter UNLIMITED = new UpstreamLimiter(
+			new Settings(0, 1, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, 1.0, Double.MAX_VALUE,
+					Duration.ofDays(1), Duration.ZERO, Duration.ZERO));
+
+	/**
+	 * @param requestsPerSecond token refill rate; 0 for no rate limit
+	 * @param burst bucket size, the requests that may start at once after an idle period
+	 * @param initialConcurrency concurrency limit to start from
+	 * @param minConcurrency floor of the concurrency limit
+	 * @param maxConcurrency ceiling of the concurrency limit
+	 * @param backoffRatio factor applied to the limit on overload
+	 * @param latencyTolerance latency, relative to the baseline, above which the upstream counts as overloaded
+	 * @param baselineWindow how long the lowest latency seen stays the baseline
+	 * @param defaultRetryAfter pause after a 429 or 503 without {@code Retry-After}
+	 * @param maxWait longest a request waits to start
+	 */
+	public record Settings(double requestsPerSecond, int burst, int initialConcurrency, int minConcurrency,
+			int maxConcurrency, double backoffRatio, double latencyTolerance, Duration baselineWindow,
+			Duration defaultRetryAfter, Duration maxWait) {
+	}
+
+	private final Settings settings;
+	private final LongSupplier nanoClock;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition released = lock.newCondition();
+	private final AtomicLong throttled = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+
+	private double tokens;
+	private long refilledAt;
+	private double limit;
+	private int inFlight;
+	private long pausedUntil;
+	private long lastDecrease;
+	private long baselineNanos = Long.MAX_VALUE;
+	private long windowMinNanos = Long.MAX_VALUE;
+	private long windowStart;
+
+	public UpstreamLimiter(Settings settings) {
+		this(settings, System::nanoTime);
+	}
+
+	UpstreamLimiter(Settings settings, LongSupplier nanoClock) {
+		if (settings.minConcurrency() < 1 || settings.maxConcurrency() < settings.minConcurrency()
+				|| settings.burst() < 1 || settings.backoffRatio() <= 0 || settings.backoffRatio() > 1) {
+			throw new IllegalArgumentException("Invalid upstream limiter settings: " + settings);
+		}
+		this.settings = settings;
+		this.nanoClock = nanoClock;
+		long now = nanoClock.getAsLong();
+		this.tokens = settings.burst();
+		this.refilledAt = now;
+		this.limit = Math.clamp(settings.initialConcurrency(), settings.minConcurrency(), settings.maxConcurrency());
+		this.pausedUntil = now;
+		this.lastDecrease = now;
+		this.windowStart = now;
+	}
+
+	/**
+	 * Waits until a request may start.
+	 *
+	 * @throws RestClientException if it could not start within {@code maxWait}
+	 */
+	public Permit acquire() {
+		if (this == UNLIMITED) {
+			return new Permit(0);
+		}
+		lock.lock();
+		try {
+			long deadline = nanoClock.getAsLong() + settings.maxWait().toNanos();
+			while (true) {
+				long now = nanoClock.getAsLong();
+				long wait = waitNanos(now);
+				if (wait == 0) {
+					return take(now);
+				}
+				long remaining = deadline - now;
+				if (remaining <= 0) {
+					rejected.incrementAndGet();
+					throw new RestClientException("Upstream request could not start within "
+							+ settings.maxWait().toMillis() + " ms (" + (pausedUntil - now > 0 ? "throttled by upstream"
+									: inFlight >= limit() ? inFlight + " request(s) in flight" : "rate limited") + ")");
+				}
+				released.awaitNanos(Math.min(wait, remaining));
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RestClientException("Interrupted while waiting to call the upstream", e);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Takes a permit if a request may start right away.
+	 *
+	 * @return the permit, or {@code null}
+	 */
+	public Permit tryAcquire() {
+		if (this == UNLIMITED) {
+			return new Permit(0);
+		}
+		lock.lock();
+		try {
+			long now = nanoClock.getAsLong();
+			return waitNanos(now) == 0 ? take(now) : null;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Current concurrency limit.
+	 */
+	public int limit() {
+		lock.lock();
+		try {
+			return (int) limit;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int inFlight() {
+		lock.lock();
+		try {
+			return inFlight;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 429 and 503 responses received.
+	 */
+	public long throttled() {
+		return throttled.get();
+	}
+
+	/**
+	 * Requests that gave up waiting to start.
+	 */
+	public long rejected() {
+		return rejected.get();
+	}
+
+	/**
+	 * Nanoseconds until a request may start, 0 if now, {@link Long#MAX_VALUE} if only a
+	 * released permit can free a slot.
+	 */
+	private long waitNanos(long now) {
+		if (pausedUntil - now > 0) {
+			return pausedUntil - now;
+		}
+		if (inFlight >= (int) limit) {
+			return Long.MAX_VALUE;
+		}
+		if (settings.requestsPerSecond() <= 0) {
+			return 0;
+		}
+		tokens = Math.min(settings.burst(), tokens + (now - refilledAt) * settings.requestsPerSecond() / 1e9);
+		refilledAt = now;
+		if (tokens >= 1) {
+			return 0;
+		}
+		return Math.max(1, (long) Math.ceil((1 - tokens) / settings.requestsPerSecond() * 1e9));
+	}
+
+	private Permit take(long now) {
+		if (settings.requestsPerSecond() > 0) {
+			tokens -= 1;
+		}
+		inFlight++;
+		return new Permit(now);
+	}
+
+	private void release() {
+		lock.lock();
+		try {
+			inFlight--;
+			released.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void onLatency(long started, long latencyNanos) {
+		lock.lock();
+		try {
+			long now = nanoClock.getAsLong();
+			if (now - windowStart > settings.baselineWindow().toNanos()) {
+				baselineNanos = windowMinNanos;
+				windowMinNanos = Long.MAX_VALUE;
+				windowStart = now;
+			}
+			windowMinNanos = Math.min(windowMinNanos, latencyNanos);
+			long baseline = Math.min(baselineNanos, windowMinNanos);
+			if (latencyNanos > baseline * settings.latencyTolerance()) {
+				decrease(started, now);
+			} else if (inFlight * 2 >= (int) limit) {
+				limit = Math.min(settings.maxConcurrency(), limit + 1);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void onOverload(long started, Duration pause) {
+		lock.lock();
+		try {
+			long now = nanoClock.getAsLong();
+			decrease(started, now);
+			long until = now + pause.toNanos();
+			if (until - pausedUntil > 0) {
+				pausedUntil = until;
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void decrease(long started, long now) {
+		// responses to requests sent before the last decrease already saw the old limit
+		if (started - lastDecrease < 0) {
+			return;
+		}
+		limit = Math.max(settings.minConcurrency(), limit * settings.backoffRatio());
+		lastDecrease = now;
+	}
+
+	private Duration retryAfter(HttpHeaders headers) {
+		String value = headers != null ? headers.getFirst(HttpHeaders.RETRY_AFTER) : null;
+		if (value == null || value.isBlank()) {
+			return settings.defaultRetryAfter();
+		}
+		try {
+			return Duration.ofSeconds(Math.max(0, Long.parseLong(value.trim())));
+		} catch (NumberFormatException e) {
+			try {
+				Duration until = Duration.between(ZonedDateTime.now(),
+						ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME));
+				return until.isNegative() ? Duration.ZERO : until;
+			} catch (DateTimeParseException unparseable) {
+				return settings.defaultRetryAfter();
+			}
+		}
+	}
+
+	/**
+	 * One admitted request; report its response with {@link #onResponse} and close it once
+	 * the body has been read. A permit closed without a response counts as a failed request.
+	 */
+	public final class Permit implements AutoCloseable {
+
+		private final long started;
+		private boolean responded;
+		private boolean closed;
+
+		private Permit(long started) {
+			this.started = started;
+		}
+
+		/**
+		 * Feeds the response status into the limits: 429 and 503 pause the upstream for their
+		 * {@code Retry-After}, other 5xx count as overload, anything else as a latency sample.
+		 */
+		public synchronized void onResponse(int status, HttpHeaders headers) {
+			if (responded || UpstreamLimiter.this == UNLIMITED) {
+				responded = true;
+				return;
+			}
+			responded = true;
+			if (status == 429 || status == 503) {
+				throttled.incrementAndGet();
+				onOverload(started, retryAfter(headers));
+			} else if (status >= 500) {
+				onOverload(started, Duration.ZERO);
+			} else {
+				onLatency(started, nanoClock.getAsLong() - started);
+			}
+		}
+
+		@Override
+		public synchronized void close() {
+			if (closed || UpstreamLimiter.this == UNLIMITED) {
+				return;
+			}
+			closed = true;
+			if (!responded) {
+				onOverload(started, Duration.ZERO);
+			}
+			release();
+		}
+	}
+}
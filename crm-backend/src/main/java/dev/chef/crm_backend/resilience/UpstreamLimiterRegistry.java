@@ -0,0 +1,122 @@
+package dev.chef.crm_backend.resilience;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * One {@link UpstreamLimiter} per upstream source, found by the request URL.
+ * <p>
+ * A request belongs to a source when its URL starts with {@code integration.<source-key>.base-url};
+ * requests to any other URL are not limited. The settings are
+ * {@code integration.producers.rate-limit.*}, each overridable per source with
+ * {@code integration.<source-key>.rate-limit.*}. Every limiter is exposed as
+ * {@code crm.upstream.limit}, {@code crm.upstream.inflight}, {@code crm.upstream.throttled}
+ * and {@code crm.upstream.rejected}, tagged with the source key.
+ */
+@Component
+public class UpstreamLimiterRegistry implements MeterBinder {
+
+	/** Registry that limits nothing. */
+	public static final UpstreamLimiterRegistry NONE = new UpstreamLimiterRegistry(Map.of());
+
+	private static final List<String> SOURCES = List.of("crm", "inventory");
+
+	private final Map<String, Upstream> upstreams;
+
+	@Autowired
+	public UpstreamLimiterRegistry(Environment environment) {
+		this(upstreams(environment));
+	}
+
+	private UpstreamLimiterRegistry(Map<String, Upstream> upstreams) {
+		this.upstreams = upstreams;
+	}
+
+	/**
+	 * Limiter for a request to {@code url}; {@link UpstreamLimiter#UNLIMITED} if it belongs to
+	 * no configured source.
+	 */
+	public UpstreamLimiter forUrl(String url) {
+		for (Upstream upstream : upstreams.values()) {
+			if (url.startsWith(upstream.baseUrl())) {
+				return upstream.limiter();
+			}
+		}
+		return UpstreamLimiter.UNLIMITED;
+	}
+
+	public UpstreamLimiter forSource(String sourceKey) {
+		Upstream upstream = upstreams.get(sourceKey);
+		return upstream != null ? upstream.limiter() : UpstreamLimiter.UNLIMITED;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		upstreams.forEach((source, upstream) -> {
+			UpstreamLimiter limiter = upstream.limiter();
+			Gauge.builder("crm.upstream.limit", limiter, UpstreamLimiter::limit)
+					.description("Current concurrency limit of requests to the upstream")
+					.tag("upstream", source)
+					.register(registry);
+			Gauge.builder("crm.upstream.inflight", limiter, UpstreamLimiter::inFlight)
+					.description("Requests to the upstream currently in flight")
+					.tag("upstream", source)
+					.register(registry);
+			FunctionCounter.builder("crm.upstream.throttled", limiter, UpstreamLimiter::throttled)
+					.description("429 and 503 responses from the upstream")
+					.tag("upstream", source)
+					.register(registry);
+			FunctionCounter.builder("crm.upstream.rejected", limiter, UpstreamLimiter::rejected)
+					.description("Requests that gave up waiting for the upstream limiter")
+					.tag("upstream", source)
+					.register(registry);
+		});
+	}
+
+	private static Map<String, Upstream> upstreams(Environment environment) {
+		Map<String, Upstream> upstreams = new LinkedHashMap<>();
+		for (String source : SOURCES) {
+			String baseUrl = environment.getProperty("integration." + source + ".base-url");
+			if (baseUrl == null || !sourceProperty(environment, source, "enabled", Boolean.class, true)) {
+				continue;
+			}
+			UpstreamLimiter.Settings settings = new UpstreamLimiter.Settings(
+					sourceProperty(environment, source, "requests-per-second", Double.class, 50.0),
+					sourceProperty(environment, source, "burst", Integer.class, 10),
+					sourceProperty(environment, source, "initial-concurrency", Integer.class, 4),
+					sourceProperty(environment, source, "min-concurrency", Integer.class, 1),
+					sourceProperty(environment, source, "max-concurrency", Integer.class, 32),
+					sourceProperty(environment, source, "backoff-ratio", Double.class, 0.9),
+					sourceProperty(environment, source, "latency-tolerance", Double.class, 2.0),
+					Duration.ofMillis(sourceProperty(environment, source, "baseline-window-ms", Long.class, 60000L)),
+					Duration.ofMillis(sourceProperty(environment, source, "default-retry-after-ms", Long.class, 1000L)),
+					Duration.ofMillis(sourceProperty(environment, source, "max-wait-ms", Long.class, 30000L)));
+			upstreams.put(source, new Upstream(baseUrl, new UpstreamLimiter(settings)));
+		}
+		return upstreams;
+	}
+
+	/**
+	 * {@code integration.<source-key>.rate-limit.<name>}, falling back to
+	 * {@code integration.producers.rate-limit.<name>}.
+	 */
+	private static <T> T sourceProperty(Environment environment, String sourceKey, String name, Class<T> type,
+			T defaultValue) {
+		T global = environment.getProperty("integration.producers.rate-limit." + name, type, defaultValue);
+		return environment.getProperty("integration." + sourceKey + ".rate-limit." + name, type, global);
+	}
+
+	private record Upstream(String baseUrl, UpstreamLimiter limiter) {
+	}
+}
@@ -0,0 +1,252 @@
+package dev.chef.crm_backend.serialization;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+import dev.chef.crm_backend.dto.CustomerData;
+import dev.chef.crm_backend.dto.InventoryItem;
+import dev.chef.crm_backend.dto.StockDelta;
+
+/**
+ * Compact, schema-versioned binary encoding for {@link CustomerData}, {@link InventoryItem}
+ * and {@link StockDelta}.
+ * <p>
+ * Wire format (all integers are unsigned LEB128 varints):
+ * <pre>
+ * byte    magic      0xC5
+ * byte    schema id  1 = CustomerData v1, 2 = InventoryItem v1, 3 = CustomerData v2,
+ *                    4 = StockDelta v1
+ * fields  in schema order
+ *
+ * string       varint n; n = 0 is null, otherwise n - 1 UTF-8 bytes follow
+ * nullable int varint n; n = 0 is null, otherwise zigzag(value) = n - 1
+ * json map     encoded as a string holding the map's JSON text (null when absent)
+ * string list  varint n; n = 0 is null, otherwise n - 1 strings follow
+ *
+ * CustomerData v1:  id string, name string, email string, additional json map
+ * InventoryItem v1: id string, name string, stock nullable int, additional json map
+ * CustomerData v2:  v1 fields, then productIds string list
+ * StockDelta v1:    id string, oldStock nullable int, newStock nullable int, delta nullable int,
+ *                   crossing varint (0 none, 1 low, 2 recovered)
+ * </pre>
+ * Customers are written as v2; v1 is still decoded, with {@code productIds} null.
+ * A reader must reject unknown schema ids rather than guess. The Python consumer's
+ * {@code consumers/codec.py} implements the same format.
+ */
+public final class CompactRecordCodec {
+
+	public static final byte MAGIC = (byte) 0xC5;
+	public static final int CUSTOMER_V1 = 1;
+	public static final int INVENTORY_V1 = 2;
+	public static final int CUSTOMER_V2 = 3;
+	public static final int STOCK_DELTA_V1 = 4;
+
+	private static final ObjectMapper JSON = JsonMapper.builder()
+			.enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+			.build();
+	private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {};
+
+	private CompactRecordCodec() {
+	}
+
+	public static boolean supports(Object value) {
+		return value instanceof CustomerData || value instanceof InventoryItem || value instanceof StockDelta;
+	}
+
+	public static boolean isCompact(byte[] data) {
+		return data != null && data.length >= 2 && data[0] == MAGIC;
+	}
+
+	public static byte[] encode(Object value) {
+		Writer out = new Writer();
+		out.buffer.write(MAGIC);
+		if (value instanceof CustomerData c) {
+			out.varint(CUSTOMER_V2);
+			out.string(c.id());
+			out.string(c.name());
+			out.string(c.email());
+			out.map(c.additional());
+			out.stringList(c.productIds());
+		} else if (value instanceof InventoryItem item) {
+			out.varint(INVENTORY_V1);
+			out.string(item.id());
+			out.string(item.name());
+			out.nullableInt(item.stock());
+			out.map(item.additional());
+		} else if (value instanceof StockDelta delta) {
+			out.varint(STOCK_DELTA_V1);
+			out.string(delta.id());
+			out.nullableInt(delta.oldStock());
+			out.nullableInt(delta.newStock());
+			out.nullableInt(delta.delta());
+			out.varint(delta.crossing().ordinal());
+		} else {
+			throw new IllegalArgumentException("No compact schema for " + value.getClass().getName());
+		}
+		return out.buffer.toByteArray();
+	}
+
+	public static Object decode(byte[] data) {
+		if (!isCompact(data)) {
+			throw new IllegalArgumentException("Not a compact record (missing magic byte)");
+		}
+		Reader in = new Reader(data, 1);
+		int schema = (int) in.varint();
+		return switch (schema) {
+			case CUSTOMER_V1 -> new CustomerData(in.string(), in.string(), in.string(), in.map());
+			case CUSTOMER_V2 -> new CustomerData(in.string(), in.string(), in.string(), in.map(), in.stringList());
+			case STOCK_DELTA_V1 -> new StockDelta(in.string(), in.nullableInt(), in.nullableInt(), in.nullableInt(),
+					in.crossing());
+			case INVENTORY_V1 -> new InventoryItem(in.string(), in.string(), in.nullableInt(), in.map());
+			default -> throw new IllegalArgumentException("Unknown compact schema id " + schema);
+		};
+	}
+
+	private static final class Writer {
+
+		private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(64);
+
+		void varint(long value) {
+			while ((value & ~0x7FL) != 0) {
+				buffer.write((int) ((value & 0x7F) | 0x80));
+				value >>>= 7;
+			}
+			buffer.write((int) value);
+		}
+
+		void string(String value) {
+			if (value == null) {
+				varint(0);
+				return;
+			}
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			varint(bytes.length + 1L);
+			buffer.writeBytes(bytes);
+		}
+
+		void nullableInt(Integer value) {
+			if (value == null) {
+				varint(0);
+				return;
+			}
+			long zigzag = ((long) value << 1) ^ ((long) value >> 63);
+			varint(zigzag + 1);
+		}
+
+		void stringList(List<String> value) {
+			if (value == null) {
+				varint(0);
+				return;
+			}
+			varint(value.size() + 1L);
+			value.forEach(this::string);
+		}
+
+		void map(Map<String, Object> value) {
+			try {
+				string(value == null ? null : JSON.writeValueAsString(value));
+			} catch (Exception e) {
+				throw new IllegalArgumentException("Cannot encode additional fields: " + e.getMessage(), e);
+			}
+		}
+	}
+
+	private static final class Reader {
+
+		private final byte[] data;
+		private int position;
+
+		Reader(byte[] data, int position) {
+			this.data = data;
+			this.position = position;
+		}
+
+		long varint() {
+			long result = 0;
+			int shift = 0;
+			while (true) {
+				if (position >= data.length) {
+					throw new IllegalArgumentException("Truncated compact record");
+				}
+				byte b = data[position++];
+				result |= (long) (b & 0x7F) << shift;
+				if ((b & 0x80) == 0) {
+					return result;
+				}
+				shift += 7;
+				if (shift > 63) {
+					throw new IllegalArgumentException("Malformed varint in compact record");
+				}
+			}
+		}
+
+		String string() {
+			long n = varint();
+			if (n == 0) {
+				return null;
+			}
+			int length = (int) (n - 1);
+			if (length > data.length - position) {
+				throw new IllegalArgumentException("Truncated compact record");
+			}
+			String value = new String(data, position, length, StandardCharsets.UTF_8);
+			position += length;
+			return value;
+		}
+
+		Integer nullableInt() {
+			long n = varint();
+			if (n == 0) {
+				return null;
+			}
+			long zigzag = n - 1;
+			return (int) ((zigzag >>> 1) ^ -(zigzag & 1));
+		}
+
+		StockDelta.Crossing crossing() {
+			long ordinal = varint();
+			StockDelta.Crossing[] values = StockDelta.Crossing.values();
+			if (ordinal >= values.length) {
+				throw new IllegalArgumentException("Unknown stock crossing " + ordinal);
+			}
+			return values[(int) ordinal];
+		}
+
+		List<String> stringList() {
+			long n = varint();
+			if (n == 0) {
+				return null;
+			}
+			int size = (int) (n - 1);
+			// every element takes at least one byte, which bounds the allocation for corrupt input
+			if (size > data.length - position) {
+				throw new IllegalArgumentException("Truncated compact record");
+			}
+			List<String> values = new ArrayList<>(size);
+			for (int i = 0; i < size; i++) {
+				values.add(string());
+			}
+			return values;
+		}
+
+		Map<String, Object> map() {
+			String json = string();
+			if (json == null) {
+				return null;
+			}
+			try {
+				return JSON.readValue(json, MAP_TYPE);
+			} catch (Exception e) {
+				throw new IllegalArgumentException("Cannot decode additional fields: " + e.getMessage(), e);
+			}
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package dev.chef.crm_backend.serialization;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+/**
+ * Kafka value serializer that picks the encoding per topic: records sent to a topic listed
+ * in {@link #COMPACT_TOPICS_CONFIG} are written with {@link CompactRecordCodec}, everything
+ * else (and any type without a compact schema) falls back to spring-kafka's JSON encoding.
+ * Values that are already {@code byte[]} (records drained from the outbox) pass through as is.
+ */
+public class TopicRoutingSerializer implements Serializer<Object> {
+
+	/** Comma-separated list of topics that use the compact binary encoding. */
+	public static final String COMPACT_TOPICS_CONFIG = "crm.serialization.compact.topics";
+
+	/** Header carrying the value encoding of compact records. */
+	public static final String ENCODING_HEADER = "crm_encoding";
+
+	private static final byte[] COMPACT_ENCODING = "compact".getBytes(StandardCharsets.US_ASCII);
+
+	@SuppressWarnings("removal")
+	private final JsonSerializer<Object> json = new JsonSerializer<>();
+	private Set<String> compactTopics = Set.of();
+
+	@Override
+	public void configure(Map<String, ?> configs, boolean isKey) {
+		json.configure(configs, isKey);
+		Object topics = configs.get(COMPACT_TOPICS_CONFIG);
+		if (topics != null && !topics.toString().isBlank()) {
+			compactTopics = Arrays.stream(topics.toString().split(","))
+					.map(String::trim)
+					.filter(t -> !t.isEmpty())
+					.collect(Collectors.toUnmodifiableSet());
+		}
+	}
+
+	@Override
+	public byte[] serialize(String topic, Object data) {
+		return serialize(topic, null, data);
+	}
+
+	@Override
+	public byte[] serialize(String topic, Headers headers, Object data) {
+		if (data == null) {
+			return null;
+		}
+		if (data instanceof byte[] bytes) {
+			return bytes;
+		}
+		if (compactTopics.contains(topic) && CompactRecordCodec.supports(data)) {
+			if (headers != null) {
+				headers.add(ENCODING_HEADER, COMPACT_ENCODING);
+			}
+			return CompactRecordCodec.encode(data);
+		}
+		return headers != null ? json.serialize(topic, headers, data) : json.serialize(topic, data);
+	}
+
+	@Override
+	public void close() {
+		json.close();
+	}
+}
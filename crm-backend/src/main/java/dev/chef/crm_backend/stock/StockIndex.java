@@ -0,0 +1,167 @@
+package dev.chef.crm_backend.stock;
+
+/**
+ * Open-addressing hash map from item id to stock level, storing stock and generation in
+ * primitive arrays so tracking a large catalogue boxes nothing per item.
+ * <p>
+ * Keys are probed linearly in a power-of-two table kept at most half full; removal uses
+ * backward-shift deletion, so no tombstone slots accumulate. Not thread-safe.
+ */
+public final class StockIndex {
+
+	/** Returned by {@link #put} and {@link #get} for ids not in the index. */
+	public static final long ABSENT = Long.MIN_VALUE;
+
+	private static final int MIN_CAPACITY = 16;
+
+	private String[] keys;
+	private int[] stocks;
+	private long[] generations;
+	private int size;
+	private int mask;
+
+	public StockIndex(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(MIN_CAPACITY, expectedSize * 2 - 1)) << 1;
+		allocate(capacity);
+	}
+
+	/**
+	 * Sets the stock of {@code id} and stamps it with {@code generation}.
+	 *
+	 * @return the previous stock, or {@link #ABSENT} if {@code id} was not indexed
+	 */
+	public long put(String id, int stock, long generation) {
+		int slot = slot(id);
+		if (keys[slot] != null) {
+			int previous = stocks[slot];
+			stocks[slot] = stock;
+			generations[slot] = generation;
+			return previous;
+		}
+		if ((size + 1) * 2 > keys.length) {
+			resize();
+			slot = slot(id);
+		}
+		keys[slot] = id;
+		stocks[slot] = stock;
+		generations[slot] = generation;
+		size++;
+		return ABSENT;
+	}
+
+	/**
+	 * Stamps {@code id} with {@code generation} without changing its stock.
+	 *
+	 * @return whether {@code id} is indexed
+	 */
+	public boolean touch(String id, long generation) {
+		int slot = slot(id);
+		if (keys[slot] == null) {
+			return false;
+		}
+		generations[slot] = generation;
+		return true;
+	}
+
+	/**
+	 * Returns the stock of {@code id}, or {@link #ABSENT}.
+	 */
+	public long get(String id) {
+		int slot = slot(id);
+		return keys[slot] != null ? stocks[slot] : ABSENT;
+	}
+
+	/**
+	 * Removes every id last stamped before {@code generation}, reporting each with its last stock.
+	 */
+	public void sweep(long generation, Removal removal) {
+		int slot = 0;
+		while (slot < keys.length) {
+			if (keys[slot] != null && generations[slot] < generation) {
+				String id = keys[slot];
+				int stock = stocks[slot];
+				delete(slot);
+				removal.removed(id, stock);
+				// the shift may have moved a not yet visited entry into this slot
+				continue;
+			}
+			slot++;
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public void clear() {
+		allocate(MIN_CAPACITY);
+	}
+
+	private int slot(String id) {
+		int slot = mix(id.hashCode()) & mask;
+		while (keys[slot] != null && !keys[slot].equals(id)) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void delete(int slot) {
+		int hole = slot;
+		int next = (hole + 1) & mask;
+		while (keys[next] != null) {
+			int home = mix(keys[next].hashCode()) & mask;
+			// move the entry back if its home slot is not within (hole, next] cyclically
+			if (((next - home) & mask) >= ((next - hole) & mask)) {
+				keys[hole] = keys[next];
+				stocks[hole] = stocks[next];
+				generations[hole] = generations[next];
+				hole = next;
+			}
+			next = (next + 1) & mask;
+		}
+		keys[hole] = null;
+		size--;
+	}
+
+	private void resize() {
+		String[] oldKeys = keys;
+		int[] oldStocks = stocks;
+		long[] oldGenerations = generations;
+		allocate(oldKeys.length * 2);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != null) {
+				int slot = slot(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				stocks[slot] = oldStocks[i];
+				generations[slot] = oldGenerations[i];
+				size++;
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+		keys = new String[capacity];
+		stocks = new int[capacity];
+		generations = new long[capacity];
+		mask = capacity - 1;
+		size = 0;
+	}
+
+	private static int mix(int hash) {
+		// murmur3 finalizer: String.hashCode of sequential ids clusters badly under linear probing
+		hash ^= hash >>> 16;
+		hash *= 0x85EBCA6B;
+		hash ^= hash >>> 13;
+		hash *= 0xC2B2AE35;
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * Receives the entries removed by {@link #sweep}.
+	 */
+	@FunctionalInterface
+	public interface Removal {
+
+		void removed(String id, int lastStock);
+	}
+}
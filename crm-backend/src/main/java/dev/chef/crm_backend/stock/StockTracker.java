@@ -0,0 +1,74 @@
+package dev.chef.crm_backend.stock;
+
+import java.util.function.Consumer;
+
+import dev.chef.crm_backend.dto.InventoryItem;
+import dev.chef.crm_backend.dto.StockDelta;
+
+/**
+ * Turns each inventory poll into {@link StockDelta} events by comparing stock levels
+ * against a {@link StockIndex} of the previous cycle.
+ * <p>
+ * Items without a stock value produce no event; one already tracked keeps its last known
+ * stock and counts as seen, so it is not reported as removed. After a restart (or {@link #clear()}) the
+ * first cycle reports every item as new, which gives consumers a baseline. Used by a
+ * single producer thread; not thread-safe.
+ */
+public class StockTracker {
+
+	private final StockIndex index = new StockIndex(1024);
+	private final int lowStockThreshold;
+	private long generation;
+
+	public StockTracker(int lowStockThreshold) {
+		this.lowStockThreshold = lowStockThreshold;
+	}
+
+	public void beginCycle() {
+		generation++;
+	}
+
+	/**
+	 * Records the item's stock, passing an event to {@code events} if it is new or changed.
+	 */
+	public void accept(InventoryItem item, Consumer<StockDelta> events) {
+		if (item.id() == null) {
+			return;
+		}
+		if (item.stock() == null) {
+			index.touch(item.id(), generation);
+			return;
+		}
+		int stock = item.stock();
+		long previous = index.put(item.id(), stock, generation);
+		if (previous == StockIndex.ABSENT) {
+			events.accept(new StockDelta(item.id(), null, stock, stock,
+					stock < lowStockThreshold ? StockDelta.Crossing.LOW : StockDelta.Crossing.NONE));
+		} else if (previous != stock) {
+			int old = (int) previous;
+			events.accept(new StockDelta(item.id(), old, stock, stock - old, crossing(old, stock)));
+		}
+	}
+
+	/**
+	 * Reports items not seen since {@link #beginCycle()} as removed.
+	 */
+	public void endCycle(Consumer<StockDelta> events) {
+		index.sweep(generation, (id, lastStock) ->
+				events.accept(new StockDelta(id, lastStock, null, -lastStock, StockDelta.Crossing.NONE)));
+	}
+
+	public void clear() {
+		index.clear();
+	}
+
+	private StockDelta.Crossing crossing(int old, int stock) {
+		if (old >= lowStockThreshold && stock < lowStockThreshold) {
+			return StockDelta.Crossing.LOW;
+		}
+		if (old < lowStockThreshold && stock >= lowStockThreshold) {
+			return StockDelta.Crossing.RECOVERED;
+		}
+		return StockDelta.Crossing.NONE;
+	}
+}
@@ -0,0 +1,144 @@
+package dev.chef.crm_backend.coordination;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class FileCoordinatorTest {
+
+	private static final Duration HEARTBEAT = Duration.ofSeconds(1);
+	private static final Duration TIMEOUT = Duration.ofSeconds(5);
+	private static final List<String> SOURCES = IntStream.range(0, 50).mapToObj(i -> "source-" + i).toList();
+
+	@TempDir
+	Path dir;
+
+	private final AtomicLong clock = new AtomicLong(1_000_000);
+
+	@Test
+	void everySourceHasExactlyOneOwner() {
+		FileCoordinator a = coordinator("a");
+		FileCoordinator b = coordinator("b");
+		FileCoordinator c = coordinator("c");
+		beat(a, b, c);
+		advance(Duration.ofSeconds(3));
+		beat(a, b, c);
+
+		assertEquals(List.of("a", "b", "c"), a.members());
+		for (String source : SOURCES) {
+			int owners = (a.owns(source) ? 1 : 0) + (b.owns(source) ? 1 : 0) + (c.owns(source) ? 1 : 0);
+			assertEquals(1, owners, source);
+		}
+		assertTrue(SOURCES.stream().filter(a::owns).count() > 5, "sources should spread over the members");
+	}
+
+	@Test
+	void sourcesOfAMemberThatStopsHeartbeatingMoveToTheOthers() {
+		FileCoordinator a = coordinator("a");
+		FileCoordinator b = coordinator("b");
+		beat(a, b);
+		advance(Duration.ofSeconds(3));
+		beat(a, b);
+		List<String> ownedByB = SOURCES.stream().filter(b::owns).toList();
+		assertFalse(ownedByB.isEmpty());
+
+		// b crashes: a only notices once its heartbeat is older than the timeout
+		advance(Duration.ofSeconds(4));
+		beat(a);
+		assertFalse(a.owns(ownedByB.getFirst()));
+		advance(Duration.ofSeconds(2));
+		beat(a);
+		assertEquals(List.of("a"), a.members());
+		assertFalse(a.owns(ownedByB.getFirst()), "newly won sources wait for the view to settle");
+
+		advance(Duration.ofSeconds(2));
+		beat(a);
+		assertTrue(SOURCES.stream().allMatch(a::owns));
+	}
+
+	@Test
+	void joiningMemberOnlyClaimsSourcesOnceTheOthersHaveSeenIt() {
+		FileCoordinator a = coordinator("a");
+		beat(a);
+		advance(Duration.ofSeconds(3));
+		beat(a);
+		assertTrue(SOURCES.stream().allMatch(a::owns));
+
+		FileCoordinator b = coordinator("b");
+		beat(b);
+		List<String> movingToB = SOURCES.stream().filter(s -> "b".equals(FileCoordinator.owner(List.of("a", "b"), s)))
+				.toList();
+		assertFalse(movingToB.isEmpty());
+		assertTrue(movingToB.stream().noneMatch(b::owns), "b must wait before claiming");
+
+		advance(HEARTBEAT);
+		beat(a, b);
+		assertTrue(movingToB.stream().noneMatch(a::owns), "a releases as soon as it sees b");
+		advance(HEARTBEAT);
+		beat(a, b);
+		assertTrue(movingToB.stream().allMatch(b::owns));
+	}
+
+	@Test
+	void memberThatCannotWriteItsHeartbeatGivesUpItsSourcesAfterTheTimeout() throws IOException {
+		Path shared = dir.resolve("group");
+		FileCoordinator a = new FileCoordinator(shared, "a", HEARTBEAT, TIMEOUT, clock::get);
+		beat(a);
+		advance(Duration.ofSeconds(3));
+		beat(a);
+		assertTrue(SOURCES.stream().allMatch(a::owns));
+
+		// the coordination directory turns into a file: every further heartbeat fails
+		try (Stream<Path> files = Files.list(shared)) {
+			for (Path file : (Iterable<Path>) files::iterator) {
+				Files.delete(file);
+			}
+		}
+		Files.delete(shared);
+		Files.writeString(shared, "not a directory");
+
+		advance(Duration.ofSeconds(3));
+		beat(a);
+		assertTrue(SOURCES.stream().allMatch(a::owns), "a missed heartbeat alone does not release anything");
+		advance(Duration.ofSeconds(3));
+		beat(a);
+		assertTrue(SOURCES.stream().noneMatch(a::owns));
+	}
+
+	@Test
+	void stoppedMemberLeavesImmediately() {
+		FileCoordinator a = coordinator("a");
+		FileCoordinator b = coordinator("b");
+		beat(a, b);
+		b.stop();
+		advance(HEARTBEAT);
+		beat(a);
+		assertEquals(List.of("a"), a.members());
+	}
+
+	private FileCoordinator coordinator(String nodeId) {
+		return new FileCoordinator(dir, nodeId, HEARTBEAT, TIMEOUT, clock::get);
+	}
+
+	private void advance(Duration duration) {
+		clock.addAndGet(duration.toMillis());
+	}
+
+	private static void beat(FileCoordinator... coordinators) {
+		for (FileCoordinator coordinator : coordinators) {
+			coordinator.heartbeat();
+		}
+	}
+}
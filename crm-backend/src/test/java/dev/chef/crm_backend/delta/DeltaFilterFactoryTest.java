@@ -0,0 +1,29 @@
+package dev.chef.crm_backend.delta;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+public class DeltaFilterFactoryTest {
+
+	@Test
+	void rejectsAnIndexBudgetBelowTheSmallestIndex() {
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+				() -> new DeltaFilterFactory(new RecordFingerprinter(), true, false, "offheap", Path.of("data", "delta"),
+						100_000, 1));
+
+		assertTrue(e.getMessage().contains("integration.producers.delta.index-budget-mb"), e.getMessage());
+		assertTrue(e.getMessage().contains("at least 2"), e.getMessage());
+	}
+
+	@Test
+	void createsAnIndexWithTheSmallestBudget() {
+		DeltaFilterFactory factory = new DeltaFilterFactory(new RecordFingerprinter(), true, false, "offheap",
+				Path.of("data", "delta"), 100_000, 2);
+
+		assertTrue(factory.create("crm").isChanged("1", "first"));
+	}
+}
@@ -0,0 +1,47 @@
+package dev.chef.crm_backend.delta;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import dev.chef.crm_backend.dto.CustomerData;
+
+public class DeltaFilterTest {
+
+	@Test
+	void checkpointsOnlyOnceTheCycleIsCommitted() {
+		FingerprintStore store = spy(new InMemoryFingerprintStore());
+		DeltaFilter filter = new DeltaFilter(new RecordFingerprinter(), store, true, true);
+		CustomerData first = new CustomerData("1", "Customer 1", "c1@example.com");
+		CustomerData second = new CustomerData("2", "Customer 2", "c2@example.com");
+		filter.beginCycle();
+		filter.isChanged("1", first);
+		filter.isChanged("2", second);
+		filter.isChanged("3", new CustomerData("3", "Customer 3", "c3@example.com"));
+		filter.commitCycle();
+
+		filter.beginCycle();
+		assertFalse(filter.isChanged("1", first));
+		assertFalse(filter.isChanged("2", second));
+		assertEquals(List.of("3"), filter.endCycle());
+		// the sweep's removals are not checkpointed while the cycle's sends are unanswered
+		verify(store, times(1)).checkpoint();
+		filter.sendFailed("2");
+		filter.commitCycle();
+
+		InOrder order = inOrder(store);
+		order.verify(store).remove("2");
+		order.verify(store).checkpoint();
+		filter.beginCycle();
+		assertTrue(filter.isChanged("2", second), "a failed send is published again");
+	}
+}
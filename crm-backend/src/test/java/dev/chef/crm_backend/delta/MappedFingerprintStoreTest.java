@@ -0,0 +1,174 @@
+package dev.chef.crm_backend.delta;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class MappedFingerprintStoreTest {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void fingerprintsSurviveRestart() throws IOException {
+		try (MappedFingerprintStore store = new MappedFingerprintStore(dir, 1000)) {
+			store.put("1", 11L, 1);
+			store.put("2", 22L, 1);
+			store.put("3", 33L, 1);
+			store.sweep(1, id -> { });
+			store.put("2", 23L, 2);
+			store.sweep(2, id -> { });
+		}
+
+		try (MappedFingerprintStore store = new MappedFingerprintStore(dir, 1000)) {
+			assertEquals(1, store.size(), "ids 1 and 3 were swept in generation 2");
+			assertFalse(store.put("2", 23L, 1), "unchanged fingerprint must not be republished");
+			assertTrue(store.put("1", 11L, 1), "swept id is new again");
+
+			List<String> removed = new ArrayList<>();
+			store.sweep(1, removed::add);
+			assertEquals(List.of(), removed);
+		}
+	}
+
+	@Test
+	void loadedEntriesNotSeenAfterRestartAreSwept() throws IOException {
+		try (MappedFingerprintStore store = new MappedFingerprintStore(dir, 1000)) {
+			store.put("kept", 1L, 7);
+			store.put("gone", 2L, 7);
+		}
+
+		try (MappedFingerprintStore store = new MappedFingerprintStore(dir, 1000)) {
+			store.put("kept", 1L, 1);
+			List<String> removed = new ArrayList<>();
+			store.sweep(1, removed::add);
+			assertEquals(List.of("gone"), removed);
+		}
+	}
+
+	@Test
+	void tornWriteOnlyLosesTheLastRecord() throws IOException {
+		try (MappedFingerprintStore store = new MappedFingerprintStore(dir, 1000)) {
+			store.put("1", 11L, 1);
+			store.put("2", 22L, 1);
+		}
+		Path segment = segments().getFirst();
+		try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+			file.seek(file.length() - 2);
+			file.write(new byte[] { 0x7F, 0x7F });
+		}
+
+		try (MappedFingerprintStore store = new MappedFingerprintStore(dir, 1000)) {
+			assertEquals(1, store.size());
+			assertFalse(store.put("1", 11L, 1));
+			assertTrue(store.put("2", 22L, 1), "the corrupted record must not be trusted");
+		}
+		try (MappedFingerprintStore store = new MappedFingerprintStore(dir, 1000)) {
+			assertEquals(2, store.size(), "appends after the torn record replay cleanly");
+		}
+	}
+
+	@Test
+	void idsBeyondTheIndexBudgetAreNotLogged() throws IOException {
+		long minimum = OffHeapFingerprintStore.SHARDS * 1024L * 24;
+		int ids = OffHeapFingerprintStore.SHARDS * 1024;
+		long tracked;
+		try (MappedFingerprintStore store = new MappedFingerprintStore(dir, 1_000_000, minimum)) {
+			for (int i = 0; i < ids; i++) {
+				assertTrue(store.put(Integer.toString(i), 1L, 1));
+			}
+			tracked = store.size();
+			assertTrue(tracked < ids);
+		}
+
+		try (MappedFingerprintStore store = new MappedFingerprintStore(dir, 1_000_000)) {
+			assertEquals(tracked, store.size(), "untracked ids must not come back as unchanged after a restart");
+		}
+	}
+
+	@Test
+	void compactionKeepsLiveEntriesAndDropsOldSegments() throws IOException {
+		try (MappedFingerprintStore store = new MappedFingerprintStore(dir, 10)) {
+			for (long generation = 1; generation <= 20; generation++) {
+				store.put("a", generation, generation);
+				store.put("b", 42L, generation);
+				store.sweep(generation, id -> { });
+				store.checkpoint();
+			}
+			assertEquals(2, store.size());
+		}
+		assertEquals(1, segments().size());
+		assertTrue(Files.size(segments().getFirst()) < 200, "compacted log should hold only live entries");
+
+		try (MappedFingerprintStore store = new MappedFingerprintStore(dir, 10)) {
+			assertFalse(store.put("a", 20L, 1));
+			assertFalse(store.put("b", 42L, 1));
+		}
+	}
+
+	@Test
+	void fullSegmentsRollOverAndReplayInOrder() throws IOException {
+		int segmentBytes = 1 << 17;
+		try (MappedFingerprintStore store = new MappedFingerprintStore(dir, 1_000_000, Long.MAX_VALUE, segmentBytes)) {
+			for (int i = 0; i < 20_000; i++) {
+				store.put(Integer.toString(i), i, 1);
+			}
+			for (int i = 0; i < 20_000; i += 2) {
+				store.put(Integer.toString(i), -i, 2);
+			}
+		}
+		assertTrue(segments().size() > 3);
+		for (Path segment : segments()) {
+			assertTrue(Files.size(segment) <= segmentBytes);
+		}
+
+		try (MappedFingerprintStore store = new MappedFingerprintStore(dir, 1_000_000, Long.MAX_VALUE, segmentBytes)) {
+			assertEquals(20_000, store.size());
+			assertFalse(store.put("1", 1L, 1));
+			assertFalse(store.put("2", -2L, 1), "later segments must win");
+			store.compact();
+		}
+		assertTrue(segments().size() > 1, "compaction rolls over as well");
+		try (MappedFingerprintStore store = new MappedFingerprintStore(dir, 1_000_000, Long.MAX_VALUE, segmentBytes)) {
+			assertEquals(20_000, store.size());
+			assertFalse(store.put("19998", -19_998L, 1));
+		}
+	}
+
+	@Test
+	void segmentsLargerThanTheSegmentSizeAreReplayedInWindows() throws IOException {
+		try (MappedFingerprintStore store = new MappedFingerprintStore(dir, 1_000_000)) {
+			for (int i = 0; i < 20_000; i++) {
+				store.put(Integer.toString(i), i, 1);
+			}
+		}
+		assertEquals(1, segments().size());
+
+		try (MappedFingerprintStore store = new MappedFingerprintStore(dir, 1_000_000, Long.MAX_VALUE, 1 << 17)) {
+			assertEquals(20_000, store.size());
+			assertFalse(store.put("12345", 12_345L, 1));
+			assertTrue(store.put("20000", 1L, 1));
+		}
+		assertEquals(2, segments().size(), "appends continue in a new segment");
+		try (MappedFingerprintStore store = new MappedFingerprintStore(dir, 1_000_000)) {
+			assertEquals(20_001, store.size());
+		}
+	}
+
+	private List<Path> segments() throws IOException {
+		try (Stream<Path> files = Files.list(dir)) {
+			return files.sorted().toList();
+		}
+	}
+}
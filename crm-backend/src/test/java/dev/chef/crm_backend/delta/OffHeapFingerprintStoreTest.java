@@ -0,0 +1,118 @@
+package dev.chef.crm_backend.delta;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+public class OffHeapFingerprintStoreTest {
+
+	@Test
+	void numericAndFallbackIdsAreTrackedAndSwept() {
+		OffHeapFingerprintStore store = new OffHeapFingerprintStore();
+		for (int i = 0; i < 100_000; i++) {
+			assertTrue(store.put(Integer.toString(i), i, 1));
+		}
+		assertTrue(store.put("C-17", 17L, 1));
+		assertTrue(store.put("007", 7L, 1), "non-canonical ids must not collide with their numeric value");
+		assertEquals(100_002, store.size());
+		assertEquals(7L, store.fingerprint("7"));
+		assertEquals(7L, store.fingerprint("007"));
+
+		for (int i = 0; i < 100_000; i += 2) {
+			assertFalse(store.put(Integer.toString(i), i, 2));
+		}
+		assertTrue(store.put("C-17", 18L, 2));
+		Set<String> removed = new HashSet<>();
+		store.sweep(2, removed::add);
+
+		assertEquals(50_001, removed.size());
+		assertTrue(removed.contains("1") && removed.contains("99999") && removed.contains("007"));
+		assertEquals(50_001, store.size());
+		assertEquals(OffHeapFingerprintStore.ABSENT, store.fingerprint("1"));
+		assertEquals(99_998L, store.fingerprint("99998"));
+		assertEquals(18L, store.fingerprint("C-17"));
+	}
+
+	@Test
+	void idsBeyondTheBudgetAreAlwaysChanged() {
+		long minimum = OffHeapFingerprintStore.SHARDS * 1024L * 24;
+		OffHeapFingerprintStore store = new OffHeapFingerprintStore(minimum);
+		int ids = OffHeapFingerprintStore.SHARDS * 1024;
+		for (int i = 0; i < ids; i++) {
+			store.put(Integer.toString(i), 1L, 1);
+		}
+
+		assertTrue(store.size() < ids, "tables must stop growing at the budget");
+		assertEquals(minimum, store.allocatedBytes());
+		long untracked = 0;
+		for (int i = 0; i < ids; i++) {
+			if (store.fingerprint(Integer.toString(i)) == OffHeapFingerprintStore.ABSENT) {
+				assertTrue(store.put(Integer.toString(i), 1L, 2));
+				untracked++;
+			}
+		}
+		assertEquals(ids - store.size(), untracked);
+
+		store.clear();
+		assertEquals(0, store.size());
+		assertTrue(store.put("1", 1L, 3));
+		assertFalse(store.put("1", 1L, 3));
+	}
+
+	@Test
+	void readersSeeConsistentFingerprintsWhileTablesGrow() throws Exception {
+		OffHeapFingerprintStore store = new OffHeapFingerprintStore();
+		for (int i = 0; i < 1000; i++) {
+			store.put(Integer.toString(i), i, 1);
+		}
+		AtomicBoolean writing = new AtomicBoolean(true);
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		try {
+			Future<?> writer = pool.submit(() -> {
+				for (int i = 1000; i < 500_000; i++) {
+					store.put(Integer.toString(i), i, 1);
+				}
+				writing.set(false);
+			});
+			List<Future<Long>> readers = List.of(1, 2, 3).stream()
+					.map(r -> pool.submit(() -> {
+						long reads = 0;
+						while (writing.get()) {
+							int id = (int) (reads++ % 1000);
+							assertEquals(id, store.fingerprint(Integer.toString(id)));
+						}
+						return reads;
+					}))
+					.toList();
+			writer.get();
+			for (Future<Long> reader : readers) {
+				assertTrue(reader.get() > 0);
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+		assertEquals(500_000, store.size());
+	}
+
+	@Test
+	void keysOnlyCoverCanonicalDecimals() {
+		assertEquals(1, OffHeapFingerprintStore.key("0"));
+		assertEquals(124, OffHeapFingerprintStore.key("123"));
+		assertEquals(999_999_999_999_999_999L + 1, OffHeapFingerprintStore.key("999999999999999999"));
+		assertEquals(0, OffHeapFingerprintStore.key("9999999999999999999"));
+		assertEquals(0, OffHeapFingerprintStore.key("0123"));
+		assertEquals(0, OffHeapFingerprintStore.key("-1"));
+		assertEquals(0, OffHeapFingerprintStore.key("12a"));
+		assertEquals(0, OffHeapFingerprintStore.key(""));
+	}
+}
@@ -0,0 +1,49 @@
+package dev.chef.crm_backend.delta;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import dev.chef.crm_backend.dto.CustomerData;
+import net.jpountz.xxhash.XXHash64;
+import net.jpountz.xxhash.XXHashFactory;
+import org.junit.jupiter.api.Test;
+
+public class XxHash64Test {
+
+	@Test
+	void matchesReferenceVectors() {
+		assertEquals(0xEF46DB3751D8E999L, XxHash64.hash(new byte[0]));
+		assertEquals(0x44BC2CF5AD770999L, XxHash64.hash("abc".getBytes(StandardCharsets.US_ASCII)));
+	}
+
+	@Test
+	void matchesLz4JavaImplementationAcrossLengths() {
+		XXHash64 reference = XXHashFactory.safeInstance().hash64();
+		byte[] data = new byte[257];
+		new Random(42).nextBytes(data);
+		for (int length = 0; length <= data.length; length++) {
+			assertEquals(reference.hash(data, 0, length, 7L), XxHash64.hash(data, 0, length, 7L), "length " + length);
+		}
+	}
+
+	@Test
+	void fingerprintIgnoresMapOrdering() {
+		RecordFingerprinter fingerprinter = new RecordFingerprinter();
+		Map<String, Object> a = new LinkedHashMap<>();
+		a.put("tier", "gold");
+		a.put("region", "east");
+		Map<String, Object> b = new LinkedHashMap<>();
+		b.put("region", "east");
+		b.put("tier", "gold");
+
+		assertEquals(fingerprinter.fingerprint(new CustomerData("1", "n", "e", a)),
+				fingerprinter.fingerprint(new CustomerData("1", "n", "e", b)));
+		assertNotEquals(fingerprinter.fingerprint(new CustomerData("1", "n", "e", a)),
+				fingerprinter.fingerprint(new CustomerData("1", "n", "other", a)));
+	}
+}
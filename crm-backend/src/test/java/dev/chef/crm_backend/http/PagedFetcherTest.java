@@ -0,0 +1,135 @@
+package dev.chef.crm_backend.http;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import dev.chef.crm_backend.dto.CustomerData;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+
+public class PagedFetcherTest {
+
+	private static final String URL = "http://localhost:8081/customers";
+	private static final Pattern PAGE = Pattern.compile("offset=(\\d+)&limit=(\\d+)");
+
+	private final UpstreamClient upstreamClient = mock(UpstreamClient.class);
+	private final List<CustomerData> customers = IntStream.rangeClosed(1, 23)
+			.mapToObj(i -> new CustomerData(Integer.toString(i), "Customer " + i, "c" + i + "@example.com"))
+			.toList();
+	private final Map<Integer, AtomicInteger> failuresLeft = new ConcurrentHashMap<>();
+	private final AtomicInteger retries = new AtomicInteger();
+	private long totalCount = FetchResult.UNKNOWN_TOTAL;
+
+	@Test
+	void everyRecordIsDeliveredOnceAcrossConcurrentPages() {
+		servePages();
+		List<CustomerData> received = Collections.synchronizedList(new ArrayList<>());
+
+		FetchResult result = fetcher(5, 3).fetch(URL, CustomerData.class, received::add);
+
+		assertEquals(23, result.records());
+		assertEquals(customers.size(), received.size());
+		assertEquals(ids(customers), ids(received));
+	}
+
+	@Test
+	void failedPageIsRetriedWithoutRefetchingTheRest() {
+		failuresLeft.put(10, new AtomicInteger(2));
+		servePages();
+		List<CustomerData> received = Collections.synchronizedList(new ArrayList<>());
+
+		fetcher(5, 2).fetch(URL, CustomerData.class, received::add);
+
+		assertEquals(2, retries.get());
+		assertEquals(customers.size(), received.size(), "records of the retried page must not be duplicated");
+		assertEquals(ids(customers), ids(received));
+	}
+
+	@Test
+	void pageFailingOnEveryAttemptFailsTheFetch() {
+		failuresLeft.put(5, new AtomicInteger(Integer.MAX_VALUE));
+		servePages();
+
+		assertThrows(ResourceAccessException.class, () -> fetcher(5, 2).fetch(URL, CustomerData.class, c -> { }));
+		assertEquals(2, retries.get());
+	}
+
+	@Test
+	void pagesEndAtTheAnnouncedTotalCount() {
+		totalCount = 20;
+		servePages();
+		List<CustomerData> received = new ArrayList<>();
+
+		FetchResult result = fetcher(5, 1).fetch(URL, CustomerData.class, received::add);
+
+		assertEquals(20, result.records());
+		assertEquals(ids(customers.subList(0, 20)), ids(received));
+		verify(upstreamClient, times(4)).streamArray(anyString(), eq(CustomerData.class), any(), eq(false));
+	}
+
+	@Test
+	void upstreamIgnoringTheLimitFailsTheFetch() {
+		when(upstreamClient.streamArray(anyString(), eq(CustomerData.class), any(), eq(false))).thenAnswer(invocation -> {
+			Consumer<CustomerData> sink = invocation.getArgument(2);
+			customers.forEach(sink);
+			return FetchResult.of(customers.size(), 0);
+		});
+		List<CustomerData> received = new ArrayList<>();
+
+		assertThrows(RestClientException.class, () -> fetcher(5, 1).fetch(URL, CustomerData.class, received::add));
+		assertEquals(List.of(), received, "overlapping pages must not reach the sink");
+	}
+
+	private PagedFetcher fetcher(int pageSize, int parallelism) {
+		return new PagedFetcher(upstreamClient, pageSize, parallelism, 3, Duration.ofMillis(1), retries::incrementAndGet);
+	}
+
+	private void servePages() {
+		when(upstreamClient.streamArray(anyString(), eq(CustomerData.class), any(), eq(false))).thenAnswer(invocation -> {
+			Matcher page = PAGE.matcher(invocation.<String>getArgument(0));
+			if (!page.find()) {
+				throw new AssertionError("not a paged request: " + invocation.getArgument(0));
+			}
+			int offset = Integer.parseInt(page.group(1));
+			int limit = Integer.parseInt(page.group(2));
+			Consumer<CustomerData> sink = invocation.getArgument(2);
+			List<CustomerData> slice = customers.subList(Math.min(offset, customers.size()),
+					Math.min(offset + limit, customers.size()));
+			AtomicInteger failures = failuresLeft.get(offset);
+			// fail half-way through the page, after some records were already decoded
+			for (int i = 0; i < slice.size(); i++) {
+				if (i == slice.size() / 2 && failures != null && failures.getAndDecrement() > 0) {
+					throw new ResourceAccessException("connection reset");
+				}
+				sink.accept(slice.get(i));
+			}
+			return FetchResult.of(slice.size(), 0).withTotalCount(totalCount);
+		});
+	}
+
+	private static Set<String> ids(List<CustomerData> customers) {
+		return customers.stream().map(CustomerData::id).collect(Collectors.toSet());
+	}
+}
@@ -0,0 +1,104 @@
+package dev.chef.crm_backend.http;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.sun.net.httpserver.HttpServer;
+
+import dev.chef.crm_backend.dto.InventoryItem;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+public class ReactiveUpstreamClientTest {
+
+	private static final String BODY =
+			"[{\"id\":\"1\",\"name\":\"Inkweto\",\"stock\":15,\"colour\":\"red\"},null,{\"id\":\"2\",\"name\":\"Ibikapu\",\"stock\":50}]";
+
+	private HttpServer server;
+	private HttpValidatorCache validatorCache;
+	private ReactiveUpstreamClient client;
+	private String baseUrl;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/products", exchange -> {
+			if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+				exchange.sendResponseHeaders(304, -1);
+				exchange.close();
+				return;
+			}
+			byte[] body = BODY.getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().add("Content-Type", "application/json");
+			exchange.getResponseHeaders().add("ETag", "\"v1\"");
+			// chunked, so the response carries no Content-Length
+			exchange.sendResponseHeaders(200, 0);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		});
+		server.createContext("/broken", exchange -> {
+			exchange.sendResponseHeaders(503, -1);
+			exchange.close();
+		});
+		server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+		server.start();
+		baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+		validatorCache = new HttpValidatorCache();
+		client = new ReactiveUpstreamClient(validatorCache, 2000, 5000, 1);
+	}
+
+	@AfterEach
+	void tearDown() {
+		server.stop(0);
+	}
+
+	@Test
+	void streamArray_decodesElementsAndHonoursValidators() {
+		AtomicReference<FetchResult> result = new AtomicReference<>();
+
+		List<InventoryItem> items = client.streamArray(baseUrl + "/products", InventoryItem.class, result::set)
+				.collectList().block();
+
+		assertEquals(List.of(new InventoryItem("1", "Inkweto", 15), new InventoryItem("2", "Ibikapu", 50)), items);
+		assertEquals(2, result.get().records());
+		assertEquals(BODY.length(), result.get().bytes());
+
+		List<InventoryItem> second = client.streamArray(baseUrl + "/products", InventoryItem.class, result::set)
+				.collectList().block();
+
+		assertTrue(second.isEmpty());
+		assertTrue(result.get().notModified(), "second request carries If-None-Match and gets a 304");
+		assertEquals(BODY.length(), validatorCache.stats().bytesSaved());
+	}
+
+	@Test
+	void streamArray_keepsNoValidatorsWhenTheBodyIsNotFullyConsumed() {
+		AtomicReference<FetchResult> result = new AtomicReference<>();
+
+		client.streamArray(baseUrl + "/products", InventoryItem.class, result::set).take(1).blockLast();
+		List<InventoryItem> retry = client.streamArray(baseUrl + "/products", InventoryItem.class, result::set)
+				.collectList().block();
+
+		assertEquals(2, retry.size(), "the retry is not conditional and reads the whole list");
+		assertFalse(result.get().notModified());
+	}
+
+	@Test
+	void streamArray_signalsErrorStatus() {
+		assertThrows(WebClientResponseException.class,
+				() -> client.streamArray(baseUrl + "/broken", InventoryItem.class, r -> { }).blockLast());
+	}
+}
@@ -0,0 +1,126 @@
+package dev.chef.crm_backend.http;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import dev.chef.crm_backend.dto.InventoryItem;
+import dev.chef.crm_backend.resilience.UpstreamLimiter;
+import dev.chef.crm_backend.resilience.UpstreamLimiterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+public class UpstreamClientTest {
+
+	private static final String URL = "http://localhost:8082/products";
+
+	private MockRestServiceServer server;
+	private HttpValidatorCache validatorCache;
+	private UpstreamClient client;
+
+	@BeforeEach
+	void setUp() {
+		RestTemplate restTemplate = new RestTemplate();
+		server = MockRestServiceServer.bindTo(restTemplate).build();
+		validatorCache = new HttpValidatorCache();
+		client = new UpstreamClient(restTemplate, validatorCache);
+	}
+
+	@Test
+	void streamArray_decodesEachElementIntoSink() {
+		server.expect(requestTo(URL)).andRespond(withSuccess(
+				"[{\"id\":\"1\",\"name\":\"Inkweto\",\"stock\":15,\"colour\":\"red\"},null,{\"id\":\"2\",\"name\":\"Ibikapu\",\"stock\":50}]",
+				MediaType.APPLICATION_JSON));
+		List<InventoryItem> received = new ArrayList<>();
+
+		FetchResult result = client.streamArray(URL, InventoryItem.class, received::add);
+
+		assertEquals(List.of(new InventoryItem("1", "Inkweto", 15), new InventoryItem("2", "Ibikapu", 50)), received);
+		assertEquals(2, result.records());
+		assertTrue(result.bytes() > 0);
+	}
+
+	@Test
+	void streamArray_sendsValidatorsAndReportsNotModified() {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setETag("\"v1\"");
+		server.expect(requestTo(URL)).andRespond(withSuccess("[]", MediaType.APPLICATION_JSON).headers(headers));
+		server.expect(requestTo(URL)).andExpect(header(HttpHeaders.IF_NONE_MATCH, "\"v1\""))
+				.andRespond(withStatus(HttpStatus.NOT_MODIFIED));
+
+		FetchResult first = client.streamArray(URL, InventoryItem.class, item -> { });
+		FetchResult second = client.streamArray(URL, InventoryItem.class, item -> { });
+
+		server.verify();
+		assertTrue(second.notModified());
+		assertEquals(0.5, validatorCache.stats().hitRatio());
+		assertEquals(first.bytes(), validatorCache.stats().bytesSaved());
+	}
+
+	@Test
+	void streamArray_retriesUnconditionallyAfterABodyFailedHalfway() {
+		HttpHeaders v1 = new HttpHeaders();
+		v1.setETag("\"v1\"");
+		HttpHeaders v2 = new HttpHeaders();
+		v2.setETag("\"v2\"");
+		server.expect(requestTo(URL)).andRespond(withSuccess("[]", MediaType.APPLICATION_JSON).headers(v1));
+		server.expect(requestTo(URL)).andExpect(header(HttpHeaders.IF_NONE_MATCH, "\"v1\""))
+				.andRespond(withSuccess("[{\"id\":\"1\",\"name\":\"Inkweto\",\"stock\":15},",
+						MediaType.APPLICATION_JSON).headers(v2));
+		server.expect(requestTo(URL)).andExpect(request -> assertNull(request.getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH)))
+				.andRespond(withSuccess("[]", MediaType.APPLICATION_JSON).headers(v2));
+
+		client.streamArray(URL, InventoryItem.class, item -> { });
+		assertThrows(RestClientException.class, () -> client.streamArray(URL, InventoryItem.class, item -> { }));
+		FetchResult retry = client.streamArray(URL, InventoryItem.class, item -> { });
+
+		server.verify();
+		assertFalse(retry.notModified());
+	}
+
+	@Test
+	void streamArray_rejectsTruncatedArray() {
+		server.expect(requestTo(URL)).andRespond(withSuccess(
+				"[{\"id\":\"1\",\"name\":\"Inkweto\",\"stock\":15},", MediaType.APPLICATION_JSON));
+
+		assertThrows(RestClientException.class, () -> client.streamArray(URL, InventoryItem.class, item -> { }));
+	}
+
+	@Test
+	void streamArray_feedsTooManyRequestsIntoTheSourceLimiter() {
+		RestTemplate restTemplate = new RestTemplate();
+		server = MockRestServiceServer.bindTo(restTemplate).build();
+		UpstreamLimiterRegistry limiters = new UpstreamLimiterRegistry(new MockEnvironment()
+				.withProperty("integration.inventory.base-url", "http://localhost:8082"));
+		client = new UpstreamClient(restTemplate, validatorCache, limiters);
+		HttpHeaders headers = new HttpHeaders();
+		headers.set(HttpHeaders.RETRY_AFTER, "60");
+		server.expect(requestTo(URL)).andRespond(withStatus(HttpStatus.TOO_MANY_REQUESTS).headers(headers));
+
+		assertThrows(HttpClientErrorException.TooManyRequests.class,
+				() -> client.streamArray(URL, InventoryItem.class, item -> { }));
+
+		UpstreamLimiter limiter = limiters.forSource("inventory");
+		assertEquals(1, limiter.throttled());
+		assertEquals(0, limiter.inFlight());
+		assertNull(limiter.tryAcquire(), "the upstream is paused for its Retry-After");
+		assertEquals(UpstreamLimiter.UNLIMITED, limiters.forUrl("http://elsewhere/products"));
+	}
+}
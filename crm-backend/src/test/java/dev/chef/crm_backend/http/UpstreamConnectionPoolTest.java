@@ -0,0 +1,73 @@
+package dev.chef.crm_backend.http;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.zip.GZIPOutputStream;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+public class UpstreamConnectionPoolTest {
+
+	private HttpServer server;
+	private UpstreamConnectionPool pool;
+	private String baseUrl;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/products", exchange -> {
+			byte[] body = gzip("[{\"id\":\"1\",\"name\":\"Inkweto\",\"stock\":15}]");
+			exchange.getResponseHeaders().add("Content-Type", "application/json");
+			exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		});
+		server.start();
+		baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+		pool = new UpstreamConnectionPool(4, 2, Duration.ofSeconds(1), Duration.ofSeconds(2),
+				Duration.ofSeconds(1), Duration.ofSeconds(30));
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		pool.close();
+		server.stop(0);
+	}
+
+	@Test
+	void reusesKeptAliveConnectionAndDecodesGzip() {
+		RestTemplate restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(pool.getHttpClient()));
+
+		String first = restTemplate.getForObject(baseUrl + "/products", String.class);
+		restTemplate.getForObject(baseUrl + "/products", String.class);
+		restTemplate.getForObject(baseUrl + "/products", String.class);
+
+		assertEquals("[{\"id\":\"1\",\"name\":\"Inkweto\",\"stock\":15}]", first);
+		UpstreamConnectionPool.Stats stats = pool.stats();
+		assertEquals(3, stats.requests());
+		assertEquals(1, stats.connectionsOpened());
+		assertEquals(0, stats.leased());
+		assertEquals(1, stats.available());
+	}
+
+	private static byte[] gzip(String text) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+			out.write(text.getBytes(StandardCharsets.UTF_8));
+		}
+		return bytes.toByteArray();
+	}
+}
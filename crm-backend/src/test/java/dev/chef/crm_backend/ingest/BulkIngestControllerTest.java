@@ -0,0 +1,69 @@
+package dev.chef.crm_backend.ingest;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.concurrent.CompletableFuture;
+
+import dev.chef.crm_backend.metrics.PipelineMetrics;
+import dev.chef.crm_backend.publish.KafkaPublisher;
+import dev.chef.crm_backend.publish.PublisherFixtures;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+public class BulkIngestControllerTest {
+
+	@SuppressWarnings("unchecked")
+	private final KafkaTemplate<String, Object> kafkaTemplate = mock(KafkaTemplate.class);
+	private MockMvc mvc;
+
+	@BeforeEach
+	void setUp() {
+		PipelineMetrics metrics = new PipelineMetrics(new SimpleMeterRegistry());
+		KafkaPublisher publisher = PublisherFixtures.publisher(kafkaTemplate, metrics, 10);
+		mvc = MockMvcBuilders.standaloneSetup(new BulkIngestController(publisher, metrics, "customer_data",
+				"inventory_data", 100, 1, 5000, "secret")).build();
+	}
+
+	@Test
+	void mapsOutcomesToStatuses() throws Exception {
+		when(kafkaTemplate.send(anyString(), anyString(), any())).thenReturn(CompletableFuture.completedFuture(null));
+		mvc.perform(post("/ingest/inventory").header(HttpHeaders.AUTHORIZATION, "Bearer secret")
+						.contentType("application/x-ndjson").content("{\"id\":\"p1\",\"stock\":2}\n{\"id\":\"p2\"}\n"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.acked").value(2))
+				.andExpect(jsonPath("$.batches[0].acked").value(2));
+		mvc.perform(post("/ingest/crm").header(HttpHeaders.AUTHORIZATION, "Bearer secret")
+						.contentType(MediaType.APPLICATION_JSON).content("[{\"id\":\"1\"}"))
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.outcome").value("MALFORMED"));
+
+		when(kafkaTemplate.send(anyString(), anyString(), any()))
+				.thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+		mvc.perform(post("/ingest/crm").header(HttpHeaders.AUTHORIZATION, "Bearer secret")
+						.contentType(MediaType.APPLICATION_JSON).content("[{\"id\":\"1\"}]"))
+				.andExpect(status().isTooManyRequests())
+				.andExpect(header().string(HttpHeaders.RETRY_AFTER, "5"));
+	}
+
+	@Test
+	void rejectsUnauthenticatedAndUnknownUploads() throws Exception {
+		mvc.perform(post("/ingest/crm").contentType(MediaType.APPLICATION_JSON).content("[]"))
+				.andExpect(status().isUnauthorized());
+		mvc.perform(post("/ingest/erp").header(HttpHeaders.AUTHORIZATION, "Bearer secret")
+						.contentType(MediaType.APPLICATION_JSON).content("[]"))
+				.andExpect(status().isNotFound());
+	}
+}
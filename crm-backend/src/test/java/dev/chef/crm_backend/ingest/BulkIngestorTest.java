@@ -0,0 +1,148 @@
+package dev.chef.crm_backend.ingest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import dev.chef.crm_backend.dto.CustomerData;
+import dev.chef.crm_backend.dto.InventoryItem;
+import dev.chef.crm_backend.metrics.PipelineMetrics;
+import dev.chef.crm_backend.publish.KafkaPublisher;
+import dev.chef.crm_backend.publish.PublisherFixtures;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+
+public class BulkIngestorTest {
+
+	@SuppressWarnings("unchecked")
+	private final KafkaTemplate<String, Object> kafkaTemplate = mock(KafkaTemplate.class);
+	private final KafkaPublisher publisher = PublisherFixtures.publisher(kafkaTemplate,
+			new PipelineMetrics(new SimpleMeterRegistry()), 10);
+
+	@BeforeEach
+	void setUp() {
+		when(kafkaTemplate.send(anyString(), anyString(), any())).thenReturn(CompletableFuture.completedFuture(null));
+	}
+
+	@Test
+	void ndjsonIsSentInBatches() {
+		BulkIngestor ingestor = ingestor(RecordShape.CUSTOMER, 2);
+
+		IngestResult result = ingestor.ingest(body("""
+				{"id": "1", "name": "Ada", "email": "ada@example.com", "productIds": ["p1"]}
+				{"id": 2, "name": "Bob"}
+				{"id": "3", "unknown": true}
+				"""));
+
+		assertEquals(IngestResult.Outcome.COMPLETED, result.outcome());
+		assertEquals(3, result.received());
+		assertEquals(3, result.acked());
+		assertEquals(List.of(new IngestResult.Batch(1, 2, 2, 2, 0), new IngestResult.Batch(2, 3, 1, 1, 0)),
+				result.batches());
+		verify(kafkaTemplate).send(eq("customer_data"), eq("1"), any(CustomerData.class));
+		verify(kafkaTemplate).send(eq("customer_data"), eq("2"), any(CustomerData.class));
+	}
+
+	@Test
+	void jsonArrayIsAccepted() {
+		IngestResult result = ingestor(RecordShape.INVENTORY_ITEM, 10)
+				.ingest(body("[{\"id\": \"p1\", \"stock\": 4}, {\"id\": \"p2\", \"name\": \"Pan\"}]"));
+
+		assertEquals(IngestResult.Outcome.COMPLETED, result.outcome());
+		assertEquals(2, result.acked());
+		assertEquals(1, result.batches().size());
+		verify(kafkaTemplate, times(2)).send(eq("customer_data"), anyString(), any(InventoryItem.class));
+	}
+
+	@Test
+	void invalidRecordsAreRejectedAndReported() {
+		IngestResult result = ingestor(RecordShape.INVENTORY_ITEM, 10).ingest(body("""
+				{"id": "p1", "stock": -1}
+				{"name": "no id"}
+				[1]
+				{"id": "p2", "stock": 3}
+				"""));
+
+		assertEquals(IngestResult.Outcome.COMPLETED, result.outcome());
+		assertEquals(4, result.received());
+		assertEquals(3, result.rejected());
+		assertEquals(1, result.acked());
+		assertEquals(List.of(1L, 2L, 3L), result.errors().stream().map(IngestResult.RecordError::record).toList());
+		assertEquals("stock must be a non-negative integer", result.errors().get(0).error());
+	}
+
+	@Test
+	void malformedBodyKeepsRecordsBeforeTheError() {
+		IngestResult result = ingestor(RecordShape.CUSTOMER, 10).ingest(body("{\"id\": \"1\"}\n{\"id\": "));
+
+		assertEquals(IngestResult.Outcome.MALFORMED, result.outcome());
+		assertEquals(1, result.received());
+		assertEquals(1, result.acked());
+
+		IngestResult truncated = ingestor(RecordShape.CUSTOMER, 10).ingest(body("[{\"id\": \"2\"}"));
+		assertEquals(IngestResult.Outcome.MALFORMED, truncated.outcome());
+	}
+
+	@Test
+	void bodyThatBreaksOffIsReportedAsInterrupted() {
+		InputStream disconnected = new SequenceInputStream(body("{\"id\": \"1\"}\n{\"id\""), new InputStream() {
+			@Override
+			public int read() throws IOException {
+				throw new IOException("Connection reset by peer");
+			}
+		});
+
+		IngestResult result = ingestor(RecordShape.CUSTOMER, 10).ingest(disconnected);
+
+		assertEquals(IngestResult.Outcome.INTERRUPTED, result.outcome());
+		assertEquals(1, result.received());
+		assertEquals(1, result.acked());
+	}
+
+	@Test
+	void failedSendsEndTheUploadAndAreReplayedByTheNext() {
+		when(kafkaTemplate.send(anyString(), anyString(), any()))
+				.thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")))
+				.thenReturn(CompletableFuture.completedFuture(null));
+		BulkIngestor ingestor = ingestor(RecordShape.CUSTOMER, 1);
+
+		IngestResult first = ingestor.ingest(body("{\"id\": \"1\"}\n{\"id\": \"2\"}\n"));
+
+		assertEquals(IngestResult.Outcome.BACKPRESSURE, first.outcome());
+		assertEquals(1, first.received());
+		assertEquals(1, first.failed());
+		verify(kafkaTemplate, never()).send(anyString(), eq("2"), any());
+
+		IngestResult second = ingestor.ingest(body("{\"id\": \"2\"}\n"));
+
+		assertEquals(IngestResult.Outcome.COMPLETED, second.outcome());
+		assertEquals(2, second.sent());
+		assertEquals(2, second.acked());
+		assertEquals(0, second.failed());
+	}
+
+	private BulkIngestor ingestor(RecordShape shape, int batchSize) {
+		return new BulkIngestor(shape, "Bulk ingest", "customer_data", batchSize, publisher,
+				new PipelineMetrics(new SimpleMeterRegistry()));
+	}
+
+	private static ByteArrayInputStream body(String json) {
+		return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,116 @@
+package dev.chef.crm_backend.join;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import dev.chef.crm_backend.dto.CustomerData;
+import dev.chef.crm_backend.dto.CustomerWithProducts;
+import dev.chef.crm_backend.dto.InventoryItem;
+import dev.chef.crm_backend.metrics.PipelineMetrics;
+import dev.chef.crm_backend.publish.KafkaPublisher;
+import dev.chef.crm_backend.publish.PublisherFixtures;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+
+public class CustomerInventoryJoinTest {
+
+	@SuppressWarnings("unchecked")
+	private final KafkaTemplate<String, Object> kafkaTemplate = mock(KafkaTemplate.class);
+	private final Map<String, Object> emitted = new HashMap<>();
+	private JoinInput<CustomerData> customers;
+	private JoinInput<InventoryItem> inventory;
+
+	@BeforeEach
+	void setUp() {
+		when(kafkaTemplate.send(anyString(), anyString(), any())).thenAnswer(invocation -> {
+			emitted.put(invocation.getArgument(1), invocation.getArgument(2));
+			return CompletableFuture.completedFuture(null);
+		});
+		CustomerInventoryJoin join = new CustomerInventoryJoin(
+				PublisherFixtures.publisher(kafkaTemplate, new PipelineMetrics(new SimpleMeterRegistry()), 100),
+				"customer_inventory");
+		customers = join.customers();
+		inventory = join.inventory();
+	}
+
+	@Test
+	void emitsNothingUntilBothSidesCompletedACycle() {
+		customerCycle(customer("1", "p1", "p2"), customer("2", "p2"));
+		assertTrue(emitted.isEmpty(), "customers must not be published before inventory is known");
+
+		inventoryCycle(item("p1", 5), item("p2", 7));
+
+		assertEquals(2, emitted.size());
+		CustomerWithProducts first = (CustomerWithProducts) emitted.get("1");
+		assertEquals(List.of(item("p1", 5), item("p2", 7)), first.products());
+		assertEquals(List.of(), first.missingProductIds());
+	}
+
+	@Test
+	void onlyCustomersAffectedByAChangeAreReemitted() {
+		customerCycle(customer("1", "p1"), customer("2", "p2"), customer("3"));
+		inventoryCycle(item("p1", 5), item("p2", 7));
+		emitted.clear();
+
+		inventoryCycle(item("p1", 5), item("p2", 6));
+		assertEquals(List.of("2"), List.copyOf(emitted.keySet()), "only the customer referencing p2");
+
+		emitted.clear();
+		customerCycle(customer("1", "p1"), customer("2", "p2"), customer("3"));
+		inventoryCycle(item("p1", 5), item("p2", 6));
+		assertTrue(emitted.isEmpty(), "unchanged cycles emit nothing");
+
+		customerCycle(customer("1", "p1"), customer("2", "p1"), customer("3"));
+		assertEquals(List.of(item("p1", 5)), ((CustomerWithProducts) emitted.get("2")).products());
+		emitted.clear();
+		inventoryCycle(item("p2", 6));
+		assertEquals(2, emitted.size(), "dropping p1 affects both customers now referencing it");
+	}
+
+	@Test
+	void removalsAreTombstonedOrReportedAsMissing() {
+		customerCycle(customer("1", "p1"), customer("2", "p2"));
+		inventoryCycle(item("p1", 5), item("p2", 7));
+		emitted.clear();
+
+		inventoryCycle(item("p1", 5));
+		assertEquals(List.of("p2"), ((CustomerWithProducts) emitted.get("2")).missingProductIds());
+
+		emitted.clear();
+		customerCycle(customer("2", "p2"));
+		assertTrue(emitted.containsKey("1"));
+		assertNull(emitted.get("1"), "a customer that disappeared is tombstoned");
+	}
+
+	private void customerCycle(CustomerData... records) {
+		customers.beginCycle();
+		List.of(records).forEach(customers::accept);
+		customers.endCycle();
+	}
+
+	private void inventoryCycle(InventoryItem... records) {
+		inventory.beginCycle();
+		List.of(records).forEach(inventory::accept);
+		inventory.endCycle();
+	}
+
+	private static CustomerData customer(String id, String... productIds) {
+		return new CustomerData(id, "Customer " + id, "c" + id + "@example.com", null, List.of(productIds));
+	}
+
+	private static InventoryItem item(String id, int stock) {
+		return new InventoryItem(id, "Product " + id, stock);
+	}
+}
@@ -0,0 +1,34 @@
+package dev.chef.crm_backend.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+import dev.chef.crm_backend.http.HttpValidatorCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class UpstreamHttpMetricsTest {
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void registersTheConditionalRequestTotalsAsCounters() {
+		HttpValidatorCache validatorCache = new HttpValidatorCache();
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		new UpstreamHttpMetrics(validatorCache, mock(ObjectProvider.class)).bindTo(registry);
+		HttpHeaders headers = new HttpHeaders();
+		headers.setETag("\"v1\"");
+
+		validatorCache.isNotModified("http://crm/customers", HttpStatus.OK.value());
+		validatorCache.store("http://crm/customers", headers, 4096);
+		validatorCache.isNotModified("http://crm/customers", HttpStatus.NOT_MODIFIED.value());
+
+		assertEquals(2.0, registry.get("crm.http.conditional.requests").functionCounter().count());
+		assertEquals(1.0, registry.get("crm.http.conditional.not.modified").functionCounter().count());
+		assertEquals(4096.0, registry.get("crm.http.conditional.bytes.saved").functionCounter().count());
+		assertEquals(0.5, registry.get("crm.http.conditional.hit.ratio").gauge().value());
+	}
+}
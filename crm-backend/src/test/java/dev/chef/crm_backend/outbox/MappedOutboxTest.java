@@ -0,0 +1,127 @@
+package dev.chef.crm_backend.outbox;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class MappedOutboxTest {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void deliveryResumesAtTheWatermarkAfterRestart() throws IOException {
+		try (MappedOutbox outbox = new MappedOutbox(dir, 4096, 1 << 20)) {
+			outbox.append("customer_data", "1", bytes("a"), Map.of("crm_encoding", bytes("compact")));
+			outbox.append("customer_data", "2", null, Map.of());
+			outbox.append("inventory_data", null, bytes("c"), Map.of());
+
+			MappedOutbox.Batch first = outbox.readBatch(2);
+			assertEquals(List.of(0L, 1L), first.records().stream().map(OutboxRecord::offset).toList());
+			OutboxRecord record = first.records().getFirst();
+			assertEquals("customer_data", record.topic());
+			assertEquals("1", record.key());
+			assertArrayEquals(bytes("a"), record.value());
+			assertArrayEquals(bytes("compact"), record.headers().get("crm_encoding"));
+			assertNull(first.records().get(1).value(), "tombstones keep their null value");
+			outbox.acknowledge(first);
+
+			assertEquals(1, outbox.readBatch(10).records().size(), "read but never acknowledged");
+			assertEquals(1, outbox.backlog());
+		}
+
+		try (MappedOutbox outbox = new MappedOutbox(dir, 4096, 1 << 20)) {
+			List<OutboxRecord> records = outbox.readBatch(10).records();
+			assertEquals(1, records.size());
+			assertEquals(2L, records.getFirst().offset());
+			assertNull(records.getFirst().key());
+			assertEquals(3L, outbox.append("customer_data", "4", bytes("d"), Map.of()), "offsets continue after restart");
+		}
+	}
+
+	@Test
+	void rewindRedeliversUnacknowledgedRecords() throws IOException {
+		try (MappedOutbox outbox = new MappedOutbox(dir, 4096, 1 << 20)) {
+			for (int i = 0; i < 5; i++) {
+				outbox.append("t", Integer.toString(i), bytes("v" + i), Map.of());
+			}
+			outbox.acknowledge(outbox.readBatch(2));
+			outbox.readBatch(2);
+			outbox.rewind();
+			assertEquals(List.of("2", "3", "4"), outbox.readBatch(10).records().stream().map(OutboxRecord::key).toList());
+		}
+	}
+
+	@Test
+	void drainedSegmentsAreDeleted() throws IOException {
+		try (MappedOutbox outbox = new MappedOutbox(dir, 256, 1 << 20)) {
+			for (int i = 0; i < 40; i++) {
+				outbox.append("t", Integer.toString(i), new byte[32], Map.of());
+			}
+			assertTrue(segments().size() > 3);
+			while (outbox.backlog() > 0) {
+				outbox.acknowledge(outbox.readBatch(7));
+			}
+			assertEquals(1, segments().size(), "only the active segment is kept");
+			assertThrows(IllegalArgumentException.class, () -> outbox.append("t", "big", new byte[512], Map.of()));
+		}
+	}
+
+	@Test
+	void appendsAreRejectedOnceTheBacklogIsFull() throws IOException {
+		try (MappedOutbox outbox = new MappedOutbox(dir, 256, 512)) {
+			assertThrows(IllegalStateException.class, () -> {
+				for (int i = 0; i < 100; i++) {
+					outbox.append("t", Integer.toString(i), new byte[32], Map.of());
+				}
+			});
+			outbox.acknowledge(outbox.readBatch(100));
+			outbox.append("t", "after", new byte[32], Map.of());
+		}
+	}
+
+	@Test
+	void tornWriteOnlyLosesTheLastRecord() throws IOException {
+		try (MappedOutbox outbox = new MappedOutbox(dir, 4096, 1 << 20)) {
+			outbox.append("t", "1", bytes("one"), Map.of());
+			outbox.append("t", "2", bytes("two"), Map.of());
+		}
+		Path segment = segments().getFirst();
+		try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+			file.seek(file.length() - 1);
+			file.write(0x7F);
+		}
+
+		try (MappedOutbox outbox = new MappedOutbox(dir, 4096, 1 << 20)) {
+			assertEquals(List.of("1"), outbox.readBatch(10).records().stream().map(OutboxRecord::key).toList());
+			assertEquals(1L, outbox.append("t", "2", bytes("two"), Map.of()));
+		}
+		try (MappedOutbox outbox = new MappedOutbox(dir, 4096, 1 << 20)) {
+			assertEquals(List.of("1", "2"), outbox.readBatch(10).records().stream().map(OutboxRecord::key).toList());
+		}
+	}
+
+	private List<Path> segments() throws IOException {
+		try (Stream<Path> files = Files.list(dir)) {
+			return files.filter(p -> p.getFileName().toString().startsWith("outbox-")).sorted().toList();
+		}
+	}
+
+	private static byte[] bytes(String s) {
+		return s.getBytes(StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,126 @@
+package dev.chef.crm_backend.outbox;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import dev.chef.crm_backend.publish.RecordMetadata;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class OutboxDrainerTest {
+
+	@TempDir
+	Path dir;
+
+	@SuppressWarnings("unchecked")
+	private final KafkaTemplate<String, Object> kafkaTemplate = mock(KafkaTemplate.class);
+
+	@Test
+	void failedBatchIsRewoundAndRedeliveredInOrder() throws Exception {
+		List<String> delivered = new CopyOnWriteArrayList<>();
+		AtomicInteger sends = new AtomicInteger();
+		when(kafkaTemplate.send(any(ProducerRecord.class))).thenAnswer(invocation -> {
+			ProducerRecord<String, Object> record = invocation.getArgument(0);
+			// the third send fails once, failing its whole batch
+			if (sends.incrementAndGet() == 3) {
+				return CompletableFuture.failedFuture(new IllegalStateException("broker unavailable"));
+			}
+			delivered.add(record.key());
+			return CompletableFuture.completedFuture(mock(SendResult.class));
+		});
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		AtomicInteger acks = new AtomicInteger();
+
+		try (MappedOutbox outbox = new MappedOutbox(dir, 4096, 1 << 20)) {
+			OutboxSender sender = new OutboxSender(outbox, (topic, data) -> ((String) data).getBytes(StandardCharsets.UTF_8));
+			for (int i = 0; i < 6; i++) {
+				sender.send("customer_data", Integer.toString(i), "v" + i, null);
+			}
+			OutboxDrainer drainer = new OutboxDrainer(outbox, kafkaTemplate, registry, 4, Duration.ofSeconds(1),
+					acks::incrementAndGet);
+			drainer.start();
+			try {
+				long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+				while (outbox.backlog() > 0 && System.nanoTime() < deadline) {
+					Thread.sleep(10);
+				}
+			} finally {
+				drainer.stop();
+			}
+
+			assertEquals(0, outbox.backlog());
+			// the whole first batch is sent again from its first record, then the rest follows in order
+			assertEquals(List.of("0", "1", "3", "0", "1", "2", "3", "4", "5"), delivered);
+			assertEquals(2, acks.get(), "only acknowledged batches count as acks");
+			assertEquals(1.0, registry.get("crm.outbox.drain.failures").counter().count());
+			assertTrue(registry.get("crm.outbox.drain.batch").summary().count() >= 2);
+		}
+	}
+
+	@Test
+	void metadataAndSerializerHeadersAreDrainedWithTheRecord() throws Exception {
+		List<ProducerRecord<String, Object>> delivered = new CopyOnWriteArrayList<>();
+		when(kafkaTemplate.send(any(ProducerRecord.class))).thenAnswer(invocation -> {
+			delivered.add(invocation.getArgument(0));
+			return CompletableFuture.completedFuture(mock(SendResult.class));
+		});
+
+		try (MappedOutbox outbox = new MappedOutbox(dir, 4096, 1 << 20)) {
+			OutboxSender sender = new OutboxSender(outbox, new Serializer<>() {
+				@Override
+				public byte[] serialize(String topic, Object data) {
+					return null;
+				}
+
+				@Override
+				public byte[] serialize(String topic, Headers headers, Object data) {
+					headers.add("crm_encoding", "compact".getBytes(StandardCharsets.US_ASCII));
+					return new byte[] { 1, 2, 3 };
+				}
+			});
+			sender.send("customer_data", "42", new Object(),
+					new RecordMetadata("00000000000000ff", "CRM (customers)", 1700000000000L, null, "cycle-1"));
+			OutboxDrainer drainer = new OutboxDrainer(outbox, kafkaTemplate, new SimpleMeterRegistry(), 10,
+					Duration.ofSeconds(1));
+			drainer.start();
+			try {
+				long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+				while (delivered.isEmpty() && System.nanoTime() < deadline) {
+					Thread.sleep(10);
+				}
+			} finally {
+				drainer.stop();
+			}
+		}
+
+		assertEquals(1, delivered.size());
+		ProducerRecord<String, Object> record = delivered.getFirst();
+		assertEquals("customer_data", record.topic());
+		assertEquals("42", record.key());
+		assertArrayEquals(new byte[] { 1, 2, 3 }, (byte[]) record.value());
+		assertEquals("compact", new String(record.headers().lastHeader("crm_encoding").value(), StandardCharsets.US_ASCII));
+		assertEquals("00000000000000ff", new String(record.headers().lastHeader(RecordMetadata.FINGERPRINT_HEADER).value(),
+				StandardCharsets.UTF_8));
+		assertEquals("1700000000000", new String(record.headers().lastHeader(RecordMetadata.FETCHED_AT_HEADER).value(),
+				StandardCharsets.UTF_8));
+	}
+}
@@ -1,41 +1,108 @@
 package dev.chef.crm_backend.producer;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
 
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import dev.chef.crm_backend.delta.DeltaFilterFactory;
+import dev.chef.crm_backend.delta.RecordFingerprinter;
 import dev.chef.crm_backend.dto.CustomerData;
+import dev.chef.crm_backend.http.FetchResult;
+import dev.chef.crm_backend.http.HttpValidatorCache;
+import dev.chef.crm_backend.http.ReactiveUpstreamClient;
+import dev.chef.crm_backend.http.UpstreamClient;
+import dev.chef.crm_backend.metrics.PipelineMetrics;
+import dev.chef.crm_backend.publish.CycleResult;
+import dev.chef.crm_backend.publish.KafkaPublisher;
+import dev.chef.crm_backend.publish.PublisherFixtures;
+import dev.chef.crm_backend.publish.TransactionalDelivery;
+import dev.chef.crm_backend.resilience.UpstreamLimiterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.serialization.StringSerializer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
+import org.mockito.stubbing.Answer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
+import reactor.core.publisher.Flux;
 
 public class CrmCustomerProducerTest {
 
 	@Mock
-	private RestTemplate restTemplate;
+	private UpstreamClient upstreamClient;
 
 	@Mock
 	private KafkaTemplate<String, Object> kafkaTemplate;
 
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final PipelineMetrics metrics = new PipelineMetrics(registry);
 	private CrmCustomerProducer producer;
 
 	@BeforeEach
 	void setUp() {
 		MockitoAnnotations.openMocks(this);
-		producer = new CrmCustomerProducer(restTemplate, kafkaTemplate);
-		ReflectionTestUtils.setField(producer, "crmBaseUrl", "http://localhost:8081");
-		ReflectionTestUtils.setField(producer, "topic", "customer_data");
+		when(kafkaTemplate.send(anyString(), any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+		producer = createProducer(false);
+	}
+
+	private CrmCustomerProducer createProducer(boolean tombstones) {
+		return createProducer(PublisherFixtures.publisher(kafkaTemplate, metrics, 100), tombstones);
+	}
+
+	private CrmCustomerProducer createProducer(KafkaPublisher publisher, boolean tombstones) {
+		return createProducer(upstreamClient, publisher, tombstones);
+	}
+
+	private CrmCustomerProducer createProducer(UpstreamClient upstreamClient, KafkaPublisher publisher,
+			boolean tombstones) {
+		CrmCustomerProducer p = new CrmCustomerProducer(upstreamClient, publisher,
+				new DeltaFilterFactory(new RecordFingerprinter(), true, tombstones, "memory",
+						Path.of("data", "delta"), 100_000, 0), metrics);
+		ReflectionTestUtils.setField(p, "crmBaseUrl", "http://localhost:8081");
+		ReflectionTestUtils.setField(p, "topic", "customer_data");
+		return p;
+	}
+
+	private static Answer<FetchResult> streams(List<CustomerData> customers) {
+		return invocation -> {
+			Consumer<CustomerData> sink = invocation.getArgument(2);
+			customers.forEach(sink);
+			return FetchResult.of(customers.size(), 0);
+		};
 	}
 
 	@Test
@@ -46,12 +113,8 @@ public class CrmCustomerProducerTest {
 				new CustomerData("2", "Customer 2", "c2@example.com")
 		);
 
-		when(restTemplate.exchange(
-				anyString(),
-				eq(HttpMethod.GET),
-				eq(null),
-				any(org.springframework.core.ParameterizedTypeReference.class)
-		)).thenReturn(ResponseEntity.ok(customers));
+		when(upstreamClient.streamArray(eq("http://localhost:8081/customers"), eq(CustomerData.class), any()))
+				.thenAnswer(streams(customers));
 
 		// Act
 		producer.produce();
@@ -62,16 +125,241 @@ public class CrmCustomerProducerTest {
 
 	@Test
 	void produce_doesNothingWhenNoCustomers() {
-		when(restTemplate.exchange(
-				anyString(),
-				eq(HttpMethod.GET),
-				eq(null),
-				any(org.springframework.core.ParameterizedTypeReference.class)
-		)).thenReturn(ResponseEntity.ok(List.of()));
+		when(upstreamClient.streamArray(anyString(), eq(CustomerData.class), any()))
+				.thenAnswer(streams(List.of()));
 
 		producer.produce();
 
 		verify(kafkaTemplate, times(0)).send(anyString(), anyString(), any());
 	}
-}
 
+	@Test
+	void produce_skipsUnchangedCustomersOnNextCycle() {
+		CustomerData unchanged = new CustomerData("1", "Customer 1", "c1@example.com");
+		when(upstreamClient.streamArray(anyString(), eq(CustomerData.class), any()))
+				.thenAnswer(streams(List.of(unchanged, new CustomerData("2", "Customer 2", "c2@example.com"))))
+				.thenAnswer(streams(List.of(unchanged, new CustomerData("2", "Customer 2", "new@example.com"))));
+
+		producer.produce();
+		producer.produce();
+
+		verify(kafkaTemplate, times(1)).send(eq("customer_data"), eq("1"), any());
+		verify(kafkaTemplate, times(2)).send(eq("customer_data"), eq("2"), any());
+	}
+
+	@Test
+	void produce_forgetsFingerprintsOfFailedSends() {
+		CustomerData customer = new CustomerData("1", "Customer 1", "c1@example.com");
+		when(upstreamClient.streamArray(anyString(), eq(CustomerData.class), any()))
+				.thenAnswer(streams(List.of(customer)));
+		when(kafkaTemplate.send(anyString(), any(), any()))
+				.thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")))
+				.thenReturn(CompletableFuture.completedFuture(null));
+
+		producer.produce();
+		producer.produce();
+
+		// the second cycle replays the failed send and, since the fingerprint was forgotten,
+		// publishes the unchanged customer again instead of relying on the retry queue alone
+		verify(kafkaTemplate, times(3)).send(eq("customer_data"), eq("1"), any());
+	}
+
+	@Test
+	void produce_skipsTheConditionalRequestAfterTheRetryQueueDroppedRecords() {
+		RestTemplate restTemplate = new RestTemplate();
+		MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+		// the CRM's dataset does not change, so it answers 304 whenever it is asked conditionally
+		server.expect(ExpectedCount.times(2), requestTo("http://localhost:8081/customers")).andRespond(request -> {
+			if (request.getHeaders().containsHeader(HttpHeaders.IF_NONE_MATCH)) {
+				return withStatus(HttpStatus.NOT_MODIFIED).createResponse(request);
+			}
+			HttpHeaders headers = new HttpHeaders();
+			headers.setETag("\"v1\"");
+			return withSuccess("[{\"id\":\"1\"},{\"id\":\"2\"},{\"id\":\"3\"}]", MediaType.APPLICATION_JSON)
+					.headers(headers).createResponse(request);
+		});
+		producer = createProducer(new UpstreamClient(restTemplate, new HttpValidatorCache(), UpstreamLimiterRegistry.NONE),
+				PublisherFixtures.publisher(kafkaTemplate, metrics, 100, 1), false);
+		when(kafkaTemplate.send(anyString(), any(), any()))
+				.thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")))
+				.thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")))
+				.thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")))
+				.thenReturn(CompletableFuture.completedFuture(null));
+
+		producer.produce();
+		producer.produce();
+
+		// the queue only kept customer 3; 1 and 2 are back because the second poll fetched in full
+		server.verify();
+		verify(kafkaTemplate, times(2)).send(eq("customer_data"), eq("1"), any());
+		verify(kafkaTemplate, times(2)).send(eq("customer_data"), eq("2"), any());
+	}
+
+	@Test
+	void produce_emitsTombstonesForRemovedCustomersWhenEnabled() {
+		producer = createProducer(true);
+		when(upstreamClient.streamArray(anyString(), eq(CustomerData.class), any()))
+				.thenAnswer(streams(List.of(
+						new CustomerData("1", "Customer 1", "c1@example.com"),
+						new CustomerData("2", "Customer 2", "c2@example.com"))))
+				.thenAnswer(streams(List.of(new CustomerData("1", "Customer 1", "c1@example.com"))));
+
+		producer.produce();
+		producer.produce();
+
+		verify(kafkaTemplate, times(1)).send("customer_data", "2", null);
+	}
+
+	@Test
+	void produce_skipsPublishWhenUpstreamAnswersNotModified() {
+		producer = createProducer(true);
+		when(upstreamClient.streamArray(anyString(), eq(CustomerData.class), any()))
+				.thenAnswer(streams(List.of(new CustomerData("1", "Customer 1", "c1@example.com"))))
+				.thenReturn(FetchResult.notModifiedResult());
+
+		producer.produce();
+		producer.produce();
+
+		verify(kafkaTemplate, times(1)).send(anyString(), anyString(), any());
+	}
+
+	@Test
+	void produce_recordsFetchAndAckMetricsTaggedBySource() {
+		when(upstreamClient.streamArray(anyString(), eq(CustomerData.class), any()))
+				.thenAnswer(streams(List.of(new CustomerData("1", "Customer 1", "c1@example.com"))))
+				.thenReturn(FetchResult.notModifiedResult());
+
+		producer.produce();
+		producer.produce();
+
+		String source = producer.getSourceName();
+		assertEquals(1, registry.get("crm.fetch").tags("source", source, "outcome", "modified").timer().count());
+		assertEquals(1, registry.get("crm.fetch").tags("source", source, "outcome", "not_modified").timer().count());
+		assertEquals(1.0, registry.get("crm.cycle.records.fetched").tag("source", source).summary().totalAmount());
+		assertEquals(1, registry.get("crm.kafka.ack").tag("source", source).timer().count());
+		assertTrue(registry.get("crm.startup.first.ack").timeGauge().value(TimeUnit.MILLISECONDS) > 0);
+	}
+
+	@Test
+	void reactivePipeline_publishesChangesAndTombstones() {
+		ReactiveUpstreamClient reactiveClient = mock(ReactiveUpstreamClient.class);
+		CrmCustomerProducer reactive = createProducer(true);
+		ReflectionTestUtils.setField(reactive, "reactiveClient", reactiveClient);
+		ReflectionTestUtils.setField(reactive, "pipeline", "reactive");
+		when(reactiveClient.streamArray(eq("http://localhost:8081/customers"), eq(CustomerData.class), any()))
+				.thenAnswer(reactiveStream(List.of(new CustomerData("1", "Customer 1", "c1@example.com"),
+						new CustomerData("2", "Customer 2", "c2@example.com"))))
+				.thenAnswer(reactiveStream(List.of(new CustomerData("1", "Customer 1", "c1@example.com"))));
+
+		assertEquals(2, reactive.produce().acked());
+		assertEquals(1, reactive.produce().acked(), "only the tombstone for customer 2 is new");
+
+		verify(kafkaTemplate, times(1)).send(eq("customer_data"), eq("1"), any());
+		verify(kafkaTemplate, times(1)).send("customer_data", "2", null);
+	}
+
+	@Test
+	void reactivePipeline_timesTheFetchWithoutWaitingForAcks() {
+		ReactiveUpstreamClient reactiveClient = mock(ReactiveUpstreamClient.class);
+		CrmCustomerProducer reactive = createProducer(false);
+		ReflectionTestUtils.setField(reactive, "reactiveClient", reactiveClient);
+		ReflectionTestUtils.setField(reactive, "pipeline", "reactive");
+		when(reactiveClient.streamArray(anyString(), eq(CustomerData.class), any()))
+				.thenAnswer(reactiveStream(List.of(new CustomerData("1", "Customer 1", "c1@example.com"))));
+		// the broker acknowledges well after the fetch has completed
+		when(kafkaTemplate.send(anyString(), any(), any())).thenAnswer(invocation -> CompletableFuture.supplyAsync(
+				() -> null, CompletableFuture.delayedExecutor(500, TimeUnit.MILLISECONDS)));
+
+		assertEquals(1, reactive.produce().acked());
+
+		Timer fetch = registry.get("crm.fetch").tag("outcome", "modified").timer();
+		assertEquals(1, fetch.count());
+		assertTrue(fetch.totalTime(TimeUnit.MILLISECONDS) < 500,
+				"fetch took " + fetch.totalTime(TimeUnit.MILLISECONDS) + " ms");
+	}
+
+	@Test
+	void transactionalCycle_commitsNothingWhenTheFetchFailsHalfway() {
+		MockProducer<String, Object> kafka = transactionalProducer();
+		CrmCustomerProducer transactional = createProducer(PublisherFixtures.transactional(kafkaTemplate,
+				new TransactionalDelivery(() -> kafka, Set.of("customer_data"), 0), metrics, 100), false);
+		when(upstreamClient.streamArray(anyString(), eq(CustomerData.class), any())).thenAnswer(invocation -> {
+			Consumer<CustomerData> sink = invocation.getArgument(2);
+			sink.accept(new CustomerData("1", "Customer 1", "c1@example.com"));
+			sink.accept(new CustomerData("2", "Customer 2", "c2@example.com"));
+			throw new ResourceAccessException("connection reset");
+		});
+
+		assertThrows(ResourceAccessException.class, transactional::produce);
+
+		assertTrue(kafka.transactionAborted());
+		assertFalse(kafka.transactionCommitted());
+		assertTrue(kafka.history().isEmpty(), "read_committed consumers must not see a partial snapshot");
+	}
+
+	@Test
+	void transactionalReactiveCycle_commitsNothingWhenTheFetchFailsHalfway() {
+		MockProducer<String, Object> kafka = transactionalProducer();
+		CrmCustomerProducer transactional = createProducer(PublisherFixtures.transactional(kafkaTemplate,
+				new TransactionalDelivery(() -> kafka, Set.of("customer_data"), 0), metrics, 100), false);
+		ReactiveUpstreamClient reactiveClient = mock(ReactiveUpstreamClient.class);
+		ReflectionTestUtils.setField(transactional, "reactiveClient", reactiveClient);
+		ReflectionTestUtils.setField(transactional, "pipeline", "reactive");
+		when(reactiveClient.streamArray(anyString(), eq(CustomerData.class), any())).thenReturn(
+				Flux.just(new CustomerData("1", "Customer 1", "c1@example.com"),
+								new CustomerData("2", "Customer 2", "c2@example.com"))
+						.concatWith(Flux.error(new ResourceAccessException("connection reset"))));
+
+		assertThrows(ResourceAccessException.class, transactional::produce);
+
+		assertTrue(kafka.transactionAborted());
+		assertTrue(kafka.history().isEmpty());
+	}
+
+	/**
+	 * A producer that stays usable after close, as the factory's cached producers do.
+	 */
+	private static MockProducer<String, Object> transactionalProducer() {
+		MockProducer<String, Object> producer = new MockProducer<>(true, null, new StringSerializer(),
+				(topic, value) -> String.valueOf(value).getBytes()) {
+			@Override
+			public void close() {
+			}
+
+			@Override
+			public void close(Duration timeout) {
+			}
+		};
+		producer.initTransactions();
+		return producer;
+	}
+
+	private static Answer<Flux<CustomerData>> reactiveStream(List<CustomerData> customers) {
+		return invocation -> {
+			Consumer<FetchResult> onComplete = invocation.getArgument(2);
+			return Flux.fromIterable(customers).doOnComplete(() -> onComplete.accept(FetchResult.of(customers.size(), 0)));
+		};
+	}
+
+	@Test
+	void applyChanges_publishesPushedAndFetchedCustomersAndTombstonesDeletedOnes() {
+		producer = createProducer(true);
+		when(upstreamClient.streamArray(anyString(), eq(CustomerData.class), any()))
+				.thenAnswer(streams(List.of(
+						new CustomerData("1", "Customer 1", "c1@example.com"),
+						new CustomerData("2", "Customer 2", "c2@example.com"))));
+		producer.produce();
+		when(upstreamClient.fetchEach(List.of("http://localhost:8081/customers/2", "http://localhost:8081/customers/3"),
+				CustomerData.class))
+				.thenReturn(List.of(Optional.empty(), Optional.of(new CustomerData("3", "Customer 3", "c3@example.com"))));
+		ObjectNode pushed = JsonNodeFactory.instance.objectNode().put("id", 1).put("name", "Customer 1")
+				.put("email", "c1@example.com");
+
+		CycleResult result = producer.applyChanges(new ChangeSet(List.of("2", "3"), List.of(pushed)));
+
+		assertEquals(2, result.sent(), "the unchanged pushed customer is filtered, 2 is tombstoned, 3 is new");
+		verify(kafkaTemplate, times(1)).send(eq("customer_data"), eq("1"), any());
+		verify(kafkaTemplate).send("customer_data", "2", null);
+		verify(kafkaTemplate).send(eq("customer_data"), eq("3"), any());
+	}
+}
@@ -1,5 +1,6 @@
 package dev.chef.crm_backend.producer;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
@@ -7,37 +8,63 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
+import dev.chef.crm_backend.delta.DeltaFilterFactory;
+import dev.chef.crm_backend.delta.RecordFingerprinter;
 import dev.chef.crm_backend.dto.InventoryItem;
+import dev.chef.crm_backend.dto.StockDelta;
+import dev.chef.crm_backend.http.FetchResult;
+import dev.chef.crm_backend.http.UpstreamClient;
+import dev.chef.crm_backend.metrics.PipelineMetrics;
+import dev.chef.crm_backend.publish.KafkaPublisher;
+import dev.chef.crm_backend.publish.PublisherFixtures;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
+import org.mockito.stubbing.Answer;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.test.util.ReflectionTestUtils;
-import org.springframework.web.client.RestTemplate;
 
 public class InventoryProducerTest {
 
 	@Mock
-	private RestTemplate restTemplate;
+	private UpstreamClient upstreamClient;
 
 	@Mock
 	private KafkaTemplate<String, Object> kafkaTemplate;
 
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final PipelineMetrics metrics = new PipelineMetrics(registry);
 	private InventoryProducer producer;
 
 	@BeforeEach
 	void setUp() {
 		MockitoAnnotations.openMocks(this);
-		producer = new InventoryProducer(restTemplate, kafkaTemplate);
+		when(kafkaTemplate.send(anyString(), any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+		producer = new InventoryProducer(upstreamClient, PublisherFixtures.publisher(kafkaTemplate, metrics, 100),
+				new DeltaFilterFactory(new RecordFingerprinter(), true, false, "memory", Path.of("data", "delta"),
+						100_000, 0),
+				metrics);
 		ReflectionTestUtils.setField(producer, "inventoryBaseUrl", "http://localhost:8082");
 		ReflectionTestUtils.setField(producer, "topic", "inventory_data");
 	}
 
+	private static Answer<FetchResult> streams(List<InventoryItem> items) {
+		return invocation -> {
+			Consumer<InventoryItem> sink = invocation.getArgument(2);
+			items.forEach(sink);
+			return FetchResult.of(items.size(), 0);
+		};
+	}
+
 	@Test
 	void produce_sendsMessagesForEachInventoryItem() {
 		List<InventoryItem> items = List.of(
@@ -45,12 +72,8 @@ public class InventoryProducerTest {
 				new InventoryItem("2", "Product 2", 20)
 		);
 
-		when(restTemplate.exchange(
-				anyString(),
-				eq(HttpMethod.GET),
-				eq(null),
-				any(org.springframework.core.ParameterizedTypeReference.class)
-		)).thenReturn(ResponseEntity.ok(items));
+		when(upstreamClient.streamArray(eq("http://localhost:8082/products"), eq(InventoryItem.class), any()))
+				.thenAnswer(streams(items));
 
 		producer.produce();
 
@@ -59,16 +82,58 @@ public class InventoryProducerTest {
 
 	@Test
 	void produce_doesNothingWhenNoInventoryItems() {
-		when(restTemplate.exchange(
-				anyString(),
-				eq(HttpMethod.GET),
-				eq(null),
-				any(org.springframework.core.ParameterizedTypeReference.class)
-		)).thenReturn(ResponseEntity.ok(List.of()));
+		when(upstreamClient.streamArray(anyString(), eq(InventoryItem.class), any()))
+				.thenAnswer(streams(List.of()));
 
 		producer.produce();
 
 		verify(kafkaTemplate, times(0)).send(anyString(), anyString(), any());
 	}
-}
 
+	@Test
+	void stockDeltaMode_publishesStockChangesAsEvents() {
+		ReflectionTestUtils.setField(producer, "publishMode", "stock-delta");
+		ReflectionTestUtils.setField(producer, "stockTopic", "inventory_stock");
+		ReflectionTestUtils.setField(producer, "lowStockThreshold", 5);
+		when(upstreamClient.streamArray(anyString(), eq(InventoryItem.class), any()))
+				.thenAnswer(streams(List.of(new InventoryItem("1", "Product 1", 10), new InventoryItem("2", "Product 2", 20))))
+				.thenAnswer(streams(List.of(new InventoryItem("1", "Product 1", 3), new InventoryItem("2", "Product 2", 20))));
+
+		producer.produce();
+		verify(kafkaTemplate, times(2)).send(eq("inventory_data"), anyString(), any());
+		verify(kafkaTemplate, times(2)).send(eq("inventory_stock"), anyString(), any());
+
+		producer.produce();
+
+		// only the stock of item 1 changed: no new snapshot, one delta event crossing the threshold
+		verify(kafkaTemplate, times(2)).send(eq("inventory_data"), anyString(), any());
+		ArgumentCaptor<Object> events = ArgumentCaptor.forClass(Object.class);
+		verify(kafkaTemplate, times(3)).send(eq("inventory_stock"), anyString(), events.capture());
+		assertEquals(new StockDelta("1", 10, 3, -7, StockDelta.Crossing.LOW), events.getAllValues().get(2));
+	}
+
+	@Test
+	void stockDeltaMode_replaysEveryFailedStockEventInOrder() {
+		ReflectionTestUtils.setField(producer, "publishMode", "stock-delta");
+		ReflectionTestUtils.setField(producer, "stockTopic", "inventory_stock");
+		ReflectionTestUtils.setField(producer, "lowStockThreshold", 5);
+		AtomicBoolean brokerDown = new AtomicBoolean(true);
+		when(kafkaTemplate.send(anyString(), any(), any())).thenAnswer(invocation -> brokerDown.get()
+				? CompletableFuture.failedFuture(new IllegalStateException("broker down"))
+				: CompletableFuture.completedFuture(null));
+		when(upstreamClient.streamArray(anyString(), eq(InventoryItem.class), any()))
+				.thenAnswer(streams(List.of(new InventoryItem("1", "Product 1", 10))))
+				.thenAnswer(streams(List.of(new InventoryItem("1", "Product 1", 7))));
+
+		producer.produce();
+		producer.produce();
+		brokerDown.set(false);
+		producer.produce();
+
+		// both failed deltas of item 1 reach the topic, so downstream sums end at its stock
+		ArgumentCaptor<Object> events = ArgumentCaptor.forClass(Object.class);
+		verify(kafkaTemplate, times(5)).send(eq("inventory_stock"), eq("1"), events.capture());
+		assertEquals(List.of(new StockDelta("1", null, 10, 10, StockDelta.Crossing.NONE),
+				new StockDelta("1", 10, 7, -3, StockDelta.Crossing.NONE)), events.getAllValues().subList(3, 5));
+	}
+}
@@ -0,0 +1,48 @@
+package dev.chef.crm_backend.producer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.time.Duration;
+
+import dev.chef.crm_backend.publish.CycleResult;
+import org.junit.jupiter.api.Test;
+
+public class PollIntervalTest {
+
+	private static final CycleResult CHANGED = new CycleResult(3, 3, 3, 0, Duration.ZERO);
+
+	@Test
+	void adaptiveIntervalBacksOffWhenQuietAndResetsOnChanges() {
+		PollInterval interval = PollInterval.adaptive(Duration.ofSeconds(10), Duration.ofSeconds(1),
+				Duration.ofSeconds(60), 2.0);
+
+		assertEquals(Duration.ofSeconds(20), interval.onCycle(CycleResult.NONE));
+		assertEquals(Duration.ofSeconds(40), interval.onCycle(CycleResult.NONE));
+		assertEquals(Duration.ofSeconds(60), interval.onCycle(CycleResult.NONE), "capped at the ceiling");
+		assertEquals(Duration.ofSeconds(60), interval.onCycle(CycleResult.NONE));
+
+		assertEquals(Duration.ofSeconds(1), interval.onCycle(CHANGED), "changes drop straight to the floor");
+		assertEquals(Duration.ofSeconds(2), interval.onCycle(CycleResult.NONE));
+	}
+
+	@Test
+	void adaptiveIntervalKeepsBackingOffOnReplaysAndFailedSends() {
+		PollInterval interval = PollInterval.adaptive(Duration.ofSeconds(10), Duration.ofSeconds(1),
+				Duration.ofSeconds(60), 2.0);
+
+		assertEquals(Duration.ofSeconds(20), interval.onCycle(new CycleResult(4, 0, 4, 0, Duration.ZERO)),
+				"replays alone are not changes");
+		assertEquals(Duration.ofSeconds(40), interval.onCycle(new CycleResult(3, 3, 1, 2, Duration.ZERO)),
+				"failed sends back off even when the fetch found changes");
+	}
+
+	@Test
+	void fixedIntervalIgnoresCycleOutcome() {
+		PollInterval interval = PollInterval.fixed(Duration.ofSeconds(10));
+
+		assertFalse(interval.isAdaptive());
+		assertEquals(Duration.ofSeconds(10), interval.onCycle(CycleResult.NONE));
+		assertEquals(Duration.ofSeconds(10), interval.onCycle(CHANGED));
+	}
+}
@@ -0,0 +1,71 @@
+package dev.chef.crm_backend.producer;
+
+import org.springframework.test.util.ReflectionTestUtils;
+
+import dev.chef.crm_backend.delta.DeltaFilterFactory;
+import dev.chef.crm_backend.http.ReactiveUpstreamClient;
+import dev.chef.crm_backend.http.UpstreamClient;
+import dev.chef.crm_backend.join.JoinInput;
+import dev.chef.crm_backend.metrics.PipelineMetrics;
+import dev.chef.crm_backend.publish.KafkaPublisher;
+
+/**
+ * Builds producers outside a Spring context for tests and benchmarks in other packages,
+ * filling in the {@code @Value} settings Spring would inject with their defaults.
+ */
+public final class ProducerFixtures {
+
+	private ProducerFixtures() {
+	}
+
+	public static CustomerProducerBuilder customers(UpstreamClient upstreamClient, KafkaPublisher publisher,
+			DeltaFilterFactory deltaFilterFactory, PipelineMetrics metrics) {
+		return new CustomerProducerBuilder(upstreamClient, publisher, deltaFilterFactory, metrics);
+	}
+
+	public static final class CustomerProducerBuilder {
+
+		private final UpstreamClient upstreamClient;
+		private final KafkaPublisher publisher;
+		private final DeltaFilterFactory deltaFilterFactory;
+		private final PipelineMetrics metrics;
+		private String baseUrl = "http://localhost:8081";
+		private String topic = "customer_data";
+		private String pipeline = "blocking";
+		private ReactiveUpstreamClient reactiveClient;
+
+		private CustomerProducerBuilder(UpstreamClient upstreamClient, KafkaPublisher publisher,
+				DeltaFilterFactory deltaFilterFactory, PipelineMetrics metrics) {
+			this.upstreamClient = upstreamClient;
+			this.publisher = publisher;
+			this.deltaFilterFactory = deltaFilterFactory;
+			this.metrics = metrics;
+		}
+
+		public CustomerProducerBuilder baseUrl(String baseUrl) {
+			this.baseUrl = baseUrl;
+			return this;
+		}
+
+		public CustomerProducerBuilder topic(String topic) {
+			this.topic = topic;
+			return this;
+		}
+
+		public CustomerProducerBuilder reactive(ReactiveUpstreamClient reactiveClient) {
+			this.pipeline = "reactive";
+			this.reactiveClient = reactiveClient;
+			return this;
+		}
+
+		public CrmCustomerProducer build() {
+			CrmCustomerProducer producer = new CrmCustomerProducer(upstreamClient, publisher, deltaFilterFactory,
+					metrics, JoinInput.none(), reactiveClient);
+			ReflectionTestUtils.setField(producer, "crmBaseUrl", baseUrl);
+			ReflectionTestUtils.setField(producer, "topic", topic);
+			ReflectionTestUtils.setField(producer, "fetchMode", "single");
+			ReflectionTestUtils.setField(producer, "pipeline", pipeline);
+			return producer;
+		}
+	}
+}
@@ -0,0 +1,230 @@
+package dev.chef.crm_backend.producer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import dev.chef.crm_backend.coordination.SourceOwnership;
+import dev.chef.crm_backend.metrics.PipelineMetrics;
+import dev.chef.crm_backend.publish.CycleResult;
+import dev.chef.crm_backend.resilience.CircuitBreaker;
+import dev.chef.crm_backend.resilience.CircuitBreakerRegistry;
+import dev.chef.crm_backend.resilience.RetryPolicy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+public class ProducerSchedulerTest {
+
+	private final CountDownLatch release = new CountDownLatch(1);
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final PipelineMetrics metrics = new PipelineMetrics(registry);
+	private final CircuitBreakerRegistry circuitBreakers = new CircuitBreakerRegistry(metrics, 3, 60000);
+	private final RetryPolicy retryPolicy = new RetryPolicy(4, 10, 2.0, 50, 0.2, 10);
+	private ProducerScheduler scheduler;
+
+	@AfterEach
+	void tearDown() {
+		release.countDown();
+		if (scheduler != null) {
+			scheduler.stop();
+		}
+	}
+
+	@Test
+	void slowProducerDoesNotDelayOtherProducers() throws Exception {
+		StubProducer slow = new StubProducer("slow", () -> await(release));
+		CountDownLatch fastRuns = new CountDownLatch(3);
+		StubProducer fast = new StubProducer("fast", fastRuns::countDown);
+
+		scheduler = newScheduler(List.of(slow, fast), new MockEnvironment(), 20);
+		scheduler.start();
+
+		assertTrue(fastRuns.await(2, TimeUnit.SECONDS), "fast producer should keep cycling while slow one is stuck");
+		assertEquals(1, slow.runs.get(), "slow producer should not start overlapping cycles");
+	}
+
+	@Test
+	void overrunningTicksAreCoalesced() throws Exception {
+		StubProducer slow = new StubProducer("slow", () -> await(release));
+
+		scheduler = newScheduler(List.of(slow), new MockEnvironment(), 10);
+		scheduler.start();
+		Thread.sleep(200);
+
+		ProducerLane.LaneStats stats = scheduler.getLaneStats().get(0);
+		assertTrue(stats.overruns() > 1, "missed ticks should be counted as overruns");
+		assertTrue(stats.running());
+		assertEquals(1, slow.runs.get(), "missed ticks must not queue up extra cycles");
+		assertTrue(registry.get("crm.scheduler.overruns").tag("source", "slow").counter().count() > 1);
+	}
+
+	@Test
+	void perSourceIntervalOverridesDefault() {
+		MockEnvironment environment = new MockEnvironment().withProperty("integration.fast.poll-interval-ms", "250");
+		scheduler = newScheduler(List.of(new StubProducer("fast", () -> { })), environment, 10000);
+
+		assertEquals(Duration.ofMillis(250), scheduler.getLaneStats().get(0).interval());
+	}
+
+	@Test
+	void pushIngestionSlowsTheDefaultIntervalToTheReconciliationSweep() {
+		MockEnvironment environment = new MockEnvironment()
+				.withProperty("integration.push.enabled", "true")
+				.withProperty("integration.push.reconciliation-interval-ms", "300000")
+				.withProperty("integration.fast.poll-interval-ms", "250");
+		scheduler = newScheduler(List.of(new StubProducer("slow", () -> { }), new StubProducer("fast", () -> { })),
+				environment, 10000);
+
+		assertEquals(Duration.ofMinutes(5), scheduler.getLaneStats().get(0).interval());
+		assertEquals(Duration.ofMillis(250), scheduler.getLaneStats().get(1).interval(), "a source's own interval still wins");
+	}
+
+	@Test
+	void failedCycleIsRetriedAfterBackoff() throws Exception {
+		AtomicInteger calls = new AtomicInteger();
+		CountDownLatch succeeded = new CountDownLatch(1);
+		StubProducer flaky = new StubProducer("flaky", () -> {
+			if (calls.incrementAndGet() <= 2) {
+				throw new IllegalStateException("upstream down");
+			}
+			succeeded.countDown();
+		});
+
+		scheduler = newScheduler(List.of(flaky), new MockEnvironment(), 60000);
+		scheduler.start();
+
+		assertTrue(succeeded.await(2, TimeUnit.SECONDS), "failed cycles should be retried before the next poll");
+		ProducerLane.LaneStats stats = scheduler.getLaneStats().get(0);
+		assertEquals(2, stats.failures());
+		assertEquals(CircuitBreaker.State.CLOSED, stats.circuitState());
+		assertEquals(2.0, registry.get("crm.fetch.retries").tag("source", "flaky").counter().count());
+	}
+
+	@Test
+	void openCircuitStopsCallingFailingProducer() throws Exception {
+		StubProducer broken = new StubProducer("broken", () -> {
+			throw new IllegalStateException("upstream down");
+		});
+
+		scheduler = newScheduler(List.of(broken), new MockEnvironment(), 20);
+		scheduler.start();
+		Thread.sleep(400);
+
+		ProducerLane.LaneStats stats = scheduler.getLaneStats().get(0);
+		assertEquals(CircuitBreaker.State.OPEN, stats.circuitState());
+		assertEquals(3, broken.runs.get(), "an open circuit should fail fast without calling the producer");
+		assertTrue(stats.shortCircuits() > 0);
+		assertEquals(2.0, registry.get("crm.circuit.state").tag("source", "broken").gauge().value());
+	}
+
+	@Test
+	void adaptiveIntervalDropsToFloorWhenCyclesFindChanges() throws Exception {
+		MockEnvironment environment = new MockEnvironment()
+				.withProperty("integration.producers.poll-mode", "adaptive")
+				.withProperty("integration.producers.adaptive.min-interval-ms", "20")
+				.withProperty("integration.producers.adaptive.max-interval-ms", "60000");
+		CountDownLatch runs = new CountDownLatch(3);
+		StubProducer busy = new StubProducer("busy", runs::countDown, new CycleResult(5, 5, 5, 0, Duration.ZERO));
+
+		scheduler = newScheduler(List.of(busy), environment, 60000);
+		scheduler.start();
+
+		assertTrue(runs.await(2, TimeUnit.SECONDS), "a source with changes should be polled at the floor interval");
+		assertEquals(Duration.ofMillis(20), scheduler.getLaneStats().get(0).interval());
+		assertEquals(20.0, registry.get("crm.scheduler.interval").tag("source", "busy").timeGauge()
+				.value(TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	void onlyOwnedSourcesRunAndATakeoverResetsState() throws Exception {
+		AtomicBoolean owned = new AtomicBoolean();
+		StubProducer producer = new StubProducer("crm", () -> { });
+		scheduler = newScheduler(List.of(producer), new MockEnvironment(), 10, source -> owned.get());
+		scheduler.start();
+		Thread.sleep(100);
+		assertEquals(0, producer.runs.get(), "a source owned by another instance must not be polled");
+		assertEquals(0.0, registry.get("crm.coordination.owned").tag("source", "crm").gauge().value());
+
+		owned.set(true);
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+		while (producer.runs.get() < 3 && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		assertTrue(producer.runs.get() >= 3);
+		assertEquals(1, producer.resets.get(), "state is reset once, when the source is taken over");
+		assertTrue(scheduler.getLaneStats().get(0).owned());
+	}
+
+	private ProducerScheduler newScheduler(List<ExternalDataProducer> producers, MockEnvironment environment,
+			long intervalMs) {
+		return newScheduler(producers, environment, intervalMs, SourceOwnership.ALL);
+	}
+
+	private ProducerScheduler newScheduler(List<ExternalDataProducer> producers, MockEnvironment environment,
+			long intervalMs, SourceOwnership ownership) {
+		return new ProducerScheduler(producers, environment, metrics, circuitBreakers, retryPolicy, ownership,
+				intervalMs);
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static class StubProducer implements ExternalDataProducer {
+
+		private final String key;
+		private final Runnable body;
+		private final CycleResult result;
+		private final AtomicInteger runs = new AtomicInteger();
+		private final AtomicInteger resets = new AtomicInteger();
+
+		StubProducer(String key, Runnable body) {
+			this(key, body, CycleResult.NONE);
+		}
+
+		StubProducer(String key, Runnable body, CycleResult result) {
+			this.key = key;
+			this.body = body;
+			this.result = result;
+		}
+
+		@Override
+		public String getSourceName() {
+			return key;
+		}
+
+		@Override
+		public String getSourceKey() {
+			return key;
+		}
+
+		@Override
+		public CycleResult produce() {
+			runs.incrementAndGet();
+			body.run();
+			return result;
+		}
+
+		@Override
+		public CycleResult applyChanges(ChangeSet changes) {
+			return CycleResult.NONE;
+		}
+
+		@Override
+		public void resetIncrementalState() {
+			resets.incrementAndGet();
+		}
+	}
+}
@@ -0,0 +1,292 @@
+package dev.chef.crm_backend.publish;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import dev.chef.crm_backend.delta.RecordFingerprinter;
+import dev.chef.crm_backend.dto.CustomerData;
+import dev.chef.crm_backend.metrics.PipelineMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import reactor.core.publisher.Flux;
+
+public class KafkaPublisherTest {
+
+	@SuppressWarnings("unchecked")
+	private final KafkaTemplate<String, Object> kafkaTemplate = mock(KafkaTemplate.class);
+
+	@Test
+	void sendBlocksOnceInFlightCapIsReached() throws Exception {
+		List<CompletableFuture<SendResult<String, Object>>> pending = new CopyOnWriteArrayList<>();
+		when(kafkaTemplate.send(anyString(), anyString(), any())).thenAnswer(invocation -> {
+			CompletableFuture<SendResult<String, Object>> future = new CompletableFuture<>();
+			pending.add(future);
+			return future;
+		});
+		PublishCycle cycle = new KafkaPublisher(kafkaTemplate, new PipelineMetrics(new SimpleMeterRegistry()), 2).openCycle("crm", "customer_data");
+
+		CountDownLatch thirdSent = new CountDownLatch(1);
+		Thread.ofVirtual().start(() -> {
+			cycle.send("1", "a");
+			cycle.send("2", "b");
+			cycle.send("3", "c");
+			thirdSent.countDown();
+		});
+
+		assertFalse(thirdSent.await(200, TimeUnit.MILLISECONDS), "third send should wait for a free slot");
+		pending.get(0).complete(null);
+		assertTrue(thirdSent.await(2, TimeUnit.SECONDS));
+
+		pending.forEach(f -> f.complete(null));
+		CycleResult result = cycle.complete();
+		assertEquals(3, result.sent());
+		assertEquals(3, result.acked());
+		assertEquals(0, result.failed());
+	}
+
+	@Test
+	void failedRecordsAreReplayedOnNextCycle() {
+		when(kafkaTemplate.send(anyString(), anyString(), any()))
+				.thenReturn(CompletableFuture.completedFuture(null))
+				.thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")))
+				.thenReturn(CompletableFuture.completedFuture(null));
+		KafkaPublisher publisher = new KafkaPublisher(kafkaTemplate, new PipelineMetrics(new SimpleMeterRegistry()), 10);
+
+		PublishCycle first = publisher.openCycle("crm", "customer_data");
+		first.send("1", "a");
+		first.send("2", "b");
+		CycleResult firstResult = first.complete();
+
+		assertEquals(1, firstResult.acked());
+		assertEquals(1, firstResult.failed());
+		assertEquals(1, publisher.pendingRetries("crm"));
+
+		CycleResult secondResult = publisher.openCycle("crm", "customer_data").complete();
+
+		assertEquals(1, secondResult.acked());
+		assertEquals(0, publisher.pendingRetries("crm"));
+		verify(kafkaTemplate, times(1)).send(eq("customer_data"), eq("1"), any());
+		verify(kafkaTemplate, times(2)).send(eq("customer_data"), eq("2"), any());
+	}
+
+	@Test
+	void publishRequestsRecordsOnlyAsSendsAreAcknowledged() throws Exception {
+		List<CompletableFuture<SendResult<String, Object>>> pending = new CopyOnWriteArrayList<>();
+		when(kafkaTemplate.send(anyString(), anyString(), any())).thenAnswer(invocation -> {
+			CompletableFuture<SendResult<String, Object>> future = new CompletableFuture<>();
+			pending.add(future);
+			return future;
+		});
+		PublishCycle cycle = new KafkaPublisher(kafkaTemplate, new PipelineMetrics(new SimpleMeterRegistry()), 2)
+				.openCycle("crm", "customer_data");
+		List<Long> requested = new CopyOnWriteArrayList<>();
+		Flux<PublishCycle.PendingRecord> records = Flux.range(1, 5)
+				.map(i -> new PublishCycle.PendingRecord("customer_data", String.valueOf(i), "v" + i))
+				.doOnRequest(requested::add);
+
+		CompletableFuture<CycleResult> result = cycle.publish(records).toFuture();
+
+		assertEquals(2, pending.size(), "no more than the in-flight cap is sent before an ack");
+		pending.get(0).complete(null);
+		assertEquals(3, pending.size());
+		pending.get(1).completeExceptionally(new IllegalStateException("broker down"));
+		pending.get(2).complete(null);
+		pending.get(3).complete(null);
+		pending.get(4).complete(null);
+
+		CycleResult outcome = result.get(2, TimeUnit.SECONDS);
+		assertEquals(5, outcome.sent());
+		assertEquals(4, outcome.acked());
+		assertEquals(1, outcome.failed());
+		assertTrue(requested.stream().allMatch(n -> n <= 2), "demand never exceeds the in-flight cap");
+	}
+
+	@Test
+	void transactionalCycleBecomesVisibleOnComplete() {
+		MockProducer<String, Object> producer = transactionalProducer();
+		KafkaPublisher publisher = transactionalPublisher(producer, 0);
+
+		PublishCycle cycle = publisher.openCycle("crm", "customer_data");
+		cycle.send("1", "a");
+		cycle.send("2", "b");
+		cycle.send("3", "c");
+
+		assertTrue(producer.history().isEmpty(), "nothing is committed before the cycle completes");
+		CycleResult result = cycle.complete();
+		assertEquals(3, producer.history().size());
+		assertEquals(3, result.acked());
+		verify(kafkaTemplate, times(0)).send(anyString(), anyString(), any());
+	}
+
+	@Test
+	void transactionsAreCommittedEveryNRecords() {
+		MockProducer<String, Object> producer = transactionalProducer();
+		PublishCycle cycle = transactionalPublisher(producer, 2).openCycle("crm", "customer_data");
+
+		for (int i = 1; i <= 5; i++) {
+			cycle.send(String.valueOf(i), "v" + i);
+		}
+
+		assertEquals(4, producer.history().size());
+		assertEquals(5, cycle.complete().acked());
+		assertEquals(5, producer.history().size());
+	}
+
+	@Test
+	void abortedTransactionRequeuesAllItsRecords() {
+		MockProducer<String, Object> producer = transactionalProducer();
+		producer.commitTransactionException = new KafkaException("producer fenced");
+		KafkaPublisher publisher = transactionalPublisher(producer, 0);
+
+		PublishCycle cycle = publisher.openCycle("crm", "customer_data");
+		cycle.send("1", "a");
+		cycle.send("2", "b");
+		CycleResult result = cycle.complete();
+
+		assertTrue(producer.transactionAborted());
+		assertEquals(0, result.acked());
+		assertEquals(2, result.failed());
+		assertEquals(2, publisher.pendingRetries("crm"));
+
+		producer.commitTransactionException = null;
+		assertEquals(2, publisher.openCycle("crm", "customer_data").complete().acked());
+		assertEquals(2, producer.history().size());
+	}
+
+	@Test
+	void failedCycleAbortsItsTransaction() {
+		MockProducer<String, Object> producer = transactionalProducer();
+		KafkaPublisher publisher = transactionalPublisher(producer, 0);
+
+		PublishCycle cycle = publisher.openCycle("crm", "customer_data");
+		cycle.send("1", "a");
+		cycle.send("2", "b");
+		CycleResult result = cycle.abort();
+
+		assertTrue(producer.transactionAborted());
+		assertFalse(producer.transactionCommitted());
+		assertTrue(producer.history().isEmpty());
+		assertEquals(2, result.failed());
+		assertEquals(2, publisher.pendingRetries("crm"), "the aborted records are replayed by the next cycle");
+	}
+
+	@Test
+	void failedRecordStreamAbortsItsTransaction() {
+		MockProducer<String, Object> producer = transactionalProducer();
+		KafkaPublisher publisher = transactionalPublisher(producer, 0);
+
+		PublishCycle cycle = publisher.openCycle("crm", "customer_data");
+		Flux<PublishCycle.PendingRecord> records = Flux.just(
+						new PublishCycle.PendingRecord("customer_data", "1", "a"),
+						new PublishCycle.PendingRecord("customer_data", "2", "b"))
+				.concatWith(Flux.error(new IllegalStateException("connection reset")));
+
+		assertThrows(IllegalStateException.class, () -> cycle.publish(records).block());
+		assertTrue(producer.transactionAborted());
+		assertTrue(producer.history().isEmpty());
+		assertEquals(2, publisher.pendingRetries("crm"));
+	}
+
+	@Test
+	void topicsWithoutTransactionalDeliverySendDirectly() {
+		when(kafkaTemplate.send(anyString(), anyString(), any())).thenReturn(CompletableFuture.completedFuture(null));
+		MockProducer<String, Object> producer = transactionalProducer();
+
+		PublishCycle cycle = transactionalPublisher(producer, 0).openCycle("inventory", "inventory_data");
+		cycle.send("1", "a");
+		cycle.complete();
+
+		verify(kafkaTemplate).send("inventory_data", "1", "a");
+		assertTrue(producer.history().isEmpty());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void recordsCarryMetadataHeadersThatSurviveReplays() {
+		when(kafkaTemplate.send(any(ProducerRecord.class)))
+				.thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")))
+				.thenReturn(CompletableFuture.completedFuture(null));
+		RecordFingerprinter fingerprinter = new RecordFingerprinter();
+		KafkaPublisher publisher = new KafkaPublisher(kafkaTemplate, fingerprinter,
+				new PipelineMetrics(new SimpleMeterRegistry()), 10);
+		CustomerData customer = new CustomerData("1", "Ada", "ada@example.com", null, null);
+
+		publisher.openCycle("CRM (customers)", "customer_data").send("1", customer);
+		PublishCycle replay = publisher.openCycle("CRM (customers)", "customer_data");
+		replay.send("2", null);
+		replay.complete();
+
+		ArgumentCaptor<ProducerRecord<String, Object>> sent = ArgumentCaptor.forClass(ProducerRecord.class);
+		verify(kafkaTemplate, times(3)).send(sent.capture());
+		Headers first = sent.getAllValues().get(0).headers();
+		assertEquals(HexFormat.of().toHexDigits(fingerprinter.fingerprint(customer)),
+				header(first, RecordMetadata.FINGERPRINT_HEADER));
+		assertEquals("CRM (customers)", header(first, RecordMetadata.SOURCE_HEADER));
+		assertEquals("CustomerData/2", header(first, RecordMetadata.SCHEMA_VERSION_HEADER));
+		for (String name : List.of(RecordMetadata.FINGERPRINT_HEADER, RecordMetadata.FETCHED_AT_HEADER,
+				RecordMetadata.CYCLE_ID_HEADER)) {
+			assertEquals(header(first, name), header(sent.getAllValues().get(1).headers(), name),
+					"a replay keeps the original " + name);
+		}
+		Headers tombstone = sent.getAllValues().get(2).headers();
+		assertNull(tombstone.lastHeader(RecordMetadata.FINGERPRINT_HEADER));
+		assertNotEquals(header(first, RecordMetadata.CYCLE_ID_HEADER), header(tombstone, RecordMetadata.CYCLE_ID_HEADER));
+	}
+
+	private static String header(Headers headers, String name) {
+		return new String(headers.lastHeader(name).value(), StandardCharsets.UTF_8);
+	}
+
+	private KafkaPublisher transactionalPublisher(MockProducer<String, Object> producer, int recordsPerTransaction) {
+		return new KafkaPublisher(kafkaTemplate,
+				new TransactionalDelivery(() -> producer, Set.of("customer_data"), recordsPerTransaction),
+				new PipelineMetrics(new SimpleMeterRegistry()), 10);
+	}
+
+	/**
+	 * A producer that stays usable after close, as the factory's cached producers do.
+	 */
+	private static MockProducer<String, Object> transactionalProducer() {
+		MockProducer<String, Object> producer = new MockProducer<>(true, null, new StringSerializer(),
+				(topic, value) -> String.valueOf(value).getBytes()) {
+			@Override
+			public void close() {
+			}
+
+			@Override
+			public void close(Duration timeout) {
+			}
+		};
+		producer.initTransactions();
+		return producer;
+	}
+}
@@ -0,0 +1,36 @@
+package dev.chef.crm_backend.publish;
+
+import org.springframework.kafka.core.KafkaTemplate;
+
+import dev.chef.crm_backend.delta.RecordFingerprinter;
+import dev.chef.crm_backend.metrics.PipelineMetrics;
+
+/**
+ * {@link KafkaPublisher}s for tests and benchmarks outside this package, which cannot reach
+ * its package-private constructors.
+ */
+public final class PublisherFixtures {
+
+	private PublisherFixtures() {
+	}
+
+	public static KafkaPublisher publisher(KafkaTemplate<String, Object> kafkaTemplate, PipelineMetrics metrics,
+			int maxInFlight) {
+		return new KafkaPublisher(kafkaTemplate, metrics, maxInFlight);
+	}
+
+	public static KafkaPublisher publisher(KafkaTemplate<String, Object> kafkaTemplate, PipelineMetrics metrics,
+			int maxInFlight, int maxRetryRecords) {
+		return new KafkaPublisher(kafkaTemplate, metrics, maxInFlight, maxRetryRecords);
+	}
+
+	public static KafkaPublisher transactional(KafkaTemplate<String, Object> kafkaTemplate,
+			TransactionalDelivery transactions, PipelineMetrics metrics, int maxInFlight) {
+		return new KafkaPublisher(kafkaTemplate, transactions, metrics, maxInFlight);
+	}
+
+	public static KafkaPublisher stamping(KafkaTemplate<String, Object> kafkaTemplate,
+			RecordFingerprinter fingerprinter, PipelineMetrics metrics, int maxInFlight) {
+		return new KafkaPublisher(kafkaTemplate, fingerprinter, metrics, maxInFlight);
+	}
+}
@@ -0,0 +1,60 @@
+package dev.chef.crm_backend.publish;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+public class RetryQueueTest {
+
+	private final Counter dropped = new SimpleMeterRegistry().counter("dropped");
+
+	@Test
+	void keepsOnlyTheLatestValuePerTopicAndKey() {
+		RetryQueue queue = new RetryQueue(10, dropped, () -> { });
+
+		queue.add(new PublishCycle.PendingRecord("customer_data", "1", "v1"));
+		queue.add(new PublishCycle.PendingRecord("customer_data", "2", "a"));
+		queue.add(new PublishCycle.PendingRecord("customer_inventory", "1", "joined"));
+		queue.add(new PublishCycle.PendingRecord("customer_data", "1", "v2"));
+
+		assertEquals(List.of(
+				new PublishCycle.PendingRecord("customer_data", "2", "a"),
+				new PublishCycle.PendingRecord("customer_inventory", "1", "joined"),
+				new PublishCycle.PendingRecord("customer_data", "1", "v2")), queue.drain());
+		assertEquals(0, queue.size());
+	}
+
+	@Test
+	void keepsEveryRecordOfAnEventTopicInOrder() {
+		RetryQueue queue = new RetryQueue(10, dropped, () -> { }, "inventory_stock"::equals);
+
+		queue.add(new PublishCycle.PendingRecord("inventory_stock", "1", "10 -> 7"));
+		queue.add(new PublishCycle.PendingRecord("inventory_data", "1", "v1"));
+		queue.add(new PublishCycle.PendingRecord("inventory_stock", "1", "7 -> 3"));
+		queue.add(new PublishCycle.PendingRecord("inventory_data", "1", "v2"));
+
+		assertEquals(List.of(
+				new PublishCycle.PendingRecord("inventory_stock", "1", "10 -> 7"),
+				new PublishCycle.PendingRecord("inventory_stock", "1", "7 -> 3"),
+				new PublishCycle.PendingRecord("inventory_data", "1", "v2")), queue.drain());
+	}
+
+	@Test
+	void dropsTheOldestRecordsBeyondItsBound() {
+		AtomicInteger drops = new AtomicInteger();
+		RetryQueue queue = new RetryQueue(2, dropped, drops::incrementAndGet);
+
+		for (int i = 1; i <= 5; i++) {
+			queue.add(new PublishCycle.PendingRecord("customer_data", String.valueOf(i), "v" + i));
+		}
+
+		assertEquals(List.of("4", "5"), queue.drain().stream().map(PublishCycle.PendingRecord::key).toList());
+		assertEquals(3.0, dropped.count());
+		assertEquals(3, drops.get());
+	}
+}
@@ -0,0 +1,111 @@
+package dev.chef.crm_backend.push;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+
+import dev.chef.crm_backend.coordination.SourceOwnership;
+import dev.chef.crm_backend.metrics.PipelineMetrics;
+import dev.chef.crm_backend.producer.ChangeSet;
+import dev.chef.crm_backend.producer.ExternalDataProducer;
+import dev.chef.crm_backend.publish.CycleResult;
+import dev.chef.crm_backend.resilience.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ChangeBatcherTest {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final ExternalDataProducer producer = mock(ExternalDataProducer.class);
+	private ChangeBatcher batcher;
+
+	@BeforeEach
+	void setUp() {
+		when(producer.getSourceName()).thenReturn("crm");
+		when(producer.getSourceKey()).thenReturn("crm");
+		when(producer.applyChanges(any())).thenReturn(CycleResult.NONE);
+	}
+
+	@AfterEach
+	void tearDown() {
+		if (batcher != null) {
+			batcher.stop();
+		}
+	}
+
+	private ChangeBatcher batcher(Duration window, int maxBatchSize, int maxPending, SourceOwnership ownership) {
+		return new ChangeBatcher(producer, window, maxBatchSize, maxPending, ownership,
+				new CircuitBreaker(5, Duration.ofMinutes(1)), new PipelineMetrics(registry));
+	}
+
+	private static JsonNode record(String id, String name) {
+		return JsonNodeFactory.instance.objectNode().put("id", id).put("name", name);
+	}
+
+	@Test
+	void repeatedNotificationsCollapseIntoTheLatest() throws Exception {
+		batcher = batcher(Duration.ZERO, 100, 100, SourceOwnership.ALL);
+		JsonNode second = record("2", "new");
+
+		batcher.offer(List.of("1"), Map.of("2", record("2", "old")));
+		batcher.offer(List.of(), Map.of("1", record("1", "pushed"), "2", second));
+		batcher.offer(List.of("1"), Map.of());
+		ChangeSet batch = batcher.take();
+
+		assertEquals(List.of("1"), batch.ids(), "an id-only notification supersedes an earlier pushed record");
+		assertEquals(List.of(second), batch.records());
+		assertEquals(0, batcher.pending());
+	}
+
+	@Test
+	void fullBatchClosesBeforeTheWindowAndExcessWaitsForTheNext() throws Exception {
+		batcher = batcher(Duration.ofMinutes(1), 2, 3, SourceOwnership.ALL);
+
+		assertTrue(batcher.offer(List.of("1", "2", "3"), Map.of()));
+		assertFalse(batcher.offer(List.of("4"), Map.of()), "max-pending reached");
+		long start = System.nanoTime();
+		ChangeSet batch = batcher.take();
+
+		assertEquals(List.of("1", "2"), batch.ids());
+		assertTrue(System.nanoTime() - start < Duration.ofSeconds(10).toNanos());
+		assertEquals(1, batcher.pending());
+	}
+
+	@Test
+	void burstIsAppliedAsOneBatchAfterTheWindow() {
+		batcher = batcher(Duration.ofMillis(100), 100, 100, SourceOwnership.ALL);
+		batcher.start();
+
+		batcher.offer(List.of("1"), Map.of());
+		batcher.offer(List.of("2"), Map.of());
+		batcher.offer(List.of("3"), Map.of());
+
+		verify(producer, timeout(5000)).applyChanges(new ChangeSet(List.of("1", "2", "3"), List.of()));
+		assertEquals(3, registry.get("crm.push.batch.notified").summary().totalAmount());
+	}
+
+	@Test
+	void batchIsDroppedWhereAnotherInstanceOwnsTheSource() {
+		batcher = batcher(Duration.ZERO, 100, 100, source -> false);
+
+		batcher.apply(new ChangeSet(List.of("1", "2"), List.of()));
+
+		verify(producer, never()).applyChanges(any());
+		assertEquals(2, registry.get("crm.push.dropped").counter().count());
+	}
+}
@@ -0,0 +1,87 @@
+package dev.chef.crm_backend.push;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+
+import dev.chef.crm_backend.coordination.SourceOwnership;
+import dev.chef.crm_backend.metrics.PipelineMetrics;
+import dev.chef.crm_backend.producer.ExternalDataProducer;
+import dev.chef.crm_backend.resilience.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+public class ChangeWebhookControllerTest {
+
+	private PushIngestion ingestion;
+	private MockMvc mvc;
+
+	@BeforeEach
+	void setUp() {
+		ExternalDataProducer producer = mock(ExternalDataProducer.class);
+		when(producer.getSourceName()).thenReturn("CRM (customers)");
+		when(producer.getSourceKey()).thenReturn("crm");
+		PipelineMetrics metrics = new PipelineMetrics(new SimpleMeterRegistry());
+		ingestion = new PushIngestion(List.of(producer),
+				new MockEnvironment().withProperty("integration.crm.push.max-pending", "3"), SourceOwnership.ALL,
+				new CircuitBreakerRegistry(metrics, 5, 60000), metrics);
+		mvc = MockMvcBuilders.standaloneSetup(new ChangeWebhookController(ingestion, "secret")).build();
+	}
+
+	@Test
+	void queuesIdsAndRecordsForTheSource() throws Exception {
+		mvc.perform(post("/webhooks/crm")
+						.header(HttpHeaders.AUTHORIZATION, "Bearer secret")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"ids\":[\"1\",2],\"records\":[{\"id\":3,\"name\":\"Customer 3\"}]}"))
+				.andExpect(status().isAccepted());
+
+		assertEquals(3, ingestion.batcher("crm").pending());
+	}
+
+	@Test
+	void rejectsUnauthenticatedUnknownAndMalformedNotifications() throws Exception {
+		mvc.perform(post("/webhooks/crm").contentType(MediaType.APPLICATION_JSON).content("{\"ids\":[\"1\"]}"))
+				.andExpect(status().isUnauthorized());
+		mvc.perform(post("/webhooks/erp").header(HttpHeaders.AUTHORIZATION, "Bearer secret")
+						.contentType(MediaType.APPLICATION_JSON).content("{\"ids\":[\"1\"]}"))
+				.andExpect(status().isNotFound());
+		mvc.perform(post("/webhooks/crm").header(HttpHeaders.AUTHORIZATION, "Bearer secret")
+						.contentType(MediaType.APPLICATION_JSON).content("{\"ids\":[\"../admin\"]}"))
+				.andExpect(status().isBadRequest());
+		mvc.perform(post("/webhooks/crm").header(HttpHeaders.AUTHORIZATION, "Bearer secret")
+						.contentType(MediaType.APPLICATION_JSON).content("{\"ids\":[\"..\"]}"))
+				.andExpect(status().isBadRequest());
+		mvc.perform(post("/webhooks/crm").header(HttpHeaders.AUTHORIZATION, "Bearer secret")
+						.contentType(MediaType.APPLICATION_JSON).content("{\"records\":[{\"id\":\".\"}]}"))
+				.andExpect(status().isBadRequest());
+		mvc.perform(post("/webhooks/crm").header(HttpHeaders.AUTHORIZATION, "Bearer secret")
+						.contentType(MediaType.APPLICATION_JSON).content("{\"records\":[{\"name\":\"no id\"}]}"))
+				.andExpect(status().isBadRequest());
+
+		assertEquals(0, ingestion.batcher("crm").pending());
+	}
+
+	@Test
+	void answersServiceUnavailableWhileTheBatcherIsFull() throws Exception {
+		mvc.perform(post("/webhooks/crm").header(HttpHeaders.AUTHORIZATION, "Bearer secret")
+						.contentType(MediaType.APPLICATION_JSON).content("{\"ids\":[\"1\",\"2\",\"3\"]}"))
+				.andExpect(status().isAccepted());
+
+		mvc.perform(post("/webhooks/crm").header(HttpHeaders.AUTHORIZATION, "Bearer secret")
+						.contentType(MediaType.APPLICATION_JSON).content("{\"ids\":[\"4\"]}"))
+				.andExpect(status().isServiceUnavailable())
+				.andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+	}
+}
@@ -0,0 +1,89 @@
+package dev.chef.crm_backend.resilience;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+public class CircuitBreakerTest {
+
+	private final AtomicLong clock = new AtomicLong();
+	private final CircuitBreaker breaker = new CircuitBreaker(3, Duration.ofSeconds(30), clock::get);
+
+	@Test
+	void opensAfterConsecutiveFailures() {
+		breaker.onFailure();
+		breaker.onFailure();
+		breaker.onSuccess();
+		breaker.onFailure();
+		breaker.onFailure();
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.state(), "a success resets the failure streak");
+
+		breaker.onFailure();
+
+		assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+		assertFalse(breaker.tryAcquire());
+	}
+
+	@Test
+	void halfOpenProbeClosesOnSuccessAndReopensOnFailure() {
+		breaker.onFailure();
+		breaker.onFailure();
+		breaker.onFailure();
+
+		clock.addAndGet(Duration.ofSeconds(30).toNanos());
+		assertTrue(breaker.tryAcquire());
+		assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+		breaker.onFailure();
+		assertEquals(CircuitBreaker.State.OPEN, breaker.state(), "a failed probe opens the circuit again");
+		assertFalse(breaker.tryAcquire());
+
+		clock.addAndGet(Duration.ofSeconds(30).toNanos());
+		assertTrue(breaker.tryAcquire());
+		breaker.onSuccess();
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+	}
+
+	@Test
+	void halfOpenLetsASingleProbeThroughUntilItSettles() {
+		breaker.onFailure();
+		breaker.onFailure();
+		breaker.onFailure();
+		clock.addAndGet(Duration.ofSeconds(30).toNanos());
+
+		assertTrue(breaker.tryAcquire());
+		assertFalse(breaker.tryAcquire(), "a second caller must wait for the probe");
+		breaker.onFailure();
+		clock.addAndGet(Duration.ofSeconds(30).toNanos());
+		assertTrue(breaker.tryAcquire(), "the next probe is let through after the open period");
+		assertFalse(breaker.tryAcquire());
+
+		breaker.onSuccess();
+		assertTrue(breaker.tryAcquire());
+		assertTrue(breaker.tryAcquire(), "a closed circuit lets every call through");
+	}
+
+	@Test
+	void retryBudgetCapsRetriesToShareOfAttempts() {
+		RetryPolicy policy = new RetryPolicy(4, 1000, 2.0, 30000, 0.5, 2);
+
+		assertTrue(policy.tryAcquireRetry());
+		assertTrue(policy.tryAcquireRetry());
+		assertFalse(policy.tryAcquireRetry(), "initial burst is spent");
+
+		policy.onAttempt();
+		assertFalse(policy.tryAcquireRetry());
+		policy.onAttempt();
+		assertTrue(policy.tryAcquireRetry(), "two attempts at ratio 0.5 earn one retry");
+
+		for (int retry = 1; retry <= 8; retry++) {
+			long cap = Math.min(30000, 1000L << (retry - 1));
+			long backoff = policy.backoff(retry).toMillis();
+			assertTrue(backoff >= cap / 2 && backoff <= cap, "backoff " + backoff + " outside jitter range of " + cap);
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package dev.chef.crm_backend.resilience;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.client.RestClientException;
+
+public class UpstreamLimiterTest {
+
+	private final AtomicLong clock = new AtomicLong();
+
+	private UpstreamLimiter limiter(double requestsPerSecond, int burst, int initialConcurrency) {
+		return new UpstreamLimiter(new UpstreamLimiter.Settings(requestsPerSecond, burst, initialConcurrency, 1, 16,
+				0.5, 2.0, Duration.ofMinutes(1), Duration.ofSeconds(1), Duration.ofSeconds(30)), clock::get);
+	}
+
+	@Test
+	void tokenBucketCapsTheRequestRate() {
+		UpstreamLimiter limiter = limiter(10, 2, 16);
+
+		assertNotNull(limiter.tryAcquire());
+		assertNotNull(limiter.tryAcquire());
+		assertNull(limiter.tryAcquire(), "the burst is spent");
+
+		clock.addAndGet(Duration.ofMillis(100).toNanos());
+		assertNotNull(limiter.tryAcquire(), "one token per 100 ms at 10 requests per second");
+		assertNull(limiter.tryAcquire());
+	}
+
+	@Test
+	void concurrencyLimitGrowsWhileFastAndBacksOffOncePerRoundTripWhenSlow() {
+		UpstreamLimiter limiter = limiter(0, 1, 2);
+		List<UpstreamLimiter.Permit> permits = new ArrayList<>(List.of(limiter.tryAcquire(), limiter.tryAcquire()));
+		assertNull(limiter.tryAcquire(), "limited to two requests in flight");
+
+		clock.addAndGet(Duration.ofMillis(10).toNanos());
+		permits.forEach(permit -> permit.onResponse(200, new HttpHeaders()));
+		permits.forEach(UpstreamLimiter.Permit::close);
+		assertEquals(4, limiter.limit(), "each fast response while busy adds one");
+
+		permits.clear();
+		for (int i = 0; i < 4; i++) {
+			permits.add(limiter.tryAcquire());
+		}
+		clock.addAndGet(Duration.ofMillis(50).toNanos());
+		permits.get(0).onResponse(200, new HttpHeaders());
+		assertEquals(2, limiter.limit(), "latency above twice the baseline halves the limit");
+		permits.get(1).onResponse(200, new HttpHeaders());
+		permits.get(2).close();
+		assertEquals(2, limiter.limit(), "requests sent before the decrease do not decrease it again");
+	}
+
+	@Test
+	void tooManyRequestsPausesTheUpstreamUntilRetryAfter() {
+		UpstreamLimiter limiter = limiter(0, 1, 4);
+		HttpHeaders headers = new HttpHeaders();
+		headers.set(HttpHeaders.RETRY_AFTER, "2");
+		try (UpstreamLimiter.Permit permit = limiter.tryAcquire()) {
+			permit.onResponse(429, headers);
+		}
+
+		assertEquals(1, limiter.throttled());
+		assertEquals(2, limiter.limit());
+		clock.addAndGet(Duration.ofMillis(1999).toNanos());
+		assertNull(limiter.tryAcquire());
+		clock.addAndGet(Duration.ofMillis(1).toNanos());
+		assertNotNull(limiter.tryAcquire());
+	}
+
+	@Test
+	void acquireGivesUpAfterMaxWait() {
+		UpstreamLimiter limiter = new UpstreamLimiter(new UpstreamLimiter.Settings(0, 1, 1, 1, 1, 0.5, 2.0,
+				Duration.ofMinutes(1), Duration.ofMinutes(1), Duration.ofMillis(50)));
+		try (UpstreamLimiter.Permit permit = limiter.acquire()) {
+			permit.onResponse(503, new HttpHeaders());
+		}
+
+		long start = System.nanoTime();
+		RestClientException e = assertThrows(RestClientException.class, limiter::acquire);
+
+		assertTrue(e.getMessage().contains("throttled by upstream"), e.getMessage());
+		assertTrue(System.nanoTime() - start >= Duration.ofMillis(50).toNanos());
+		assertEquals(1, limiter.rejected());
+	}
+}
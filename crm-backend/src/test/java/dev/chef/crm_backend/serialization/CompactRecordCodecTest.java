@@ -0,0 +1,74 @@
+package dev.chef.crm_backend.serialization;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import dev.chef.crm_backend.dto.CustomerData;
+import dev.chef.crm_backend.dto.InventoryItem;
+import dev.chef.crm_backend.dto.StockDelta;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+
+public class CompactRecordCodecTest {
+
+	@Test
+	void roundTripsCustomerAndInventoryRecords() {
+		CustomerData customer = new CustomerData("42", "Customer 42", null, Map.of("tier", "gold", "visits", 3));
+		InventoryItem item = new InventoryItem("7", "Socks", -5);
+		InventoryItem noStock = new InventoryItem("8", "Imisego", null);
+		CustomerData withProducts = new CustomerData("43", "Customer 43", "c43@example.com", null, List.of("1", "6"));
+
+		assertEquals(customer, CompactRecordCodec.decode(CompactRecordCodec.encode(customer)));
+		assertEquals(withProducts, CompactRecordCodec.decode(CompactRecordCodec.encode(withProducts)));
+		StockDelta delta = new StockDelta("7", 6, 4, -2, StockDelta.Crossing.LOW);
+		assertEquals(delta, CompactRecordCodec.decode(CompactRecordCodec.encode(delta)));
+		assertEquals(item, CompactRecordCodec.decode(CompactRecordCodec.encode(item)));
+		assertEquals(noStock, CompactRecordCodec.decode(CompactRecordCodec.encode(noStock)));
+	}
+
+	@Test
+	void matchesDocumentedWireFormat() {
+		byte[] encoded = CompactRecordCodec.encode(new InventoryItem("1", "Ab", 15));
+
+		// magic, schema 2, "1", "Ab", zigzag(15) + 1 = 31, null map
+		assertArrayEquals(new byte[] { (byte) 0xC5, 2, 2, '1', 3, 'A', 'b', 31, 0 }, encoded);
+	}
+
+	@Test
+	void decodesCustomersWrittenWithSchemaV1() {
+		// magic, schema 1, "9", "N", null email, null map
+		byte[] v1 = { (byte) 0xC5, 1, 2, '9', 2, 'N', 0, 0 };
+
+		assertEquals(new CustomerData("9", "N", null), CompactRecordCodec.decode(v1));
+	}
+
+	@Test
+	void rejectsUnknownSchema() {
+		assertThrows(IllegalArgumentException.class, () -> CompactRecordCodec.decode(new byte[] { (byte) 0xC5, 99 }));
+	}
+
+	@Test
+	void routingSerializerUsesCompactOnlyForConfiguredTopics() {
+		TopicRoutingSerializer serializer = new TopicRoutingSerializer();
+		serializer.configure(Map.of(TopicRoutingSerializer.COMPACT_TOPICS_CONFIG, "inventory_data"), false);
+		InventoryItem item = new InventoryItem("1", "Inkweto", 15);
+		RecordHeaders headers = new RecordHeaders();
+
+		byte[] compact = serializer.serialize("inventory_data", headers, item);
+		byte[] json = serializer.serialize("customer_data", new RecordHeaders(), item);
+
+		assertTrue(CompactRecordCodec.isCompact(compact));
+		assertEquals("compact", new String(headers.lastHeader(TopicRoutingSerializer.ENCODING_HEADER).value()));
+		assertFalse(CompactRecordCodec.isCompact(json));
+		assertTrue(compact.length < json.length / 2);
+		assertNull(serializer.serialize("inventory_data", headers, null));
+		serializer.close();
+	}
+}
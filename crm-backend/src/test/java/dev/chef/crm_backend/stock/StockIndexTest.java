@@ -0,0 +1,62 @@
+package dev.chef.crm_backend.stock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+public class StockIndexTest {
+
+	@Test
+	void putReturnsPreviousStock() {
+		StockIndex index = new StockIndex(4);
+
+		assertEquals(StockIndex.ABSENT, index.put("1", 10, 1));
+		assertEquals(10, index.put("1", 7, 1));
+		assertEquals(7, index.get("1"));
+		assertEquals(StockIndex.ABSENT, index.get("2"));
+		assertEquals(1, index.size());
+	}
+
+	@Test
+	void matchesAHashMapThroughGrowthAndSweeps() {
+		StockIndex index = new StockIndex(4);
+		Map<String, Integer> expected = new HashMap<>();
+		Random random = new Random(42);
+
+		for (long generation = 1; generation <= 30; generation++) {
+			Set<String> seen = new HashSet<>();
+			for (int i = 0; i < 400; i++) {
+				String id = Integer.toString(random.nextInt(2000));
+				int stock = random.nextInt(100);
+				Integer previous = expected.put(id, stock);
+				assertEquals(previous == null ? StockIndex.ABSENT : previous, index.put(id, stock, generation));
+				seen.add(id);
+			}
+			Set<String> removed = new HashSet<>();
+			long current = generation;
+			index.sweep(current, (id, lastStock) -> {
+				assertEquals(expected.get(id), lastStock);
+				removed.add(id);
+			});
+			expected.keySet().retainAll(seen);
+			assertEquals(expected.size(), index.size());
+			assertEquals(seen.size(), index.size(), "only ids seen this generation survive");
+			for (Map.Entry<String, Integer> e : expected.entrySet()) {
+				assertEquals(e.getValue().longValue(), index.get(e.getKey()));
+			}
+			assertEquals(Set.of(), intersection(removed, seen));
+		}
+	}
+
+	private static Set<String> intersection(Set<String> a, Set<String> b) {
+		Set<String> result = new HashSet<>(a);
+		result.retainAll(b);
+		return result;
+	}
+}
@@ -0,0 +1,37 @@
+package dev.chef.crm_backend.stock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import dev.chef.crm_backend.dto.InventoryItem;
+import dev.chef.crm_backend.dto.StockDelta;
+import org.junit.jupiter.api.Test;
+
+public class StockTrackerTest {
+
+	private final StockTracker tracker = new StockTracker(5);
+	private final List<StockDelta> events = new ArrayList<>();
+
+	@Test
+	void itemWithoutStockIsNeitherChangedNorRemoved() {
+		cycle(new InventoryItem("1", "Inkweto", 10), new InventoryItem("2", "Ibikapu", 3));
+		events.clear();
+
+		cycle(new InventoryItem("1", "Inkweto", null), new InventoryItem("2", "Ibikapu", 3));
+		assertEquals(List.of(), events, "a missing stock value is not a removal");
+
+		cycle(new InventoryItem("1", "Inkweto", 4), new InventoryItem("2", "Ibikapu", 3));
+		assertEquals(List.of(new StockDelta("1", 10, 4, -6, StockDelta.Crossing.LOW)), events,
+				"the change is measured against the last known stock");
+	}
+
+	private void cycle(InventoryItem... items) {
+		tracker.beginCycle();
+		for (InventoryItem item : items) {
+			tracker.accept(item, events::add);
+		}
+		tracker.endCycle(events::add);
+	}
+}
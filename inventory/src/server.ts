@@ -1,4 +1,5 @@
-import Fastify from 'fastify'
+import { createHash } from 'node:crypto'
+import Fastify, { type FastifyReply, type FastifyRequest } from 'fastify'
 
 interface Product {
   id: string
@@ -23,9 +24,49 @@ let products: Product[] = [
   { id: '10', name: 'Isaha', stock: 98 },
 ]
 
+let productsModifiedAt = new Date()
+
+const etagOf = (payload: string) => `"${createHash('sha1').update(payload).digest('base64url')}"`
+
+// Conditional GET: answers 304 when the client's ETag / Last-Modified validators are still current
+const sendConditional = (request: FastifyRequest, reply: FastifyReply, body: unknown, modifiedAt: Date) => {
+  const payload = JSON.stringify(body)
+  const etag = etagOf(payload)
+  const lastModified = new Date(Math.floor(modifiedAt.getTime() / 1000) * 1000)
+
+  reply.header('etag', etag).header('last-modified', lastModified.toUTCString())
+
+  const ifNoneMatch = request.headers['if-none-match']
+  const ifModifiedSince = request.headers['if-modified-since']
+  const notModified = ifNoneMatch !== undefined
+    ? ifNoneMatch === etag
+    : ifModifiedSince !== undefined && lastModified.getTime() <= Date.parse(ifModifiedSince)
+
+  if (notModified) return reply.code(304).send()
+  return reply.type('application/json').send(payload)
+}
+
+// Optional push notification to crm-backend (POST /webhooks/<source>), so a change is published
+// without waiting for its next poll. Fire and forget: a missed notification is caught by the poll.
+const CHANGE_WEBHOOK_URL = process.env.CHANGE_WEBHOOK_URL
+const CHANGE_WEBHOOK_TOKEN = process.env.CHANGE_WEBHOOK_TOKEN
+
+const notifyChanged = (ids: Array<string | number>) => {
+  if (!CHANGE_WEBHOOK_URL) return
+  fetch(CHANGE_WEBHOOK_URL, {
+    method: 'POST',
+    headers: {
+      'content-type': 'application/json',
+      ...(CHANGE_WEBHOOK_TOKEN ? { authorization: `Bearer ${CHANGE_WEBHOOK_TOKEN}` } : {}),
+    },
+    body: JSON.stringify({ ids: ids.map(String) }),
+    signal: AbortSignal.timeout(2000),
+  }).catch((err: unknown) => fastify.log.warn({ err }, 'change notification failed'))
+}
+
 // GET all products
 fastify.get('/products', async (request, reply) => {
-  return products
+  return sendConditional(request, reply, products, productsModifiedAt)
 })
 
 // GET single product
@@ -44,6 +85,8 @@ fastify.post<{ Body: Omit<Product, 'id'> }>('/products', async (request, reply)
     ...request.body
   }
   products.push(newProduct)
+  productsModifiedAt = new Date()
+  notifyChanged([newProduct.id])
   return reply.code(201).send(newProduct)
 })
 